@@ -0,0 +1,67 @@
+package src;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The BulkBenchmark class measures the matching of a batch of accepted words,
+ * word by word and with a BulkMatcher, by state count and input length.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkBenchmark {
+    @Param({"1000", "100000"})
+    public int stateCount;
+
+    @Param({"16"})
+    public int alphabetSize;
+
+    @Param({"16", "256"})
+    public int inputLength;
+
+    @Param({"10000"})
+    public int batchSize;
+
+    private CompiledAutomaton compiled;
+    private BulkMatcher bulk;
+    private String[] words;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        compiled = Workloads.randomDfa(stateCount, alphabetSize, 42).compile();
+        bulk = new BulkMatcher(compiled);
+        words = Workloads.acceptedWords(compiled, batchSize, inputLength, 7);
+    }
+
+    @Benchmark
+    public int sequential() {
+        int accepted = 0;
+        for (String word : words) {
+            if (compiled.belongs(word)) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    @Benchmark
+    public boolean[] bulk() {
+        return bulk.belongs(words);
+    }
+}
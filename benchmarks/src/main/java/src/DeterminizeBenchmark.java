@@ -0,0 +1,61 @@
+package src;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The DeterminizeBenchmark class measures the subset construction on a
+ * nondeterministic automaton and the minimization of a deterministic one, by
+ * state count and alphabet size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeterminizeBenchmark {
+    /**
+     * Bound of the subset construction, so that an explosion fails instead of exhausting the heap
+     */
+    private static final int MAX_DFA_STATES = 1 << 20;
+
+    @Param({"256", "4096"})
+    public int stateCount;
+
+    @Param({"2", "8"})
+    public int alphabetSize;
+
+    private Automaton nfa;
+    private CompiledAutomaton dfa;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        nfa = Workloads.randomNfa(stateCount, alphabetSize, 42);
+        dfa = Workloads.randomDfa(stateCount, alphabetSize, 42).compile();
+    }
+
+    @Benchmark
+    public CompiledAutomaton determinize() {
+        Determinizer determinizer = new Determinizer(nfa);
+        determinizer.setMaxStates(MAX_DFA_STATES);
+        return determinizer.determinize();
+    }
+
+    @Benchmark
+    public CompiledAutomaton minimize() {
+        return Minimizer.minimize(dfa);
+    }
+}
@@ -0,0 +1,68 @@
+package src;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The IncrementalBenchmark class compares bringing the compiled form up to
+ * date after a batch of added transitions through an IncrementalCompiler with
+ * compiling the whole automaton again. The added transitions use symbols the
+ * random automaton lacks, so every one of them changes a row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IncrementalBenchmark {
+    @Param({"10000", "1000000"})
+    public int stateCount;
+
+    @Param({"4"})
+    public int alphabetSize;
+
+    @Param({"1000"})
+    public int batchSize;
+
+    private Automaton automaton;
+    private List<src.State> states;
+    private IncrementalCompiler compiler;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        automaton = Workloads.randomDfa(stateCount, alphabetSize, 42);
+        states = automaton.getStates();
+        compiler = automaton.incrementalCompiler();
+        random = new Random(1);
+    }
+
+    @Benchmark
+    public ChunkedAutomaton incremental() {
+        for (int i = 0; i < batchSize; i++) {
+            char symbol = Workloads.SYMBOLS.charAt(alphabetSize + random.nextInt(4));
+            automaton.addTransition(states.get(random.nextInt(stateCount)), states.get(random.nextInt(stateCount)), symbol);
+        }
+        return compiler.snapshot();
+    }
+
+    @Benchmark
+    public CompiledAutomaton full() {
+        return automaton.compile();
+    }
+}
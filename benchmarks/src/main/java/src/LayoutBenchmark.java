@@ -0,0 +1,77 @@
+package src;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The LayoutBenchmark class compares matching a production-like corpus, drawn
+ * with Zipf frequencies from a vocabulary of skewed words, on the
+ * breadth-first compiled table and on the table laid out by a
+ * TransitionProfiler trained on another sample of the same distribution.
+ * Cache misses can be compared by adding "-prof perfnorm" on Linux.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LayoutBenchmark {
+    @Param({"10000", "1000000"})
+    public int stateCount;
+
+    @Param({"4"})
+    public int alphabetSize;
+
+    @Param({"64"})
+    public int inputLength;
+
+    private CompiledAutomaton breadthFirst;
+    private CompiledAutomaton hotPath;
+    private String[] words;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Automaton automaton = Workloads.randomDfa(stateCount, alphabetSize, 42);
+        breadthFirst = automaton.compile();
+        TransitionProfiler profiler = new TransitionProfiler(automaton);
+        String[] vocabulary = Workloads.skewedWords(alphabetSize, 20000, inputLength, 1);
+        profiler.recordAll(Arrays.asList(Workloads.zipfSample(vocabulary, 20000, 2)));
+        profiler.reorderTransitions();
+        hotPath = profiler.compile();
+        words = Workloads.zipfSample(vocabulary, 1000, 3);
+    }
+
+    @Benchmark
+    public int breadthFirst() {
+        return count(breadthFirst);
+    }
+
+    @Benchmark
+    public int hotPath() {
+        return count(hotPath);
+    }
+
+    private int count(CompiledAutomaton compiled) {
+        int accepted = 0;
+        for (String word : words) {
+            if (compiled.belongs(word)) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+}
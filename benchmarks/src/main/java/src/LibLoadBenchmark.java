@@ -0,0 +1,42 @@
+package src;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The LibLoadBenchmark class measures the loading of the automata shipped in lib/,
+ * with the original parser and with the AutomatonLoader.
+ * It must run from the project root.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LibLoadBenchmark {
+    @Param({"lib/automate_facile.txt", "lib/automate_tp_personnage.txt"})
+    public String file;
+
+    @Benchmark
+    public Automaton parse() {
+        return new Automaton(file);
+    }
+
+    @Benchmark
+    public AutomatonSnapshot load() throws IOException {
+        return new AutomatonLoader().load(Path.of(file));
+    }
+}
@@ -0,0 +1,74 @@
+package src;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The MatchBenchmark class measures the matching of one accepted word, by
+ * state count, alphabet size and input length, with the original belongs and
+ * with the compiled engines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MatchBenchmark {
+    private static final int WORD_COUNT = 64;
+
+    @Param({"100", "10000"})
+    public int stateCount;
+
+    @Param({"4", "32"})
+    public int alphabetSize;
+
+    @Param({"16", "4096"})
+    public int inputLength;
+
+    private Automaton automaton;
+    private CompiledAutomaton compiled;
+    private WordMatcher matcher;
+    private String[] words;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        automaton = Workloads.randomDfa(stateCount, alphabetSize, 42);
+        compiled = automaton.compile();
+        matcher = automaton.matcher();
+        words = Workloads.acceptedWords(compiled, WORD_COUNT, inputLength, 7);
+    }
+
+    private String nextWord() {
+        next = (next + 1) & (WORD_COUNT - 1);
+        return words[next];
+    }
+
+    @Benchmark
+    public boolean automaton() {
+        return automaton.belongs(nextWord());
+    }
+
+    @Benchmark
+    public boolean compiled() {
+        return compiled.belongs(nextWord());
+    }
+
+    @Benchmark
+    public boolean matcher() {
+        return matcher.belongs(nextWord());
+    }
+}
@@ -0,0 +1,162 @@
+package src;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The Workloads class builds the seeded synthetic automata and words used by
+ * the benchmarks, so that every run measures the same inputs.
+ */
+final class Workloads {
+    /**
+     * Symbols available to synthetic automata, none of them special in the text format
+     */
+    static final String SYMBOLS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    private Workloads() {
+    }
+
+    /**
+     * Builds a complete deterministic automaton with random targets, about half of its states final
+     * @param stateCount Number of states
+     * @param alphabetSize Number of symbols, at most SYMBOLS.length()
+     * @param seed Seed of the random targets
+     * @return The automaton, whose initial state is q0
+     */
+    static Automaton randomDfa(int stateCount, int alphabetSize, long seed) {
+        Random random = new Random(seed);
+        Automaton automaton = new Automaton();
+        State[] states = addStates(automaton, stateCount, random);
+        automaton.setInitialState(states[0]);
+        for (State state : states) {
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                automaton.addTransition(state, states[random.nextInt(stateCount)], SYMBOLS.charAt(symbol));
+            }
+        }
+        return automaton;
+    }
+
+    /**
+     * Builds a nondeterministic automaton from a random deterministic one of
+     * half its size, whose states are split in two copies. A transition goes to
+     * the first copy of its target and, for a fifth of them, to the second copy
+     * too, and a tenth of the first copies have an epsilon transition to their
+     * second copy. Every subset then holds copies of a single state, so the
+     * subset construction stays within three times the deterministic automaton.
+     * @param stateCount Number of states, rounded down to an even number
+     * @param alphabetSize Number of symbols
+     * @param seed Seed of the random targets
+     * @return The automaton, whose initial state is q0
+     */
+    static Automaton randomNfa(int stateCount, int alphabetSize, long seed) {
+        Random random = new Random(seed);
+        int half = Math.max(1, stateCount / 2);
+        Automaton automaton = new Automaton();
+        State[] states = addStates(automaton, 2 * half, random);
+        automaton.setInitialState(states[0]);
+        for (int i = 0; i < half; i++) {
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                char c = SYMBOLS.charAt(symbol);
+                int target = 2 * random.nextInt(half);
+                boolean both = random.nextInt(5) == 0;
+                for (int copy = 2 * i; copy <= 2 * i + 1; copy++) {
+                    automaton.addTransition(states[copy], states[target], c);
+                    if (both) {
+                        automaton.addTransition(states[copy], states[target + 1], c);
+                    }
+                }
+            }
+            if (random.nextInt(10) == 0) {
+                automaton.addTransition(states[2 * i], states[2 * i + 1], Transition.EPSILON);
+            }
+        }
+        return automaton;
+    }
+
+    private static State[] addStates(Automaton automaton, int stateCount, Random random) {
+        State[] states = new State[stateCount];
+        for (int i = 0; i < stateCount; i++) {
+            states[i] = new State("q" + i, random.nextBoolean());
+            automaton.addState(states[i]);
+        }
+        return states;
+    }
+
+    /**
+     * Generates accepted words by random walks that end in an accepting state
+     * @param automaton The automaton walked
+     * @param count Number of words
+     * @param length Length of every word
+     * @param seed Seed of the walks
+     * @return The words
+     */
+    static String[] acceptedWords(CompiledAutomaton automaton, int count, int length, long seed) {
+        Random random = new Random(seed);
+        int symbolCount = automaton.getAlphabet().size();
+        String[] words = new String[count];
+        char[] word = new char[length];
+        for (int w = 0; w < count; ) {
+            int state = automaton.getInitialState();
+            for (int i = 0; i < length && state != CompiledAutomaton.DEAD; i++) {
+                int symbol = random.nextInt(symbolCount);
+                word[i] = automaton.getAlphabet().symbolAt(symbol);
+                state = automaton.target(state, symbol);
+            }
+            if (state != CompiledAutomaton.DEAD && automaton.isAccepting(state)) {
+                words[w++] = new String(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Generates words whose symbols follow a geometric distribution, the
+     * first symbol being the most frequent, as real inputs favour a few paths
+     * @param alphabetSize Number of symbols
+     * @param count Number of words
+     * @param length Length of every word
+     * @param seed Seed of the symbols
+     * @return The words
+     */
+    static String[] skewedWords(int alphabetSize, int count, int length, long seed) {
+        Random random = new Random(seed);
+        String[] words = new String[count];
+        char[] word = new char[length];
+        for (int w = 0; w < count; w++) {
+            for (int i = 0; i < length; i++) {
+                int symbol = 0;
+                while (symbol < alphabetSize - 1 && random.nextInt(3) != 0) {
+                    symbol++;
+                }
+                word[i] = SYMBOLS.charAt(symbol);
+            }
+            words[w] = new String(word);
+        }
+        return words;
+    }
+
+    /**
+     * Draws words from a vocabulary with Zipf frequencies: the word of rank r
+     * is drawn with a probability proportional to 1 / r, as requests and log
+     * lines repeat a few popular shapes
+     * @param vocabulary The distinct words, the most frequent first
+     * @param count Number of words drawn
+     * @param seed Seed of the draws
+     * @return The words
+     */
+    static String[] zipfSample(String[] vocabulary, int count, long seed) {
+        double[] cumulative = new double[vocabulary.length];
+        double sum = 0;
+        for (int r = 0; r < vocabulary.length; r++) {
+            sum += 1.0 / (r + 1);
+            cumulative[r] = sum;
+        }
+        Random random = new Random(seed);
+        String[] words = new String[count];
+        for (int w = 0; w < count; w++) {
+            int r = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            words[w] = vocabulary[Math.min(vocabulary.length - 1, r < 0 ? -r - 1 : r)];
+        }
+        return words;
+    }
+}
@@ -0,0 +1,90 @@
+package src;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The Alphabet class maps the symbols of an automaton to dense indices
+ * (0 to size() - 1) so that compiled matchers can address flat tables.
+ * Latin-1 symbols are resolved through a direct lookup array and the other
+ * symbols through a binary search, so a lookup never boxes nor allocates.
+ */
+public class Alphabet {
+    /**
+     * Index returned for a symbol that does not belong to the alphabet
+     */
+    public static final int NO_SYMBOL = -1;
+
+    private static final int DIRECT_LIMIT = 256;
+
+    private final char[] symbols;
+    private final int[] direct;
+
+    /**
+     * Constructor for creating an alphabet from a set of symbols
+     * @param symbols The symbols of the alphabet, in any order
+     */
+    public Alphabet(Collection<Character> symbols) {
+        char[] sorted = new char[symbols.size()];
+        int i = 0;
+        for (char symbol : symbols) {
+            sorted[i++] = symbol;
+        }
+        Arrays.sort(sorted);
+        this.symbols = sorted;
+
+        this.direct = new int[DIRECT_LIMIT];
+        Arrays.fill(direct, NO_SYMBOL);
+        for (int index = 0; index < sorted.length && sorted[index] < DIRECT_LIMIT; index++) {
+            direct[sorted[index]] = index;
+        }
+    }
+
+    /**
+     * Gets the dense index of a symbol
+     * @param symbol The symbol to look up
+     * @return The index of the symbol, or NO_SYMBOL if it is not part of the alphabet
+     */
+    public int indexOf(char symbol) {
+        if (symbol < DIRECT_LIMIT) {
+            return direct[symbol];
+        }
+        int index = Arrays.binarySearch(symbols, symbol);
+        return index >= 0 ? index : NO_SYMBOL;
+    }
+
+    /**
+     * Checks if a symbol belongs to the alphabet
+     * @param symbol The symbol to check
+     * @return true if the symbol is part of the alphabet, false otherwise
+     */
+    public boolean contains(char symbol) {
+        return indexOf(symbol) != NO_SYMBOL;
+    }
+
+    /**
+     * Gets the symbol stored at a given index
+     * @param index Dense index of the symbol
+     * @return The symbol
+     */
+    public char symbolAt(int index) {
+        return symbols[index];
+    }
+
+    /**
+     * Gets the number of symbols in the alphabet
+     * @return The size of the alphabet
+     */
+    public int size() {
+        return symbols.length;
+    }
+
+    /**
+     * Generate a string representation of this alphabet
+     * @return The symbols of the alphabet in index order
+     */
+    @Override
+    public String toString() {
+        return Arrays.toString(symbols);
+    }
+}
@@ -1,27 +1,54 @@
 package src;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 public class Automaton {
 
     private State initialState;
-    private State currentState;
     private List<State> states;
     private List<State> finalStates;
     private List<Transition> transitions;
     private Set<Character> alphabet;
+    private final SymbolTable symbols = new SymbolTable();
+    private boolean tokens;
+    private String initialStackOperation;
+    private final GuardVariables guardVariables;
+    private MatchMetrics metrics = MatchMetrics.NOOP;
+    private Map<State, Integer> stateIndices = Collections.emptyMap();
+    private Map<Transition, Integer> transitionIndices = Collections.emptyMap();
+    private IncrementalCompiler incrementalCompiler;
 
     /**
      * Basic constructor
      */
     public Automaton() {
-        this.states = new ArrayList<>();
-        this.finalStates = new ArrayList<>();
-        this.transitions = new ArrayList<>();
-        this.alphabet = new HashSet<>();
+        this(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new HashSet<>(), new GuardVariables());
+    }
+
+    /**
+     * Constructor for an automaton over existing lists, such as the read-only
+     * views of an OffHeapAutomaton
+     * @param states List of the states
+     * @param finalStates List of the final states
+     * @param transitions List of the transitions
+     * @param alphabet Set of the symbols
+     * @param guardVariables Slot table of the compiled conditions
+     */
+    Automaton(List<State> states, List<State> finalStates, List<Transition> transitions, Set<Character> alphabet,
+              GuardVariables guardVariables) {
+        this.states = states;
+        this.finalStates = finalStates;
+        this.transitions = transitions;
+        this.alphabet = alphabet;
+        this.guardVariables = guardVariables;
+        for (char symbol : alphabet) {
+            symbols.internCodePoint(symbol);
+        }
     }
 
     /**
@@ -43,7 +70,7 @@ public class Automaton {
      * @throws IOException If file read operations fail
      */
     private void loadFromFile(String fileName) throws IOException {
-        BufferedReader reader = new BufferedReader(new FileReader(fileName));
+        BufferedReader reader = Files.newBufferedReader(Path.of(fileName), StandardCharsets.UTF_8);
         String line;
         Map<String, State> stateMap = new HashMap<>();
 
@@ -105,6 +132,7 @@ public class Automaton {
      * Processes a transition line in the defined format
      * @param line Transition line
      * @param stateMap Mapping of state names to State objects
+     * @throws IllegalArgumentException If the condition is malformed
      */
     private void processTransition(String line, Map<String, State> stateMap) {
         // Format: <origin_state> -> <destination_state> : <condition>; <symbol>; <stack_operations>
@@ -138,10 +166,12 @@ public class Automaton {
                 initialState = new State(destinationStateStr, false);
                 stateMap.put(destinationStateStr, initialState);
                 originState = initialState;
-                currentState = initialState; // At the start, the current state is the initial state
             } else {
                 originState = initialState;
             }
+            if (!stackOperationsStr.isEmpty()) {
+                initialStackOperation = stackOperationsStr;
+            }
 
             return;
         } else {
@@ -149,7 +179,6 @@ public class Automaton {
             // If this is the first transition of the automaton and we don't have an initial state yet
             if (initialState == null && originState != null) {
                 initialState = originState;
-                currentState = initialState;
             }
         }
 
@@ -158,6 +187,7 @@ public class Automaton {
         if (destinationStateStr.equals("-")) {
             originState.setFinal(true);
             finalStates.add(originState);
+            return;
         }
 
         // Check if states exist
@@ -166,37 +196,19 @@ public class Automaton {
             return;
         }
 
-        // Process the symbol
-        char symbol;
-        if (symbolStr.length() == 1) {
-            symbol = symbolStr.charAt(0);
-        } else {
-            // Handle special symbols like "ε" (epsilon)
-            if (symbolStr.equals("ε")) {
-                symbol = 'ε';
-            } else if (symbolStr.equals("⊥")) {
-                symbol = '⊥';
-            } else {
-                // For other multi-character symbols like "P5", "P10", etc.
-                symbol = symbolStr.charAt(0); // Take the first character by default
-            }
-        }
-
-        // Add the transition
-        Transition transition = new Transition(originState, destinationState, symbol);
+        // Add the transition, shared between the origin state and the automaton
+        Transition transition = addTransition(originState, destinationState, symbolStr);
 
         // Add additional information to the transition if necessary
         if (!conditionStr.equals("-")) {
             transition.setCondition(conditionStr);
+            transition.setGuard(Guard.compile(conditionStr, guardVariables));
         }
 
         if (!stackOperationsStr.isEmpty()) {
             transition.setStackOperation(stackOperationsStr);
+            PushdownAutomaton.internConditions(stackOperationsStr, guardVariables);
         }
-
-        this.transitions.add(transition);
-        this.alphabet.add(symbol);
-        originState.addTransition(destinationState, symbol);
     }
 
     /**
@@ -215,12 +227,51 @@ public class Automaton {
      * @param originState The origin state of the transition
      * @param finalState The destination state of the transition
      * @param symbol The symbol that triggers the transition
+     * @return The created transition
+     */
+    public Transition addTransition(State originState, State finalState, char symbol) {
+        return addTransition(originState.addTransition(finalState, symbol));
+    }
+
+    /**
+     * Adds a transition on a symbol written as text, such as "ε" or "P10".
+     * Character based engines see the first character of a multi-character
+     * symbol, belongs and TokenMatcher the whole symbol.
+     * @param originState The origin state of the transition
+     * @param finalState The destination state of the transition
+     * @param symbol The text of the symbol that triggers the transition
+     * @return The created transition
+     * @throws IllegalArgumentException If the symbol has several characters and an
+     * IncrementalCompiler is attached
+     */
+    public Transition addTransition(State originState, State finalState, String symbol) {
+        if (symbol.equals("ε")) {
+            return addTransition(originState, finalState, Transition.EPSILON);
+        }
+        if (symbol.length() > 1 && incrementalCompiler != null) {
+            throw new IllegalArgumentException("Incremental compilation cannot read the symbol " + symbol
+                    + ", only TokenMatcher can");
+        }
+        Transition transition = originState.addTransition(finalState, symbol.charAt(0));
+        if (symbol.length() > 1) {
+            transition.setToken(symbol);
+        }
+        return addTransition(transition);
+    }
+
+    /**
+     * Registers a transition already added to its origin state
      */
-    public void addTransition(State originState, State finalState, char symbol) {
-        Transition transition = new Transition(originState, finalState, symbol);
+    private Transition addTransition(Transition transition) {
         this.transitions.add(transition);
-        this.alphabet.add(symbol);
-        originState.addTransition(finalState, symbol);
+        this.alphabet.add(transition.getSymbol());
+        String token = transition.getToken();
+        symbols.intern(token);
+        tokens |= token.length() > 1;
+        if (incrementalCompiler != null) {
+            incrementalCompiler.transitionAdded(transition);
+        }
+        return transition;
     }
 
     /**
@@ -242,49 +293,235 @@ public class Automaton {
     }
 
     /**
-     * Checks if a word belongs to the language defined by this automaton
+     * Compiles this automaton into an immutable transition table
+     * @return The compiled automaton, accepting the same words as belongs
+     * @throws IllegalArgumentException If a symbol has several characters, such as "P10"
+     */
+    public CompiledAutomaton compile() {
+        return CompiledAutomaton.compile(this);
+    }
+
+    /**
+     * Gets the compiler keeping a compiled form of this automaton up to date
+     * as transitions are added, attaching it on the first call
+     * @return The compiler, whose snapshot() accepts the same words as belongs
+     * @throws IllegalArgumentException If a symbol has several characters, such as "P10"
+     */
+    public IncrementalCompiler incrementalCompiler() {
+        if (incrementalCompiler == null) {
+            if (tokens) {
+                throw new IllegalArgumentException("Incremental compilation cannot read multi-character symbols, "
+                        + "only TokenMatcher can");
+            }
+            incrementalCompiler = new IncrementalCompiler(this);
+        }
+        return incrementalCompiler;
+    }
+
+    /**
+     * Builds a deterministic automaton accepting the same words, following epsilon
+     * transitions without consuming input
+     * @return The determinized automaton
+     */
+    public CompiledAutomaton determinize() {
+        return new Determinizer(this).determinize();
+    }
+
+    /**
+     * Builds the minimal deterministic automaton accepting the same words
+     * @return A new minimal automaton
+     */
+    public Automaton minimize() {
+        return Minimizer.minimize(this);
+    }
+
+    /**
+     * Builds a matcher for this automaton, choosing the engine from its size and shape
+     * @return A matcher following epsilon transitions without consuming input
+     */
+    public WordMatcher matcher() {
+        return WordMatcher.of(NfaGraph.of(this));
+    }
+
+    /**
+     * Builds a matcher reading multi-character symbols such as "P10" as single symbols
+     * @return A matcher over the full symbol texts
+     */
+    public TokenMatcher tokenMatcher() {
+        return TokenMatcher.compile(this);
+    }
+
+    /**
+     * Takes an immutable snapshot of this automaton, safe to share between threads
+     * @return The snapshot of every state, those reachable from the initial state first
+     */
+    public AutomatonSnapshot snapshot() {
+        return AutomatonSnapshot.of(this);
+    }
+
+    /**
+     * Lists the states reachable from the initial state, in breadth-first order.
+     * The initial state comes first, then the targets of its transitions in the
+     * order they were added, and so on.
+     * @return List of reachable states, empty if there is no initial state
+     */
+    List<State> reachableStates() {
+        List<State> reachable = new ArrayList<>();
+        if (initialState == null) {
+            return reachable;
+        }
+
+        Set<State> visited = new HashSet<>();
+        visited.add(initialState);
+        reachable.add(initialState);
+        for (int i = 0; i < reachable.size(); i++) {
+            for (Transition t : reachable.get(i).getTransitions()) {
+                if (visited.add(t.getFinalState())) {
+                    reachable.add(t.getFinalState());
+                }
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Checks if a word belongs to the language defined by this automaton.
+     * When some symbols have several characters, such as "P10", the word is
+     * read one longest symbol at a time, as TokenMatcher does.
+     * Rejections are counted by reason in the metrics of the automaton, when enabled.
      * @param word The word to check
      * @return true if the word belongs to the automaton's language, false otherwise
      */
     boolean belongs(String word) {
+        MatchMetrics metrics = this.metrics;
+        if (metrics.isEnabled()) {
+            return belongsMeasured(word, metrics);
+        }
         if (initialState == null) {
-            System.out.println("The automaton does not have a defined initial state.");
             return false;
         }
 
         State currentState = initialState;
 
-        for (int i = 0; i < word.length(); i++) {
-            char symbol = word.charAt(i);
+        for (int i = 0; i < word.length(); ) {
+            int id = tokens ? symbols.match(word, i) : symbols.idOfCodePoint(word.charAt(i));
 
-            if (!alphabet.contains(symbol)) {
-                System.out.println("The symbol '" + symbol + "' does not belong to the automaton's alphabet.");
+            if (id == SymbolTable.NO_SYMBOL) {
                 return false;
             }
 
-            State nextState = currentState.getNextState(symbol);
+            State nextState = tokens
+                    ? currentState.getNextState(symbols.tokenAt(id))
+                    : currentState.getNextState(word.charAt(i));
 
             if (nextState == null) {
-                System.out.println("Error: No transition from state '" +
-                        currentState.getName() + "' with symbol '" + symbol + "'.");
                 return false;
             }
             currentState = nextState;
+            i += tokens ? symbols.tokenLength(id) : 1;
+        }
+
+        return currentState.isFinal();
+    }
+
+    /**
+     * Checks if a word belongs to the language, counting states, transitions,
+     * the outcome and the time taken
+     */
+    private boolean belongsMeasured(String word, MatchMetrics metrics) {
+        long start = System.nanoTime();
+        if (initialState == null) {
+            metrics.recordRejected(RejectReason.NO_INITIAL_STATE, System.nanoTime() - start);
+            return false;
+        }
+
+        State currentState = initialState;
+        metrics.recordState(stateIndices.getOrDefault(currentState, -1));
+
+        for (int i = 0; i < word.length(); ) {
+            int id = tokens ? symbols.match(word, i) : symbols.idOfCodePoint(word.charAt(i));
+
+            if (id == SymbolTable.NO_SYMBOL) {
+                metrics.recordRejected(RejectReason.UNKNOWN_SYMBOL, System.nanoTime() - start);
+                return false;
+            }
+
+            Transition transition = tokens
+                    ? currentState.getTransition(symbols.tokenAt(id))
+                    : currentState.getTransition(word.charAt(i));
+            i += tokens ? symbols.tokenLength(id) : 1;
+
+            if (transition == null) {
+                metrics.recordRejected(RejectReason.MISSING_TRANSITION, System.nanoTime() - start);
+                return false;
+            }
+            metrics.recordTransition(transitionIndices.getOrDefault(transition, -1));
+            currentState = transition.getFinalState();
+            metrics.recordState(stateIndices.getOrDefault(currentState, -1));
         }
 
         if (!currentState.isFinal()) {
-            System.out.println("Error: The final state '" + currentState.getName() + "' is not an accepting state.");
+            metrics.recordRejected(RejectReason.NON_ACCEPTING_END, System.nanoTime() - start);
             return false;
         }
 
+        metrics.recordAccepted(System.nanoTime() - start);
         return true;
     }
 
+    /**
+     * Starts counting in belongs, with new metrics whose states are numbered
+     * in the order of reachableStates() and whose transitions are numbered by
+     * their position in getTransitions(). States and transitions added later
+     * are not counted individually.
+     * @return The new metrics, also returned by getMetrics()
+     */
+    public MatchMetrics enableMetrics() {
+        List<State> reachable = reachableStates();
+        Map<State, Integer> states = new HashMap<>();
+        String[] stateNames = new String[reachable.size()];
+        for (int i = 0; i < stateNames.length; i++) {
+            states.put(reachable.get(i), i);
+            stateNames[i] = reachable.get(i).getName();
+        }
+        Map<Transition, Integer> transitionNumbers = new HashMap<>();
+        String[] transitionNames = new String[transitions.size()];
+        int t = 0;
+        for (Transition transition : transitions) {
+            transitionNumbers.put(transition, t);
+            transitionNames[t++] = transition.getOriginState().getName() + " -> "
+                    + transition.getFinalState().getName() + " : " + transition.getToken();
+        }
+        stateIndices = states;
+        transitionIndices = transitionNumbers;
+        metrics = new MatchMetrics(stateNames, transitionNames);
+        return metrics;
+    }
+
+    /**
+     * Stops counting in belongs
+     */
+    public void disableMetrics() {
+        metrics = MatchMetrics.NOOP;
+        stateIndices = Collections.emptyMap();
+        transitionIndices = Collections.emptyMap();
+    }
+
+    /**
+     * Gets the metrics of belongs
+     * @return The metrics, MatchMetrics.NOOP when they are disabled
+     */
+    public MatchMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Resets the automaton to its initial state
+     * @deprecated The automaton keeps no run state; belongs always starts from the
+     * initial state. Use a MatchCursor to follow a run step by step.
      */
+    @Deprecated
     public void reset() {
-        this.currentState = initialState;
     }
 
     /**
@@ -295,6 +532,42 @@ public class Automaton {
         return initialState;
     }
 
+    /**
+     * Sets the initial state of the automaton
+     * @param initialState The new initial state
+     */
+    public void setInitialState(State initialState) {
+        boolean changed = this.initialState != initialState;
+        this.initialState = initialState;
+        if (changed && incrementalCompiler != null) {
+            incrementalCompiler.rebuild();
+        }
+    }
+
+    /**
+     * Gets the stack operation of the initial transition ("- -> state" line)
+     * @return The stack operations string, or null if there is none
+     */
+    public String getInitialStackOperation() {
+        return initialStackOperation;
+    }
+
+    /**
+     * Sets the stack operation applied when entering the initial state
+     * @param initialStackOperation The stack operations string, or null
+     */
+    public void setInitialStackOperation(String initialStackOperation) {
+        this.initialStackOperation = initialStackOperation;
+    }
+
+    /**
+     * Gets the variables used by the conditions of the transitions
+     * @return The slot table shared by all the guards of this automaton
+     */
+    public GuardVariables getGuardVariables() {
+        return guardVariables;
+    }
+
     /**
      * Gets the list of final/accepting states
      * @return List of final states
@@ -327,6 +600,22 @@ public class Automaton {
         return alphabet;
     }
 
+    /**
+     * Gets the table of the symbols, multi-character ones such as "P10" included
+     * @return The symbol table, which grows with the automaton
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Checks if some symbol has several characters, such as "P10"
+     * @return true if only TokenMatcher reads this automaton like belongs, false otherwise
+     */
+    public boolean hasTokens() {
+        return tokens;
+    }
+
     /**
      * Generate a string representation of this automaton
      * @return A string describing the automaton's properties
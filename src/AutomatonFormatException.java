@@ -0,0 +1,32 @@
+package src;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The AutomatonFormatException class signals an automaton file that does not
+ * follow lib/grammaire.txt. It carries every problem found, not only the first.
+ */
+public class AutomatonFormatException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final List<LoadDiagnostic> diagnostics;
+
+    /**
+     * Constructor for an exception listing the problems of a file
+     * @param fileName Name of the file
+     * @param diagnostics The problems found, in file order
+     */
+    public AutomatonFormatException(String fileName, List<LoadDiagnostic> diagnostics) {
+        super(fileName + ": " + diagnostics.size() + " error(s), first at " + diagnostics.get(0));
+        this.diagnostics = List.copyOf(diagnostics);
+    }
+
+    /**
+     * Gets the problems found in the file
+     * @return The diagnostics, in file order
+     */
+    public List<LoadDiagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+}
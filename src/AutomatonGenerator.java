@@ -0,0 +1,588 @@
+package src;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The AutomatonGenerator class writes random automata in the syntax of
+ * lib/grammaire.txt, with test files in the format of lib/tests_*.txt, for
+ * testing at scale. Nothing is held in memory: the transitions of a state are
+ * a pure function of the seed and of the state number, so they are drawn
+ * again whenever they are needed, and both files are written line by line.
+ * The same seed and settings always give the same files.
+ *
+ * State i is named "qi" and q0 is initial. For each symbol of the alphabet, a
+ * state has a transition with probability density, and a second one on the
+ * same symbol with probability nondeterminism; with probability epsilonRatio
+ * an epsilon transition is inserted among them. Stack operations and guards
+ * are added to a share of the transitions; they are written out but do not
+ * take part in the expected results of the tests, which are those of
+ * Automaton.belongs and CompiledAutomaton: the first transition whose symbol
+ * matches or is epsilon is followed.
+ */
+public class AutomatonGenerator {
+    /**
+     * Largest supported alphabet: letters and digits, then CJK ideographs
+     */
+    public static final int MAX_ALPHABET_SIZE = 62 + 0x5200 - 1;
+
+    private static final String ASCII_SYMBOLS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    private static final char FIRST_CJK_SYMBOL = '一';
+    private static final int EPSILON = -1;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final int GUARD_VARIABLES = 8;
+    private static final int MAX_ATTEMPTS_PER_WORD = 1000;
+
+    private final long seed;
+    private int stateCount = 1000;
+    private int alphabetSize = 8;
+    private double density = 1.0;
+    private double nondeterminism = 0.0;
+    private double epsilonRatio = 0.0;
+    private double finalRatio = 0.3;
+    private double stackRatio = 0.0;
+    private double guardRatio = 0.0;
+
+    // Transitions of the last state drawn, symbols are alphabet indexes or EPSILON
+    private int rowState = -1;
+    private int rowCount;
+    private int[] rowSymbols = new int[16];
+    private int[] rowTargets = new int[16];
+    private long random;
+    private BitSet usedSymbols;
+
+    /**
+     * Constructor for a generator
+     * @param seed Seed from which everything is drawn
+     */
+    public AutomatonGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the number of states
+     * @param stateCount The number of states, 1000 by default
+     */
+    public void setStateCount(int stateCount) {
+        if (stateCount < 1) {
+            throw new IllegalArgumentException("At least one state is needed: " + stateCount);
+        }
+        this.stateCount = stateCount;
+        invalidate();
+    }
+
+    /**
+     * Sets the number of symbols
+     * @param alphabetSize The number of symbols, 8 by default
+     */
+    public void setAlphabetSize(int alphabetSize) {
+        if (alphabetSize < 1 || alphabetSize > MAX_ALPHABET_SIZE) {
+            throw new IllegalArgumentException("Alphabet size out of range: " + alphabetSize);
+        }
+        this.alphabetSize = alphabetSize;
+        invalidate();
+    }
+
+    /**
+     * Sets the probability that a state has a transition on a given symbol
+     * @param density A probability, 1 by default (complete automata)
+     */
+    public void setDensity(double density) {
+        this.density = probability(density);
+        invalidate();
+    }
+
+    /**
+     * Sets the probability that a transition has a second one on the same symbol
+     * @param nondeterminism A probability, 0 by default
+     */
+    public void setNondeterminism(double nondeterminism) {
+        this.nondeterminism = probability(nondeterminism);
+        invalidate();
+    }
+
+    /**
+     * Sets the probability that a state has an epsilon transition
+     * @param epsilonRatio A probability, 0 by default
+     */
+    public void setEpsilonRatio(double epsilonRatio) {
+        this.epsilonRatio = probability(epsilonRatio);
+        invalidate();
+    }
+
+    /**
+     * Sets the probability that a state is final
+     * @param finalRatio A probability, 0.3 by default
+     */
+    public void setFinalRatio(double finalRatio) {
+        this.finalRatio = probability(finalRatio);
+    }
+
+    /**
+     * Sets the probability that a transition has a stack operation
+     * @param stackRatio A probability, 0 by default
+     */
+    public void setStackRatio(double stackRatio) {
+        this.stackRatio = probability(stackRatio);
+    }
+
+    /**
+     * Sets the probability that a transition has a guard
+     * @param guardRatio A probability, 0 by default
+     */
+    public void setGuardRatio(double guardRatio) {
+        this.guardRatio = probability(guardRatio);
+    }
+
+    private static double probability(double p) {
+        if (!(p >= 0 && p <= 1)) {
+            throw new IllegalArgumentException("Probability out of range: " + p);
+        }
+        return p;
+    }
+
+    private void invalidate() {
+        rowState = -1;
+        usedSymbols = null;
+    }
+
+    /**
+     * Gets the character of a symbol
+     * @param index Index of the symbol, from 0 to MAX_ALPHABET_SIZE
+     * @return The character written for the symbol
+     */
+    public static char symbolAt(int index) {
+        return index < ASCII_SYMBOLS.length() ? ASCII_SYMBOLS.charAt(index)
+                : (char) (FIRST_CJK_SYMBOL + index - ASCII_SYMBOLS.length());
+    }
+
+    private static int indexOf(char symbol) {
+        if (symbol >= FIRST_CJK_SYMBOL && symbol < FIRST_CJK_SYMBOL + MAX_ALPHABET_SIZE + 1 - ASCII_SYMBOLS.length()) {
+            return ASCII_SYMBOLS.length() + symbol - FIRST_CJK_SYMBOL;
+        }
+        return ASCII_SYMBOLS.indexOf(symbol);
+    }
+
+    /**
+     * Writes the automaton
+     * @param path The file to create
+     * @throws IOException If the file cannot be written
+     */
+    public void writeAutomaton(Path path) throws IOException {
+        try (Writer out = newWriter(path)) {
+            writeAutomaton(out);
+        }
+    }
+
+    /**
+     * Writes the automaton, one line at a time
+     * @param out Where to write it
+     * @throws IOException If writing fails
+     */
+    public void writeAutomaton(Writer out) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        for (int state = 0; state < stateCount; state++) {
+            line.setLength(0);
+            line.append('q').append(state).append('\n');
+            out.append(line);
+        }
+        out.append(stackRatio > 0 ? "- -> q0 : -; ε; ⊥/⊥Z\n" : "- -> q0 : -; ε;\n");
+
+        for (int state = 0; state < stateCount; state++) {
+            loadRow(state);
+            for (int t = 0; t < rowCount; t++) {
+                line.setLength(0);
+                line.append('q').append(state).append(" -> q").append(rowTargets[t]).append(" : ");
+                long decoration = mix(seed ^ (((long) state << 20) + t) * GOLDEN_GAMMA);
+                if (unit(decoration) < guardRatio) {
+                    appendGuard(line, mix(decoration + GOLDEN_GAMMA));
+                } else {
+                    line.append('-');
+                }
+                line.append("; ").append(rowSymbols[t] == EPSILON ? Transition.EPSILON : symbolAt(rowSymbols[t]))
+                        .append(';');
+                long stack = mix(decoration + 2 * GOLDEN_GAMMA);
+                if (unit(stack) < stackRatio) {
+                    line.append(' ');
+                    appendStackOperation(line, mix(stack + GOLDEN_GAMMA));
+                }
+                line.append('\n');
+                out.append(line);
+            }
+            if (isFinal(state)) {
+                line.setLength(0);
+                line.append('q').append(state).append(" -> - : -; ;\n");
+                out.append(line);
+            }
+        }
+    }
+
+    private static void appendGuard(StringBuilder line, long bits) {
+        line.append("[c").append(bits & (GUARD_VARIABLES - 1))
+                .append((bits & 8) == 0 ? " < " : " >= ").append((bits >>> 4) & 15);
+        if ((bits & 256) != 0) {
+            line.append((bits & 512) == 0 ? " and f" : " or f").append((bits >>> 10) & (GUARD_VARIABLES - 1));
+        }
+        line.append(']');
+    }
+
+    private static void appendStackOperation(StringBuilder line, long bits) {
+        char symbol = (char) ('A' + (bits & 3));
+        if ((bits & 4) == 0) {
+            line.append("Z/Z").append(symbol);
+        } else {
+            line.append('Z').append(symbol).append("/Z");
+        }
+    }
+
+    /**
+     * Writes a test file with accepted words first, then rejected ones
+     * @param path The file to create
+     * @param accepted Number of accepted words
+     * @param rejected Number of rejected words
+     * @param minLength Minimum length of the words
+     * @param maxLength Maximum length of the words
+     * @throws IOException If the file cannot be written
+     * @throws IllegalStateException If the automaton accepts too few words to find enough of them
+     */
+    public void writeTests(Path path, int accepted, int rejected, int minLength, int maxLength) throws IOException {
+        try (Writer out = newWriter(path)) {
+            writeTests(out, accepted, rejected, minLength, maxLength);
+        }
+    }
+
+    /**
+     * Writes test cases, one line at a time, with accepted words first, then rejected ones
+     * @param out Where to write them
+     * @param accepted Number of accepted words
+     * @param rejected Number of rejected words
+     * @param minLength Minimum length of the words
+     * @param maxLength Maximum length of the words
+     * @throws IOException If writing fails
+     * @throws IllegalStateException If the automaton accepts too few words to find enough of them
+     */
+    public void writeTests(Writer out, int accepted, int rejected, int minLength, int maxLength) throws IOException {
+        if (minLength < 0 || maxLength < minLength) {
+            throw new IllegalArgumentException("Invalid length range: " + minLength + ".." + maxLength);
+        }
+        // The words have their own stream of random numbers, so the tests do
+        // not depend on what was drawn for the automaton
+        random = seed ^ 0x5DEECE66DL;
+        StringBuilder word = new StringBuilder(maxLength + 16);
+        StringBuilder line = new StringBuilder(maxLength + 64);
+
+        out.append("# Fichier de tests généré (graine ").append(String.valueOf(seed)).append(")\n");
+        out.append("# Format : <séquence> -> <résultat attendu> [<commentaire>]\n\n# Tests valides\n\n");
+        for (int i = 0; i < accepted; i++) {
+            int attempts = 0;
+            while (!acceptedWord(word, length(minLength, maxLength))) {
+                if (++attempts == MAX_ATTEMPTS_PER_WORD) {
+                    throw new IllegalStateException("No accepted word found after " + attempts + " attempts");
+                }
+            }
+            appendTest(out, line, word, true, "mot accepté");
+        }
+
+        out.append("\n# Tests invalides\n\n");
+        for (int i = 0; i < rejected; i++) {
+            String comment = rejectedWord(word, length(minLength, maxLength));
+            appendTest(out, line, word, false, comment);
+        }
+    }
+
+    private static void appendTest(Writer out, StringBuilder line, CharSequence word, boolean expected,
+                                   String comment) throws IOException {
+        line.setLength(0);
+        line.append(word).append(" -> ").append(expected).append(" [").append(comment).append(']').append('\n');
+        out.append(line);
+    }
+
+    private int length(int minLength, int maxLength) {
+        return minLength + (int) (unit(nextRandom()) * (maxLength - minLength + 1));
+    }
+
+    /**
+     * Walks the automaton for the given length, then on until it reaches a
+     * final state, within as many steps again
+     */
+    private boolean acceptedWord(StringBuilder word, int length) {
+        word.setLength(0);
+        int state = 0;
+        for (int i = 0; i < 2 * length + 1; i++) {
+            if (i >= length && isFinal(state)) {
+                return true;
+            }
+            state = step(state, word);
+            if (state < 0) {
+                return false;
+            }
+        }
+        return isFinal(state);
+    }
+
+    /**
+     * Builds a rejected word: a walk ending in a state that is not final, a
+     * walk with one symbol replaced, or a walk with a symbol outside of the
+     * alphabet, in turn
+     * @return The comment of the test
+     */
+    private String rejectedWord(StringBuilder word, int length) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS_PER_WORD; attempt++) {
+            int state = 0;
+            word.setLength(0);
+            for (int i = 0; i < length && state >= 0; i++) {
+                state = step(state, word);
+            }
+            if (attempt % 2 == 0 && state >= 0 && !isFinal(state)) {
+                return "ne finit pas dans un état final";
+            }
+            if (word.length() > 0) {
+                int position = (int) (unit(nextRandom()) * word.length());
+                word.setCharAt(position, symbolAt((int) (unit(nextRandom()) * alphabetSize)));
+                if (!belongs(word)) {
+                    return "symbole remplacé";
+                }
+            }
+        }
+        int position = (int) (unit(nextRandom()) * (word.length() + 1));
+        word.insert(position, symbolAt(alphabetSize));
+        return "symbole hors de l'alphabet";
+    }
+
+    /**
+     * Appends a symbol of one of the transitions of a state and follows it
+     * @return The next state, or -1 if the state has no transition
+     */
+    private int step(int state, StringBuilder word) {
+        loadRow(state);
+        if (rowCount == 0) {
+            return -1;
+        }
+        int t = (int) (unit(nextRandom()) * rowCount);
+        int symbol = rowSymbols[t];
+        if (symbol == EPSILON) {
+            // An epsilon transition takes any symbol of the alphabet
+            symbol = (int) (unit(nextRandom()) * alphabetSize);
+            if (!usedSymbols().get(symbol)) {
+                return -1;
+            }
+        }
+        word.append(symbolAt(symbol));
+        return next(state, symbol);
+    }
+
+    /**
+     * Checks if a word belongs to the language of the automaton, as
+     * Automaton.belongs decides it on the written file
+     * @param word The word to check
+     * @return true if the word is accepted, false otherwise
+     */
+    public boolean belongs(CharSequence word) {
+        int state = 0;
+        for (int i = 0; i < word.length(); i++) {
+            int symbol = indexOf(word.charAt(i));
+            if (symbol < 0 || symbol >= alphabetSize || !usedSymbols().get(symbol)) {
+                return false;
+            }
+            state = next(state, symbol);
+            if (state < 0) {
+                return false;
+            }
+        }
+        return isFinal(state);
+    }
+
+    /**
+     * Follows the first transition of a state whose symbol matches or is epsilon
+     * @return The next state, or -1 if there is none
+     */
+    private int next(int state, int symbol) {
+        loadRow(state);
+        for (int t = 0; t < rowCount; t++) {
+            if (rowSymbols[t] == symbol || rowSymbols[t] == EPSILON) {
+                return rowTargets[t];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the symbols appearing on at least one transition, which make up the
+     * alphabet of the loaded automaton. Symbols can only be missing from it when
+     * transitions are sparse, so the states are only scanned in that case.
+     */
+    private BitSet usedSymbols() {
+        if (usedSymbols == null) {
+            BitSet used = new BitSet(alphabetSize);
+            if (density == 1.0) {
+                used.set(0, alphabetSize);
+            } else {
+                for (int state = 0; state < stateCount && used.cardinality() < alphabetSize; state++) {
+                    loadRow(state);
+                    for (int t = 0; t < rowCount; t++) {
+                        if (rowSymbols[t] != EPSILON) {
+                            used.set(rowSymbols[t]);
+                        }
+                    }
+                }
+            }
+            usedSymbols = used;
+        }
+        return usedSymbols;
+    }
+
+    /**
+     * Checks if a state is final
+     * @param state The state number
+     * @return true if the state is final
+     */
+    public boolean isFinal(int state) {
+        return unit(mix(seed ^ ~((long) state * GOLDEN_GAMMA))) < finalRatio;
+    }
+
+    /**
+     * Draws the transitions of a state into rowSymbols and rowTargets
+     */
+    private void loadRow(int state) {
+        if (state == rowState) {
+            return;
+        }
+        long h = seed ^ ((long) state * GOLDEN_GAMMA);
+        rowCount = 0;
+        for (int symbol = 0; symbol < alphabetSize; symbol++) {
+            h += GOLDEN_GAMMA;
+            long bits = mix(h);
+            if (unit(bits) < density) {
+                h += GOLDEN_GAMMA;
+                addToRow(rowCount, symbol, target(mix(h)));
+                h += GOLDEN_GAMMA;
+                if (unit(mix(h)) < nondeterminism) {
+                    h += GOLDEN_GAMMA;
+                    addToRow(rowCount, symbol, target(mix(h)));
+                }
+            }
+        }
+        h += GOLDEN_GAMMA;
+        if (unit(mix(h)) < epsilonRatio) {
+            h += GOLDEN_GAMMA;
+            long bits = mix(h);
+            addToRow((int) (unit(bits) * (rowCount + 1)), EPSILON, target(mix(h + GOLDEN_GAMMA)));
+        }
+        rowState = state;
+    }
+
+    private void addToRow(int position, int symbol, int target) {
+        if (rowCount == rowSymbols.length) {
+            rowSymbols = Arrays.copyOf(rowSymbols, rowCount * 2);
+            rowTargets = Arrays.copyOf(rowTargets, rowCount * 2);
+        }
+        System.arraycopy(rowSymbols, position, rowSymbols, position + 1, rowCount - position);
+        System.arraycopy(rowTargets, position, rowTargets, position + 1, rowCount - position);
+        rowSymbols[position] = symbol;
+        rowTargets[position] = target;
+        rowCount++;
+    }
+
+    private int target(long bits) {
+        return (int) ((bits >>> 1) % stateCount);
+    }
+
+    private long nextRandom() {
+        random += GOLDEN_GAMMA;
+        return mix(random);
+    }
+
+    /**
+     * Finalizer of SplitMix64, a bijection spreading every input bit over the output
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static double unit(long bits) {
+        return (bits >>> 11) * 0x1.0p-53;
+    }
+
+    private static Writer newWriter(Path path) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.UTF_8),
+                1 << 16);
+    }
+
+    /**
+     * Writes an automaton and its tests from the command line
+     * @param args automaton file, test file, then optional name=value settings among
+     *             seed, states, alphabet, density, nondeterminism, epsilon, final,
+     *             stack, guard, accepted, rejected, minLength and maxLength
+     * @throws IOException If a file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: AutomatonGenerator <automaton file> <test file> [name=value...]");
+            return;
+        }
+        long seed = 42;
+        int accepted = 100;
+        int rejected = 100;
+        int minLength = 1;
+        int maxLength = 20;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].startsWith("seed=")) {
+                seed = Long.parseLong(args[i].substring(5));
+            }
+        }
+        AutomatonGenerator generator = new AutomatonGenerator(seed);
+        for (int i = 2; i < args.length; i++) {
+            int equals = args[i].indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected name=value: " + args[i]);
+            }
+            String value = args[i].substring(equals + 1);
+            switch (args[i].substring(0, equals)) {
+                case "seed" -> { }
+                case "states" -> generator.setStateCount(Integer.parseInt(value));
+                case "alphabet" -> generator.setAlphabetSize(Integer.parseInt(value));
+                case "density" -> generator.setDensity(Double.parseDouble(value));
+                case "nondeterminism" -> generator.setNondeterminism(Double.parseDouble(value));
+                case "epsilon" -> generator.setEpsilonRatio(Double.parseDouble(value));
+                case "final" -> generator.setFinalRatio(Double.parseDouble(value));
+                case "stack" -> generator.setStackRatio(Double.parseDouble(value));
+                case "guard" -> generator.setGuardRatio(Double.parseDouble(value));
+                case "accepted" -> accepted = Integer.parseInt(value);
+                case "rejected" -> rejected = Integer.parseInt(value);
+                case "minLength" -> minLength = Integer.parseInt(value);
+                case "maxLength" -> maxLength = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Unknown setting: " + args[i]);
+            }
+        }
+        generator.writeAutomaton(Path.of(args[0]));
+        generator.writeTests(Path.of(args[1]), accepted, rejected, minLength, maxLength);
+    }
+
+    /**
+     * Generate a string representation of this generator
+     * @return A string with its settings
+     */
+    @Override
+    public String toString() {
+        return "AutomatonGenerator{" +
+                "seed=" + seed +
+                ", states=" + stateCount +
+                ", alphabet=" + alphabetSize +
+                ", density=" + density +
+                ", nondeterminism=" + nondeterminism +
+                ", epsilon=" + epsilonRatio +
+                ", final=" + finalRatio +
+                ", stack=" + stackRatio +
+                ", guard=" + guardRatio +
+                '}';
+    }
+}
@@ -0,0 +1,355 @@
+package src;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * The AutomatonImage class defines the binary file format of a compiled
+ * automaton and writes it. Images are opened with MappedAutomaton, which
+ * matches words straight from the mapped pages.
+ *
+ * All values are little-endian. The file starts with a 32 byte header:
+ * <pre>
+ *   int magic "AUTB", short version, short reserved,
+ *   int stateCount, int symbolCount, int initialState (-1 if none),
+ *   int sectionCount, long reserved
+ * </pre>
+ * followed by a directory of sectionCount entries (int id, int offset,
+ * int length, int reserved), then the sections, each aligned on 8 bytes:
+ * <ul>
+ *   <li>ALPHABET: the symbols in index order, one char each</li>
+ *   <li>SYMBOL_INDEX: 256 ints giving the index of each Latin-1 symbol, or -1</li>
+ *   <li>TABLE: stateCount * symbolCount ints, row-major, -1 for no transition</li>
+ *   <li>ACCEPTING, LIVE: bitsets of the states, as longs</li>
+ *   <li>STATE_NAMES: stateCount + 1 int offsets, then the UTF-8 names</li>
+ *   <li>GUARDS (optional): the guard variables and programs, and a second
+ *   table whose cells below -1 point to lists of guarded candidates</li>
+ *   <li>TRANSITIONS (optional): the transition list with conditions and stack
+ *   operations, from which a PushdownAutomaton is rebuilt</li>
+ * </ul>
+ * Readers skip the sections they do not know, so sections can be added without
+ * changing the version.
+ *
+ * An image is written to a temporary file of the same directory, forced to
+ * disk, then moved over the target in one step. Automata that mapped the
+ * previous file keep reading it, and a failed write leaves the target as it was.
+ */
+public class AutomatonImage {
+    /**
+     * First four bytes of an image, "AUTB"
+     */
+    public static final int MAGIC = 0x42545541;
+
+    /**
+     * Version written by this class
+     */
+    public static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 32;
+    static final int DIRECTORY_ENTRY_SIZE = 16;
+
+    static final int ALPHABET = 1;
+    static final int SYMBOL_INDEX = 2;
+    static final int TABLE = 3;
+    static final int ACCEPTING = 4;
+    static final int LIVE = 5;
+    static final int STATE_NAMES = 6;
+    static final int GUARDS = 7;
+    static final int TRANSITIONS = 8;
+
+    static final int DIRECT_SYMBOLS = 256;
+
+    private AutomatonImage() {
+    }
+
+    /**
+     * Writes the image of an automaton, with its guards and stack operations
+     * @param automaton The automaton to write
+     * @param path The file to create or replace
+     * @throws IOException If the file cannot be written
+     * @throws IllegalArgumentException If a symbol has several characters, such as "P10"
+     */
+    public static void write(Automaton automaton, Path path) throws IOException {
+        write(AutomatonSnapshot.of(automaton), automaton.getInitialStackOperation(), path);
+    }
+
+    /**
+     * Writes the image of a snapshot, with its guards and stack operations
+     * @param snapshot The snapshot to write
+     * @param initialStackOperation Operation of the "- -> state" line, or null
+     * @param path The file to create or replace
+     * @throws IOException If the file cannot be written
+     * @throws IllegalArgumentException If a symbol has several characters, such as "P10"
+     */
+    public static void write(AutomatonSnapshot snapshot, String initialStackOperation, Path path) throws IOException {
+        boolean guarded = false;
+        boolean stacked = initialStackOperation != null;
+        for (int t = 0; t < snapshot.getTransitionCount(); t++) {
+            guarded |= snapshot.getGuard(t) != null;
+            stacked |= snapshot.getStackOperation(t) != null;
+        }
+        write(snapshot.compile(), guarded ? GuardedMatcher.compile(snapshot) : null,
+                stacked ? snapshot : null, initialStackOperation, path);
+    }
+
+    /**
+     * Writes the image of a compiled automaton, such as a minimized or determinized one
+     * @param automaton The automaton to write
+     * @param path The file to create or replace
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(CompiledAutomaton automaton, Path path) throws IOException {
+        write(automaton, null, null, null, path);
+    }
+
+    private static void write(CompiledAutomaton automaton, GuardedMatcher guards, AutomatonSnapshot transitions,
+                              String initialStackOperation, Path path) throws IOException {
+        int stateCount = automaton.getStateCount();
+        Alphabet alphabet = automaton.getAlphabet();
+        int symbolCount = alphabet.size();
+        List<Integer> ids = new ArrayList<>();
+        for (int id = ALPHABET; id <= STATE_NAMES; id++) {
+            ids.add(id);
+        }
+        if (guards != null) {
+            ids.add(GUARDS);
+        }
+        if (transitions != null) {
+            ids.add(TRANSITIONS);
+        }
+
+        // Written next to the target then moved over it, so that a mapped image is never truncated
+        Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        boolean moved = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                SectionWriter out = new SectionWriter(channel);
+                int directorySize = ids.size() * DIRECTORY_ENTRY_SIZE;
+                out.skip(HEADER_SIZE + directorySize);
+                int[] offsets = new int[ids.size()];
+                int[] lengths = new int[ids.size()];
+
+                for (int s = 0; s < ids.size(); s++) {
+                    out.align();
+                    offsets[s] = out.position();
+                    switch (ids.get(s)) {
+                        case ALPHABET:
+                            for (int i = 0; i < symbolCount; i++) {
+                                out.putChar(alphabet.symbolAt(i));
+                            }
+                            break;
+                        case SYMBOL_INDEX:
+                            for (int c = 0; c < DIRECT_SYMBOLS; c++) {
+                                out.putInt(alphabet.indexOf((char) c));
+                            }
+                            break;
+                        case TABLE:
+                            for (int state = 0; state < stateCount; state++) {
+                                for (int symbol = 0; symbol < symbolCount; symbol++) {
+                                    out.putInt(automaton.target(state, symbol));
+                                }
+                            }
+                            break;
+                        case ACCEPTING:
+                        case LIVE:
+                            boolean accepting = ids.get(s) == ACCEPTING;
+                            for (int word = 0; word < (stateCount + 63) / 64; word++) {
+                                long bits = 0;
+                                for (int bit = 0; bit < 64 && word * 64 + bit < stateCount; bit++) {
+                                    int state = word * 64 + bit;
+                                    if (accepting ? automaton.isAccepting(state) : automaton.isLive(state)) {
+                                        bits |= 1L << bit;
+                                    }
+                                }
+                                out.putLong(bits);
+                            }
+                            break;
+                        case STATE_NAMES:
+                            writeStrings(out, stateCount, automaton::getStateName);
+                            break;
+                        case GUARDS:
+                            writeGuards(out, guards);
+                            break;
+                        default:
+                            writeTransitions(out, transitions, initialStackOperation);
+                            break;
+                    }
+                    lengths[s] = out.position() - offsets[s];
+                }
+                out.flush();
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + directorySize).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putShort((short) VERSION).putShort((short) 0)
+                        .putInt(stateCount).putInt(symbolCount).putInt(automaton.getInitialState())
+                        .putInt(ids.size()).putLong(0);
+                for (int s = 0; s < ids.size(); s++) {
+                    header.putInt(ids.get(s)).putInt(offsets[s]).putInt(lengths[s]).putInt(0);
+                }
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            moved = true;
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    /**
+     * GUARDS section: counter and flag names, one guard source per transition
+     * (empty if unguarded), the guarded table and its candidate lists
+     */
+    private static void writeGuards(SectionWriter out, GuardedMatcher guards) throws IOException {
+        GuardVariables variables = guards.variables;
+        int counterCount = variables.getCounterCount();
+        int flagCount = variables.getFlagCount();
+        out.putInt(counterCount);
+        out.putInt(flagCount);
+        out.putInt(guards.guards.length);
+        out.putInt(guards.table.length);
+        out.putInt(guards.candidates.length);
+        for (int slot = 0; slot < counterCount; slot++) {
+            out.putString(variables.getCounterName(slot));
+        }
+        for (int slot = 0; slot < flagCount; slot++) {
+            out.putString(variables.getFlagName(slot));
+        }
+        for (Guard guard : guards.guards) {
+            out.putString(guard == null ? "" : guard.getSource());
+        }
+        out.align();
+        for (int cell : guards.table) {
+            out.putInt(cell);
+        }
+        for (int candidate : guards.candidates) {
+            out.putInt(candidate);
+        }
+    }
+
+    /**
+     * TRANSITIONS section: the initial stack operation, then origin, target,
+     * symbol, condition and stack operations of each transition
+     */
+    private static void writeTransitions(SectionWriter out, AutomatonSnapshot snapshot,
+                                         String initialStackOperation) throws IOException {
+        out.putInt(snapshot.getTransitionCount());
+        out.putString(initialStackOperation == null ? "" : initialStackOperation);
+        for (int t = 0; t < snapshot.getTransitionCount(); t++) {
+            out.putInt(snapshot.getOrigin(t));
+            out.putInt(snapshot.getTarget(t));
+            out.putInt(snapshot.getSymbol(t));
+            out.putString(snapshot.getCondition(t) == null ? "" : snapshot.getCondition(t));
+            out.putString(snapshot.getStackOperation(t) == null ? "" : snapshot.getStackOperation(t));
+        }
+    }
+
+    private static void writeStrings(SectionWriter out, int count, IntFunction<String> strings)
+            throws IOException {
+        byte[][] encoded = new byte[count][];
+        int offset = 0;
+        out.putInt(0);
+        for (int i = 0; i < count; i++) {
+            encoded[i] = strings.apply(i).getBytes(StandardCharsets.UTF_8);
+            offset += encoded[i].length;
+            out.putInt(offset);
+        }
+        for (byte[] bytes : encoded) {
+            out.putBytes(bytes);
+        }
+    }
+
+    /**
+     * Buffered little-endian writer tracking the position in the file
+     */
+    private static class SectionWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+
+        SectionWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        int position() throws IOException {
+            long current = position + buffer.position();
+            if (current > Integer.MAX_VALUE) {
+                throw new IOException("Automaton image larger than 2 GB");
+            }
+            return (int) current;
+        }
+
+        void skip(int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                ensure(1);
+                buffer.put((byte) 0);
+            }
+        }
+
+        void align() throws IOException {
+            skip((8 - position() % 8) % 8);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void putChar(char value) throws IOException {
+            ensure(2);
+            buffer.putChar(value);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int count = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, count);
+                offset += count;
+            }
+        }
+
+        /**
+         * Writes an int byte length followed by the UTF-8 bytes of a string
+         */
+        void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            putBytes(bytes);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int count) throws IOException {
+            if (buffer.remaining() < count) {
+                flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,580 @@
+package src;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The AutomatonLoader class reads automaton files written with the syntax of
+ * lib/grammaire.txt. The file is memory-mapped and scanned once as UTF-8 bytes,
+ * copied window by window into a reusable byte[]: fields are delimited by
+ * offsets into the window, state names are interned to ints through a hash
+ * table keyed on their bytes, and transitions go straight into the arrays of
+ * an AutomatonSnapshot. Only distinct names, conditions and stack operations
+ * are ever turned into Strings.
+ *
+ * Lines that cannot be used are skipped and reported as diagnostics with their
+ * line and column, instead of being printed. Like the Automaton constructor,
+ * "- -> X" designates the initial state (otherwise the origin of the first
+ * transition is initial), "X -> -" makes X final, and a symbol written with
+ * several characters, such as "P10", is kept whole: belongs and TokenMatcher
+ * read it as one symbol, and the character based engines refuse the automaton.
+ */
+public class AutomatonLoader {
+    /**
+     * Maximum number of diagnostics kept; further problems are only counted
+     */
+    public static final int MAX_DIAGNOSTICS = 1000;
+
+    private static final int WINDOW_SIZE = 1 << 20;
+    private static final byte EPSILON_BYTE_1 = (byte) 0xCE;
+    private static final byte EPSILON_BYTE_2 = (byte) 0xB5;
+
+    private final List<LoadDiagnostic> diagnostics = new ArrayList<>();
+    private int errorCount;
+    private String initialStackOperation;
+
+    // State of the load in progress
+    private byte[] data;
+    private boolean statesSection;
+    private final int[] separators = new int[3];
+    private int lineNumber;
+    private int lineStart;
+    private ByteTable stateTable;
+    private ByteTable textTable;
+    private boolean[] finals;
+    private int initialState;
+    private int[] origins;
+    private int[] targets;
+    private char[] symbols;
+    private int[] tokenIds;
+    private int[] conditionIds;
+    private int[] stackOperationIds;
+    private int transitionCount;
+    private Guard[] guardCache;
+    private boolean[] guardFailed;
+    private GuardVariables guardVariables;
+
+    /**
+     * Loads an automaton file, strictly
+     * @param path The file to load
+     * @return The snapshot of the automaton, with its states in declaration order
+     * @throws AutomatonFormatException If the file has any problem
+     * @throws IOException If the file cannot be read
+     */
+    public static AutomatonSnapshot loadStrict(Path path) throws IOException {
+        AutomatonLoader loader = new AutomatonLoader();
+        AutomatonSnapshot snapshot = loader.load(path);
+        if (!loader.diagnostics.isEmpty()) {
+            throw new AutomatonFormatException(path.toString(), loader.diagnostics);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Loads an automaton file, skipping the lines that have problems
+     * @param path The file to load
+     * @return The snapshot of the automaton, with its states in declaration order
+     * @throws IOException If the file cannot be read
+     */
+    public AutomatonSnapshot load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large to be mapped (" + size + " bytes)");
+            }
+            return load(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Loads an automaton file into a mutable automaton, keeping its initial stack operation
+     * @param path The file to load
+     * @return The automaton
+     * @throws IOException If the file cannot be read
+     */
+    public Automaton loadAutomaton(Path path) throws IOException {
+        Automaton automaton = load(path).toAutomaton();
+        automaton.setInitialStackOperation(initialStackOperation);
+        return automaton;
+    }
+
+    /**
+     * Loads an automaton from UTF-8 bytes, skipping the lines that have problems
+     * @param bytes The content of an automaton file, between position and limit; not modified
+     * @return The snapshot of the automaton, with its states in declaration order
+     */
+    public AutomatonSnapshot load(ByteBuffer bytes) {
+        diagnostics.clear();
+        errorCount = 0;
+        initialStackOperation = null;
+        stateTable = new ByteTable();
+        textTable = new ByteTable();
+        finals = new boolean[16];
+        initialState = AutomatonSnapshot.NO_STATE;
+        origins = new int[1024];
+        targets = new int[1024];
+        symbols = new char[1024];
+        tokenIds = new int[1024];
+        conditionIds = new int[1024];
+        stackOperationIds = new int[1024];
+        transitionCount = 0;
+        guardCache = new Guard[16];
+        guardFailed = new boolean[16];
+        guardVariables = new GuardVariables();
+        statesSection = true;
+        lineNumber = 0;
+
+        if (bytes.hasArray()) {
+            data = bytes.array();
+            parseLines(bytes.arrayOffset() + bytes.position(), bytes.arrayOffset() + bytes.limit(), true);
+        } else {
+            // Copy the mapping window by window; a line cut by the end of a
+            // window is moved to the start of the next one
+            data = new byte[WINDOW_SIZE];
+            int filled = 0;
+            int position = bytes.position();
+            int limit = bytes.limit();
+            while (true) {
+                int count = Math.min(data.length - filled, limit - position);
+                bytes.get(position, data, filled, count);
+                position += count;
+                filled += count;
+                boolean last = position == limit;
+                int consumed = parseLines(0, filled, last);
+                if (last) {
+                    break;
+                }
+                if (consumed == 0) {
+                    data = Arrays.copyOf(data, data.length * 2);
+                } else {
+                    System.arraycopy(data, consumed, data, 0, filled - consumed);
+                    filled -= consumed;
+                }
+            }
+        }
+
+        AutomatonSnapshot snapshot = buildSnapshot();
+        data = null;
+        stateTable = null;
+        textTable = null;
+        return snapshot;
+    }
+
+    /**
+     * Parses the complete lines of data[from, to)
+     * @param last Whether data ends with the end of the input, completing its last line
+     * @return The index following the last parsed line
+     */
+    private int parseLines(int from, int to, boolean last) {
+        int position = from;
+        while (position < to) {
+            // Find the end of the line and the separators of a transition in the same scan
+            int arrow = -1;
+            int colon = -1;
+            int semicolons = 0;
+            int end = position;
+            for (; end < to; end++) {
+                byte b = data[end];
+                if (b == '\n') {
+                    break;
+                } else if (b == '>') {
+                    if (arrow < 0 && end > position && data[end - 1] == '-') {
+                        arrow = end - 1;
+                    }
+                } else if (b == ':') {
+                    if (arrow >= 0 && colon < 0) {
+                        colon = end;
+                    }
+                } else if (b == ';' && colon >= 0 && semicolons < 3) {
+                    separators[semicolons++] = end;
+                }
+            }
+            if (end == to && !last) {
+                return position;
+            }
+            lineNumber++;
+            lineStart = position;
+            position = end + 1;
+
+            int start = skipSpaces(lineStart, end);
+            int stop = trimEnd(start, end);
+            if (start == stop) {
+                continue;
+            }
+            if (arrow >= 0) {
+                statesSection = false;
+                parseTransition(start, stop, arrow, colon, semicolons);
+            } else if (statesSection) {
+                declareState(start, stop);
+            } else {
+                report(start, "'->' expected: states must be declared before the transitions");
+            }
+        }
+        return Math.min(position, to);
+    }
+
+    private void declareState(int from, int to) {
+        if (stateTable.find(data, from, to) != ByteTable.NOT_FOUND) {
+            report(from, "State '" + text(from, to) + "' is declared twice");
+            return;
+        }
+        addState(from, to);
+    }
+
+    private int addState(int from, int to) {
+        int state = stateTable.intern(data, from, to);
+        if (state == finals.length) {
+            finals = Arrays.copyOf(finals, state * 2);
+        }
+        return state;
+    }
+
+    /**
+     * Parses "origin -> destination : condition; symbol; stack operations"
+     * given the positions of its separators, -1 for the missing ones
+     */
+    private void parseTransition(int from, int to, int arrow, int colon, int semicolons) {
+        int originEnd = trimEnd(from, arrow);
+        if (originEnd == from) {
+            report(from, "Origin state expected");
+            return;
+        }
+        if (colon < 0) {
+            report(to, "':' expected");
+            return;
+        }
+        int destinationStart = skipSpaces(arrow + 2, colon);
+        int destinationEnd = trimEnd(destinationStart, colon);
+        if (destinationStart == destinationEnd) {
+            report(destinationStart, "Destination state expected");
+            return;
+        }
+        if (semicolons == 0) {
+            report(to, "';' expected after the condition");
+            return;
+        }
+        int firstSemicolon = separators[0];
+        int symbolEnd = semicolons > 1 ? separators[1] : to;
+        int stackStart = semicolons > 1 ? separators[1] + 1 : to;
+        int stackEnd = semicolons > 2 ? separators[2] : to;
+        int conditionStart = skipSpaces(colon + 1, firstSemicolon);
+        int conditionEnd = trimEnd(conditionStart, firstSemicolon);
+        int symbolStart = skipSpaces(firstSemicolon + 1, symbolEnd);
+        symbolEnd = trimEnd(symbolStart, symbolEnd);
+        stackStart = skipSpaces(stackStart, stackEnd);
+        stackEnd = trimEnd(stackStart, stackEnd);
+
+        boolean toFinal = isDash(destinationStart, destinationEnd);
+        if (isDash(from, originEnd)) {
+            if (toFinal) {
+                report(destinationStart, "Initial state expected");
+                return;
+            }
+            int state = stateTable.find(data, destinationStart, destinationEnd);
+            if (state == ByteTable.NOT_FOUND) {
+                state = addState(destinationStart, destinationEnd);
+            }
+            if (initialState == AutomatonSnapshot.NO_STATE) {
+                initialState = state;
+            }
+            if (stackStart < stackEnd) {
+                initialStackOperation = textTable.get(textTable.intern(data, stackStart, stackEnd));
+            }
+            return;
+        }
+
+        int origin = stateTable.find(data, from, originEnd);
+        if (origin == ByteTable.NOT_FOUND) {
+            report(from, "Unknown state '" + text(from, originEnd) + "'");
+            return;
+        }
+        if (initialState == AutomatonSnapshot.NO_STATE) {
+            initialState = origin;
+        }
+        if (toFinal) {
+            finals[origin] = true;
+            return;
+        }
+        int target = stateTable.find(data, destinationStart, destinationEnd);
+        if (target == ByteTable.NOT_FOUND) {
+            report(destinationStart, "Unknown state '" + text(destinationStart, destinationEnd) + "'");
+            return;
+        }
+
+        if (symbolStart == symbolEnd) {
+            report(symbolStart, "Symbol expected");
+            return;
+        }
+        char symbol;
+        int token = ByteTable.NOT_FOUND;
+        if (symbolEnd - symbolStart == 1 && data[symbolStart] >= 0) {
+            symbol = (char) data[symbolStart];
+        } else if (symbolEnd - symbolStart == 2 && data[symbolStart] == EPSILON_BYTE_1
+                && data[symbolStart + 1] == EPSILON_BYTE_2) {
+            symbol = Transition.EPSILON;
+        } else {
+            // Multi-character symbols such as P10 keep their first character, as in Automaton,
+            // and their full text for TokenMatcher
+            int text = textTable.intern(data, symbolStart, symbolEnd);
+            symbol = textTable.get(text).charAt(0);
+            if (textTable.get(text).length() > 1) {
+                token = text;
+            }
+        }
+
+        int condition = ByteTable.NOT_FOUND;
+        if (!isDash(conditionStart, conditionEnd)) {
+            if (conditionStart == conditionEnd) {
+                report(conditionStart, "Condition expected, '-' if there is none");
+                return;
+            }
+            condition = textTable.intern(data, conditionStart, conditionEnd);
+            if (!compileGuard(condition, conditionStart)) {
+                return;
+            }
+        }
+        int stackOperation = stackStart < stackEnd ? textTable.intern(data, stackStart, stackEnd) : ByteTable.NOT_FOUND;
+
+        if (transitionCount == origins.length) {
+            int capacity = transitionCount * 2;
+            origins = Arrays.copyOf(origins, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            symbols = Arrays.copyOf(symbols, capacity);
+            tokenIds = Arrays.copyOf(tokenIds, capacity);
+            conditionIds = Arrays.copyOf(conditionIds, capacity);
+            stackOperationIds = Arrays.copyOf(stackOperationIds, capacity);
+        }
+        origins[transitionCount] = origin;
+        targets[transitionCount] = target;
+        symbols[transitionCount] = symbol;
+        tokenIds[transitionCount] = token;
+        conditionIds[transitionCount] = condition;
+        stackOperationIds[transitionCount] = stackOperation;
+        transitionCount++;
+    }
+
+    /**
+     * Compiles the guard of a condition the first time it is seen
+     * @return false if the condition is malformed
+     */
+    private boolean compileGuard(int condition, int column) {
+        if (condition >= guardCache.length) {
+            int capacity = Math.max(condition + 1, guardCache.length * 2);
+            guardCache = Arrays.copyOf(guardCache, capacity);
+            guardFailed = Arrays.copyOf(guardFailed, capacity);
+        }
+        if (guardCache[condition] == null && !guardFailed[condition]) {
+            try {
+                guardCache[condition] = Guard.compile(textTable.get(condition), guardVariables);
+            } catch (IllegalArgumentException e) {
+                guardFailed[condition] = true;
+            }
+        }
+        if (guardFailed[condition]) {
+            report(column, "Malformed condition '" + textTable.get(condition) + "'");
+            return false;
+        }
+        return true;
+    }
+
+    private AutomatonSnapshot buildSnapshot() {
+        int stateCount = stateTable.size();
+        String[] stateNames = new String[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            stateNames[state] = stateTable.get(state);
+        }
+        String[] tokens = new String[transitionCount];
+        String[] conditions = new String[transitionCount];
+        String[] stackOperations = new String[transitionCount];
+        Guard[] guards = new Guard[transitionCount];
+        for (int t = 0; t < transitionCount; t++) {
+            if (tokenIds[t] != ByteTable.NOT_FOUND) {
+                tokens[t] = textTable.get(tokenIds[t]);
+            }
+            if (conditionIds[t] != ByteTable.NOT_FOUND) {
+                conditions[t] = textTable.get(conditionIds[t]);
+                guards[t] = guardCache[conditionIds[t]];
+            }
+            if (stackOperationIds[t] != ByteTable.NOT_FOUND) {
+                stackOperations[t] = textTable.get(stackOperationIds[t]);
+            }
+        }
+        return new AutomatonSnapshot(stateNames, Arrays.copyOf(finals, stateCount), initialState,
+                Arrays.copyOf(origins, transitionCount), Arrays.copyOf(targets, transitionCount),
+                Arrays.copyOf(symbols, transitionCount), tokens, conditions, stackOperations, guards, guardVariables);
+    }
+
+    private void report(int offset, String message) {
+        errorCount++;
+        if (diagnostics.size() < MAX_DIAGNOSTICS) {
+            // Columns count characters, so UTF-8 continuation bytes are skipped
+            int column = 1;
+            for (int i = lineStart; i < offset; i++) {
+                if ((data[i] & 0xC0) != 0x80) {
+                    column++;
+                }
+            }
+            diagnostics.add(new LoadDiagnostic(lineNumber, column, message));
+        }
+    }
+
+    private boolean isDash(int from, int to) {
+        return to - from == 1 && data[from] == '-';
+    }
+
+    private int skipSpaces(int from, int to) {
+        while (from < to && isSpace(data[from])) {
+            from++;
+        }
+        return from;
+    }
+
+    private int trimEnd(int from, int to) {
+        while (to > from && isSpace(data[to - 1])) {
+            to--;
+        }
+        return to;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+
+    private String text(int from, int to) {
+        return new String(data, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the problems found by the last load
+     * @return The diagnostics in file order, at most MAX_DIAGNOSTICS of them
+     */
+    public List<LoadDiagnostic> getDiagnostics() {
+        return Collections.unmodifiableList(diagnostics);
+    }
+
+    /**
+     * Gets the number of problems found by the last load
+     * @return The number of problems, including those beyond MAX_DIAGNOSTICS
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Gets the stack operation of the "- -> state" line of the last load
+     * @return The stack operations string, or null if there is none
+     */
+    public String getInitialStackOperation() {
+        return initialStackOperation;
+    }
+
+    /**
+     * Open addressing table interning byte strings to dense ids. The bytes of
+     * each entry are copied into a pool and decoded to a String once, when the
+     * entry is added. A slot holds the hash of its entry next to the id, so
+     * probing rarely looks at the pool.
+     */
+    private static class ByteTable {
+        static final int NOT_FOUND = -1;
+
+        private long[] slots = new long[64];
+        private int[] offsets = new int[33];
+        private byte[] pool = new byte[256];
+        private String[] values = new String[32];
+        private int size;
+
+        int find(byte[] data, int from, int to) {
+            int hash = hash(data, from, to);
+            int mask = slots.length - 1;
+            for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+                long entry = slots[slot];
+                if ((int) (entry >>> 32) == hash && sameBytes((int) entry - 1, data, from, to)) {
+                    return (int) entry - 1;
+                }
+            }
+            return NOT_FOUND;
+        }
+
+        int intern(byte[] data, int from, int to) {
+            int hash = hash(data, from, to);
+            int mask = slots.length - 1;
+            int slot = hash & mask;
+            for (; slots[slot] != 0; slot = (slot + 1) & mask) {
+                long entry = slots[slot];
+                if ((int) (entry >>> 32) == hash && sameBytes((int) entry - 1, data, from, to)) {
+                    return (int) entry - 1;
+                }
+            }
+            if (size + 1 == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                values = Arrays.copyOf(values, offsets.length - 1);
+            }
+            int length = to - from;
+            int offset = offsets[size];
+            if (offset + length > pool.length) {
+                pool = Arrays.copyOf(pool, Math.max(offset + length, pool.length * 2));
+            }
+            System.arraycopy(data, from, pool, offset, length);
+            int id = size++;
+            offsets[size] = offset + length;
+            values[id] = new String(data, from, length, StandardCharsets.UTF_8);
+            slots[slot] = ((long) hash << 32) | (id + 1);
+            if (size * 2 > slots.length) {
+                rehash();
+            }
+            return id;
+        }
+
+        String get(int id) {
+            return values[id];
+        }
+
+        int size() {
+            return size;
+        }
+
+        private boolean sameBytes(int id, byte[] data, int from, int to) {
+            int start = offsets[id];
+            if (offsets[id + 1] - start != to - from) {
+                return false;
+            }
+            for (int i = from; i < to; i++) {
+                if (pool[start++] != data[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int hash(byte[] data, int from, int to) {
+            int hash = 0x811C9DC5;
+            for (int i = from; i < to; i++) {
+                hash = (hash ^ data[i]) * 0x01000193;
+            }
+            return hash ^ (hash >>> 15);
+        }
+
+        private void rehash() {
+            long[] old = slots;
+            slots = new long[old.length * 2];
+            int mask = slots.length - 1;
+            for (long entry : old) {
+                if (entry != 0) {
+                    int slot = (int) (entry >>> 32) & mask;
+                    while (slots[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    slots[slot] = entry;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package src;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The AutomatonSnapshot class is a deeply immutable copy of an automaton.
+ * States and transitions are stored in int indexed arrays that are never
+ * modified after construction, so a snapshot can be published to other threads
+ * and read without locks. Edits return a new snapshot and leave the current one
+ * untouched for the readers still using it. The state of a run is kept outside,
+ * in a MatchCursor. The guard variables are a frozen copy taken with the
+ * snapshot, with a slot for every condition of its transitions and stack
+ * operations, so variables added to the automaton later are not seen.
+ */
+public class AutomatonSnapshot implements WordMatcher {
+    /**
+     * Index used when there is no initial state
+     */
+    public static final int NO_STATE = -1;
+
+    private final String[] stateNames;
+    private final boolean[] finals;
+    private final int initialState;
+    private final int[] origins;
+    private final int[] targets;
+    private final char[] symbols;
+    private final String[] tokens;
+    private final String[] conditions;
+    private final String[] stackOperations;
+    private final Guard[] guards;
+    private final GuardVariables guardVariables;
+
+    // Computed on first use; CompiledAutomaton only has final fields, so a racy
+    // initialization publishes a fully built table and at worst compiles twice
+    private CompiledAutomaton compiled;
+
+    /**
+     * Constructor for creating a snapshot from its arrays, which must not be
+     * modified afterwards. Variables that are not frozen yet are copied,
+     * completed with the conditions of the stack operations, and frozen.
+     */
+    AutomatonSnapshot(String[] stateNames, boolean[] finals, int initialState, int[] origins, int[] targets,
+                      char[] symbols, String[] tokens, String[] conditions, String[] stackOperations, Guard[] guards,
+                      GuardVariables guardVariables) {
+        this.stateNames = stateNames;
+        this.finals = finals;
+        this.initialState = initialState;
+        this.origins = origins;
+        this.targets = targets;
+        this.symbols = symbols;
+        this.tokens = tokens;
+        this.conditions = conditions;
+        this.stackOperations = stackOperations;
+        this.guards = guards;
+        this.guardVariables = guardVariables.isFrozen() ? guardVariables : freeze(guardVariables, stackOperations);
+    }
+
+    private static GuardVariables freeze(GuardVariables variables, String[] stackOperations) {
+        GuardVariables copy = variables.copy();
+        for (String operations : stackOperations) {
+            PushdownAutomaton.internConditions(operations, copy);
+        }
+        copy.freeze();
+        return copy;
+    }
+
+    /**
+     * Creates an empty snapshot
+     * @return A snapshot without states nor transitions
+     */
+    public static AutomatonSnapshot empty() {
+        return new AutomatonSnapshot(new String[0], new boolean[0], NO_STATE, new int[0], new int[0],
+                new char[0], new String[0], new String[0], new String[0], new Guard[0], new GuardVariables());
+    }
+
+    /**
+     * Takes a snapshot of the states of an automaton. The states reachable from
+     * the initial state come first, the initial state with index 0, and the
+     * transitions of each state keep their order. Unreachable states are kept
+     * too, since their symbols belong to the alphabet that belongs checks.
+     * @param automaton The automaton to copy
+     * @return The snapshot
+     */
+    public static AutomatonSnapshot of(Automaton automaton) {
+        List<State> states = automaton.reachableStates();
+        Set<State> reachable = new HashSet<>(states);
+        for (State state : automaton.getStates()) {
+            if (reachable.add(state)) {
+                states.add(state);
+            }
+        }
+        Map<State, Integer> indices = new HashMap<>();
+        String[] stateNames = new String[states.size()];
+        boolean[] finals = new boolean[states.size()];
+        int transitionCount = 0;
+        for (int i = 0; i < states.size(); i++) {
+            State state = states.get(i);
+            indices.put(state, i);
+            stateNames[i] = state.getName();
+            finals[i] = state.isFinal();
+            transitionCount += state.getTransitions().size();
+        }
+
+        int[] origins = new int[transitionCount];
+        int[] targets = new int[transitionCount];
+        char[] symbols = new char[transitionCount];
+        String[] tokens = new String[transitionCount];
+        String[] conditions = new String[transitionCount];
+        String[] stackOperations = new String[transitionCount];
+        Guard[] guards = new Guard[transitionCount];
+        int t = 0;
+        for (int i = 0; i < states.size(); i++) {
+            for (Transition transition : states.get(i).getTransitions()) {
+                origins[t] = i;
+                targets[t] = indices.get(transition.getFinalState());
+                symbols[t] = transition.getSymbol();
+                String token = transition.getToken();
+                tokens[t] = token.length() == 1 && token.charAt(0) == symbols[t] ? null : token;
+                conditions[t] = transition.getCondition();
+                stackOperations[t] = transition.getStackOperation();
+                guards[t] = transition.getGuard();
+                t++;
+            }
+        }
+
+        return new AutomatonSnapshot(stateNames, finals, automaton.getInitialState() == null ? NO_STATE : 0,
+                origins, targets, symbols, tokens, conditions, stackOperations, guards, automaton.getGuardVariables());
+    }
+
+    /**
+     * Creates a snapshot with one more state
+     * @param name Name of the new state
+     * @param isFinal Whether the new state is a final state
+     * @return The new snapshot, in which the added state has index getStateCount() - 1
+     */
+    public AutomatonSnapshot withState(String name, boolean isFinal) {
+        int count = stateNames.length;
+        String[] newNames = Arrays.copyOf(stateNames, count + 1);
+        boolean[] newFinals = Arrays.copyOf(finals, count + 1);
+        newNames[count] = name;
+        newFinals[count] = isFinal;
+        return new AutomatonSnapshot(newNames, newFinals, initialState == NO_STATE ? count : initialState,
+                origins, targets, symbols, tokens, conditions, stackOperations, guards, guardVariables);
+    }
+
+    /**
+     * Creates a snapshot with one more transition, added after the existing
+     * transitions of its origin state
+     * @param origin Index of the origin state
+     * @param target Index of the destination state
+     * @param symbol The symbol that triggers the transition
+     * @return The new snapshot
+     */
+    public AutomatonSnapshot withTransition(int origin, int target, char symbol) {
+        checkState(origin);
+        checkState(target);
+        int count = origins.length;
+        int[] newOrigins = Arrays.copyOf(origins, count + 1);
+        int[] newTargets = Arrays.copyOf(targets, count + 1);
+        char[] newSymbols = Arrays.copyOf(symbols, count + 1);
+        newOrigins[count] = origin;
+        newTargets[count] = target;
+        newSymbols[count] = symbol;
+        return new AutomatonSnapshot(stateNames, finals, initialState, newOrigins, newTargets, newSymbols,
+                Arrays.copyOf(tokens, count + 1), Arrays.copyOf(conditions, count + 1), Arrays.copyOf(stackOperations, count + 1),
+                Arrays.copyOf(guards, count + 1), guardVariables);
+    }
+
+    /**
+     * Creates a snapshot with another initial state
+     * @param state Index of the new initial state
+     * @return The new snapshot
+     */
+    public AutomatonSnapshot withInitialState(int state) {
+        checkState(state);
+        return new AutomatonSnapshot(stateNames, finals, state, origins, targets, symbols, tokens, conditions,
+                stackOperations, guards, guardVariables);
+    }
+
+    /**
+     * Creates a snapshot in which a state is, or is not, final
+     * @param state Index of the state
+     * @param isFinal Whether the state is final
+     * @return The new snapshot
+     */
+    public AutomatonSnapshot withFinal(int state, boolean isFinal) {
+        checkState(state);
+        boolean[] newFinals = finals.clone();
+        newFinals[state] = isFinal;
+        return new AutomatonSnapshot(stateNames, newFinals, initialState, origins, targets, symbols, tokens,
+                conditions, stackOperations, guards, guardVariables);
+    }
+
+    /**
+     * Gets the compiled form of this snapshot, built on first use.
+     * Like Automaton.compile, each state follows its first transition matching the
+     * symbol or labelled epsilon, so the snapshot accepts the same words as belongs.
+     * @return The compiled automaton, whose state indices are the snapshot's
+     * @throws IllegalArgumentException If a symbol has several characters, such as "P10"
+     */
+    public CompiledAutomaton compile() {
+        CompiledAutomaton result = compiled;
+        if (result == null) {
+            result = buildCompiled();
+            compiled = result;
+        }
+        return result;
+    }
+
+    private CompiledAutomaton buildCompiled() {
+        requireSingleChars("Compiled automata");
+        Set<Character> alphabetSymbols = new HashSet<>();
+        for (char symbol : symbols) {
+            alphabetSymbols.add(symbol);
+        }
+        Alphabet alphabet = new Alphabet(alphabetSymbols);
+        int symbolCount = alphabet.size();
+        int stateCount = stateNames.length;
+
+        int[] table = new int[stateCount * symbolCount];
+        Arrays.fill(table, CompiledAutomaton.DEAD);
+        BitSet closed = new BitSet(stateCount);
+        for (int t = 0; t < origins.length; t++) {
+            int origin = origins[t];
+            if (closed.get(origin)) {
+                continue;
+            }
+            int row = origin * symbolCount;
+            if (symbols[t] == Transition.EPSILON) {
+                // An epsilon transition answers every symbol not matched before it
+                for (int symbol = 0; symbol < symbolCount; symbol++) {
+                    if (table[row + symbol] == CompiledAutomaton.DEAD) {
+                        table[row + symbol] = targets[t];
+                    }
+                }
+                closed.set(origin);
+            } else {
+                int column = row + alphabet.indexOf(symbols[t]);
+                if (table[column] == CompiledAutomaton.DEAD) {
+                    table[column] = targets[t];
+                }
+            }
+        }
+
+        BitSet accepting = new BitSet(stateCount);
+        for (int state = 0; state < stateCount; state++) {
+            if (finals[state]) {
+                accepting.set(state);
+            }
+        }
+        return new CompiledAutomaton(alphabet, table, accepting,
+                initialState == NO_STATE ? CompiledAutomaton.DEAD : initialState, stateNames.clone());
+    }
+
+    /**
+     * Checks if a word belongs to the language of this snapshot
+     * @param word The word to check
+     * @return true if the word is accepted, false otherwise
+     */
+    @Override
+    public boolean belongs(CharSequence word) {
+        return compile().belongs(word);
+    }
+
+    /**
+     * Creates a cursor to run this snapshot symbol by symbol
+     * @return A new cursor on the initial state
+     */
+    public MatchCursor cursor() {
+        return new MatchCursor(compile());
+    }
+
+    /**
+     * Rebuilds a mutable automaton from this snapshot
+     * @return A new automaton with the same states and transitions
+     */
+    public Automaton toAutomaton() {
+        Automaton automaton = new Automaton();
+        State[] states = new State[stateNames.length];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = new State(stateNames[i], finals[i]);
+            automaton.addState(states[i]);
+        }
+        if (initialState != NO_STATE) {
+            automaton.setInitialState(states[initialState]);
+        }
+        for (int t = 0; t < origins.length; t++) {
+            Transition transition = tokens[t] == null
+                    ? automaton.addTransition(states[origins[t]], states[targets[t]], symbols[t])
+                    : automaton.addTransition(states[origins[t]], states[targets[t]], tokens[t]);
+            transition.setCondition(conditions[t]);
+            transition.setGuard(Guard.compile(conditions[t], automaton.getGuardVariables()));
+            transition.setStackOperation(stackOperations[t]);
+            PushdownAutomaton.internConditions(stackOperations[t], automaton.getGuardVariables());
+        }
+        return automaton;
+    }
+
+    /**
+     * Gets the index of a state from its name
+     * @param name The state name
+     * @return Index of the first state with this name, or NO_STATE
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < stateNames.length; i++) {
+            if (stateNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return NO_STATE;
+    }
+
+    /**
+     * Gets the number of states
+     * @return The number of states
+     */
+    public int getStateCount() {
+        return stateNames.length;
+    }
+
+    /**
+     * Gets the index of the initial state
+     * @return The initial state, or NO_STATE
+     */
+    public int getInitialState() {
+        return initialState;
+    }
+
+    /**
+     * Gets the name of a state
+     * @param state Index of the state
+     * @return The state name
+     */
+    public String getStateName(int state) {
+        return stateNames[state];
+    }
+
+    /**
+     * Checks if a state is a final state
+     * @param state Index of the state
+     * @return true if the state is final, false otherwise
+     */
+    public boolean isFinal(int state) {
+        return finals[state];
+    }
+
+    /**
+     * Gets the number of transitions
+     * @return The number of transitions
+     */
+    public int getTransitionCount() {
+        return origins.length;
+    }
+
+    /**
+     * Gets the origin state of a transition
+     * @param transition Index of the transition
+     * @return Index of the origin state
+     */
+    public int getOrigin(int transition) {
+        return origins[transition];
+    }
+
+    /**
+     * Gets the destination state of a transition
+     * @param transition Index of the transition
+     * @return Index of the destination state
+     */
+    public int getTarget(int transition) {
+        return targets[transition];
+    }
+
+    /**
+     * Gets the symbol of a transition
+     * @param transition Index of the transition
+     * @return The symbol
+     */
+    public char getSymbol(int transition) {
+        return symbols[transition];
+    }
+
+    /**
+     * Checks if some symbol has several characters, such as "P10"
+     * @return true if only TokenMatcher reads this snapshot like belongs, false otherwise
+     */
+    public boolean hasTokens() {
+        for (String token : tokens) {
+            if (token != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rejects the snapshots that a character based engine would read wrongly,
+     * seeing only the first character of their multi-character symbols
+     * @param engine Name of the engine, for the message
+     * @throws IllegalArgumentException If a symbol has several characters
+     */
+    void requireSingleChars(String engine) {
+        for (String token : tokens) {
+            if (token != null) {
+                throw new IllegalArgumentException(engine + " cannot read the symbol " + token
+                        + ", only TokenMatcher can");
+            }
+        }
+    }
+
+    /**
+     * Gets the full text of the symbol of a transition
+     * @param transition Index of the transition
+     * @return The symbol text, longer than one character for symbols such as "P10"
+     */
+    public String getToken(int transition) {
+        return tokens[transition] != null ? tokens[transition] : String.valueOf(symbols[transition]);
+    }
+
+    /**
+     * Gets the condition of a transition
+     * @param transition Index of the transition
+     * @return The condition string, or null
+     */
+    public String getCondition(int transition) {
+        return conditions[transition];
+    }
+
+    /**
+     * Gets the stack operations of a transition
+     * @param transition Index of the transition
+     * @return The stack operations string, or null
+     */
+    public String getStackOperation(int transition) {
+        return stackOperations[transition];
+    }
+
+    /**
+     * Gets the compiled condition of a transition
+     * @param transition Index of the transition
+     * @return The guard, or null if the transition has no condition
+     */
+    public Guard getGuard(int transition) {
+        return guards[transition];
+    }
+
+    /**
+     * Gets the variables used by the guards of this snapshot
+     * @return The slot table of the guards
+     */
+    public GuardVariables getGuardVariables() {
+        return guardVariables;
+    }
+
+    private void checkState(int state) {
+        if (state < 0 || state >= stateNames.length) {
+            throw new IndexOutOfBoundsException("No state with index " + state);
+        }
+    }
+
+    /**
+     * Generate a string representation of this snapshot
+     * @return A string with the number of states and transitions
+     */
+    @Override
+    public String toString() {
+        return "AutomatonSnapshot{" +
+                "states=" + stateNames.length +
+                ", transitions=" + origins.length +
+                ", initialState=" + (initialState == NO_STATE ? "none" : stateNames[initialState]) +
+                '}';
+    }
+}
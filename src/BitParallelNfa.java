@@ -0,0 +1,175 @@
+package src;
+
+import java.util.Arrays;
+
+/**
+ * The BitParallelNfa class simulates a nondeterministic automaton by keeping the
+ * set of active states in 64-bit words. For every state and symbol the epsilon
+ * closure of its targets is precomputed as a mask, so one input character costs
+ * an OR of the masks of the active states and no allocation.
+ * Automata with at most 64 states use a single long for the whole simulation.
+ * The masks take alphabet size * states * ceil(states / 64) longs, which
+ * tableBytes computes before anything is allocated. Larger automata keep
+ * their active sets in scratch arrays owned by each calling thread, so an
+ * instance can be shared between threads like a compiled automaton.
+ */
+public class BitParallelNfa implements WordMatcher {
+    private final Alphabet alphabet;
+    private final int stateCount;
+    private final int words;
+    private final long[] follow;
+    private final long[] initial;
+    private final long[] accepting;
+    private final ThreadLocal<long[][]> scratch;
+
+    /**
+     * Constructor for creating a bit-parallel simulation of an automaton
+     * @param automaton The automaton to simulate
+     */
+    public BitParallelNfa(Automaton automaton) {
+        this(NfaGraph.of(automaton));
+    }
+
+    /**
+     * Constructor for creating a bit-parallel simulation of an NFA graph
+     * @param nfa The graph to simulate
+     * @throws IllegalArgumentException If the masks do not fit in a single array
+     */
+    public BitParallelNfa(NfaGraph nfa) {
+        long length = tableBytes(nfa) / Long.BYTES;
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too large for bit-parallel simulation: " + nfa.getStateCount()
+                    + " states and " + nfa.getAlphabet().size() + " symbols need " + length + " masks");
+        }
+        this.alphabet = nfa.getAlphabet();
+        this.stateCount = nfa.getStateCount();
+        this.words = nfa.wordCount();
+        // The length fits in an int, so do the offsets into it
+        this.follow = new long[(int) length];
+        this.initial = new long[words];
+        this.accepting = new long[words];
+        int scratchWords = words;
+        this.scratch = ThreadLocal.withInitial(() -> new long[][]{new long[scratchWords], new long[scratchWords]});
+
+        int[] stack = new int[Math.max(1, stateCount)];
+        long[] set = new long[words];
+        for (int state = 0; state < stateCount; state++) {
+            for (int e = nfa.edgeStart(state); e < nfa.edgeEnd(state); e++) {
+                Arrays.fill(set, 0L);
+                nfa.addClosure(set, nfa.edgeTarget(e), stack);
+                int base = (nfa.edgeSymbol(e) * stateCount + state) * words;
+                for (int w = 0; w < words; w++) {
+                    follow[base + w] |= set[w];
+                }
+            }
+            if (nfa.isAccepting(state)) {
+                accepting[state >>> 6] |= 1L << state;
+            }
+        }
+        if (nfa.getInitialState() >= 0) {
+            nfa.addClosure(initial, nfa.getInitialState(), stack);
+        }
+    }
+
+    /**
+     * Computes the memory taken by the masks of a simulation, without building it
+     * @param nfa The graph to simulate
+     * @return The size of the masks in bytes
+     */
+    public static long tableBytes(NfaGraph nfa) {
+        return (long) nfa.getAlphabet().size() * nfa.getStateCount() * nfa.wordCount() * Long.BYTES;
+    }
+
+    /**
+     * Checks if a word belongs to the language of the automaton
+     * @param word The word to check
+     * @return true if the word is accepted, false otherwise
+     */
+    @Override
+    public boolean belongs(CharSequence word) {
+        return words == 1 ? belongsSingleWord(word) : belongsMultiWord(word);
+    }
+
+    /**
+     * Simulation for automata of at most 64 states: the active set is a single long
+     */
+    private boolean belongsSingleWord(CharSequence word) {
+        long active = initial[0];
+        for (int i = 0; i < word.length() && active != 0; i++) {
+            int symbol = alphabet.indexOf(word.charAt(i));
+            if (symbol == Alphabet.NO_SYMBOL) {
+                return false;
+            }
+            int base = symbol * stateCount;
+            long next = 0;
+            for (long bits = active; bits != 0; bits &= bits - 1) {
+                next |= follow[base + Long.numberOfTrailingZeros(bits)];
+            }
+            active = next;
+        }
+        return (active & accepting[0]) != 0;
+    }
+
+    /**
+     * Simulation for larger automata: the active set spans several longs,
+     * kept in the two scratch arrays of the calling thread
+     */
+    private boolean belongsMultiWord(CharSequence word) {
+        long[][] arrays = scratch.get();
+        long[] active = arrays[0];
+        long[] next = arrays[1];
+        System.arraycopy(initial, 0, active, 0, words);
+        boolean alive = true;
+        for (int i = 0; i < word.length() && alive; i++) {
+            int symbol = alphabet.indexOf(word.charAt(i));
+            if (symbol == Alphabet.NO_SYMBOL) {
+                return false;
+            }
+            Arrays.fill(next, 0L);
+            int base = symbol * stateCount;
+            for (int w = 0; w < words; w++) {
+                for (long bits = active[w]; bits != 0; bits &= bits - 1) {
+                    int offset = (base + (w << 6) + Long.numberOfTrailingZeros(bits)) * words;
+                    for (int v = 0; v < words; v++) {
+                        next[v] |= follow[offset + v];
+                    }
+                }
+            }
+
+            long[] swap = active;
+            active = next;
+            next = swap;
+            alive = false;
+            for (int w = 0; w < words; w++) {
+                alive |= active[w] != 0;
+            }
+        }
+
+        for (int w = 0; w < words; w++) {
+            if ((active[w] & accepting[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of simulated states
+     * @return The number of states
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Generate a string representation of this matcher
+     * @return A string with the number of states and words
+     */
+    @Override
+    public String toString() {
+        return "BitParallelNfa{" +
+                "states=" + stateCount +
+                ", words=" + words +
+                '}';
+    }
+}
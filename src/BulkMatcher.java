@@ -0,0 +1,153 @@
+package src;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * The BulkMatcher class checks many words at once by splitting them into
+ * ranges processed in parallel on a fork/join pool. Every task writes to its
+ * own slice of the result, and the matcher must be immutable (a compiled
+ * automaton or a bit-parallel NFA), so a BulkMatcher can be called from any
+ * number of threads at the same time.
+ */
+public class BulkMatcher {
+    /**
+     * Number of words below which a range is matched sequentially
+     */
+    private static final int THRESHOLD = 4096;
+
+    private final WordMatcher matcher;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor for matching words against an automaton, with the same results as belongs
+     * @param automaton The automaton, compiled once by this constructor, over its full
+     * symbols if some of them have several characters
+     */
+    public BulkMatcher(Automaton automaton) {
+        this(automaton.hasTokens() ? automaton.tokenMatcher() : automaton.compile());
+    }
+
+    /**
+     * Constructor for matching words on the common fork/join pool
+     * @param matcher An immutable matcher
+     */
+    public BulkMatcher(WordMatcher matcher) {
+        this(matcher, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for matching words on a given pool
+     * @param matcher An immutable matcher
+     * @param pool The pool running the matching tasks
+     * @throws IllegalArgumentException If the matcher keeps mutable state
+     */
+    public BulkMatcher(WordMatcher matcher, ForkJoinPool pool) {
+        if (matcher instanceof LazyDfa) {
+            throw new IllegalArgumentException("LazyDfa cannot be shared between threads");
+        }
+        this.matcher = matcher;
+        this.pool = pool;
+    }
+
+    /**
+     * Checks an array of words
+     * @param words The words to check
+     * @return Array whose i-th entry tells if the i-th word is accepted
+     */
+    public boolean[] belongs(CharSequence[] words) {
+        boolean[] results = new boolean[words.length];
+        pool.invoke(new ArrayTask(words, results, 0, words.length));
+        return results;
+    }
+
+    /**
+     * Checks a list of words
+     * @param words The words to check
+     * @return Set of the indices of the accepted words
+     */
+    public BitSet belongs(List<? extends CharSequence> words) {
+        return belongsIndexed(words.toArray(new CharSequence[0]));
+    }
+
+    /**
+     * Checks the words of a stream, in encounter order
+     * @param words The words to check
+     * @return Set of the positions of the accepted words in the stream
+     */
+    public BitSet belongs(Stream<? extends CharSequence> words) {
+        return belongsIndexed(words.toArray(CharSequence[]::new));
+    }
+
+    private BitSet belongsIndexed(CharSequence[] words) {
+        long[] bits = new long[(words.length + 63) >>> 6];
+        pool.invoke(new BitsTask(words, bits, 0, words.length));
+        return BitSet.valueOf(bits);
+    }
+
+    /**
+     * Fills a boolean array; tasks own disjoint index ranges
+     */
+    @SuppressWarnings("serial")
+    private class ArrayTask extends RecursiveAction {
+        private final CharSequence[] words;
+        private final boolean[] results;
+        private final int from;
+        private final int to;
+
+        ArrayTask(CharSequence[] words, boolean[] results, int from, int to) {
+            this.words = words;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    results[i] = matcher.belongs(words[i]);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ArrayTask(words, results, from, middle), new ArrayTask(words, results, middle, to));
+        }
+    }
+
+    /**
+     * Fills the words of a bitset; ranges are split on multiples of 64 so that
+     * no two tasks write to the same long
+     */
+    @SuppressWarnings("serial")
+    private class BitsTask extends RecursiveAction {
+        private final CharSequence[] words;
+        private final long[] bits;
+        private final int from;
+        private final int to;
+
+        BitsTask(CharSequence[] words, long[] bits, int from, int to) {
+            this.words = words;
+            this.bits = bits;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    if (matcher.belongs(words[i])) {
+                        bits[i >>> 6] |= 1L << i;
+                    }
+                }
+                return;
+            }
+            int middle = ((from + to) >>> 1) & ~63;
+            invokeAll(new BitsTask(words, bits, from, middle), new BitsTask(words, bits, middle, to));
+        }
+    }
+}
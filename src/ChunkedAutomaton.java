@@ -0,0 +1,283 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The ChunkedAutomaton class is an immutable version of a compiled automaton
+ * maintained by an IncrementalCompiler. The rows of the transition table are
+ * stored in chunks of 64 states, and the chunks in pages of 64 chunks, so a
+ * new version only copies the chunks and pages holding edited rows and shares
+ * all the others with the previous versions.
+ *
+ * Symbols get a column in the order they are first seen, so adding a symbol
+ * never moves the existing columns. A chunk only stores the columns known
+ * when it was last written; for the others, each row keeps a default target,
+ * that of its first epsilon transition, which is what State.getNextState
+ * returns for a symbol without a transition of its own. Like
+ * CompiledAutomaton, a version accepts exactly the words Automaton.belongs
+ * accepts, but states are numbered in the order they became reachable.
+ */
+public class ChunkedAutomaton implements WordMatcher {
+    static final int CHUNK_BITS = 6;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    static final int PAGE_BITS = 6;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    static final int UNSET = -2;
+
+    private final Columns columns;
+    private final Chunk[][] pages;
+    private final int stateCount;
+    private final int initialState;
+
+    /**
+     * Constructor for a version, whose arrays must not be modified afterwards
+     */
+    ChunkedAutomaton(Columns columns, Chunk[][] pages, int stateCount, int initialState) {
+        this.columns = columns;
+        this.pages = pages;
+        this.stateCount = stateCount;
+        this.initialState = initialState;
+    }
+
+    private Chunk chunkOf(int state) {
+        return pages[state >>> (CHUNK_BITS + PAGE_BITS)][(state >>> CHUNK_BITS) & (PAGE_SIZE - 1)];
+    }
+
+    /**
+     * Checks if a word belongs to the language of this automaton
+     * @param word The word to check
+     * @return true if the word is accepted, false otherwise
+     */
+    @Override
+    public boolean belongs(CharSequence word) {
+        int state = initialState;
+        if (state == CompiledAutomaton.DEAD) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            int column = columns.indexOf(word.charAt(i));
+            if (column == Alphabet.NO_SYMBOL) {
+                return false;
+            }
+            state = chunkOf(state).target(state & (CHUNK_SIZE - 1), column);
+            if (state == CompiledAutomaton.DEAD) {
+                return false;
+            }
+        }
+        return isAccepting(state);
+    }
+
+    /**
+     * Gets the state reached from a state with a given symbol
+     * @param state Index of the origin state
+     * @param symbol The symbol to consume
+     * @return Index of the next state, or DEAD if there is no transition
+     */
+    public int step(int state, char symbol) {
+        int column = columns.indexOf(symbol);
+        return column == Alphabet.NO_SYMBOL
+                ? CompiledAutomaton.DEAD : chunkOf(state).target(state & (CHUNK_SIZE - 1), column);
+    }
+
+    /**
+     * Checks if a state is an accepting state
+     * @param state Index of the state
+     * @return true if the state is accepting, false otherwise
+     */
+    public boolean isAccepting(int state) {
+        return (chunkOf(state).accepting & (1L << state)) != 0;
+    }
+
+    /**
+     * Gets the index of the initial state
+     * @return The initial state, or DEAD if the automaton has none
+     */
+    public int getInitialState() {
+        return initialState;
+    }
+
+    /**
+     * Gets the number of states
+     * @return The number of states reachable from the initial state
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Gets the name of a state
+     * @param state Index of the state
+     * @return The state name
+     */
+    public String getStateName(int state) {
+        return chunkOf(state).names[state & (CHUNK_SIZE - 1)];
+    }
+
+    /**
+     * Gets the number of symbols
+     * @return The size of the alphabet, epsilon included if a transition uses it
+     */
+    public int getSymbolCount() {
+        return columns.size();
+    }
+
+    /**
+     * Flattens this version into a CompiledAutomaton, whose single table is
+     * faster to match against once the automaton stops changing
+     * @return The compiled automaton, with the same state numbers
+     */
+    public CompiledAutomaton toCompiled() {
+        Alphabet alphabet = new Alphabet(columns.symbolList());
+        int symbolCount = alphabet.size();
+        int[] table = new int[stateCount * symbolCount];
+        BitSet accepting = new BitSet(stateCount);
+        String[] stateNames = new String[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            Chunk chunk = chunkOf(state);
+            int row = state & (CHUNK_SIZE - 1);
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                table[state * symbolCount + symbol] = chunk.target(row, columns.indexOf(alphabet.symbolAt(symbol)));
+            }
+            accepting.set(state, isAccepting(state));
+            stateNames[state] = chunk.names[row];
+        }
+        return new CompiledAutomaton(alphabet, table, accepting, initialState, stateNames);
+    }
+
+    /**
+     * Generate a string representation of this version
+     * @return A string with the table dimensions
+     */
+    @Override
+    public String toString() {
+        return "ChunkedAutomaton{" +
+                "states=" + stateCount +
+                ", symbols=" + columns.size() +
+                ", chunks=" + (stateCount + CHUNK_SIZE - 1) / CHUNK_SIZE +
+                '}';
+    }
+
+    /**
+     * The rows of 64 consecutive states. A chunk is written only by the
+     * IncrementalCompiler edition that created it, and never again once a
+     * version holding it has been published.
+     */
+    static final class Chunk {
+        final int owner;
+        final int width;
+        final int[] targets;
+        final int[] defaults;
+        final String[] names;
+        long accepting;
+
+        Chunk(int owner, int width) {
+            this.owner = owner;
+            this.width = width;
+            this.targets = new int[CHUNK_SIZE * width];
+            this.defaults = new int[CHUNK_SIZE];
+            this.names = new String[CHUNK_SIZE];
+            Arrays.fill(targets, CompiledAutomaton.DEAD);
+            Arrays.fill(defaults, CompiledAutomaton.DEAD);
+        }
+
+        /**
+         * Copies this chunk for a new edition, with at least a given number of columns
+         */
+        Chunk copy(int owner, int width) {
+            Chunk copy = new Chunk(owner, Math.max(width, this.width));
+            for (int row = 0; row < CHUNK_SIZE; row++) {
+                System.arraycopy(targets, row * this.width, copy.targets, row * copy.width, this.width);
+                Arrays.fill(copy.targets, row * copy.width + this.width, (row + 1) * copy.width, defaults[row]);
+            }
+            System.arraycopy(defaults, 0, copy.defaults, 0, CHUNK_SIZE);
+            System.arraycopy(names, 0, copy.names, 0, CHUNK_SIZE);
+            copy.accepting = accepting;
+            return copy;
+        }
+
+        int target(int row, int column) {
+            return column < width ? targets[row * width + column] : defaults[row];
+        }
+    }
+
+    /**
+     * The column of each symbol, in the order symbols were first seen. Adding
+     * a symbol returns new Columns and leaves this one untouched.
+     */
+    static final class Columns {
+        private static final int DIRECT_LIMIT = 256;
+
+        private final char[] symbols;
+        private final int[] direct;
+        private final char[] sorted;
+        private final int[] sortedColumns;
+
+        Columns() {
+            this(new char[0]);
+        }
+
+        private Columns(char[] symbols) {
+            this.symbols = symbols;
+            this.direct = new int[DIRECT_LIMIT];
+            Arrays.fill(direct, Alphabet.NO_SYMBOL);
+            int others = 0;
+            for (int column = 0; column < symbols.length; column++) {
+                if (symbols[column] < DIRECT_LIMIT) {
+                    direct[symbols[column]] = column;
+                } else {
+                    others++;
+                }
+            }
+            // Columns of the symbols above Latin-1, sorted by symbol for a binary search
+            long[] keyed = new long[others];
+            int k = 0;
+            for (int column = 0; column < symbols.length; column++) {
+                if (symbols[column] >= DIRECT_LIMIT) {
+                    keyed[k++] = ((long) symbols[column] << 32) | column;
+                }
+            }
+            Arrays.sort(keyed);
+            this.sorted = new char[others];
+            this.sortedColumns = new int[others];
+            for (int i = 0; i < others; i++) {
+                sorted[i] = (char) (keyed[i] >>> 32);
+                sortedColumns[i] = (int) keyed[i];
+            }
+        }
+
+        /**
+         * Gets the columns with one more symbol, or these columns if it is already known
+         */
+        Columns with(char symbol) {
+            if (indexOf(symbol) != Alphabet.NO_SYMBOL) {
+                return this;
+            }
+            char[] more = Arrays.copyOf(symbols, symbols.length + 1);
+            more[symbols.length] = symbol;
+            return new Columns(more);
+        }
+
+        int indexOf(char symbol) {
+            if (symbol < DIRECT_LIMIT) {
+                return direct[symbol];
+            }
+            int index = Arrays.binarySearch(sorted, symbol);
+            return index >= 0 ? sortedColumns[index] : Alphabet.NO_SYMBOL;
+        }
+
+        int size() {
+            return symbols.length;
+        }
+
+        List<Character> symbolList() {
+            List<Character> list = new ArrayList<>(symbols.length);
+            for (char symbol : symbols) {
+                list.add(symbol);
+            }
+            return list;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package src;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The CompiledAutomaton class is an immutable, table driven form of an automaton.
+ * States are numbered from 0 and the transitions are stored in a flat int[]
+ * table indexed by state and dense symbol index, so matching a word only reads
+ * arrays and never allocates. Symbols whose columns are identical share one
+ * column of the stored table (see SymbolClasses).
+ */
+public class CompiledAutomaton implements WordMatcher {
+    /**
+     * Target stored in the table when no transition exists
+     */
+    public static final int DEAD = -1;
+
+    private final Alphabet alphabet;
+    private final int symbolCount;
+    private final SymbolClasses classes;
+    private final int[] classOf;
+    private final int classCount;
+    private final int stateCount;
+    private final int initialState;
+    private final int[] table;
+    private final BitSet accepting;
+    private final BitSet live;
+    private final String[] stateNames;
+
+    /**
+     * Constructor for creating a compiled automaton from its tables
+     * @param alphabet Alphabet giving the column of each symbol
+     * @param table Row-major transition table of stateCount * alphabet.size() entries
+     * @param accepting Set of accepting states
+     * @param initialState Index of the initial state, or DEAD if there is none
+     * @param stateNames Name of each state, used for display only
+     */
+    CompiledAutomaton(Alphabet alphabet, int[] table, BitSet accepting, int initialState, String[] stateNames) {
+        this.alphabet = alphabet;
+        this.symbolCount = alphabet.size();
+        this.stateCount = stateNames.length;
+        this.initialState = initialState;
+        this.classes = SymbolClasses.of(table, stateCount, symbolCount);
+        this.classOf = classes.classes();
+        this.classCount = classes.getClassCount();
+        this.table = classes.compress(table, stateCount);
+        this.accepting = (BitSet) accepting.clone();
+        this.live = liveStates();
+        this.stateNames = stateNames;
+    }
+
+    /**
+     * Computes the states from which an accepting state can be reached,
+     * walking the transitions backwards from the accepting states
+     * @return Set of live states
+     */
+    private BitSet liveStates() {
+        int[] offsets = new int[stateCount + 1];
+        for (int target : table) {
+            if (target != DEAD) {
+                offsets[target + 1]++;
+            }
+        }
+        for (int i = 1; i <= stateCount; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+        int[] sources = new int[offsets[stateCount]];
+        int[] fill = offsets.clone();
+        for (int i = 0; i < table.length; i++) {
+            if (table[i] != DEAD) {
+                sources[fill[table[i]]++] = i / classCount;
+            }
+        }
+
+        BitSet result = (BitSet) accepting.clone();
+        int[] queue = new int[stateCount];
+        int tail = 0;
+        for (int state = result.nextSetBit(0); state >= 0; state = result.nextSetBit(state + 1)) {
+            queue[tail++] = state;
+        }
+        for (int head = 0; head < tail; head++) {
+            int state = queue[head];
+            for (int i = offsets[state]; i < offsets[state + 1]; i++) {
+                if (!result.get(sources[i])) {
+                    result.set(sources[i]);
+                    queue[tail++] = sources[i];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Compiles an automaton into a transition table.
+     * Each entry is the state returned by State.getNextState, so the compiled
+     * form accepts exactly the same words as Automaton.belongs.
+     * @param automaton The automaton to compile
+     * @return The compiled automaton
+     * @throws IllegalArgumentException If a symbol has several characters, such as "P10"
+     */
+    public static CompiledAutomaton compile(Automaton automaton) {
+        if (automaton.hasTokens()) {
+            // Only the first character of such symbols has a column
+            throw new IllegalArgumentException("Compiled automata cannot read multi-character symbols, only TokenMatcher can");
+        }
+        List<State> states = automaton.reachableStates();
+        Alphabet alphabet = new Alphabet(automaton.getAlphabet());
+        int symbolCount = alphabet.size();
+
+        Map<State, Integer> indices = new HashMap<>();
+        String[] stateNames = new String[states.size()];
+        BitSet accepting = new BitSet(states.size());
+        for (int i = 0; i < states.size(); i++) {
+            State state = states.get(i);
+            indices.put(state, i);
+            stateNames[i] = state.getName();
+            if (state.isFinal()) {
+                accepting.set(i);
+            }
+        }
+
+        int[] table = new int[states.size() * symbolCount];
+        for (int i = 0; i < states.size(); i++) {
+            State state = states.get(i);
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                State next = state.getNextState(alphabet.symbolAt(symbol));
+                table[i * symbolCount + symbol] = next == null ? DEAD : indices.get(next);
+            }
+        }
+
+        int initialState = states.isEmpty() ? DEAD : 0;
+        return new CompiledAutomaton(alphabet, table, accepting, initialState, stateNames);
+    }
+
+    /**
+     * Converts this compiled automaton back into a graph of State and Transition objects
+     * @return A new automaton with the same states, transitions and initial state
+     */
+    public Automaton toAutomaton() {
+        Automaton automaton = new Automaton();
+        State[] states = new State[stateCount];
+        for (int i = 0; i < stateCount; i++) {
+            states[i] = new State(stateNames[i], accepting.get(i));
+            automaton.addState(states[i]);
+        }
+        if (initialState != DEAD) {
+            automaton.setInitialState(states[initialState]);
+        }
+        for (int i = 0; i < stateCount; i++) {
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int next = target(i, symbol);
+                if (next != DEAD) {
+                    automaton.addTransition(states[i], states[next], alphabet.symbolAt(symbol));
+                }
+            }
+        }
+        return automaton;
+    }
+
+    /**
+     * Builds the same automaton with its states renumbered, so that states
+     * used together can be stored next to each other in the table
+     * @param order Old index of the state placed at each new index, a permutation of the states
+     * @return The renumbered automaton
+     * @throws IllegalArgumentException If order is not a permutation of the states
+     */
+    public CompiledAutomaton renumber(int[] order) {
+        if (order.length != stateCount) {
+            throw new IllegalArgumentException("Expected " + stateCount + " states, got " + order.length);
+        }
+        int[] newIndex = new int[stateCount];
+        Arrays.fill(newIndex, DEAD);
+        for (int i = 0; i < stateCount; i++) {
+            if (order[i] < 0 || order[i] >= stateCount || newIndex[order[i]] != DEAD) {
+                throw new IllegalArgumentException("Not a permutation: state " + order[i] + " at " + i);
+            }
+            newIndex[order[i]] = i;
+        }
+
+        int[] renumbered = new int[stateCount * symbolCount];
+        BitSet renumberedAccepting = new BitSet(stateCount);
+        String[] renumberedNames = new String[stateCount];
+        for (int i = 0; i < stateCount; i++) {
+            int old = order[i];
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int next = target(old, symbol);
+                renumbered[i * symbolCount + symbol] = next == DEAD ? DEAD : newIndex[next];
+            }
+            renumberedAccepting.set(i, accepting.get(old));
+            renumberedNames[i] = stateNames[old];
+        }
+        return new CompiledAutomaton(alphabet, renumbered, renumberedAccepting,
+                initialState == DEAD ? DEAD : newIndex[initialState], renumberedNames);
+    }
+
+    /**
+     * Checks if a word belongs to the language of this automaton
+     * @param word The word to check
+     * @return true if the word is accepted, false otherwise
+     */
+    @Override
+    public boolean belongs(CharSequence word) {
+        int state = initialState;
+        if (state == DEAD) {
+            return false;
+        }
+
+        for (int i = 0; i < word.length(); i++) {
+            int symbol = alphabet.indexOf(word.charAt(i));
+            if (symbol == Alphabet.NO_SYMBOL) {
+                return false;
+            }
+            state = table[state * classCount + classOf[symbol]];
+            if (state == DEAD) {
+                return false;
+            }
+        }
+
+        return accepting.get(state);
+    }
+
+    /**
+     * Gets the state reached from a state with a given symbol
+     * @param state Index of the origin state
+     * @param symbol The symbol to consume
+     * @return Index of the next state, or DEAD if there is no transition
+     */
+    public int step(int state, char symbol) {
+        int index = alphabet.indexOf(symbol);
+        return index == Alphabet.NO_SYMBOL ? DEAD : table[state * classCount + classOf[index]];
+    }
+
+    /**
+     * Gets the target of a transition given the dense index of its symbol
+     * @param state Index of the origin state
+     * @param symbolIndex Index of the symbol in the alphabet
+     * @return Index of the next state, or DEAD if there is no transition
+     */
+    public int target(int state, int symbolIndex) {
+        return table[state * classCount + classOf[symbolIndex]];
+    }
+
+    /**
+     * Checks if a state is an accepting state
+     * @param state Index of the state
+     * @return true if the state is accepting, false otherwise
+     */
+    public boolean isAccepting(int state) {
+        return accepting.get(state);
+    }
+
+    /**
+     * Checks if an accepting state can still be reached from a state
+     * @param state Index of the state
+     * @return true if some continuation leads to acceptance, false if the state is a dead end
+     */
+    public boolean isLive(int state) {
+        return live.get(state);
+    }
+
+    /**
+     * Gets the index of the initial state
+     * @return The initial state, or DEAD if the automaton has none
+     */
+    public int getInitialState() {
+        return initialState;
+    }
+
+    /**
+     * Gets the number of states
+     * @return The number of states
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Gets the alphabet used to index the table columns
+     * @return The alphabet
+     */
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * Gets the equivalence classes of the symbols, one per column of the stored table
+     * @return The symbol classes
+     */
+    public SymbolClasses getSymbolClasses() {
+        return classes;
+    }
+
+    /**
+     * Gets the name of a state
+     * @param state Index of the state
+     * @return The state name
+     */
+    public String getStateName(int state) {
+        return stateNames[state];
+    }
+
+    /**
+     * Generate a string representation of this compiled automaton
+     * @return A string with the table dimensions
+     */
+    @Override
+    public String toString() {
+        return "CompiledAutomaton{" +
+                "states=" + stateCount +
+                ", symbols=" + symbolCount +
+                ", classes=" + classCount +
+                ", accepting=" + accepting.cardinality() +
+                '}';
+    }
+}
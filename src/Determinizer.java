@@ -0,0 +1,161 @@
+package src;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The Determinizer class builds a deterministic automaton equivalent to a
+ * nondeterministic one with the subset construction. Epsilon transitions are
+ * followed without consuming input, every DFA state is the epsilon closure of
+ * a set of NFA states, and the sets are interned as bitsets in a hash index.
+ */
+public class Determinizer {
+    private final NfaGraph nfa;
+    private int maxStates = Integer.MAX_VALUE;
+    private int stateCount;
+    private long buildTimeNanos;
+
+    /**
+     * Constructor for determinizing an automaton
+     * @param automaton The automaton to determinize
+     */
+    public Determinizer(Automaton automaton) {
+        this(NfaGraph.of(automaton));
+    }
+
+    /**
+     * Constructor for determinizing an NFA graph
+     * @param nfa The graph to determinize
+     */
+    public Determinizer(NfaGraph nfa) {
+        this.nfa = nfa;
+    }
+
+    /**
+     * Sets the maximum number of DFA states the construction may create
+     * @param maxStates The limit, Integer.MAX_VALUE by default
+     */
+    public void setMaxStates(int maxStates) {
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * Runs the subset construction
+     * @return The deterministic automaton, whose state 0 is the initial state
+     * @throws IllegalStateException If more than the maximum number of states are needed
+     */
+    public CompiledAutomaton determinize() {
+        long start = System.nanoTime();
+
+        int symbolCount = nfa.getAlphabet().size();
+        int words = nfa.wordCount();
+        StateSetIndex index = new StateSetIndex(words);
+        long[] set = new long[words];
+        int[] stack = new int[Math.max(1, nfa.getStateCount())];
+        BitSet accepting = new BitSet();
+        int[] table = new int[0];
+
+        // Targets of the current DFA state, bucketed by symbol
+        int[][] buckets = new int[symbolCount][4];
+        int[] bucketSizes = new int[symbolCount];
+        int[] touched = new int[symbolCount];
+
+        if (nfa.getInitialState() >= 0) {
+            nfa.addClosure(set, nfa.getInitialState(), stack);
+            index.intern(set);
+            if (intersectsAccepting(set)) {
+                accepting.set(0);
+            }
+        }
+
+        for (int current = 0; current < index.size(); current++) {
+            if ((current + 1) * symbolCount > table.length) {
+                int length = table.length;
+                table = Arrays.copyOf(table, Math.max(16 * symbolCount, length * 2));
+                Arrays.fill(table, length, table.length, CompiledAutomaton.DEAD);
+            }
+
+            int touchedCount = 0;
+            for (int w = 0; w < words; w++) {
+                long bits = index.word(current, w);
+                while (bits != 0) {
+                    int state = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    for (int e = nfa.edgeStart(state); e < nfa.edgeEnd(state); e++) {
+                        int symbol = nfa.edgeSymbol(e);
+                        if (bucketSizes[symbol] == 0) {
+                            touched[touchedCount++] = symbol;
+                        } else if (bucketSizes[symbol] == buckets[symbol].length) {
+                            buckets[symbol] = Arrays.copyOf(buckets[symbol], bucketSizes[symbol] * 2);
+                        }
+                        buckets[symbol][bucketSizes[symbol]++] = nfa.edgeTarget(e);
+                    }
+                }
+            }
+
+            // Visiting symbols in order numbers the new states canonically
+            Arrays.sort(touched, 0, touchedCount);
+            for (int t = 0; t < touchedCount; t++) {
+                int symbol = touched[t];
+                Arrays.fill(set, 0L);
+                for (int i = 0; i < bucketSizes[symbol]; i++) {
+                    nfa.addClosure(set, buckets[symbol][i], stack);
+                }
+                bucketSizes[symbol] = 0;
+
+                int size = index.size();
+                int next = index.intern(set);
+                if (next == size) {
+                    if (size >= maxStates) {
+                        throw new IllegalStateException("Determinization exceeds " + maxStates + " states");
+                    }
+                    if (intersectsAccepting(set)) {
+                        accepting.set(next);
+                    }
+                }
+                table[current * symbolCount + symbol] = next;
+            }
+        }
+
+        stateCount = index.size();
+        String[] stateNames = new String[stateCount];
+        for (int i = 0; i < stateCount; i++) {
+            stateNames[i] = "q" + i;
+        }
+        CompiledAutomaton dfa = new CompiledAutomaton(nfa.getAlphabet(),
+                Arrays.copyOf(table, stateCount * symbolCount), accepting,
+                stateCount == 0 ? CompiledAutomaton.DEAD : 0, stateNames);
+
+        buildTimeNanos = System.nanoTime() - start;
+        return dfa;
+    }
+
+    /**
+     * Gets the number of states of the last built DFA
+     * @return The number of DFA states
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Gets the time spent by the last call to determinize
+     * @return The build time in nanoseconds
+     */
+    public long getBuildTimeNanos() {
+        return buildTimeNanos;
+    }
+
+    private boolean intersectsAccepting(long[] set) {
+        for (int w = 0; w < set.length; w++) {
+            long bits = set[w];
+            while (bits != 0) {
+                if (nfa.isAccepting((w << 6) + Long.numberOfTrailingZeros(bits))) {
+                    return true;
+                }
+                bits &= bits - 1;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,213 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The Guard class is a transition condition compiled into a flat int[] program.
+ * Conditions follow the &lt;condition&gt; rule of lib/grammaire.txt, for instance
+ * "[object nearby and nbO &lt; 10]": predicates joined by "and" / "or", where
+ * "and" binds tighter than "or". A predicate is a variable compared to a number,
+ * or a variable alone, which is then a flag. Several words in a row form one
+ * variable name ("object nearby").
+ *
+ * Each predicate takes three ints (opcode, slot, constant) and an OR opcode
+ * separates the groups of predicates joined by "and", so evaluation is a single
+ * loop over the program that neither allocates nor looks at strings.
+ */
+public class Guard {
+    private static final int FLAG = 0;
+    private static final int LESS = 1;
+    private static final int GREATER = 2;
+    private static final int EQUAL = 3;
+    private static final int LESS_OR_EQUAL = 4;
+    private static final int GREATER_OR_EQUAL = 5;
+    private static final int OR = 6;
+
+    private final String source;
+    private final int[] code;
+
+    private Guard(String source, int[] code) {
+        this.source = source;
+        this.code = code;
+    }
+
+    /**
+     * Compiles a condition
+     * @param condition The condition, with or without its brackets
+     * @param variables Table assigning slots to the variables
+     * @return The compiled guard, or null if the condition is null, empty or "-"
+     * @throws IllegalArgumentException If the condition does not follow the grammar
+     */
+    public static Guard compile(String condition, GuardVariables variables) {
+        if (condition == null) {
+            return null;
+        }
+        String text = condition.trim();
+        if (text.isEmpty() || text.equals("-")) {
+            return null;
+        }
+        if (text.startsWith("[") && text.endsWith("]")) {
+            text = text.substring(1, text.length() - 1);
+        }
+
+        List<Integer> code = new ArrayList<>();
+        List<String> name = new ArrayList<>();
+        int i = 0;
+        while (true) {
+            // Read the words of the variable name
+            name.clear();
+            while (true) {
+                i = skipSpaces(text, i);
+                int end = wordEnd(text, i);
+                if (end == i) {
+                    break;
+                }
+                String word = text.substring(i, end);
+                if (!name.isEmpty() && (word.equals("and") || word.equals("or"))) {
+                    break;
+                }
+                if (!Character.isLetter(word.charAt(0))) {
+                    throw error(condition, "variable expected", i);
+                }
+                name.add(word);
+                i = end;
+            }
+            if (name.isEmpty()) {
+                throw error(condition, "variable expected", i);
+            }
+            String variable = String.join(" ", name);
+
+            // Optional comparison
+            int opcode = FLAG;
+            if (i < text.length() && "<>=".indexOf(text.charAt(i)) >= 0) {
+                char first = text.charAt(i++);
+                boolean orEqual = i < text.length() && text.charAt(i) == '=' && first != '=';
+                if (orEqual) {
+                    i++;
+                }
+                opcode = first == '<' ? (orEqual ? LESS_OR_EQUAL : LESS)
+                        : first == '>' ? (orEqual ? GREATER_OR_EQUAL : GREATER) : EQUAL;
+            }
+            if (opcode == FLAG) {
+                code.add(FLAG);
+                code.add(variables.internFlag(variable));
+                code.add(0);
+            } else {
+                i = skipSpaces(text, i);
+                int end = i;
+                while (end < text.length() && Character.isDigit(text.charAt(end))) {
+                    end++;
+                }
+                if (end == i) {
+                    throw error(condition, "number expected", i);
+                }
+                code.add(opcode);
+                code.add(variables.internCounter(variable));
+                code.add(Integer.parseInt(text.substring(i, end)));
+                i = end;
+            }
+
+            // Connector or end of the condition
+            i = skipSpaces(text, i);
+            if (i >= text.length()) {
+                break;
+            }
+            int end = wordEnd(text, i);
+            String connector = text.substring(i, end);
+            if (connector.equals("or")) {
+                code.add(OR);
+                code.add(0);
+                code.add(0);
+            } else if (!connector.equals("and")) {
+                throw error(condition, "'and' or 'or' expected", i);
+            }
+            i = end;
+        }
+
+        int[] program = new int[code.size()];
+        for (int j = 0; j < program.length; j++) {
+            program[j] = code.get(j);
+        }
+        return new Guard(condition.trim(), program);
+    }
+
+    /**
+     * Evaluates the guard
+     * @param context Current values of the variables
+     * @return true if the condition holds, false otherwise
+     */
+    public boolean test(GuardContext context) {
+        boolean group = true;
+        for (int pc = 0; pc < code.length; pc += 3) {
+            int opcode = code[pc];
+            if (opcode == OR) {
+                if (group) {
+                    return true;
+                }
+                group = true;
+            } else if (group) {
+                int slot = code[pc + 1];
+                int value = code[pc + 2];
+                switch (opcode) {
+                    case FLAG:
+                        group = context.getFlag(slot);
+                        break;
+                    case LESS:
+                        group = context.getCounter(slot) < value;
+                        break;
+                    case GREATER:
+                        group = context.getCounter(slot) > value;
+                        break;
+                    case EQUAL:
+                        group = context.getCounter(slot) == value;
+                        break;
+                    case LESS_OR_EQUAL:
+                        group = context.getCounter(slot) <= value;
+                        break;
+                    default:
+                        group = context.getCounter(slot) >= value;
+                        break;
+                }
+            }
+        }
+        return group;
+    }
+
+    /**
+     * Gets the condition this guard was compiled from
+     * @return The condition text
+     */
+    public String getSource() {
+        return source;
+    }
+
+    private static int skipSpaces(String text, int i) {
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int wordEnd(String text, int i) {
+        int end = i;
+        while (end < text.length() && (Character.isLetterOrDigit(text.charAt(end)) || text.charAt(end) == '_')) {
+            end++;
+        }
+        return end;
+    }
+
+    private static IllegalArgumentException error(String condition, String message, int column) {
+        return new IllegalArgumentException("Malformed condition '" + condition + "': " + message
+                + " at column " + (column + 1));
+    }
+
+    /**
+     * Generate a string representation of this guard
+     * @return The condition text
+     */
+    @Override
+    public String toString() {
+        return source;
+    }
+}
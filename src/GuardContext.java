@@ -0,0 +1,96 @@
+package src;
+
+import java.util.Arrays;
+
+/**
+ * The GuardContext class holds the current values of the guard variables,
+ * indexed by the slots of a GuardVariables table. A context belongs to one
+ * run; guards read it without allocating. Slots created after the context
+ * read as 0 and false until they are set.
+ */
+public class GuardContext {
+    private final GuardVariables variables;
+    private int[] counters;
+    private boolean[] flags;
+
+    /**
+     * Constructor for a context sized for a number of counters and flags
+     * @param variables The table giving the slots
+     * @param counterCount Number of counter slots
+     * @param flagCount Number of flag slots
+     */
+    GuardContext(GuardVariables variables, int counterCount, int flagCount) {
+        this.variables = variables;
+        this.counters = new int[counterCount];
+        this.flags = new boolean[flagCount];
+    }
+
+    /**
+     * Gets the value of a counter
+     * @param slot Slot of the counter
+     * @return Its value
+     */
+    public int getCounter(int slot) {
+        return slot < counters.length ? counters[slot] : 0;
+    }
+
+    /**
+     * Sets the value of a counter
+     * @param slot Slot of the counter
+     * @param value The new value
+     */
+    public void setCounter(int slot, int value) {
+        if (slot >= counters.length) {
+            counters = Arrays.copyOf(counters, Math.max(slot + 1, variables.getCounterCount()));
+        }
+        counters[slot] = value;
+    }
+
+    /**
+     * Sets the value of a counter from its name
+     * @param name Name of the counter
+     * @param value The new value
+     * @throws IllegalArgumentException If no guard uses this counter
+     */
+    public void setCounter(String name, int value) {
+        setCounter(slot(variables.counterSlot(name), name), value);
+    }
+
+    /**
+     * Gets the value of a flag
+     * @param slot Slot of the flag
+     * @return Its value
+     */
+    public boolean getFlag(int slot) {
+        return slot < flags.length && flags[slot];
+    }
+
+    /**
+     * Sets the value of a flag
+     * @param slot Slot of the flag
+     * @param value The new value
+     */
+    public void setFlag(int slot, boolean value) {
+        if (slot >= flags.length) {
+            flags = Arrays.copyOf(flags, Math.max(slot + 1, variables.getFlagCount()));
+        }
+        flags[slot] = value;
+    }
+
+    /**
+     * Sets the value of a flag from its name
+     * @param name Name of the flag
+     * @param value The new value
+     * @throws IllegalArgumentException If no guard uses this flag
+     */
+    public void setFlag(String name, boolean value) {
+        setFlag(slot(variables.flagSlot(name), name), value);
+    }
+
+    private static int slot(int slot, String name) {
+        if (slot == GuardVariables.NO_SLOT) {
+            throw new IllegalArgumentException("Unknown guard variable: " + name);
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,162 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The GuardVariables class assigns slot indices to the variables found in
+ * transition conditions. A variable compared to a number ("nbO < 10") is a
+ * counter stored in an int[]; a variable tested on its own ("object nearby")
+ * is a flag stored in a boolean[]. Slots are assigned while guards are
+ * compiled, so evaluation only indexes arrays.
+ *
+ * An AutomatonSnapshot holds a frozen copy of the variables of its automaton:
+ * its slot counts never change, and compiling a guard over a variable it does
+ * not know fails instead of assigning a slot.
+ */
+public class GuardVariables {
+    /**
+     * Slot returned for an unknown variable
+     */
+    public static final int NO_SLOT = -1;
+
+    private final Map<String, Integer> counterSlots = new HashMap<>();
+    private final Map<String, Integer> flagSlots = new HashMap<>();
+    private final List<String> counterNames = new ArrayList<>();
+    private final List<String> flagNames = new ArrayList<>();
+    private boolean frozen;
+
+    /**
+     * Gets the slot of a counter, assigning a new one if needed
+     * @param name Name of the counter
+     * @return Its slot
+     */
+    synchronized int internCounter(String name) {
+        return intern(name, counterSlots, counterNames, frozen);
+    }
+
+    /**
+     * Gets the slot of a flag, assigning a new one if needed
+     * @param name Name of the flag
+     * @return Its slot
+     */
+    synchronized int internFlag(String name) {
+        return intern(name, flagSlots, flagNames, frozen);
+    }
+
+    private static int intern(String name, Map<String, Integer> slots, List<String> names, boolean frozen) {
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            if (frozen) {
+                throw new IllegalStateException("No slot for variable '" + name + "' in frozen guard variables");
+            }
+            slot = names.size();
+            names.add(name);
+            slots.put(name, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Copies these variables, keeping their slots. The copy is not frozen.
+     * @return The copy
+     */
+    synchronized GuardVariables copy() {
+        GuardVariables copy = new GuardVariables();
+        copy.counterSlots.putAll(counterSlots);
+        copy.flagSlots.putAll(flagSlots);
+        copy.counterNames.addAll(counterNames);
+        copy.flagNames.addAll(flagNames);
+        return copy;
+    }
+
+    /**
+     * Freezes these variables: no slot is assigned any more
+     */
+    synchronized void freeze() {
+        frozen = true;
+    }
+
+    /**
+     * Checks if these variables are frozen
+     * @return true if no slot can be assigned any more
+     */
+    public synchronized boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Gets the slot of a counter
+     * @param name Name of the counter
+     * @return Its slot, or NO_SLOT if no guard uses it
+     */
+    public synchronized int counterSlot(String name) {
+        return counterSlots.getOrDefault(name, NO_SLOT);
+    }
+
+    /**
+     * Gets the slot of a flag
+     * @param name Name of the flag
+     * @return Its slot, or NO_SLOT if no guard uses it
+     */
+    public synchronized int flagSlot(String name) {
+        return flagSlots.getOrDefault(name, NO_SLOT);
+    }
+
+    /**
+     * Gets the number of counters
+     * @return The number of counter slots
+     */
+    public synchronized int getCounterCount() {
+        return counterNames.size();
+    }
+
+    /**
+     * Gets the number of flags
+     * @return The number of flag slots
+     */
+    public synchronized int getFlagCount() {
+        return flagNames.size();
+    }
+
+    /**
+     * Gets the name of a counter
+     * @param slot Slot of the counter
+     * @return The counter name
+     */
+    public synchronized String getCounterName(int slot) {
+        return counterNames.get(slot);
+    }
+
+    /**
+     * Gets the name of a flag
+     * @param slot Slot of the flag
+     * @return The flag name
+     */
+    public synchronized String getFlagName(int slot) {
+        return flagNames.get(slot);
+    }
+
+    /**
+     * Creates a context holding a value for every variable known so far
+     * @return A new context with all counters at 0 and all flags false
+     */
+    public GuardContext newContext() {
+        return new GuardContext(this, getCounterCount(), getFlagCount());
+    }
+
+    /**
+     * Generate a string representation of these variables
+     * @return A string listing counters and flags
+     */
+    @Override
+    public synchronized String toString() {
+        return "GuardVariables{" +
+                "counters=" + counterNames +
+                ", flags=" + flagNames +
+                ", frozen=" + frozen +
+                '}';
+    }
+}
@@ -0,0 +1,215 @@
+package src;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The GuardedMatcher class runs an automaton whose transitions carry guards.
+ * Like belongs, each state follows its first transition matching the symbol or
+ * labelled epsilon, but a transition whose guard fails is skipped.
+ *
+ * The table is built like the one of CompiledAutomaton. A cell whose first
+ * candidate transition is unguarded holds its target directly, so unguarded
+ * steps cost a single array read. Other cells point to the list of candidates
+ * of the cell, in order, cut after the first unguarded one; a step then tests
+ * the guards of that list until one passes.
+ */
+public class GuardedMatcher {
+    private static final int DEAD = CompiledAutomaton.DEAD;
+    static final int UNGUARDED = -1;
+
+    final Alphabet alphabet;
+    final int symbolCount;
+    final int initialState;
+    final boolean[] finals;
+    final int[] table;
+    final int[] candidates;
+    final Guard[] guards;
+    final GuardVariables variables;
+
+    private GuardedMatcher(Alphabet alphabet, int initialState, boolean[] finals, int[] table, int[] candidates,
+                           Guard[] guards, GuardVariables variables) {
+        this.alphabet = alphabet;
+        this.symbolCount = alphabet.size();
+        this.initialState = initialState;
+        this.finals = finals;
+        this.table = table;
+        this.candidates = candidates;
+        this.guards = guards;
+        this.variables = variables;
+    }
+
+    /**
+     * Compiles an automaton and its guards
+     * @param automaton The automaton to compile
+     * @return The guarded matcher
+     */
+    public static GuardedMatcher compile(Automaton automaton) {
+        return compile(AutomatonSnapshot.of(automaton));
+    }
+
+    /**
+     * Compiles a snapshot and its guards
+     * @param snapshot The snapshot to compile
+     * @return The guarded matcher
+     */
+    public static GuardedMatcher compile(AutomatonSnapshot snapshot) {
+        int stateCount = snapshot.getStateCount();
+        int transitionCount = snapshot.getTransitionCount();
+        Set<Character> symbols = new HashSet<>();
+        for (int t = 0; t < transitionCount; t++) {
+            symbols.add(snapshot.getSymbol(t));
+        }
+        Alphabet alphabet = new Alphabet(symbols);
+        int symbolCount = alphabet.size();
+
+        // Group transitions by origin, keeping their order
+        int[] offsets = new int[stateCount + 1];
+        for (int t = 0; t < transitionCount; t++) {
+            offsets[snapshot.getOrigin(t) + 1]++;
+        }
+        for (int state = 0; state < stateCount; state++) {
+            offsets[state + 1] += offsets[state];
+        }
+        int[] order = new int[transitionCount];
+        int[] fill = offsets.clone();
+        for (int t = 0; t < transitionCount; t++) {
+            order[fill[snapshot.getOrigin(t)]++] = t;
+        }
+
+        Guard[] guards = new Guard[transitionCount];
+        for (int t = 0; t < transitionCount; t++) {
+            guards[t] = snapshot.getGuard(t);
+        }
+
+        int[] table = new int[stateCount * symbolCount];
+        Arrays.fill(table, DEAD);
+        int[] candidates = new int[16];
+        int candidateSize = 0;
+        for (int state = 0; state < stateCount; state++) {
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                char c = alphabet.symbolAt(symbol);
+                int listStart = candidateSize;
+                int count = 0;
+                boolean direct = false;
+                for (int i = offsets[state]; i < offsets[state + 1]; i++) {
+                    int t = order[i];
+                    char transitionSymbol = snapshot.getSymbol(t);
+                    if (transitionSymbol != c && transitionSymbol != Transition.EPSILON) {
+                        continue;
+                    }
+                    if (count == 0 && guards[t] == null) {
+                        table[state * symbolCount + symbol] = snapshot.getTarget(t);
+                        direct = true;
+                        break;
+                    }
+                    if (count == 0) {
+                        candidateSize++;
+                    }
+                    if (candidateSize + 2 > candidates.length) {
+                        candidates = Arrays.copyOf(candidates, candidates.length * 2);
+                    }
+                    candidates[candidateSize++] = guards[t] == null ? UNGUARDED : t;
+                    candidates[candidateSize++] = snapshot.getTarget(t);
+                    count++;
+                    if (guards[t] == null) {
+                        break;
+                    }
+                }
+                if (!direct && count > 0) {
+                    candidates[listStart] = count;
+                    table[state * symbolCount + symbol] = -2 - listStart;
+                }
+            }
+        }
+
+        boolean[] finals = new boolean[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            finals[state] = snapshot.isFinal(state);
+        }
+        return new GuardedMatcher(alphabet, snapshot.getInitialState(), finals, table,
+                Arrays.copyOf(candidates, candidateSize), guards, snapshot.getGuardVariables());
+    }
+
+    /**
+     * Creates a context holding the variables tested by the guards, all set to 0 or false
+     * @return A new context
+     */
+    public GuardContext newContext() {
+        return variables.newContext();
+    }
+
+    /**
+     * Checks if a word is accepted when the guards are evaluated in a context
+     * @param word The word to check
+     * @param context Values of the variables tested by the guards
+     * @return true if the word is accepted, false otherwise
+     */
+    public boolean belongs(CharSequence word, GuardContext context) {
+        if (initialState == AutomatonSnapshot.NO_STATE) {
+            return false;
+        }
+        int state = initialState;
+        for (int i = 0; i < word.length(); i++) {
+            int symbol = alphabet.indexOf(word.charAt(i));
+            if (symbol == Alphabet.NO_SYMBOL) {
+                return false;
+            }
+            int cell = table[state * symbolCount + symbol];
+            if (cell < DEAD) {
+                cell = choose(-2 - cell, context);
+            }
+            if (cell == DEAD) {
+                return false;
+            }
+            state = cell;
+        }
+        return finals[state];
+    }
+
+    /**
+     * Follows the first candidate of a list whose guard passes
+     */
+    private int choose(int list, GuardContext context) {
+        int end = list + 1 + 2 * candidates[list];
+        for (int i = list + 1; i < end; i += 2) {
+            int transition = candidates[i];
+            if (transition == UNGUARDED || guards[transition].test(context)) {
+                return candidates[i + 1];
+            }
+        }
+        return DEAD;
+    }
+
+    /**
+     * Gets the variables tested by the guards
+     * @return The slot table of the guards
+     */
+    public GuardVariables getVariables() {
+        return variables;
+    }
+
+    /**
+     * Generate a string representation of this matcher
+     * @return A string with its dimensions
+     */
+    @Override
+    public String toString() {
+        return "GuardedMatcher{" +
+                "states=" + finals.length +
+                ", symbols=" + symbolCount +
+                ", guardedCells=" + countGuardedCells() +
+                '}';
+    }
+
+    private int countGuardedCells() {
+        int count = 0;
+        for (int cell : table) {
+            if (cell < DEAD) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
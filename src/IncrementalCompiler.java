@@ -0,0 +1,289 @@
+package src;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The IncrementalCompiler class keeps the compiled form of an automaton up to
+ * date while the automaton is built edge by edge. It is attached with
+ * Automaton.incrementalCompiler() and told about every addTransition, so only
+ * the rows of the edited state and of the states the edit made reachable are
+ * rebuilt: the cost of an edit depends on the edit, not on the size of the
+ * automaton.
+ *
+ * Versions are published as immutable ChunkedAutomaton instances by
+ * snapshot(). Between two snapshots, the chunks and pages already copied are
+ * edited in place, so a batch of thousands of edits copies each touched chunk
+ * once; after a snapshot, the next edit copies what it touches and the
+ * published version keeps sharing everything else.
+ *
+ * Edits made on a State directly, such as setFinal or reordering its
+ * transitions, are not seen: call refresh for that state. Changing the
+ * initial state rebuilds everything. Like the automaton, a compiler is used by
+ * one thread at a time, while its snapshots can be read by any thread.
+ */
+public class IncrementalCompiler {
+    private static final int PAGE_SHIFT = ChunkedAutomaton.CHUNK_BITS + ChunkedAutomaton.PAGE_BITS;
+
+    private final Automaton automaton;
+    private final Map<State, Integer> indices = new HashMap<>();
+    private final List<State> states = new ArrayList<>();
+    private ChunkedAutomaton.Columns columns = new ChunkedAutomaton.Columns();
+    private ChunkedAutomaton.Chunk[][] pages = new ChunkedAutomaton.Chunk[1][];
+    private int[] pageOwners = new int[1];
+    private int rootOwner;
+    private int initialState = CompiledAutomaton.DEAD;
+
+    // Edition of the chunks and pages that may still be written in place
+    private int edition = 1;
+    private ChunkedAutomaton published;
+    private int[] row = new int[16];
+
+    private long rowsBuilt;
+    private long chunksCopied;
+
+    /**
+     * Constructor for a compiler, compiling the automaton once
+     * @param automaton The automaton to follow
+     */
+    IncrementalCompiler(Automaton automaton) {
+        this.automaton = automaton;
+        for (char symbol : automaton.getAlphabet()) {
+            columns = columns.with(symbol);
+        }
+        rebuild();
+    }
+
+    /**
+     * Compiles the whole automaton again, as after a change of initial state
+     */
+    void rebuild() {
+        indices.clear();
+        states.clear();
+        pages = new ChunkedAutomaton.Chunk[1][];
+        pageOwners = new int[1];
+        edition++;
+        rootOwner = edition;
+        published = null;
+        State initial = automaton.getInitialState();
+        initialState = initial == null ? CompiledAutomaton.DEAD : discover(initial);
+    }
+
+    /**
+     * Updates the compiled form after a transition was added to the automaton
+     * @param transition The transition, last of its origin state
+     */
+    void transitionAdded(Transition transition) {
+        char symbol = transition.getSymbol();
+        addSymbol(symbol);
+        Integer origin = indices.get(transition.getOriginState());
+        if (origin == null) {
+            // Not reachable yet: its row is built when it becomes reachable
+            return;
+        }
+        if (!indices.containsKey(transition.getFinalState())) {
+            discover(transition.getFinalState());
+        }
+        if (symbol == Transition.EPSILON) {
+            // An epsilon transition answers for every symbol without a transition of its own
+            buildRow(transition.getOriginState(), origin);
+            return;
+        }
+        State next = transition.getOriginState().getNextState(symbol);
+        int target = indices.get(next);
+        int column = columns.indexOf(symbol);
+        ChunkedAutomaton.Chunk chunk = chunkAt(origin);
+        if (chunk.target(origin & (ChunkedAutomaton.CHUNK_SIZE - 1), column) != target) {
+            chunk = writableChunk(origin, column + 1);
+            chunk.targets[(origin & (ChunkedAutomaton.CHUNK_SIZE - 1)) * chunk.width + column] = target;
+            published = null;
+        }
+    }
+
+    /**
+     * Updates the row of a state edited directly, for its final flag, name or transitions
+     * @param state The state
+     */
+    public void refresh(State state) {
+        Integer index = indices.get(state);
+        if (index == null) {
+            return;
+        }
+        for (Transition transition : state.getTransitions()) {
+            addSymbol(transition.getSymbol());
+            if (!indices.containsKey(transition.getFinalState())) {
+                discover(transition.getFinalState());
+            }
+        }
+        buildRow(state, index);
+    }
+
+    /**
+     * Gives a column to a symbol seen for the first time. The published
+     * version is dropped even if no row changes, since it would still reject
+     * the symbol as outside the alphabet.
+     */
+    private void addSymbol(char symbol) {
+        ChunkedAutomaton.Columns widened = columns.with(symbol);
+        if (widened != columns) {
+            columns = widened;
+            published = null;
+        }
+    }
+
+    /**
+     * Numbers a state and the states reachable from it that have no number
+     * yet, in breadth-first order, and builds their rows
+     * @return The number of the state
+     */
+    private int discover(State start) {
+        ArrayDeque<State> queue = new ArrayDeque<>();
+        int first = number(start);
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            State state = queue.poll();
+            for (Transition transition : state.getTransitions()) {
+                if (!indices.containsKey(transition.getFinalState())) {
+                    number(transition.getFinalState());
+                    queue.add(transition.getFinalState());
+                }
+            }
+            buildRow(state, indices.get(state));
+        }
+        return first;
+    }
+
+    private int number(State state) {
+        int index = states.size();
+        indices.put(state, index);
+        states.add(state);
+        return index;
+    }
+
+    /**
+     * Builds the row of a state in one pass over its transitions: each column
+     * takes the first transition on its symbol, unless an epsilon transition
+     * comes first, which then answers for every column still unset
+     */
+    private void buildRow(State state, int index) {
+        int width = columns.size();
+        if (row.length < width) {
+            row = new int[Math.max(width, 2 * row.length)];
+        }
+        Arrays.fill(row, 0, width, ChunkedAutomaton.UNSET);
+        int fallback = CompiledAutomaton.DEAD;
+        for (Transition transition : state.getTransitions()) {
+            int target = indices.get(transition.getFinalState());
+            if (transition.getSymbol() == Transition.EPSILON) {
+                fallback = target;
+                break;
+            }
+            int column = columns.indexOf(transition.getSymbol());
+            if (row[column] == ChunkedAutomaton.UNSET) {
+                row[column] = target;
+            }
+        }
+        ChunkedAutomaton.Chunk chunk = writableChunk(index, width);
+        int r = index & (ChunkedAutomaton.CHUNK_SIZE - 1);
+        for (int column = 0; column < chunk.width; column++) {
+            int target = column < width ? row[column] : ChunkedAutomaton.UNSET;
+            chunk.targets[r * chunk.width + column] = target == ChunkedAutomaton.UNSET ? fallback : target;
+        }
+        chunk.defaults[r] = fallback;
+        chunk.names[r] = state.getName();
+        if (state.isFinal()) {
+            chunk.accepting |= 1L << r;
+        } else {
+            chunk.accepting &= ~(1L << r);
+        }
+        rowsBuilt++;
+        published = null;
+    }
+
+    private ChunkedAutomaton.Chunk chunkAt(int state) {
+        return pages[state >>> PAGE_SHIFT][(state >>> ChunkedAutomaton.CHUNK_BITS) & (ChunkedAutomaton.PAGE_SIZE - 1)];
+    }
+
+    /**
+     * Gets the chunk holding a state, copied first unless it belongs to the
+     * current edition, and widened to at least a number of columns. The root
+     * and the page on the way are copied the same way.
+     */
+    private ChunkedAutomaton.Chunk writableChunk(int state, int width) {
+        int page = state >>> PAGE_SHIFT;
+        int slot = (state >>> ChunkedAutomaton.CHUNK_BITS) & (ChunkedAutomaton.PAGE_SIZE - 1);
+        if (rootOwner != edition || page >= pages.length) {
+            int length = page >= pages.length ? Math.max(page + 1, 2 * pages.length) : pages.length;
+            pages = Arrays.copyOf(pages, length);
+            pageOwners = Arrays.copyOf(pageOwners, length);
+            rootOwner = edition;
+        }
+        ChunkedAutomaton.Chunk[] chunks = pages[page];
+        if (chunks == null) {
+            chunks = new ChunkedAutomaton.Chunk[ChunkedAutomaton.PAGE_SIZE];
+            pages[page] = chunks;
+            pageOwners[page] = edition;
+        } else if (pageOwners[page] != edition) {
+            chunks = chunks.clone();
+            pages[page] = chunks;
+            pageOwners[page] = edition;
+        }
+        ChunkedAutomaton.Chunk chunk = chunks[slot];
+        if (chunk == null) {
+            chunk = new ChunkedAutomaton.Chunk(edition, width);
+            chunks[slot] = chunk;
+        } else if (chunk.owner != edition || chunk.width < width) {
+            chunk = chunk.copy(edition, width);
+            chunks[slot] = chunk;
+            chunksCopied++;
+        }
+        return chunk;
+    }
+
+    /**
+     * Publishes the current version. Later edits leave it untouched.
+     * @return The version, the same instance while nothing changes
+     */
+    public ChunkedAutomaton snapshot() {
+        if (published == null) {
+            published = new ChunkedAutomaton(columns, pages, states.size(), initialState);
+            // Everything reachable from the published version is now frozen
+            edition++;
+        }
+        return published;
+    }
+
+    /**
+     * Gets the number of rows built since the compiler was created
+     * @return The count, the initial compilation included
+     */
+    public long getRowsBuilt() {
+        return rowsBuilt;
+    }
+
+    /**
+     * Gets the number of chunks copied because a published version shared them or they had to grow
+     * @return The count
+     */
+    public long getChunksCopied() {
+        return chunksCopied;
+    }
+
+    /**
+     * Generate a string representation of this compiler
+     * @return A string with its size and counters
+     */
+    @Override
+    public String toString() {
+        return "IncrementalCompiler{" +
+                "states=" + states.size() +
+                ", symbols=" + columns.size() +
+                ", rowsBuilt=" + rowsBuilt +
+                ", chunksCopied=" + chunksCopied +
+                '}';
+    }
+}
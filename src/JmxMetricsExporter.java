@@ -0,0 +1,138 @@
+package src;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The JmxMetricsExporter class publishes metrics as an MXBean named
+ * "src:type=MatchMetrics,name=&lt;name&gt;". The bean reads the live counters
+ * whenever a JMX client asks, so exporting once is enough; exporting again
+ * under the same name replaces the published metrics.
+ */
+public class JmxMetricsExporter implements MetricsExporter {
+    private final MBeanServer server;
+
+    /**
+     * Constructor for an exporter to the platform MBean server
+     */
+    public JmxMetricsExporter() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * Constructor for an exporter to a given MBean server
+     * @param server The server registering the beans
+     */
+    public JmxMetricsExporter(MBeanServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Registers metrics, replacing those registered under the same name
+     * @param name Name of the bean
+     * @param metrics The metrics to publish
+     * @throws IllegalStateException If the bean cannot be registered
+     */
+    @Override
+    public void export(String name, MatchMetrics metrics) {
+        try {
+            ObjectName objectName = objectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(new Bean(metrics), objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register metrics " + name, e);
+        }
+    }
+
+    /**
+     * Unregisters metrics
+     * @param name Name of the bean
+     * @throws IllegalStateException If the name is not valid
+     */
+    public void unexport(String name) {
+        try {
+            ObjectName objectName = objectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister metrics " + name, e);
+        }
+    }
+
+    /**
+     * Gets the JMX name of metrics
+     * @param name Name given to export
+     * @return The object name of the bean
+     * @throws JMException If the name is not valid
+     */
+    public static ObjectName objectName(String name) throws JMException {
+        return new ObjectName("src:type=MatchMetrics,name=" + ObjectName.quote(name));
+    }
+
+    /**
+     * Live view of metrics
+     */
+    private static class Bean implements MatchMetricsMXBean {
+        private final MatchMetrics metrics;
+
+        Bean(MatchMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public long getWords() {
+            return metrics.getWordCount();
+        }
+
+        @Override
+        public long getAccepted() {
+            return metrics.getAccepted();
+        }
+
+        @Override
+        public Map<String, Long> getRejected() {
+            Map<String, Long> rejected = new LinkedHashMap<>();
+            for (RejectReason reason : RejectReason.values()) {
+                rejected.put(reason.name(), metrics.getRejected(reason));
+            }
+            return rejected;
+        }
+
+        @Override
+        public Map<String, Long> getLatencyNanos() {
+            LatencyHistogram latencies = metrics.latencies();
+            Map<String, Long> latency = new LinkedHashMap<>();
+            latency.put("mean", Math.round(metrics.getLatencyMean()));
+            latency.put("p50", latencies.getPercentile(50));
+            latency.put("p90", latencies.getPercentile(90));
+            latency.put("p99", latencies.getPercentile(99));
+            latency.put("p999", latencies.getPercentile(99.9));
+            latency.put("max", latencies.getMax());
+            return latency;
+        }
+
+        @Override
+        public Map<String, Long> getStateVisits() {
+            Map<String, Long> visits = new LinkedHashMap<>();
+            for (int state = 0; state < metrics.getStateCount(); state++) {
+                long count = metrics.getStateVisits(state);
+                if (count > 0) {
+                    visits.merge(metrics.getStateName(state), count, Long::sum);
+                }
+            }
+            return visits;
+        }
+
+        @Override
+        public void reset() {
+            metrics.reset();
+        }
+    }
+}
@@ -0,0 +1,489 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The LanguageOps class combines and compares the languages of compiled
+ * automata. Products are built over the union of the two alphabets and only
+ * from the pairs of states reachable from the initial pair; a missing
+ * transition or a symbol outside an alphabet leads to DEAD, as in belongs.
+ * The checks stop at the first counterexample and return it as a word, so
+ * they never build more than they need.
+ */
+public class LanguageOps {
+    private static final int DEAD = CompiledAutomaton.DEAD;
+
+    private static final int INTERSECTION = 0;
+    private static final int UNION = 1;
+    private static final int DIFFERENCE = 2;
+
+    private LanguageOps() {
+    }
+
+    /**
+     * Builds an automaton accepting the words accepted by both automata
+     * @param a The first automaton
+     * @param b The second automaton
+     * @return The product automaton
+     */
+    public static CompiledAutomaton intersection(CompiledAutomaton a, CompiledAutomaton b) {
+        return product(a, b, INTERSECTION);
+    }
+
+    /**
+     * Builds an automaton accepting the words accepted by at least one automaton
+     * @param a The first automaton
+     * @param b The second automaton
+     * @return The product automaton
+     */
+    public static CompiledAutomaton union(CompiledAutomaton a, CompiledAutomaton b) {
+        return product(a, b, UNION);
+    }
+
+    /**
+     * Builds an automaton accepting the words accepted by a but not by b
+     * @param a The automaton whose words are kept
+     * @param b The automaton whose words are removed
+     * @return The product automaton
+     */
+    public static CompiledAutomaton difference(CompiledAutomaton a, CompiledAutomaton b) {
+        return product(a, b, DIFFERENCE);
+    }
+
+    /**
+     * Builds an automaton accepting the words over the alphabet of an automaton that it rejects
+     * @param automaton The automaton to complement
+     * @return The complete complemented automaton
+     */
+    public static CompiledAutomaton complement(CompiledAutomaton automaton) {
+        Alphabet alphabet = automaton.getAlphabet();
+        List<Character> symbols = new ArrayList<>();
+        for (int i = 0; i < alphabet.size(); i++) {
+            symbols.add(alphabet.symbolAt(i));
+        }
+        return complement(automaton, symbols);
+    }
+
+    /**
+     * Builds an automaton accepting the words over an alphabet that an automaton rejects.
+     * The automaton is first completed with a sink state, then its accepting states are flipped.
+     * @param automaton The automaton to complement
+     * @param symbols The alphabet of the complement, usually containing the one of the automaton
+     * @return The complete complemented automaton
+     */
+    public static CompiledAutomaton complement(CompiledAutomaton automaton, Collection<Character> symbols) {
+        Set<Character> all = new HashSet<>(symbols);
+        Alphabet alphabet = new Alphabet(all);
+        int symbolCount = alphabet.size();
+        int stateCount = automaton.getStateCount();
+        int sink = stateCount;
+        int[] own = ownIndices(automaton, alphabet);
+
+        int[] table = new int[(stateCount + 1) * symbolCount];
+        String[] names = new String[stateCount + 1];
+        BitSet accepting = new BitSet(stateCount + 1);
+        for (int state = 0; state <= stateCount; state++) {
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int next = state == sink || own[symbol] == Alphabet.NO_SYMBOL ? DEAD
+                        : automaton.target(state, own[symbol]);
+                table[state * symbolCount + symbol] = next == DEAD ? sink : next;
+            }
+            names[state] = state == sink ? "∅" : automaton.getStateName(state);
+            if (state == sink || !automaton.isAccepting(state)) {
+                accepting.set(state);
+            }
+        }
+        int initialState = automaton.getInitialState() == DEAD ? sink : automaton.getInitialState();
+        return new CompiledAutomaton(alphabet, table, accepting, initialState, names);
+    }
+
+    /**
+     * Checks if an automaton accepts no word
+     * @param automaton The automaton to check
+     * @return true if its language is empty, false otherwise
+     */
+    public static boolean isEmpty(CompiledAutomaton automaton) {
+        int initialState = automaton.getInitialState();
+        return initialState == DEAD || !automaton.isLive(initialState);
+    }
+
+    /**
+     * Finds a shortest word accepted by an automaton
+     * @param automaton The automaton to explore
+     * @return A shortest accepted word, or null if the language is empty
+     */
+    public static String findWord(CompiledAutomaton automaton) {
+        if (isEmpty(automaton)) {
+            return null;
+        }
+        int stateCount = automaton.getStateCount();
+        int symbolCount = automaton.getAlphabet().size();
+        int[] parents = new int[stateCount];
+        int[] parentSymbols = new int[stateCount];
+        Arrays.fill(parents, DEAD);
+        int[] queue = new int[stateCount];
+        int tail = 0;
+        int initialState = automaton.getInitialState();
+        queue[tail++] = initialState;
+        parents[initialState] = initialState;
+        for (int head = 0; head < tail; head++) {
+            int state = queue[head];
+            if (automaton.isAccepting(state)) {
+                return path(automaton.getAlphabet(), parents, parentSymbols, initialState, state);
+            }
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int next = automaton.target(state, symbol);
+                if (next != DEAD && parents[next] == DEAD && automaton.isLive(next)) {
+                    parents[next] = state;
+                    parentSymbols[next] = symbol;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds a shortest word accepted by a but not by b, without building the difference
+     * @param a The automaton whose words are searched
+     * @param b The automaton that must reject the word
+     * @return The word, or null if every word of a is accepted by b
+     */
+    public static String findWordNotIn(CompiledAutomaton a, CompiledAutomaton b) {
+        if (isEmpty(a)) {
+            return null;
+        }
+        Alphabet alphabet = unionAlphabet(a, b);
+        int symbolCount = alphabet.size();
+        int[] ownA = ownIndices(a, alphabet);
+        int[] ownB = ownIndices(b, alphabet);
+
+        PairIndex pairs = new PairIndex();
+        IntList parents = new IntList();
+        IntList parentSymbols = new IntList();
+        pairs.intern(a.getInitialState(), b.getInitialState());
+        parents.add(0);
+        parentSymbols.add(0);
+        for (int pair = 0; pair < pairs.size(); pair++) {
+            int p = pairs.first(pair);
+            int q = pairs.second(pair);
+            if (a.isAccepting(p) && (q == DEAD || !b.isAccepting(q))) {
+                return path(alphabet, parents, parentSymbols, pair);
+            }
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int nextP = step(a, p, ownA[symbol]);
+                if (nextP == DEAD || !a.isLive(nextP)) {
+                    continue;
+                }
+                int nextQ = q == DEAD ? DEAD : step(b, q, ownB[symbol]);
+                if (nextQ != DEAD && !b.isLive(nextQ)) {
+                    nextQ = DEAD;
+                }
+                int size = pairs.size();
+                if (pairs.intern(nextP, nextQ) == size) {
+                    parents.add(pair);
+                    parentSymbols.add(symbol);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if every word accepted by a is accepted by b
+     * @param a The automaton that may accept fewer words
+     * @param b The automaton that may accept more words
+     * @return true if the language of a is included in the one of b
+     */
+    public static boolean isSubset(CompiledAutomaton a, CompiledAutomaton b) {
+        return findWordNotIn(a, b) == null;
+    }
+
+    /**
+     * Checks if two automata accept the same words
+     * @param a The first automaton
+     * @param b The second automaton
+     * @return true if their languages are equal, false otherwise
+     */
+    public static boolean equivalent(CompiledAutomaton a, CompiledAutomaton b) {
+        return findCounterexample(a, b) == null;
+    }
+
+    /**
+     * Looks for a word accepted by exactly one of two automata with the
+     * Hopcroft-Karp algorithm: the states of both automata, plus a common sink
+     * for the missing transitions, are merged in a union-find structure
+     * whenever they must be equivalent, and the first merged pair whose
+     * acceptance differs gives the counterexample. Pairs are explored in
+     * breadth-first order, without minimizing either automaton.
+     * @param a The first automaton
+     * @param b The second automaton
+     * @return A word in one language but not the other, or null if the automata are equivalent
+     */
+    public static String findCounterexample(CompiledAutomaton a, CompiledAutomaton b) {
+        Alphabet alphabet = unionAlphabet(a, b);
+        int symbolCount = alphabet.size();
+        int[] ownA = ownIndices(a, alphabet);
+        int[] ownB = ownIndices(b, alphabet);
+        int countA = a.getStateCount();
+        int sink = countA + b.getStateCount();
+
+        // Union-find over the states of a, then those of b, then the sink
+        int[] roots = new int[sink + 1];
+        for (int i = 0; i < roots.length; i++) {
+            roots[i] = i;
+        }
+
+        IntList firsts = new IntList();
+        IntList seconds = new IntList();
+        IntList parents = new IntList();
+        IntList parentSymbols = new IntList();
+        int startA = a.getInitialState() == DEAD ? sink : a.getInitialState();
+        int startB = b.getInitialState() == DEAD ? sink : countA + b.getInitialState();
+        union(roots, startA, startB);
+        firsts.add(startA);
+        seconds.add(startB);
+        parents.add(0);
+        parentSymbols.add(0);
+
+        for (int pair = 0; pair < firsts.size(); pair++) {
+            int p = firsts.get(pair);
+            int q = seconds.get(pair);
+            boolean acceptsA = p != sink && a.isAccepting(p);
+            boolean acceptsB = q != sink && b.isAccepting(q - countA);
+            if (acceptsA != acceptsB) {
+                return path(alphabet, parents, parentSymbols, pair);
+            }
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int nextP = p == sink ? DEAD : step(a, p, ownA[symbol]);
+                int nextQ = q == sink ? DEAD : step(b, q - countA, ownB[symbol]);
+                nextP = nextP == DEAD ? sink : nextP;
+                nextQ = nextQ == DEAD ? sink : countA + nextQ;
+                if (union(roots, nextP, nextQ)) {
+                    firsts.add(nextP);
+                    seconds.add(nextQ);
+                    parents.add(pair);
+                    parentSymbols.add(symbol);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Builds the reachable part of the product of two automata
+     */
+    private static CompiledAutomaton product(CompiledAutomaton a, CompiledAutomaton b, int operation) {
+        Alphabet alphabet = unionAlphabet(a, b);
+        int symbolCount = alphabet.size();
+        int[] ownA = ownIndices(a, alphabet);
+        int[] ownB = ownIndices(b, alphabet);
+
+        PairIndex pairs = new PairIndex();
+        IntList table = new IntList();
+        BitSet accepting = new BitSet();
+        int initialA = a.getInitialState();
+        int initialB = b.getInitialState();
+        if (keep(operation, initialA, initialB)) {
+            pairs.intern(initialA, initialB);
+        }
+        for (int pair = 0; pair < pairs.size(); pair++) {
+            int p = pairs.first(pair);
+            int q = pairs.second(pair);
+            boolean acceptsA = p != DEAD && a.isAccepting(p);
+            boolean acceptsB = q != DEAD && b.isAccepting(q);
+            if (operation == INTERSECTION ? acceptsA && acceptsB
+                    : operation == UNION ? acceptsA || acceptsB : acceptsA && !acceptsB) {
+                accepting.set(pair);
+            }
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int nextP = p == DEAD ? DEAD : step(a, p, ownA[symbol]);
+                int nextQ = q == DEAD ? DEAD : step(b, q, ownB[symbol]);
+                table.add(keep(operation, nextP, nextQ) ? pairs.intern(nextP, nextQ) : DEAD);
+            }
+        }
+
+        String[] names = new String[pairs.size()];
+        for (int pair = 0; pair < names.length; pair++) {
+            int p = pairs.first(pair);
+            int q = pairs.second(pair);
+            names[pair] = "(" + (p == DEAD ? "∅" : a.getStateName(p)) + ", "
+                    + (q == DEAD ? "∅" : b.getStateName(q)) + ")";
+        }
+        return new CompiledAutomaton(alphabet, table.toArray(), accepting, names.length == 0 ? DEAD : 0, names);
+    }
+
+    /**
+     * Checks if a pair of states can still lead to an accepting pair of the product
+     */
+    private static boolean keep(int operation, int p, int q) {
+        switch (operation) {
+            case INTERSECTION:
+                return p != DEAD && q != DEAD;
+            case UNION:
+                return p != DEAD || q != DEAD;
+            default:
+                return p != DEAD;
+        }
+    }
+
+    private static int step(CompiledAutomaton automaton, int state, int ownSymbol) {
+        return ownSymbol == Alphabet.NO_SYMBOL ? DEAD : automaton.target(state, ownSymbol);
+    }
+
+    private static Alphabet unionAlphabet(CompiledAutomaton a, CompiledAutomaton b) {
+        Set<Character> symbols = new HashSet<>();
+        for (CompiledAutomaton automaton : new CompiledAutomaton[]{a, b}) {
+            for (int i = 0; i < automaton.getAlphabet().size(); i++) {
+                symbols.add(automaton.getAlphabet().symbolAt(i));
+            }
+        }
+        return new Alphabet(symbols);
+    }
+
+    /**
+     * Maps each symbol of an alphabet to its index in the alphabet of an automaton
+     */
+    private static int[] ownIndices(CompiledAutomaton automaton, Alphabet alphabet) {
+        int[] own = new int[alphabet.size()];
+        for (int symbol = 0; symbol < own.length; symbol++) {
+            own[symbol] = automaton.getAlphabet().indexOf(alphabet.symbolAt(symbol));
+        }
+        return own;
+    }
+
+    private static int find(int[] roots, int node) {
+        while (roots[node] != node) {
+            roots[node] = roots[roots[node]];
+            node = roots[node];
+        }
+        return node;
+    }
+
+    /**
+     * Merges the classes of two nodes
+     * @return false if they were already in the same class
+     */
+    private static boolean union(int[] roots, int x, int y) {
+        int rootX = find(roots, x);
+        int rootY = find(roots, y);
+        if (rootX == rootY) {
+            return false;
+        }
+        roots[rootX] = rootY;
+        return true;
+    }
+
+    private static String path(Alphabet alphabet, int[] parents, int[] parentSymbols, int start, int end) {
+        StringBuilder word = new StringBuilder();
+        for (int state = end; state != start; state = parents[state]) {
+            word.append(alphabet.symbolAt(parentSymbols[state]));
+        }
+        return word.reverse().toString();
+    }
+
+    private static String path(Alphabet alphabet, IntList parents, IntList parentSymbols, int end) {
+        StringBuilder word = new StringBuilder();
+        for (int node = end; node != 0; node = parents.get(node)) {
+            word.append(alphabet.symbolAt(parentSymbols.get(node)));
+        }
+        return word.reverse().toString();
+    }
+
+    /**
+     * Interns pairs of states (DEAD allowed) to dense ids, in insertion order
+     */
+    private static class PairIndex {
+        private long[] keys = new long[16];
+        private int[] slots = new int[32];
+        private int size;
+
+        PairIndex() {
+            Arrays.fill(slots, -1);
+        }
+
+        int intern(int first, int second) {
+            long key = ((long) (first + 1) << 32) | (second + 1L);
+            int mask = slots.length - 1;
+            int slot = hash(key) & mask;
+            while (slots[slot] != -1) {
+                if (keys[slots[slot]] == key) {
+                    return slots[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            keys[size] = key;
+            slots[slot] = size;
+            if (++size * 2 > slots.length) {
+                rehash();
+            }
+            return size - 1;
+        }
+
+        int first(int id) {
+            return (int) (keys[id] >>> 32) - 1;
+        }
+
+        int second(int id) {
+            return (int) keys[id] - 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            Arrays.fill(slots, -1);
+            int mask = slots.length - 1;
+            for (int id = 0; id < size; id++) {
+                int slot = hash(keys[id]) & mask;
+                while (slots[slot] != -1) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = id;
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    /**
+     * Growable int array
+     */
+    private static class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package src;
+
+/**
+ * The LatencyHistogram class counts durations in nanoseconds in log-linear
+ * buckets: values below 64 have their own bucket, and every power of two above
+ * is split into 32 buckets, so a percentile is off by at most about 3% while
+ * the whole histogram is a fixed array of counters. A histogram belongs to one
+ * thread; histograms filled by several threads are merged afterwards.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Number of buckets, the largest value falling in the last one
+     */
+    static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts;
+    private long count;
+    private long total;
+    private long max;
+
+    /**
+     * Constructor for an empty histogram
+     */
+    LatencyHistogram() {
+        this.counts = new long[BUCKETS];
+    }
+
+    /**
+     * Constructor for a histogram of counts gathered elsewhere, such as striped counters
+     * @param counts Number of durations per bucket, as numbered by bucketOf
+     * @param total Sum of the durations
+     * @param max Longest duration
+     */
+    LatencyHistogram(long[] counts, long total, long max) {
+        this.counts = counts.clone();
+        for (long c : counts) {
+            this.count += c;
+        }
+        this.total = total;
+        this.max = max;
+    }
+
+    /**
+     * Records a duration
+     * @param nanos The duration, negative values counting as zero
+     */
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucketOf(value)]++;
+        count++;
+        total += value;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds the counts of another histogram to this one
+     * @param other The histogram to add
+     */
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Gets the bucket counting a duration
+     * @param value The duration, not negative
+     * @return The index of its bucket
+     */
+    static int bucketOf(long value) {
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        if (highestBit <= SUB_BUCKET_BITS) {
+            return (int) value;
+        }
+        int shift = highestBit - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    private static long highestValueOf(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Gets a percentile of the recorded durations
+     * @param percentile The percentile, between 0 and 100
+     * @return The highest value of the bucket holding the percentile, 0 if nothing was recorded
+     */
+    long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Gets the number of recorded durations
+     * @return The count
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the mean of the recorded durations
+     * @return The mean in nanoseconds, 0 if nothing was recorded
+     */
+    double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Gets the longest recorded duration
+     * @return The maximum in nanoseconds
+     */
+    long getMax() {
+        return max;
+    }
+
+    /**
+     * Generate a string representation of this histogram
+     * @return A string with its main percentiles
+     */
+    @Override
+    public String toString() {
+        return "LatencyHistogram{" +
+                "count=" + count +
+                ", p50=" + getPercentile(50) +
+                ", p99=" + getPercentile(99) +
+                ", max=" + max +
+                '}';
+    }
+}
@@ -0,0 +1,258 @@
+package src;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The LazyDfa class matches words against a nondeterministic automaton by
+ * building its deterministic automaton on the fly. Each DFA state (an epsilon
+ * closed set of NFA states) and each of its transitions is computed the first
+ * time it is needed and kept in a cache; when the cache exceeds its memory
+ * budget it is flushed and the construction resumes from the current state.
+ * The NFA steps follow State.getNextStates for symbols and treat epsilon
+ * transitions as moves that consume no input.
+ * Instances keep mutable caches and must not be shared between threads.
+ */
+public class LazyDfa implements WordMatcher {
+    /**
+     * Default memory budget of the cache, in bytes
+     */
+    public static final long DEFAULT_BUDGET = 8L * 1024 * 1024;
+
+    private static final int UNKNOWN = -2;
+
+    private final NfaGraph nfa;
+    private final int symbolCount;
+    private final int words;
+    private final int maxStates;
+    private final StateSetIndex index;
+    private final BitSet accepting;
+    private final long[] initialSet;
+    private final long[] currentSet;
+    private final long[] nextSet;
+    private final int[] stack;
+    private int[] table;
+    private int startState;
+
+    private long hits;
+    private long misses;
+    private long flushes;
+
+    /**
+     * Constructor for a lazy DFA over an automaton with the default budget
+     * @param automaton The automaton to match against
+     */
+    public LazyDfa(Automaton automaton) {
+        this(NfaGraph.of(automaton), DEFAULT_BUDGET);
+    }
+
+    /**
+     * Constructor for a lazy DFA over an NFA graph
+     * @param nfa The graph to match against
+     * @param budget Maximum number of bytes used by cached states and transitions
+     */
+    public LazyDfa(NfaGraph nfa, long budget) {
+        this.nfa = nfa;
+        this.symbolCount = nfa.getAlphabet().size();
+        this.words = nfa.wordCount();
+        long bytesPerState = words * 8L + symbolCount * 4L + 16;
+        // A flush keeps the origin and target of a transition, and the next word adds the initial state
+        this.maxStates = (int) Math.max(3, Math.min(Integer.MAX_VALUE / Math.max(1, symbolCount), budget / bytesPerState));
+        this.index = new StateSetIndex(words);
+        this.accepting = new BitSet();
+        this.initialSet = new long[words];
+        this.currentSet = new long[words];
+        this.nextSet = new long[words];
+        this.stack = new int[Math.max(1, nfa.getStateCount())];
+        this.table = new int[Math.min(maxStates, 64) * symbolCount];
+        Arrays.fill(table, UNKNOWN);
+        this.startState = CompiledAutomaton.DEAD;
+
+        if (nfa.getInitialState() >= 0) {
+            nfa.addClosure(initialSet, nfa.getInitialState(), stack);
+        }
+    }
+
+    /**
+     * Checks if a word belongs to the language of the automaton
+     * @param word The word to check
+     * @return true if the word is accepted, false otherwise
+     */
+    @Override
+    public boolean belongs(CharSequence word) {
+        if (nfa.getInitialState() < 0) {
+            return false;
+        }
+        if (startState == CompiledAutomaton.DEAD) {
+            startState = cache(initialSet);
+        }
+
+        int state = startState;
+        for (int i = 0; i < word.length(); i++) {
+            int symbol = nfa.getAlphabet().indexOf(word.charAt(i));
+            if (symbol == Alphabet.NO_SYMBOL) {
+                return false;
+            }
+
+            int next = table[state * symbolCount + symbol];
+            if (next == UNKNOWN) {
+                misses++;
+                next = computeTransition(state, symbol);
+                // A flush renumbers the states, so the origin has to be looked up again
+                state = index.find(currentSet);
+                table[state * symbolCount + symbol] = next;
+            } else {
+                hits++;
+            }
+            if (next == CompiledAutomaton.DEAD) {
+                return false;
+            }
+            state = next;
+        }
+        return accepting.get(state);
+    }
+
+    /**
+     * Computes the target of a transition not yet in the cache
+     * @param state Cached origin state
+     * @param symbol Index of the symbol
+     * @return The cached target state, or DEAD if no NFA state is reachable
+     */
+    private int computeTransition(int state, int symbol) {
+        index.copy(state, currentSet);
+        Arrays.fill(nextSet, 0L);
+        boolean empty = true;
+        for (int w = 0; w < words; w++) {
+            for (long bits = currentSet[w]; bits != 0; bits &= bits - 1) {
+                int nfaState = (w << 6) + Long.numberOfTrailingZeros(bits);
+                for (int e = nfa.edgeStart(nfaState); e < nfa.edgeEnd(nfaState); e++) {
+                    int edgeSymbol = nfa.edgeSymbol(e);
+                    if (edgeSymbol == symbol) {
+                        nfa.addClosure(nextSet, nfa.edgeTarget(e), stack);
+                        empty = false;
+                    } else if (edgeSymbol > symbol) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (empty) {
+            return CompiledAutomaton.DEAD;
+        }
+
+        int next = index.find(nextSet);
+        if (next >= 0) {
+            return next;
+        }
+        if (index.size() + 1 >= maxStates) {
+            flush();
+            cache(currentSet);
+        }
+        return cache(nextSet);
+    }
+
+    /**
+     * Adds a set of NFA states to the cache
+     * @param set The epsilon closed set
+     * @return Id of the cached state
+     */
+    private int cache(long[] set) {
+        int size = index.size();
+        int id = index.intern(set);
+        if (id == size) {
+            if ((id + 1) * symbolCount > table.length) {
+                int length = table.length;
+                table = Arrays.copyOf(table, Math.min(maxStates * symbolCount, Math.max(symbolCount, length * 2)));
+                Arrays.fill(table, length, table.length, UNKNOWN);
+            }
+            accepting.set(id, intersectsAccepting(set));
+        }
+        return id;
+    }
+
+    /**
+     * Drops every cached state and transition
+     */
+    private void flush() {
+        flushes++;
+        Arrays.fill(table, 0, index.size() * symbolCount, UNKNOWN);
+        index.clear();
+        accepting.clear();
+        startState = CompiledAutomaton.DEAD;
+    }
+
+    private boolean intersectsAccepting(long[] set) {
+        for (int w = 0; w < words; w++) {
+            for (long bits = set[w]; bits != 0; bits &= bits - 1) {
+                if (nfa.isAccepting((w << 6) + Long.numberOfTrailingZeros(bits))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of transitions found in the cache
+     * @return The number of cache hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of transitions that had to be computed
+     * @return The number of cache misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of times the cache was flushed because it was full
+     * @return The number of flushes
+     */
+    public long getFlushes() {
+        return flushes;
+    }
+
+    /**
+     * Gets the number of DFA states currently cached
+     * @return The number of cached states
+     */
+    public int getCachedStates() {
+        return index.size();
+    }
+
+    /**
+     * Gets the maximum number of DFA states allowed by the budget
+     * @return The capacity of the cache
+     */
+    public int getMaxStates() {
+        return maxStates;
+    }
+
+    /**
+     * Resets the hit, miss and flush counters
+     */
+    public void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        flushes = 0;
+    }
+
+    /**
+     * Generate a string representation of this matcher
+     * @return A string with the cache counters
+     */
+    @Override
+    public String toString() {
+        return "LazyDfa{" +
+                "cachedStates=" + index.size() +
+                ", maxStates=" + maxStates +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", flushes=" + flushes +
+                '}';
+    }
+}
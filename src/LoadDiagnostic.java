@@ -0,0 +1,56 @@
+package src;
+
+/**
+ * The LoadDiagnostic class describes a problem found while loading an
+ * automaton file, with its position in the file.
+ */
+public class LoadDiagnostic {
+    private final int line;
+    private final int column;
+    private final String message;
+
+    /**
+     * Constructor for a diagnostic
+     * @param line Line number, starting at 1
+     * @param column Column number in characters, starting at 1
+     * @param message Description of the problem
+     */
+    public LoadDiagnostic(int line, int column, String message) {
+        this.line = line;
+        this.column = column;
+        this.message = message;
+    }
+
+    /**
+     * Gets the line of the problem
+     * @return The line number, starting at 1
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Gets the column of the problem
+     * @return The column number in characters, starting at 1
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Gets the description of the problem
+     * @return The message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Generate a string representation of this diagnostic
+     * @return "line:column: message"
+     */
+    @Override
+    public String toString() {
+        return line + ":" + column + ": " + message;
+    }
+}
@@ -0,0 +1,347 @@
+package src;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The LoadGenerator class drives a MatchingService with concurrent clients,
+ * either in the same process or through a MatchingServer on the loopback
+ * interface, and measures the throughput and the latency of the requests.
+ *
+ * Each client sends random words over the alphabet of the automaton, one at a
+ * time, for the whole duration: a word either as one request, or in stream
+ * mode as chunks sent to the session of the client, followed by the end of
+ * the word. A request is timed from its sending to its answer, so the
+ * latencies include queueing in the service. Every answer is checked against
+ * CompiledAutomaton.belongs; requests rejected by the service, timed out or
+ * failed are counted as errors.
+ */
+public class LoadGenerator {
+    private final MatchingService service;
+    private int clients = 8;
+    private long durationMillis = 5000;
+    private int wordLength = 32;
+    private int chunkLength = 0;
+    private boolean socket;
+    private long seed = 42;
+
+    private long requests;
+    private long words;
+    private long errors;
+    private long mismatches;
+    private long elapsedNanos;
+    private LatencyHistogram latencies = new LatencyHistogram();
+
+    /**
+     * Constructor for a load generator
+     * @param service The service to drive
+     */
+    public LoadGenerator(MatchingService service) {
+        this.service = service;
+    }
+
+    /**
+     * Sets the number of concurrent clients
+     * @param clients The number of clients, 8 by default
+     */
+    public void setClients(int clients) {
+        if (clients < 1) {
+            throw new IllegalArgumentException("At least one client is needed: " + clients);
+        }
+        this.clients = clients;
+    }
+
+    /**
+     * Sets how long the clients send requests
+     * @param durationMillis The duration in milliseconds, 5000 by default
+     */
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * Sets the length of the words sent
+     * @param wordLength The length, 32 by default
+     */
+    public void setWordLength(int wordLength) {
+        this.wordLength = wordLength;
+    }
+
+    /**
+     * Sets the stream mode, where words are sent in chunks to a session
+     * @param chunkLength Number of symbols per chunk, 0 (the default) to send whole words
+     */
+    public void setChunkLength(int chunkLength) {
+        this.chunkLength = chunkLength;
+    }
+
+    /**
+     * Sets whether clients go through a MatchingServer
+     * @param socket true to connect over the loopback interface, false (the default) to call the service directly
+     */
+    public void setSocket(boolean socket) {
+        this.socket = socket;
+    }
+
+    /**
+     * Sets the seed of the words
+     * @param seed The seed, client i drawing from seed + i
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Runs the clients for the whole duration, replacing the results of any previous run
+     * @throws IOException If the server cannot be started
+     * @throws InterruptedException If interrupted while waiting for the clients
+     */
+    public void run() throws IOException, InterruptedException {
+        MatchingServer server = socket ? new MatchingServer(service, 0) : null;
+        try {
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+            List<Client> running = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < clients; i++) {
+                Client client = new Client(seed + i, end, server == null ? -1 : server.getPort());
+                client.start();
+                running.add(client);
+            }
+            requests = 0;
+            words = 0;
+            errors = 0;
+            mismatches = 0;
+            latencies = new LatencyHistogram();
+            for (Client client : running) {
+                client.join();
+                requests += client.requests;
+                words += client.words;
+                errors += client.errors;
+                mismatches += client.mismatches;
+                latencies.add(client.latencies);
+            }
+            elapsedNanos = System.nanoTime() - start;
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    /**
+     * A client sending requests on its own thread until the end of the run
+     */
+    private class Client extends Thread {
+        private final Random random;
+        private final long end;
+        private final int port;
+        private final CompiledAutomaton automaton = service.getAutomaton();
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private long requests;
+        private long words;
+        private long errors;
+        private long mismatches;
+
+        Client(long seed, long end, int port) {
+            super("load-client-" + seed);
+            this.random = new Random(seed);
+            this.end = end;
+            this.port = port;
+        }
+
+        @Override
+        public void run() {
+            try (MatchingClient client = port < 0 ? null : new MatchingClient(port);
+                 MatchingService.Session session = chunkLength > 0 && port < 0 ? service.openSession() : null) {
+                while (System.nanoTime() < end) {
+                    String word = randomWord();
+                    try {
+                        boolean result = chunkLength > 0 ? stream(word, client, session) : match(word, client);
+                        words++;
+                        if (result != automaton.belongs(word)) {
+                            mismatches++;
+                        }
+                    } catch (ExecutionException e) {
+                        errors++;
+                    } catch (IOException e) {
+                        // The connection may be out of step with the server: this client stops
+                        errors++;
+                        return;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                errors++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private boolean match(String word, MatchingClient client)
+                throws IOException, ExecutionException, InterruptedException {
+            long start = System.nanoTime();
+            boolean result = client != null ? client.match(word) : service.match(word).get();
+            record(start);
+            return result;
+        }
+
+        private boolean stream(String word, MatchingClient client, MatchingService.Session session)
+                throws IOException, ExecutionException, InterruptedException {
+            for (int i = 0; i < word.length(); i += chunkLength) {
+                String chunk = word.substring(i, Math.min(word.length(), i + chunkLength));
+                long start = System.nanoTime();
+                if (client != null) {
+                    client.feed(chunk);
+                } else {
+                    session.feed(chunk).get();
+                }
+                record(start);
+            }
+            long start = System.nanoTime();
+            boolean accepted = client != null ? client.end() : session.end().get();
+            record(start);
+            return accepted;
+        }
+
+        private void record(long start) {
+            latencies.record(System.nanoTime() - start);
+            requests++;
+        }
+
+        private String randomWord() {
+            Alphabet alphabet = automaton.getAlphabet();
+            char[] word = new char[wordLength];
+            for (int i = 0; i < wordLength; i++) {
+                word[i] = alphabet.symbolAt(random.nextInt(alphabet.size()));
+            }
+            return new String(word);
+        }
+    }
+
+    /**
+     * Gets the number of requests answered
+     * @return The count, chunks and ends of words counting as requests in stream mode
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * Gets the number of words checked
+     * @return The count
+     */
+    public long getWords() {
+        return words;
+    }
+
+    /**
+     * Gets the number of requests that failed
+     * @return The count
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Gets the number of answers that differ from CompiledAutomaton.belongs
+     * @return The count, 0 unless the service is wrong
+     */
+    public long getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * Gets the number of requests answered per second
+     * @return The throughput
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : requests * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Gets a percentile of the request latency
+     * @param percentile The percentile, between 0 and 100
+     * @return The percentile in nanoseconds
+     */
+    public long getLatencyPercentile(double percentile) {
+        return latencies.getPercentile(percentile);
+    }
+
+    /**
+     * Generate a string representation of the last run
+     * @return A string with the throughput and latency percentiles
+     */
+    @Override
+    public String toString() {
+        return "LoadGenerator{" +
+                "mode=" + (socket ? "socket" : "in-process") + (chunkLength > 0 ? "/stream" : "/word") +
+                ", clients=" + clients +
+                ", requests=" + requests +
+                ", words=" + words +
+                ", errors=" + errors +
+                ", mismatches=" + mismatches +
+                ", throughput=" + String.format(Locale.ROOT, "%.0f/s", getThroughput()) +
+                ", p50=" + latencies.getPercentile(50) + "ns" +
+                ", p99=" + latencies.getPercentile(99) + "ns" +
+                ", max=" + latencies.getMax() + "ns" +
+                '}';
+    }
+
+    /**
+     * Runs a load against an automaton file from the command line
+     * @param args automaton file, then optional name=value settings: clients,
+     *             duration (milliseconds), length (of the words), chunk
+     *             (symbols per request in stream mode, 0 for whole words),
+     *             socket (true to go through a loopback server), seed, and the
+     *             settings of the service: queue, batch and timeout (milliseconds)
+     * @throws IOException If the automaton cannot be read or the server started
+     * @throws InterruptedException If interrupted while waiting for the clients
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: LoadGenerator <automaton file> [name=value...]");
+            return;
+        }
+        int queue = MatchingService.DEFAULT_QUEUE_CAPACITY;
+        int batch = MatchingService.DEFAULT_BATCH_SYMBOLS;
+        long timeout = MatchingService.DEFAULT_TIMEOUT_MILLIS;
+        List<String[]> settings = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            int equals = args[i].indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected name=value: " + args[i]);
+            }
+            String name = args[i].substring(0, equals);
+            String value = args[i].substring(equals + 1);
+            switch (name) {
+                case "queue" -> queue = Integer.parseInt(value);
+                case "batch" -> batch = Integer.parseInt(value);
+                case "timeout" -> timeout = Long.parseLong(value);
+                default -> settings.add(new String[]{name, value, args[i]});
+            }
+        }
+        CompiledAutomaton automaton = new AutomatonLoader().load(Path.of(args[0])).compile();
+        try (MatchingService service = new MatchingService(automaton, queue, batch, timeout)) {
+            LoadGenerator generator = new LoadGenerator(service);
+            for (String[] setting : settings) {
+                switch (setting[0]) {
+                    case "clients" -> generator.setClients(Integer.parseInt(setting[1]));
+                    case "duration" -> generator.setDurationMillis(Long.parseLong(setting[1]));
+                    case "length" -> generator.setWordLength(Integer.parseInt(setting[1]));
+                    case "chunk" -> generator.setChunkLength(Integer.parseInt(setting[1]));
+                    case "socket" -> generator.setSocket(Boolean.parseBoolean(setting[1]));
+                    case "seed" -> generator.setSeed(Long.parseLong(setting[1]));
+                    default -> throw new IllegalArgumentException("Unknown setting: " + setting[2]);
+                }
+            }
+            generator.run();
+            System.out.println(generator);
+            System.out.println(service);
+        }
+    }
+}
@@ -0,0 +1,516 @@
+package src;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The MappedAutomaton class matches words against an image written by
+ * AutomatonImage. The file is mapped read-only and the transition table, the
+ * alphabet and the bitsets are read in place through buffer views, so an image
+ * is never copied and every process mapping the same file shares one copy of
+ * it in the page cache. Opening an image checks every section against the
+ * header and every table entry against the state count, once, so that a
+ * damaged or forged image is refused with an IOException instead of failing
+ * later in belongs.
+ *
+ * Only the small parts that are not used by belongs are decoded on the heap:
+ * the guard programs when the image has guards, and the transition list when a
+ * snapshot or a pushdown automaton is requested.
+ */
+public class MappedAutomaton implements WordMatcher {
+    private final ByteBuffer image;
+    private final int stateCount;
+    private final int symbolCount;
+    private final int initialState;
+    private final CharBuffer alphabet;
+    private final IntBuffer symbolIndex;
+    private final IntBuffer table;
+    private final LongBuffer accepting;
+    private final LongBuffer live;
+    private final IntBuffer nameOffsets;
+    private final ByteBuffer names;
+
+    // Guards, decoded when the image is opened
+    private final GuardVariables guardVariables;
+    private final Guard[] guards;
+    private final IntBuffer guardedTable;
+    private final IntBuffer candidates;
+
+    private final ByteBuffer transitions;
+
+    private MappedAutomaton(ByteBuffer image) throws IOException {
+        this.image = image.order(ByteOrder.LITTLE_ENDIAN);
+        if (image.limit() < AutomatonImage.HEADER_SIZE || image.getInt(0) != AutomatonImage.MAGIC) {
+            throw new IOException("Not an automaton image");
+        }
+        int version = image.getShort(4);
+        if (version != AutomatonImage.VERSION) {
+            throw new IOException("Unsupported automaton image version " + version);
+        }
+        this.stateCount = image.getInt(8);
+        this.symbolCount = image.getInt(12);
+        this.initialState = image.getInt(16);
+        int sectionCount = image.getInt(20);
+        if (stateCount < 0 || symbolCount < 0 || sectionCount < 0
+                || AutomatonImage.HEADER_SIZE + (long) sectionCount * AutomatonImage.DIRECTORY_ENTRY_SIZE
+                > image.limit()) {
+            throw truncated();
+        }
+        long cellCount = (long) stateCount * symbolCount;
+        long stateWords = (stateCount + 63L) / 64;
+        long nameOffsetBytes = (stateCount + 1L) * 4;
+
+        CharBuffer alphabet = null;
+        IntBuffer symbolIndex = null;
+        IntBuffer table = null;
+        LongBuffer accepting = null;
+        LongBuffer live = null;
+        ByteBuffer names = null;
+        ByteBuffer guardSection = null;
+        ByteBuffer transitions = null;
+        for (int s = 0; s < sectionCount; s++) {
+            int entry = AutomatonImage.HEADER_SIZE + s * AutomatonImage.DIRECTORY_ENTRY_SIZE;
+            ByteBuffer section = section(image.getInt(entry + 4), image.getInt(entry + 8));
+            switch (image.getInt(entry)) {
+                case AutomatonImage.ALPHABET:
+                    alphabet = section.asCharBuffer();
+                    break;
+                case AutomatonImage.SYMBOL_INDEX:
+                    symbolIndex = section.asIntBuffer();
+                    break;
+                case AutomatonImage.TABLE:
+                    table = section.asIntBuffer();
+                    break;
+                case AutomatonImage.ACCEPTING:
+                    accepting = section.asLongBuffer();
+                    break;
+                case AutomatonImage.LIVE:
+                    live = section.asLongBuffer();
+                    break;
+                case AutomatonImage.STATE_NAMES:
+                    names = section;
+                    break;
+                case AutomatonImage.GUARDS:
+                    guardSection = section;
+                    break;
+                case AutomatonImage.TRANSITIONS:
+                    transitions = section;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (alphabet == null || symbolIndex == null || table == null || accepting == null || live == null
+                || names == null || alphabet.limit() != symbolCount
+                || symbolIndex.limit() != AutomatonImage.DIRECT_SYMBOLS || table.limit() != cellCount
+                || accepting.limit() < stateWords || live.limit() < stateWords || names.limit() < nameOffsetBytes
+                || initialState < CompiledAutomaton.DEAD || initialState >= stateCount) {
+            throw truncated();
+        }
+        checkRange(symbolIndex, Alphabet.NO_SYMBOL, symbolCount);
+        checkRange(table, CompiledAutomaton.DEAD, stateCount);
+        this.alphabet = alphabet;
+        this.symbolIndex = symbolIndex;
+        this.table = table;
+        this.accepting = accepting;
+        this.live = live;
+        this.nameOffsets = names.slice(0, (stateCount + 1) * 4).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        this.names = names.slice((stateCount + 1) * 4, names.limit() - (stateCount + 1) * 4);
+        this.transitions = transitions;
+        int previous = 0;
+        for (int state = 0; state <= stateCount; state++) {
+            int offset = nameOffsets.get(state);
+            if (offset < previous || offset > this.names.limit()) {
+                throw truncated();
+            }
+            previous = offset;
+        }
+
+        if (guardSection == null) {
+            this.guardVariables = new GuardVariables();
+            this.guards = new Guard[0];
+            this.guardedTable = null;
+            this.candidates = null;
+        } else {
+            ByteBuffer in = guardSection.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            try {
+                int counterCount = in.getInt();
+                int flagCount = in.getInt();
+                int guardCount = in.getInt();
+                int guardedCells = in.getInt();
+                int candidateCount = in.getInt();
+                if (counterCount < 0 || flagCount < 0 || guardCount < 0 || guardedCells != cellCount
+                        || candidateCount < 0 || guardCount > in.remaining()) {
+                    throw truncated();
+                }
+                this.guardVariables = new GuardVariables();
+                for (int slot = 0; slot < counterCount; slot++) {
+                    guardVariables.internCounter(getString(in));
+                }
+                for (int slot = 0; slot < flagCount; slot++) {
+                    guardVariables.internFlag(getString(in));
+                }
+                this.guards = new Guard[guardCount];
+                for (int g = 0; g < guardCount; g++) {
+                    guards[g] = Guard.compile(getString(in), guardVariables);
+                }
+                long start = (in.position() + 7L) & ~7L;
+                if (start + 4L * guardedCells + 4L * candidateCount > guardSection.limit()) {
+                    throw truncated();
+                }
+                this.guardedTable = guardSection.slice((int) start, guardedCells * 4)
+                        .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                this.candidates = guardSection.slice((int) start + guardedCells * 4, candidateCount * 4)
+                        .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("Truncated automaton image", e);
+            }
+            checkGuardedTable();
+        }
+    }
+
+    /**
+     * Checks that every entry of a section lies in [min, max)
+     */
+    private static void checkRange(IntBuffer values, int min, int max) throws IOException {
+        for (int i = 0; i < values.limit(); i++) {
+            int value = values.get(i);
+            if (value < min || value >= max) {
+                throw truncated();
+            }
+        }
+    }
+
+    /**
+     * Checks that the cells of the guarded table are states or point to
+     * complete candidate lists of known guards and states
+     */
+    private void checkGuardedTable() throws IOException {
+        for (int i = 0; i < guardedTable.limit(); i++) {
+            int cell = guardedTable.get(i);
+            if (cell >= stateCount) {
+                throw truncated();
+            }
+            if (cell < CompiledAutomaton.DEAD) {
+                long list = -2L - cell;
+                if (list >= candidates.limit()) {
+                    throw truncated();
+                }
+                int count = candidates.get((int) list);
+                if (count < 0 || list + 1 + 2L * count > candidates.limit()) {
+                    throw truncated();
+                }
+                for (int c = (int) list + 1; c < list + 1 + 2L * count; c += 2) {
+                    int transition = candidates.get(c);
+                    int target = candidates.get(c + 1);
+                    if (transition < GuardedMatcher.UNGUARDED || transition >= guards.length
+                            || transition != GuardedMatcher.UNGUARDED && guards[transition] == null
+                            || target < CompiledAutomaton.DEAD || target >= stateCount) {
+                        throw truncated();
+                    }
+                }
+            }
+        }
+    }
+
+    private static IOException truncated() {
+        return new IOException("Truncated automaton image");
+    }
+
+    /**
+     * Maps an image file read-only
+     * @param path The image written by AutomatonImage
+     * @return The mapped automaton
+     * @throws IOException If the file cannot be read or is not a valid image
+     */
+    public static MappedAutomaton open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large to be mapped");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedAutomaton(buffer);
+        }
+    }
+
+    /**
+     * Wraps an image already in memory, such as one received over the network
+     * @param image The bytes of an image; the buffer must not be modified afterwards
+     * @return The automaton reading from this buffer
+     * @throws IOException If the bytes are not a valid image
+     */
+    public static MappedAutomaton wrap(ByteBuffer image) throws IOException {
+        return new MappedAutomaton(image.slice());
+    }
+
+    private ByteBuffer section(int offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || offset > image.limit() - length) {
+            throw truncated();
+        }
+        return image.slice(offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks if a word belongs to the language of the automaton, ignoring guards
+     * @param word The word to check
+     * @return true if the word is accepted, false otherwise
+     */
+    @Override
+    public boolean belongs(CharSequence word) {
+        int state = initialState;
+        if (state == CompiledAutomaton.DEAD) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            int symbol = indexOf(word.charAt(i));
+            if (symbol == Alphabet.NO_SYMBOL) {
+                return false;
+            }
+            state = table.get(state * symbolCount + symbol);
+            if (state == CompiledAutomaton.DEAD) {
+                return false;
+            }
+        }
+        return isAccepting(state);
+    }
+
+    /**
+     * Checks if a word is accepted when the guards are evaluated in a context.
+     * Without a guard section, this is the same as belongs(word).
+     * @param word The word to check
+     * @param context Values of the variables tested by the guards
+     * @return true if the word is accepted, false otherwise
+     */
+    public boolean belongs(CharSequence word, GuardContext context) {
+        if (guardedTable == null) {
+            return belongs(word);
+        }
+        int state = initialState;
+        if (state == CompiledAutomaton.DEAD) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            int symbol = indexOf(word.charAt(i));
+            if (symbol == Alphabet.NO_SYMBOL) {
+                return false;
+            }
+            int cell = guardedTable.get(state * symbolCount + symbol);
+            if (cell < CompiledAutomaton.DEAD) {
+                cell = choose(-2 - cell, context);
+            }
+            if (cell == CompiledAutomaton.DEAD) {
+                return false;
+            }
+            state = cell;
+        }
+        return isAccepting(state);
+    }
+
+    /**
+     * Follows the first candidate of a list whose guard passes
+     */
+    private int choose(int list, GuardContext context) {
+        int end = list + 1 + 2 * candidates.get(list);
+        for (int i = list + 1; i < end; i += 2) {
+            int transition = candidates.get(i);
+            if (transition == GuardedMatcher.UNGUARDED || guards[transition].test(context)) {
+                return candidates.get(i + 1);
+            }
+        }
+        return CompiledAutomaton.DEAD;
+    }
+
+    /**
+     * Gets the dense index of a symbol
+     * @param symbol The symbol to look up
+     * @return Its index, or Alphabet.NO_SYMBOL
+     */
+    public int indexOf(char symbol) {
+        if (symbol < AutomatonImage.DIRECT_SYMBOLS) {
+            return symbolIndex.get(symbol);
+        }
+        int low = 0;
+        int high = symbolCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char value = alphabet.get(middle);
+            if (value < symbol) {
+                low = middle + 1;
+            } else if (value > symbol) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return Alphabet.NO_SYMBOL;
+    }
+
+    /**
+     * Gets the state reached from a state with a given symbol, ignoring guards
+     * @param state Index of the origin state
+     * @param symbol The symbol to consume
+     * @return Index of the next state, or CompiledAutomaton.DEAD
+     */
+    public int step(int state, char symbol) {
+        int index = indexOf(symbol);
+        return index == Alphabet.NO_SYMBOL ? CompiledAutomaton.DEAD : table.get(state * symbolCount + index);
+    }
+
+    /**
+     * Checks if a state is an accepting state
+     * @param state Index of the state
+     * @return true if the state is accepting, false otherwise
+     */
+    public boolean isAccepting(int state) {
+        return (accepting.get(state >>> 6) & (1L << state)) != 0;
+    }
+
+    /**
+     * Checks if an accepting state can still be reached from a state
+     * @param state Index of the state
+     * @return true if some continuation leads to acceptance, false otherwise
+     */
+    public boolean isLive(int state) {
+        return (live.get(state >>> 6) & (1L << state)) != 0;
+    }
+
+    /**
+     * Gets the index of the initial state
+     * @return The initial state, or CompiledAutomaton.DEAD
+     */
+    public int getInitialState() {
+        return initialState;
+    }
+
+    /**
+     * Gets the number of states
+     * @return The number of states
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Gets the number of symbols of the alphabet
+     * @return The number of table columns
+     */
+    public int getSymbolCount() {
+        return symbolCount;
+    }
+
+    /**
+     * Gets the name of a state, decoded from the image
+     * @param state Index of the state
+     * @return The state name
+     */
+    public String getStateName(int state) {
+        int start = nameOffsets.get(state);
+        byte[] bytes = new byte[nameOffsets.get(state + 1) - start];
+        names.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks if the image has a guard section
+     * @return true if belongs(word, context) evaluates guards, false otherwise
+     */
+    public boolean hasGuards() {
+        return guardedTable != null;
+    }
+
+    /**
+     * Creates a context for the variables tested by the guards
+     * @return A new context with all counters at 0 and all flags false
+     */
+    public GuardContext newContext() {
+        return guardVariables.newContext();
+    }
+
+    /**
+     * Rebuilds the pushdown automaton stored in the image
+     * @return The pushdown automaton, on the heap
+     * @throws IllegalStateException If the image has no transition section
+     */
+    public PushdownAutomaton toPushdownAutomaton() {
+        AutomatonSnapshot snapshot = toSnapshot();
+        ByteBuffer in = transitions.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        in.getInt();
+        return PushdownAutomaton.compile(snapshot, emptyToNull(getString(in)));
+    }
+
+    /**
+     * Rebuilds the transition list stored in the image, with its conditions
+     * and stack operations
+     * @return The snapshot, on the heap
+     * @throws IllegalStateException If the image has no transition section
+     */
+    public AutomatonSnapshot toSnapshot() {
+        if (transitions == null) {
+            throw new IllegalStateException("The image has no transition list");
+        }
+        ByteBuffer in = transitions.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int transitionCount = in.getInt();
+        getString(in);
+
+        String[] stateNames = new String[stateCount];
+        boolean[] finals = new boolean[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            stateNames[state] = getStateName(state);
+            finals[state] = isAccepting(state);
+        }
+        int[] origins = new int[transitionCount];
+        int[] targets = new int[transitionCount];
+        char[] symbols = new char[transitionCount];
+        String[] conditions = new String[transitionCount];
+        String[] stackOperations = new String[transitionCount];
+        Guard[] transitionGuards = new Guard[transitionCount];
+        for (int t = 0; t < transitionCount; t++) {
+            origins[t] = in.getInt();
+            targets[t] = in.getInt();
+            symbols[t] = (char) in.getInt();
+            conditions[t] = emptyToNull(getString(in));
+            stackOperations[t] = emptyToNull(getString(in));
+            transitionGuards[t] = Guard.compile(conditions[t], guardVariables);
+        }
+        return new AutomatonSnapshot(stateNames, finals, initialState, origins, targets,
+                symbols, new String[transitionCount], conditions, stackOperations, transitionGuards, guardVariables);
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Generate a string representation of this mapped automaton
+     * @return A string with its dimensions
+     */
+    @Override
+    public String toString() {
+        return "MappedAutomaton{" +
+                "states=" + stateCount +
+                ", symbols=" + symbolCount +
+                ", guards=" + hasGuards() +
+                ", stack=" + (transitions != null) +
+                '}';
+    }
+}
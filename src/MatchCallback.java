@@ -0,0 +1,16 @@
+package src;
+
+/**
+ * The MatchCallback interface receives the matches found by a TextSearcher.
+ * Offsets are passed as primitives, so reporting a match does not allocate.
+ */
+@FunctionalInterface
+public interface MatchCallback {
+    /**
+     * Called for each match, in increasing order of end offset
+     * @param start Offset of the first character of the match
+     * @param end Offset following the last character of the match
+     * @return true to continue the search, false to stop it
+     */
+    boolean onMatch(int start, int end);
+}
@@ -0,0 +1,84 @@
+package src;
+
+/**
+ * The MatchCursor class holds the state of one run over a compiled automaton.
+ * The automaton is shared and immutable; a cursor is a small mutable object
+ * owned by a single thread, so any number of runs can progress concurrently
+ * over the same automaton.
+ */
+public class MatchCursor {
+    private final CompiledAutomaton automaton;
+    private int state;
+
+    /**
+     * Constructor for a cursor on the initial state of an automaton
+     * @param automaton The automaton to run
+     */
+    public MatchCursor(CompiledAutomaton automaton) {
+        this.automaton = automaton;
+        this.state = automaton.getInitialState();
+    }
+
+    /**
+     * Consumes one symbol
+     * @param symbol The symbol to consume
+     * @return false if no continuation of the run can be accepted any more, true otherwise
+     */
+    public boolean feed(char symbol) {
+        if (state != CompiledAutomaton.DEAD) {
+            state = automaton.step(state, symbol);
+        }
+        return !isDead();
+    }
+
+    /**
+     * Consumes a sequence of symbols, stopping as soon as the run is dead
+     * @param symbols The symbols to consume, in order
+     * @return false if no continuation of the run can be accepted any more, true otherwise
+     */
+    public boolean feed(CharSequence symbols) {
+        for (int i = 0; i < symbols.length() && !isDead(); i++) {
+            state = automaton.step(state, symbols.charAt(i));
+        }
+        return !isDead();
+    }
+
+    /**
+     * Checks if the run can no longer be accepted, whatever symbols follow
+     * @return true if the run has no transition left or is in a state that cannot reach acceptance
+     */
+    public boolean isDead() {
+        return state == CompiledAutomaton.DEAD || !automaton.isLive(state);
+    }
+
+    /**
+     * Checks if the symbols consumed so far form an accepted word
+     * @return true if the current state is accepting, false otherwise
+     */
+    public boolean isAccepting() {
+        return state != CompiledAutomaton.DEAD && automaton.isAccepting(state);
+    }
+
+    /**
+     * Puts the cursor back on the initial state
+     */
+    public void reset() {
+        state = automaton.getInitialState();
+    }
+
+    /**
+     * Gets the current state
+     * @return Index of the current state, or CompiledAutomaton.DEAD
+     */
+    public int getState() {
+        return state;
+    }
+
+    /**
+     * Gets the automaton run by this cursor
+     * @return The compiled automaton
+     */
+    public CompiledAutomaton getAutomaton() {
+        return automaton;
+    }
+}
@@ -0,0 +1,303 @@
+package src;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The MatchMetrics class counts what happens while words are matched: how
+ * often each state is entered and each transition taken, how many words are
+ * accepted or rejected and why, and how long each word takes. Counters are
+ * LongAdders, which spread concurrent increments over cells instead of
+ * contending on one value, and the latency histogram is striped by thread, so
+ * many threads can record at the same time.
+ *
+ * States and transitions are numbered by the code recording them, which gives
+ * their names when creating the metrics. NOOP records nothing: callers check
+ * isEnabled() before reading the clock or looking up indices, so matching with
+ * metrics turned off costs one predictable branch.
+ */
+public class MatchMetrics {
+    private static final RejectReason[] REASONS = RejectReason.values();
+
+    /**
+     * Metrics that record nothing
+     */
+    public static final MatchMetrics NOOP = new MatchMetrics();
+
+    private final boolean enabled;
+    private final String[] stateNames;
+    private final String[] transitionNames;
+    private final LongAdder[] stateVisits;
+    private final LongAdder[] transitionUses;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder[] rejected = new LongAdder[REASONS.length];
+    private final int stripeMask;
+    private final AtomicLongArray latencyCounts;
+    private final LongAdder latencyTotal = new LongAdder();
+    private final LongAccumulator latencyMax = new LongAccumulator(Math::max, 0);
+
+    private MatchMetrics() {
+        this(false, new String[0], new String[0], 1);
+    }
+
+    /**
+     * Constructor for metrics of an automaton
+     * @param stateNames Names of the states, by number
+     * @param transitionNames Names of the transitions, by number
+     */
+    public MatchMetrics(String[] stateNames, String[] transitionNames) {
+        this(true, stateNames, transitionNames, Runtime.getRuntime().availableProcessors());
+    }
+
+    private MatchMetrics(boolean enabled, String[] stateNames, String[] transitionNames, int threads) {
+        this.enabled = enabled;
+        this.stateNames = stateNames.clone();
+        this.transitionNames = transitionNames.clone();
+        this.stateVisits = adders(stateNames.length);
+        this.transitionUses = adders(transitionNames.length);
+        for (int i = 0; i < rejected.length; i++) {
+            rejected[i] = new LongAdder();
+        }
+        int stripes = Integer.highestOneBit(Math.max(1, threads) * 2 - 1);
+        this.stripeMask = stripes - 1;
+        this.latencyCounts = new AtomicLongArray(enabled ? stripes * LatencyHistogram.BUCKETS : 0);
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Checks if these metrics record anything
+     * @return false for NOOP, true otherwise
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Counts an entry into a state
+     * @param state Number of the state, ignored if out of range
+     */
+    public void recordState(int state) {
+        if (enabled && state >= 0 && state < stateVisits.length) {
+            stateVisits[state].increment();
+        }
+    }
+
+    /**
+     * Counts a transition taken
+     * @param transition Number of the transition, ignored if out of range
+     */
+    public void recordTransition(int transition) {
+        if (enabled && transition >= 0 && transition < transitionUses.length) {
+            transitionUses[transition].increment();
+        }
+    }
+
+    /**
+     * Counts an accepted word
+     * @param nanos Time spent matching it
+     */
+    public void recordAccepted(long nanos) {
+        if (enabled) {
+            accepted.increment();
+            recordLatency(nanos);
+        }
+    }
+
+    /**
+     * Counts a rejected word
+     * @param reason Why it was rejected
+     * @param nanos Time spent matching it
+     */
+    public void recordRejected(RejectReason reason, long nanos) {
+        if (enabled) {
+            rejected[reason.ordinal()].increment();
+            recordLatency(nanos);
+        }
+    }
+
+    private void recordLatency(long nanos) {
+        long value = Math.max(0, nanos);
+        int stripe = (int) mixThreadId(Thread.currentThread().getId()) & stripeMask;
+        latencyCounts.getAndIncrement(stripe * LatencyHistogram.BUCKETS + LatencyHistogram.bucketOf(value));
+        latencyTotal.add(value);
+        latencyMax.accumulate(value);
+    }
+
+    private static long mixThreadId(long id) {
+        return id ^ (id >>> 7);
+    }
+
+    /**
+     * Gets the number of states counted
+     * @return The number of states
+     */
+    public int getStateCount() {
+        return stateNames.length;
+    }
+
+    /**
+     * Gets the name of a state
+     * @param state Number of the state
+     * @return Its name
+     */
+    public String getStateName(int state) {
+        return stateNames[state];
+    }
+
+    /**
+     * Gets the number of entries into a state
+     * @param state Number of the state
+     * @return The count
+     */
+    public long getStateVisits(int state) {
+        return stateVisits[state].sum();
+    }
+
+    /**
+     * Gets the number of transitions counted
+     * @return The number of transitions
+     */
+    public int getTransitionCount() {
+        return transitionNames.length;
+    }
+
+    /**
+     * Gets the name of a transition
+     * @param transition Number of the transition
+     * @return Its name
+     */
+    public String getTransitionName(int transition) {
+        return transitionNames[transition];
+    }
+
+    /**
+     * Gets the number of times a transition was taken
+     * @param transition Number of the transition
+     * @return The count
+     */
+    public long getTransitionUses(int transition) {
+        return transitionUses[transition].sum();
+    }
+
+    /**
+     * Gets the number of accepted words
+     * @return The count
+     */
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    /**
+     * Gets the number of words rejected for a reason
+     * @param reason The reason
+     * @return The count
+     */
+    public long getRejected(RejectReason reason) {
+        return rejected[reason.ordinal()].sum();
+    }
+
+    /**
+     * Gets the number of rejected words
+     * @return The count, all reasons together
+     */
+    public long getRejected() {
+        long sum = 0;
+        for (LongAdder adder : rejected) {
+            sum += adder.sum();
+        }
+        return sum;
+    }
+
+    /**
+     * Gets the number of words matched
+     * @return Accepted and rejected words
+     */
+    public long getWordCount() {
+        return getAccepted() + getRejected();
+    }
+
+    /**
+     * Gets a percentile of the time spent matching a word
+     * @param percentile The percentile, between 0 and 100
+     * @return The percentile in nanoseconds, within about 3%
+     */
+    public long getLatencyPercentile(double percentile) {
+        return latencies().getPercentile(percentile);
+    }
+
+    /**
+     * Gets the mean time spent matching a word
+     * @return The mean in nanoseconds
+     */
+    public double getLatencyMean() {
+        long words = getWordCount();
+        return words == 0 ? 0 : (double) latencyTotal.sum() / words;
+    }
+
+    /**
+     * Gets the longest time spent matching a word
+     * @return The maximum in nanoseconds
+     */
+    public long getLatencyMax() {
+        return latencyMax.get();
+    }
+
+    /**
+     * Sums the stripes of the latency histogram. Words recorded meanwhile may
+     * be partly counted, as with any LongAdder read during updates.
+     * @return A snapshot of the histogram
+     */
+    LatencyHistogram latencies() {
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        for (int i = 0; i < latencyCounts.length(); i++) {
+            counts[i % LatencyHistogram.BUCKETS] += latencyCounts.get(i);
+        }
+        return new LatencyHistogram(counts, latencyTotal.sum(), latencyMax.get());
+    }
+
+    /**
+     * Sets every counter back to zero
+     */
+    public void reset() {
+        for (LongAdder adder : stateVisits) {
+            adder.reset();
+        }
+        for (LongAdder adder : transitionUses) {
+            adder.reset();
+        }
+        accepted.reset();
+        for (LongAdder adder : rejected) {
+            adder.reset();
+        }
+        for (int i = 0; i < latencyCounts.length(); i++) {
+            latencyCounts.set(i, 0);
+        }
+        latencyTotal.reset();
+        latencyMax.reset();
+    }
+
+    /**
+     * Generate a string representation of these metrics
+     * @return A string with the word counts
+     */
+    @Override
+    public String toString() {
+        if (!enabled) {
+            return "MatchMetrics{NOOP}";
+        }
+        return "MatchMetrics{" +
+                "accepted=" + getAccepted() +
+                ", rejected=" + getRejected() +
+                ", states=" + stateNames.length +
+                ", transitions=" + transitionNames.length +
+                '}';
+    }
+}
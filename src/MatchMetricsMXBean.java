@@ -0,0 +1,44 @@
+package src;
+
+import java.util.Map;
+
+/**
+ * The MatchMetricsMXBean interface is the view of MatchMetrics published over
+ * JMX by JmxMetricsExporter.
+ */
+public interface MatchMetricsMXBean {
+    /**
+     * Gets the number of words matched
+     * @return The count
+     */
+    long getWords();
+
+    /**
+     * Gets the number of accepted words
+     * @return The count
+     */
+    long getAccepted();
+
+    /**
+     * Gets the number of rejected words, by reason
+     * @return Counts keyed by RejectReason name
+     */
+    Map<String, Long> getRejected();
+
+    /**
+     * Gets percentiles of the time spent matching a word
+     * @return Nanoseconds keyed by "mean", "p50", "p90", "p99", "p999" and "max"
+     */
+    Map<String, Long> getLatencyNanos();
+
+    /**
+     * Gets the number of entries into each state, leaving out states never entered
+     * @return Counts keyed by state name
+     */
+    Map<String, Long> getStateVisits();
+
+    /**
+     * Sets every counter back to zero
+     */
+    void reset();
+}
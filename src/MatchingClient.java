@@ -0,0 +1,86 @@
+package src;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The MatchingClient class is a connection to a MatchingServer, which holds
+ * one session on the server. A client is used by one thread at a time.
+ */
+public class MatchingClient implements AutoCloseable {
+    private final Socket socket;
+    private final BufferedReader in;
+    private final Writer out;
+
+    /**
+     * Constructor for a client connected to a server on the loopback interface
+     * @param port The port of the server
+     * @throws IOException If the server cannot be reached
+     */
+    public MatchingClient(int port) throws IOException {
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Checks a whole word
+     * @param word The word, without line breaks
+     * @return true if the word is accepted
+     * @throws IOException If the connection fails or the server answers with an error
+     */
+    public boolean match(String word) throws IOException {
+        return request("W " + word);
+    }
+
+    /**
+     * Sends symbols to the session of the connection
+     * @param symbols The symbols, without line breaks
+     * @return false once no continuation can be accepted any more, true otherwise
+     * @throws IOException If the connection fails or the server answers with an error
+     */
+    public boolean feed(String symbols) throws IOException {
+        return request("F " + symbols);
+    }
+
+    /**
+     * Ends the word sent with feed and starts a new one
+     * @return true if the word is accepted
+     * @throws IOException If the connection fails or the server answers with an error
+     */
+    public boolean end() throws IOException {
+        return request("E");
+    }
+
+    private boolean request(String line) throws IOException {
+        out.write(line);
+        out.write('\n');
+        out.flush();
+        String answer = in.readLine();
+        if (answer == null) {
+            throw new IOException("Connection closed by the server");
+        }
+        return switch (answer) {
+            case "1" -> true;
+            case "0" -> false;
+            default -> throw new IOException("Server error: " + answer);
+        };
+    }
+
+    /**
+     * Closes the connection and the session on the server
+     * @throws IOException If the socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,165 @@
+package src;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * The MatchingServer class serves a MatchingService over TCP on the loopback
+ * interface. Each connection gets its own session and is read on a thread of
+ * the service. Requests and answers are lines in UTF-8:
+ *
+ * "W word" checks a whole word and answers "1" if it is accepted, "0" otherwise;
+ * "F symbols" sends symbols to the session and answers "1" while the word can
+ * still be accepted, "0" once it cannot; "E" ends the word sent with F and
+ * answers "1" if it is accepted, putting the session back on the initial
+ * state. A request that fails is answered "! " followed by the error, and a
+ * session closed by a timeout closes the connection.
+ *
+ * Answers are flushed only when no request is left to read, so a client
+ * sending many requests before reading the answers gets them in a few packets.
+ */
+public class MatchingServer implements AutoCloseable {
+    private final MatchingService service;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+
+    /**
+     * Constructor for a server, which starts accepting connections at once
+     * @param service The service answering the requests
+     * @param port The port to listen on, 0 for any free port
+     * @throws IOException If the port cannot be bound
+     */
+    public MatchingServer(MatchingService service, int port) throws IOException {
+        this.service = service;
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        this.acceptor = new Thread(this::accept, "matching-server-" + getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Gets the port the server listens on
+     * @return The port, on the loopback interface
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            Socket socket = null;
+            try {
+                socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                Socket accepted = socket;
+                service.execute(() -> serve(accepted));
+            } catch (IOException | RuntimeException e) {
+                if (socket != null) {
+                    // Not served, as when the service is closed: the client must not wait for answers
+                    connections.remove(socket);
+                    closeQuietly(socket);
+                }
+                if (!serverSocket.isClosed()) {
+                    System.err.println("MatchingServer: " + e);
+                }
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing more can be done for this connection
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             MatchingService.Session session = service.openSession();
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                out.write(answer(session, line));
+                out.write('\n');
+                if (!in.ready()) {
+                    out.flush();
+                }
+                if (session.isClosed()) {
+                    break;
+                }
+            }
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            // The client went away or the service was closed: the connection simply ends
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private static String answer(MatchingService.Session session, String line) {
+        if (line.isEmpty()) {
+            return "! Empty request";
+        }
+        String argument = line.length() > 2 ? line.substring(2) : "";
+        Future<Boolean> result;
+        switch (line.charAt(0)) {
+            case 'W' -> result = session.getService().match(argument);
+            case 'F' -> result = session.feed(argument);
+            case 'E' -> result = session.end();
+            default -> {
+                return "! Unknown request: " + line.charAt(0);
+            }
+        }
+        try {
+            return result.get() ? "1" : "0";
+        } catch (ExecutionException | CompletionException e) {
+            return "! " + e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "! Interrupted";
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones; the service stays open
+     * @throws IOException If the listening socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+    }
+
+    /**
+     * Generate a string representation of this server
+     * @return A string with its port and number of connections
+     */
+    @Override
+    public String toString() {
+        return "MatchingServer{" +
+                "port=" + getPort() +
+                ", connections=" + connections.size() +
+                '}';
+    }
+}
@@ -0,0 +1,539 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The MatchingService class serves match requests against one shared compiled
+ * automaton. A request is either a whole word, or a chunk of symbols sent to a
+ * Session that keeps its own MatchCursor between requests, for events
+ * arriving as a stream.
+ *
+ * Requests wait in bounded queues: when a queue is full the request fails at
+ * once with a RejectedExecutionException, so callers slow down instead of
+ * piling up work. Queues are drained by tasks that take requests in groups of
+ * up to batchSymbols symbols and answer the whole group before taking the
+ * next. Tasks run on virtual threads when the JVM has them (Java 21 and
+ * later), and on a cached pool of platform threads otherwise.
+ *
+ * Every request must be started within the timeout, otherwise it fails with a
+ * TimeoutException; the session it belongs to is then closed, since its
+ * cursor would no longer match what the client sent. Sessions idle for longer
+ * than the timeout are closed as well.
+ */
+public class MatchingService implements AutoCloseable {
+    /**
+     * Default capacity of each queue
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Default number of symbols handled by a task before it answers the requests
+     */
+    public static final int DEFAULT_BATCH_SYMBOLS = 4096;
+
+    /**
+     * Default timeout of requests and idle sessions, in milliseconds
+     */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 10_000;
+
+    private final CompiledAutomaton automaton;
+    private final int queueCapacity;
+    private final int batchSymbols;
+    private final long timeoutNanos;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final ScheduledExecutorService sweeper;
+
+    private final ArrayBlockingQueue<Request> words;
+    private final AtomicInteger wordDrainers = new AtomicInteger();
+    private final int maxWordDrainers;
+    private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong sessionIds = new AtomicLong();
+    private volatile boolean closed;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    /**
+     * Constructor for a service with the default settings
+     * @param automaton The automaton shared by every request
+     */
+    public MatchingService(CompiledAutomaton automaton) {
+        this(automaton, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SYMBOLS, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Constructor for a service
+     * @param automaton The automaton shared by every request
+     * @param queueCapacity Number of requests each queue holds, beyond which requests are rejected
+     * @param batchSymbols Number of symbols handled by a task before it answers the requests
+     * @param timeoutMillis Timeout of requests and idle sessions, in milliseconds
+     */
+    public MatchingService(CompiledAutomaton automaton, int queueCapacity, int batchSymbols, long timeoutMillis) {
+        if (queueCapacity < 1 || batchSymbols < 1 || timeoutMillis < 1) {
+            throw new IllegalArgumentException("Capacity, batch size and timeout must be positive");
+        }
+        this.automaton = automaton;
+        this.queueCapacity = queueCapacity;
+        this.batchSymbols = batchSymbols;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.words = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxWordDrainers = Runtime.getRuntime().availableProcessors();
+
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newCachedThreadPool(daemonThreads("matching-"));
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(daemonThreads("matching-sweeper-"));
+        long period = Math.max(1, timeoutMillis / 2);
+        sweeper.scheduleAtFixedRate(this::closeIdleSessions, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates an executor starting a virtual thread per task, looked up by
+     * reflection so that the code still runs on JVMs without virtual threads
+     * @return The executor, or null if virtual threads are not available
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Runs a task on the threads of the service
+     * @param task The task, typically serving one connection
+     * @throws RejectedExecutionException If the service is closed
+     */
+    void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Checks a word
+     * @param word The word to check
+     * @return A future completed with true if the word is accepted, or failed with
+     * a RejectedExecutionException if the queue is full or a TimeoutException
+     * if the request could not be started in time
+     */
+    public CompletableFuture<Boolean> match(CharSequence word) {
+        Request request = new Request(word, Request.WORD);
+        if (closed || !words.offer(request)) {
+            return reject(request);
+        }
+        if (closed) {
+            // close ran between the check and the offer, and may have emptied the queue before it
+            rejectQueuedWords();
+            return request.result;
+        }
+        startWordDrainer();
+        return request.result;
+    }
+
+    private void drainWords() {
+        List<Request> batch = new ArrayList<>();
+        try {
+            while (!closed && takeBatch(words, batch)) {
+                for (Request request : batch) {
+                    if (expired(request)) {
+                        continue;
+                    }
+                    boolean result = automaton.belongs(request.symbols);
+                    complete(request, result);
+                }
+                batches.increment();
+                batch.clear();
+            }
+        } finally {
+            wordDrainers.decrementAndGet();
+        }
+        if (closed) {
+            rejectQueuedWords();
+        } else if (!words.isEmpty()) {
+            // A word offered while this task was stopping must not wait for the next request
+            startWordDrainer();
+        }
+    }
+
+    /**
+     * Starts a task draining the words, unless as many tasks as processors already run
+     */
+    private void startWordDrainer() {
+        int running;
+        do {
+            running = wordDrainers.get();
+            if (running >= maxWordDrainers) {
+                return;
+            }
+        } while (!wordDrainers.compareAndSet(running, running + 1));
+        try {
+            executor.execute(this::drainWords);
+        } catch (RejectedExecutionException e) {
+            // The service is closed: nothing will take the queued words any more
+            wordDrainers.decrementAndGet();
+            rejectQueuedWords();
+        }
+    }
+
+    private void rejectQueuedWords() {
+        Request request;
+        while ((request = words.poll()) != null) {
+            reject(request);
+        }
+    }
+
+    /**
+     * Moves queued requests into a batch, up to batchSymbols symbols
+     * @return false if the queue was empty
+     */
+    private boolean takeBatch(ArrayBlockingQueue<Request> queue, List<Request> batch) {
+        int symbols = 0;
+        Request request;
+        while (symbols < batchSymbols && (request = queue.poll()) != null) {
+            batch.add(request);
+            symbols += Math.max(1, request.symbols.length());
+        }
+        return !batch.isEmpty();
+    }
+
+    private boolean expired(Request request) {
+        if (System.nanoTime() - request.created > timeoutNanos) {
+            timedOut.increment();
+            request.result.completeExceptionally(new TimeoutException("Request not started within the timeout"));
+            return true;
+        }
+        return false;
+    }
+
+    private void complete(Request request, boolean result) {
+        if (result) {
+            accepted.increment();
+        }
+        completed.increment();
+        request.result.complete(result);
+    }
+
+    private CompletableFuture<Boolean> reject(Request request) {
+        rejected.increment();
+        request.result.completeExceptionally(new RejectedExecutionException(
+                closed ? "Matching service is closed" : "Queue full: " + queueCapacity + " requests"));
+        return request.result;
+    }
+
+    /**
+     * Opens a session, whose cursor starts on the initial state
+     * @return The session
+     * @throws IllegalStateException If the service is closed
+     */
+    public Session openSession() {
+        if (closed) {
+            throw new IllegalStateException("Matching service is closed");
+        }
+        Session session = new Session(sessionIds.incrementAndGet());
+        sessions.put(session.id, session);
+        return session;
+    }
+
+    private void closeIdleSessions() {
+        long now = System.nanoTime();
+        for (Session session : sessions.values()) {
+            if (now - session.lastActivity > timeoutNanos && session.queue.isEmpty() && !session.running.get()) {
+                session.close(new TimeoutException("Session idle for longer than the timeout"));
+            }
+        }
+    }
+
+    /**
+     * Checks if the tasks run on virtual threads
+     * @return true on a JVM with virtual threads, false if a pool of platform threads is used
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Gets the automaton served
+     * @return The compiled automaton
+     */
+    public CompiledAutomaton getAutomaton() {
+        return automaton;
+    }
+
+    /**
+     * Gets the number of requests answered
+     * @return The count
+     */
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    /**
+     * Gets the number of requests rejected because a queue was full or the service closed
+     * @return The count
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Gets the number of requests that could not be started within the timeout
+     * @return The count
+     */
+    public long getTimedOut() {
+        return timedOut.sum();
+    }
+
+    /**
+     * Gets the number of groups of requests handled
+     * @return The count
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * Gets the number of open sessions
+     * @return The count
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Closes the service: queued requests fail and no new request is accepted
+     */
+    @Override
+    public void close() {
+        closed = true;
+        sweeper.shutdownNow();
+        for (Session session : sessions.values()) {
+            session.close(new RejectedExecutionException("Matching service is closed"));
+        }
+        rejectQueuedWords();
+        executor.shutdown();
+    }
+
+    /**
+     * Generate a string representation of this service
+     * @return A string with its counters
+     */
+    @Override
+    public String toString() {
+        return "MatchingService{" +
+                "virtualThreads=" + virtualThreads +
+                ", sessions=" + sessions.size() +
+                ", completed=" + completed.sum() +
+                ", accepted=" + accepted.sum() +
+                ", rejected=" + rejected.sum() +
+                ", timedOut=" + timedOut.sum() +
+                ", batches=" + batches.sum() +
+                '}';
+    }
+
+    /**
+     * A request waiting in a queue
+     */
+    private static class Request {
+        static final int WORD = 0;
+        static final int FEED = 1;
+        static final int END = 2;
+
+        final CharSequence symbols;
+        final int kind;
+        final long created = System.nanoTime();
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        Request(CharSequence symbols, int kind) {
+            this.symbols = symbols;
+            this.kind = kind;
+        }
+    }
+
+    /**
+     * The Session class is a run of the automaton over symbols sent in
+     * several requests. Requests of a session are handled one at a time, in
+     * the order they were sent, so a session can be used from any thread.
+     */
+    public class Session implements AutoCloseable {
+        private final long id;
+        private final MatchCursor cursor = new MatchCursor(automaton);
+        private final ArrayBlockingQueue<Request> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean running = new AtomicBoolean();
+        private volatile long lastActivity = System.nanoTime();
+        private volatile Exception closedBy;
+
+        private Session(long id) {
+            this.id = id;
+        }
+
+        /**
+         * Sends symbols to the cursor of the session
+         * @param symbols The symbols, following those already sent
+         * @return A future completed with false once no continuation can be accepted any more,
+         * true otherwise, or failed as the requests of match
+         */
+        public CompletableFuture<Boolean> feed(CharSequence symbols) {
+            return submit(new Request(symbols, Request.FEED));
+        }
+
+        /**
+         * Ends the current word and puts the cursor back on the initial state
+         * @return A future completed with true if the symbols sent since the last end form
+         * an accepted word, or failed as the requests of match
+         */
+        public CompletableFuture<Boolean> end() {
+            return submit(new Request("", Request.END));
+        }
+
+        private CompletableFuture<Boolean> submit(Request request) {
+            lastActivity = request.created;
+            if (closedBy != null) {
+                rejected.increment();
+                request.result.completeExceptionally(closedBy);
+                return request.result;
+            }
+            if (!queue.offer(request)) {
+                return reject(request);
+            }
+            if (closedBy != null) {
+                // close ran between the check and the offer, and may have emptied the queue before it
+                failQueued();
+                return request.result;
+            }
+            schedule();
+            return request.result;
+        }
+
+        private void schedule() {
+            if (!queue.isEmpty() && running.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    running.set(false);
+                    close(e);
+                }
+            }
+        }
+
+        /**
+         * Handles the queued requests in order, answering them group by group
+         */
+        private void drain() {
+            List<Request> batch = new ArrayList<>();
+            try {
+                // Once the session is closed, the requests left are failed rather than left queued
+                while (takeBatch(queue, batch)) {
+                    for (Request request : batch) {
+                        if (closedBy != null) {
+                            request.result.completeExceptionally(closedBy);
+                        } else if (expired(request)) {
+                            close(new TimeoutException("Request not started within the timeout"));
+                        } else if (request.kind == Request.FEED) {
+                            complete(request, cursor.feed(request.symbols));
+                        } else {
+                            boolean result = cursor.isAccepting();
+                            cursor.reset();
+                            complete(request, result);
+                        }
+                    }
+                    batches.increment();
+                    batch.clear();
+                    lastActivity = System.nanoTime();
+                }
+            } finally {
+                running.set(false);
+            }
+            // A request queued while this task was stopping must not wait for the next one
+            schedule();
+        }
+
+        /**
+         * Gets the identifier of the session
+         * @return The identifier, unique within the service
+         */
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * Gets the service running the session
+         * @return The service
+         */
+        public MatchingService getService() {
+            return MatchingService.this;
+        }
+
+        /**
+         * Checks if the session was closed, by the client, a timeout or the service
+         * @return true if new requests fail
+         */
+        public boolean isClosed() {
+            return closedBy != null;
+        }
+
+        /**
+         * Closes the session; requests still queued fail
+         */
+        @Override
+        public void close() {
+            close(new IllegalStateException("Session closed"));
+        }
+
+        private void close(Exception reason) {
+            if (closedBy == null) {
+                closedBy = reason;
+            }
+            sessions.remove(id);
+            failQueued();
+        }
+
+        private void failQueued() {
+            Request request;
+            while ((request = queue.poll()) != null) {
+                request.result.completeExceptionally(closedBy);
+            }
+        }
+
+        /**
+         * Generate a string representation of this session
+         * @return A string with its identifier and state
+         */
+        @Override
+        public String toString() {
+            return "Session{" +
+                    "id=" + id +
+                    ", queued=" + queue.size() +
+                    ", closed=" + (closedBy != null) +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package src;
+
+import java.io.IOException;
+
+/**
+ * The MetricsExporter interface publishes MatchMetrics somewhere they can be
+ * read, such as a text report or JMX.
+ */
+public interface MetricsExporter {
+    /**
+     * Publishes metrics
+     * @param name Name identifying the metrics, such as the automaton file
+     * @param metrics The metrics to publish
+     * @throws IOException If the metrics cannot be written
+     */
+    void export(String name, MatchMetrics metrics) throws IOException;
+}
@@ -0,0 +1,270 @@
+package src;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The Minimizer class computes the minimal deterministic automaton of a language
+ * with Hopcroft's partition refinement, in O(n.|Σ|.log n). States, blocks and the
+ * inverse transitions are all int arrays; the partition is kept as a permutation
+ * of the states in which every block is a contiguous range.
+ */
+public class Minimizer {
+
+    private Minimizer() {
+    }
+
+    /**
+     * Minimizes an automaton, determinizing it first
+     * @param automaton The automaton to minimize
+     * @return A new minimal automaton whose states are named q0, q1, ... in breadth-first order
+     */
+    public static Automaton minimize(Automaton automaton) {
+        return minimize(automaton.determinize()).toAutomaton();
+    }
+
+    /**
+     * Minimizes a deterministic automaton.
+     * Unreachable states are dropped, equivalent states merged and the states that
+     * cannot reach an accepting state removed. The result is numbered canonically:
+     * the initial state is 0 and the others follow in breadth-first order, visiting
+     * symbols by increasing index, so equivalent inputs give identical tables.
+     * @param dfa The automaton to minimize
+     * @return The minimal automaton
+     */
+    public static CompiledAutomaton minimize(CompiledAutomaton dfa) {
+        Alphabet alphabet = dfa.getAlphabet();
+        int symbolCount = alphabet.size();
+        if (dfa.getInitialState() == CompiledAutomaton.DEAD) {
+            return new CompiledAutomaton(alphabet, new int[0], new BitSet(), CompiledAutomaton.DEAD, new String[0]);
+        }
+
+        // Keep the reachable states and add a sink completing the automaton
+        int[] order = new int[dfa.getStateCount()];
+        int[] renumber = new int[dfa.getStateCount()];
+        Arrays.fill(renumber, -1);
+        int n = 0;
+        order[n] = dfa.getInitialState();
+        renumber[order[n++]] = 0;
+        for (int i = 0; i < n; i++) {
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int target = dfa.target(order[i], symbol);
+                if (target != CompiledAutomaton.DEAD && renumber[target] < 0) {
+                    renumber[target] = n;
+                    order[n++] = target;
+                }
+            }
+        }
+        int sink = n;
+        int stateCount = n + 1;
+
+        int[] delta = new int[stateCount * symbolCount];
+        for (int state = 0; state < stateCount; state++) {
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int target = state == sink ? CompiledAutomaton.DEAD : dfa.target(order[state], symbol);
+                delta[state * symbolCount + symbol] = target == CompiledAutomaton.DEAD ? sink : renumber[target];
+            }
+        }
+
+        // Inverse transitions grouped by (symbol, target)
+        int[] inverseOffsets = new int[symbolCount * stateCount + 1];
+        for (int state = 0; state < stateCount; state++) {
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                inverseOffsets[symbol * stateCount + delta[state * symbolCount + symbol] + 1]++;
+            }
+        }
+        for (int i = 1; i < inverseOffsets.length; i++) {
+            inverseOffsets[i] += inverseOffsets[i - 1];
+        }
+        int[] inverseSources = new int[stateCount * symbolCount];
+        int[] fill = Arrays.copyOf(inverseOffsets, inverseOffsets.length - 1);
+        for (int state = 0; state < stateCount; state++) {
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                inverseSources[fill[symbol * stateCount + delta[state * symbolCount + symbol]]++] = state;
+            }
+        }
+
+        Partition partition = new Partition(stateCount);
+        for (int state = 0; state < n; state++) {
+            if (dfa.isAccepting(order[state])) {
+                partition.mark(state);
+            }
+        }
+        partition.split();
+
+        // Splitters are always added for every symbol at once, so the worklist holds blocks
+        int[] worklist = new int[stateCount];
+        boolean[] queued = new boolean[stateCount];
+        int head = 0;
+        int tail = 0;
+        if (partition.blockCount() == 2) {
+            int smaller = partition.size(0) <= partition.size(1) ? 0 : 1;
+            worklist[tail++] = smaller;
+            queued[smaller] = true;
+        }
+
+        int[] splitter = new int[stateCount];
+        while (head != tail) {
+            int block = worklist[head];
+            head = (head + 1) % stateCount;
+            queued[block] = false;
+
+            int splitterSize = partition.copyBlock(block, splitter);
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                for (int i = 0; i < splitterSize; i++) {
+                    int base = symbol * stateCount + splitter[i];
+                    for (int j = inverseOffsets[base]; j < inverseOffsets[base + 1]; j++) {
+                        partition.mark(inverseSources[j]);
+                    }
+                }
+                int firstNew = partition.blockCount();
+                partition.split();
+                for (int created = firstNew; created < partition.blockCount(); created++) {
+                    if (!queued[created]) {
+                        worklist[tail] = created;
+                        tail = (tail + 1) % stateCount;
+                        queued[created] = true;
+                    }
+                }
+            }
+        }
+
+        // Number the live blocks in breadth-first order from the initial block
+        int deadBlock = partition.blockOf(sink);
+        int[] blockIds = new int[partition.blockCount()];
+        Arrays.fill(blockIds, CompiledAutomaton.DEAD);
+        int[] blocks = new int[partition.blockCount()];
+        int count = 0;
+        int initialBlock = partition.blockOf(0);
+        if (initialBlock != deadBlock) {
+            blockIds[initialBlock] = count;
+            blocks[count++] = initialBlock;
+        }
+        for (int i = 0; i < count; i++) {
+            int representative = partition.first(blocks[i]);
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int targetBlock = partition.blockOf(delta[representative * symbolCount + symbol]);
+                if (targetBlock != deadBlock && blockIds[targetBlock] == CompiledAutomaton.DEAD) {
+                    blockIds[targetBlock] = count;
+                    blocks[count++] = targetBlock;
+                }
+            }
+        }
+
+        int[] table = new int[count * symbolCount];
+        BitSet accepting = new BitSet(count);
+        String[] stateNames = new String[count];
+        for (int i = 0; i < count; i++) {
+            int representative = partition.first(blocks[i]);
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                table[i * symbolCount + symbol] = blockIds[partition.blockOf(delta[representative * symbolCount + symbol])];
+            }
+            if (dfa.isAccepting(order[representative])) {
+                accepting.set(i);
+            }
+            stateNames[i] = "q" + i;
+        }
+
+        return new CompiledAutomaton(alphabet, table, accepting,
+                count == 0 ? CompiledAutomaton.DEAD : 0, stateNames);
+    }
+
+    /**
+     * Refinable partition of the states 0..n-1.
+     * Each block is a range of the elements array; marked states are moved to
+     * the front of their block until the next call to split.
+     */
+    private static class Partition {
+        private final int[] elements;
+        private final int[] locations;
+        private final int[] blockOf;
+        private final int[] firsts;
+        private final int[] ends;
+        private final int[] marked;
+        private final int[] touched;
+        private int touchedCount;
+        private int blockCount;
+
+        Partition(int stateCount) {
+            elements = new int[stateCount];
+            locations = new int[stateCount];
+            blockOf = new int[stateCount];
+            firsts = new int[stateCount];
+            ends = new int[stateCount];
+            marked = new int[stateCount];
+            touched = new int[stateCount];
+            for (int state = 0; state < stateCount; state++) {
+                elements[state] = state;
+                locations[state] = state;
+            }
+            firsts[0] = 0;
+            ends[0] = stateCount;
+            blockCount = 1;
+        }
+
+        void mark(int state) {
+            int block = blockOf[state];
+            int location = locations[state];
+            int boundary = firsts[block] + marked[block];
+            if (location < boundary) {
+                return;
+            }
+            int other = elements[boundary];
+            elements[location] = other;
+            locations[other] = location;
+            elements[boundary] = state;
+            locations[state] = boundary;
+            if (marked[block]++ == 0) {
+                touched[touchedCount++] = block;
+            }
+        }
+
+        void split() {
+            while (touchedCount > 0) {
+                int block = touched[--touchedCount];
+                int boundary = firsts[block] + marked[block];
+                marked[block] = 0;
+                if (boundary == ends[block]) {
+                    continue;
+                }
+
+                // The new block receives the smaller part
+                int created = blockCount++;
+                if (boundary - firsts[block] <= ends[block] - boundary) {
+                    firsts[created] = firsts[block];
+                    ends[created] = boundary;
+                    firsts[block] = boundary;
+                } else {
+                    firsts[created] = boundary;
+                    ends[created] = ends[block];
+                    ends[block] = boundary;
+                }
+                for (int i = firsts[created]; i < ends[created]; i++) {
+                    blockOf[elements[i]] = created;
+                }
+            }
+        }
+
+        int copyBlock(int block, int[] target) {
+            int size = ends[block] - firsts[block];
+            System.arraycopy(elements, firsts[block], target, 0, size);
+            return size;
+        }
+
+        int blockOf(int state) {
+            return blockOf[state];
+        }
+
+        int first(int block) {
+            return elements[firsts[block]];
+        }
+
+        int size(int block) {
+            return ends[block] - firsts[block];
+        }
+
+        int blockCount() {
+            return blockCount;
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package src;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The MultiMatcher class matches a word against several automata in a single
+ * scan. It runs the product of their compiled forms: a product state is the
+ * tuple of the current state of each automaton, and reading a symbol moves
+ * every component at once. Product states and their transitions are built the
+ * first time they are needed and cached, as in LazyDfa, so only the tuples
+ * actually reached by the inputs are ever created. Components that can no
+ * longer accept are set to DEAD, which lets different tuples merge and ends
+ * the scan as soon as every automaton has rejected.
+ *
+ * When the automata are unrelated the product can have too many reachable
+ * tuples for the cache. If most transitions keep missing the cache across
+ * several flushes, the matcher stops caching and steps the components one by
+ * one, still in a single scan of the word.
+ *
+ * Each component follows the same rules as Automaton.belongs, so bit i of the
+ * result is set exactly when automaton i accepts the word.
+ * Instances keep mutable caches and must not be shared between threads.
+ */
+public class MultiMatcher {
+    /**
+     * Default memory budget of the cache, in bytes
+     */
+    public static final long DEFAULT_BUDGET = 8L * 1024 * 1024;
+
+    private static final int DEAD = CompiledAutomaton.DEAD;
+    private static final int UNKNOWN = -2;
+    private static final int FLUSHES_BEFORE_FALLBACK = 3;
+
+    private final CompiledAutomaton[] automata;
+    private final Alphabet alphabet;
+    private final int symbolCount;
+    private final int[][] symbolMaps;
+    private final int tupleWords;
+    private final int acceptWords;
+    private final int maxStates;
+    private final StateSetIndex index;
+    private final long[] initialTuple;
+    private final long[] currentTuple;
+    private final long[] nextTuple;
+    private final int[] components;
+    private int[] table;
+    private long[] accepting;
+    private int startState;
+
+    private long hits;
+    private long misses;
+    private long flushes;
+    private long hitsAtFlush;
+    private long missesAtFlush;
+    private int thrashingFlushes;
+    private boolean direct;
+
+    /**
+     * Constructor for a matcher over automata, compiled with Automaton.compile
+     * @param automata The automata to match against; bit i of a result refers to automata.get(i)
+     * @throws IllegalArgumentException If a symbol has several characters, such as "P10"
+     */
+    public MultiMatcher(List<Automaton> automata) {
+        this(compileAll(automata), DEFAULT_BUDGET);
+    }
+
+    /**
+     * Constructor for a matcher over compiled automata
+     * @param automata The automata to match against; bit i of a result refers to automata[i]
+     * @param budget Maximum number of bytes used by cached product states and transitions
+     */
+    public MultiMatcher(CompiledAutomaton[] automata, long budget) {
+        this.automata = automata.clone();
+        Set<Character> symbols = new HashSet<>();
+        for (CompiledAutomaton automaton : automata) {
+            Alphabet own = automaton.getAlphabet();
+            for (int i = 0; i < own.size(); i++) {
+                symbols.add(own.symbolAt(i));
+            }
+        }
+        this.alphabet = new Alphabet(symbols);
+        this.symbolCount = alphabet.size();
+        this.symbolMaps = new int[automata.length][symbolCount];
+        for (int a = 0; a < automata.length; a++) {
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                symbolMaps[a][symbol] = automata[a].getAlphabet().indexOf(alphabet.symbolAt(symbol));
+            }
+        }
+
+        // Two component states per long, stored plus one so that an all DEAD tuple is all zeros
+        this.tupleWords = Math.max(1, (automata.length + 1) / 2);
+        this.acceptWords = Math.max(1, (automata.length + 63) / 64);
+        long bytesPerState = tupleWords * 8L + acceptWords * 8L + symbolCount * 4L + 16;
+        // A flush keeps the origin and target of a transition, and the next word adds the initial tuple
+        this.maxStates = (int) Math.max(3, Math.min(Integer.MAX_VALUE / Math.max(1, symbolCount),
+                budget / bytesPerState));
+        this.index = new StateSetIndex(tupleWords);
+        this.initialTuple = new long[tupleWords];
+        this.currentTuple = new long[tupleWords];
+        this.nextTuple = new long[tupleWords];
+        this.components = new int[automata.length];
+        this.table = new int[Math.min(maxStates, 64) * Math.max(1, symbolCount)];
+        Arrays.fill(table, UNKNOWN);
+        this.accepting = new long[Math.min(maxStates, 64) * acceptWords];
+        this.startState = DEAD;
+
+        for (int a = 0; a < automata.length; a++) {
+            int initial = automata[a].getInitialState();
+            set(initialTuple, a, initial != DEAD && automata[a].isLive(initial) ? initial : DEAD);
+        }
+    }
+
+    private static CompiledAutomaton[] compileAll(List<Automaton> automata) {
+        CompiledAutomaton[] compiled = new CompiledAutomaton[automata.size()];
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = automata.get(i).compile();
+        }
+        return compiled;
+    }
+
+    /**
+     * Finds which automata accept a word
+     * @param word The word to check
+     * @return Set of the indices of the accepting automata
+     */
+    public BitSet match(CharSequence word) {
+        BitSet result = new BitSet(automata.length);
+        match(word, result);
+        return result;
+    }
+
+    /**
+     * Finds which automata accept a word, reusing a result set
+     * @param word The word to check
+     * @param result Cleared, then filled with the indices of the accepting automata
+     * @return true if at least one automaton accepts the word
+     */
+    public boolean match(CharSequence word, BitSet result) {
+        result.clear();
+        if (direct) {
+            return runDirect(word, result);
+        }
+        int state = run(word);
+        if (state == DEAD) {
+            return false;
+        }
+        for (int w = 0; w < acceptWords; w++) {
+            for (long bits = accepting[state * acceptWords + w]; bits != 0; bits &= bits - 1) {
+                result.set((w << 6) + Long.numberOfTrailingZeros(bits));
+            }
+        }
+        return !result.isEmpty();
+    }
+
+    /**
+     * Checks if at least one automaton accepts a word
+     * @param word The word to check
+     * @return true if some automaton accepts the word, false otherwise
+     */
+    public boolean matchesAny(CharSequence word) {
+        if (direct) {
+            return runDirect(word, null);
+        }
+        int state = run(word);
+        if (state == DEAD) {
+            return false;
+        }
+        for (int w = 0; w < acceptWords; w++) {
+            if (accepting[state * acceptWords + w] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads a word through the product
+     * @return The product state reached, or DEAD if every automaton rejected
+     */
+    private int run(CharSequence word) {
+        if (startState == DEAD) {
+            if (isDead(initialTuple)) {
+                return DEAD;
+            }
+            startState = cache(initialTuple);
+        }
+
+        int state = startState;
+        for (int i = 0; i < word.length(); i++) {
+            int symbol = alphabet.indexOf(word.charAt(i));
+            if (symbol == Alphabet.NO_SYMBOL) {
+                return DEAD;
+            }
+            int next = table[state * symbolCount + symbol];
+            if (next == UNKNOWN) {
+                misses++;
+                next = computeTransition(state, symbol);
+                // A flush renumbers the states, so the origin has to be looked up again
+                state = index.find(currentTuple);
+                table[state * symbolCount + symbol] = next;
+            } else {
+                hits++;
+            }
+            if (next == DEAD) {
+                return DEAD;
+            }
+            state = next;
+        }
+        return state;
+    }
+
+    /**
+     * Reads a word by stepping every live component, without the cache
+     * @param result Filled with the accepting automata, or null to only test for one
+     * @return true if at least one automaton accepts the word
+     */
+    private boolean runDirect(CharSequence word, BitSet result) {
+        int alive = 0;
+        for (int a = 0; a < automata.length; a++) {
+            components[a] = get(initialTuple, a);
+            if (components[a] != DEAD) {
+                alive++;
+            }
+        }
+        for (int i = 0; i < word.length() && alive > 0; i++) {
+            int symbol = alphabet.indexOf(word.charAt(i));
+            if (symbol == Alphabet.NO_SYMBOL) {
+                return false;
+            }
+            for (int a = 0; a < automata.length; a++) {
+                if (components[a] == DEAD) {
+                    continue;
+                }
+                int own = symbolMaps[a][symbol];
+                int next = own == Alphabet.NO_SYMBOL ? DEAD : automata[a].target(components[a], own);
+                if (next == DEAD || !automata[a].isLive(next)) {
+                    next = DEAD;
+                    alive--;
+                }
+                components[a] = next;
+            }
+        }
+        boolean any = false;
+        for (int a = 0; a < automata.length && alive > 0; a++) {
+            if (components[a] != DEAD && automata[a].isAccepting(components[a])) {
+                if (result == null) {
+                    return true;
+                }
+                result.set(a);
+                any = true;
+            }
+        }
+        return any;
+    }
+
+    /**
+     * Computes the target of a product transition not yet in the cache
+     * @param state Cached origin state
+     * @param symbol Index of the symbol in the union alphabet
+     * @return The cached target state, or DEAD if every component is dead
+     */
+    private int computeTransition(int state, int symbol) {
+        index.copy(state, currentTuple);
+        for (int a = 0; a < automata.length; a++) {
+            int component = get(currentTuple, a);
+            int next = DEAD;
+            if (component != DEAD && symbolMaps[a][symbol] != Alphabet.NO_SYMBOL) {
+                next = automata[a].target(component, symbolMaps[a][symbol]);
+                if (next != DEAD && !automata[a].isLive(next)) {
+                    next = DEAD;
+                }
+            }
+            set(nextTuple, a, next);
+        }
+        if (isDead(nextTuple)) {
+            return DEAD;
+        }
+
+        int next = index.find(nextTuple);
+        if (next >= 0) {
+            return next;
+        }
+        if (index.size() + 1 >= maxStates) {
+            flush();
+            cache(currentTuple);
+        }
+        return cache(nextTuple);
+    }
+
+    /**
+     * Adds a tuple to the cache
+     * @param tuple The packed component states
+     * @return Id of the cached product state
+     */
+    private int cache(long[] tuple) {
+        int size = index.size();
+        int id = index.intern(tuple);
+        if (id == size) {
+            if ((id + 1) * symbolCount > table.length) {
+                int length = table.length;
+                table = Arrays.copyOf(table, Math.min(maxStates * symbolCount, Math.max(symbolCount, length * 2)));
+                Arrays.fill(table, length, table.length, UNKNOWN);
+            }
+            if ((id + 1) * acceptWords > accepting.length) {
+                accepting = Arrays.copyOf(accepting, Math.min(maxStates * acceptWords, accepting.length * 2));
+            }
+            Arrays.fill(accepting, id * acceptWords, (id + 1) * acceptWords, 0L);
+            for (int a = 0; a < automata.length; a++) {
+                int component = get(tuple, a);
+                if (component != DEAD && automata[a].isAccepting(component)) {
+                    accepting[id * acceptWords + (a >>> 6)] |= 1L << a;
+                }
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Drops every cached product state and transition
+     */
+    private void flush() {
+        flushes++;
+        if (misses - missesAtFlush > hits - hitsAtFlush) {
+            direct = ++thrashingFlushes >= FLUSHES_BEFORE_FALLBACK;
+        } else {
+            thrashingFlushes = 0;
+        }
+        hitsAtFlush = hits;
+        missesAtFlush = misses;
+        Arrays.fill(table, 0, index.size() * symbolCount, UNKNOWN);
+        index.clear();
+        startState = DEAD;
+    }
+
+    private static int get(long[] tuple, int component) {
+        return (int) (tuple[component >>> 1] >>> ((component & 1) << 5)) - 1;
+    }
+
+    private static void set(long[] tuple, int component, int state) {
+        int shift = (component & 1) << 5;
+        int word = component >>> 1;
+        tuple[word] = (tuple[word] & ~(0xFFFFFFFFL << shift)) | ((state + 1L) << shift);
+    }
+
+    private static boolean isDead(long[] tuple) {
+        for (long word : tuple) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of automata
+     * @return The number of automata matched at once
+     */
+    public int size() {
+        return automata.length;
+    }
+
+    /**
+     * Gets the number of transitions found in the cache
+     * @return The number of cache hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of transitions that had to be computed
+     * @return The number of cache misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of times the cache was flushed because it was full
+     * @return The number of flushes
+     */
+    public long getFlushes() {
+        return flushes;
+    }
+
+    /**
+     * Checks if the matcher gave up caching the product because it kept missing
+     * @return true if the components are stepped one by one
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * Gets the number of product states currently cached
+     * @return The number of cached states
+     */
+    public int getCachedStates() {
+        return index.size();
+    }
+
+    /**
+     * Generate a string representation of this matcher
+     * @return A string with the number of automata and the cache counters
+     */
+    @Override
+    public String toString() {
+        return "MultiMatcher{" +
+                "automata=" + automata.length +
+                ", symbols=" + symbolCount +
+                ", cachedStates=" + index.size() +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", flushes=" + flushes +
+                ", direct=" + direct +
+                '}';
+    }
+}
@@ -0,0 +1,350 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The NfaGraph class is an immutable, int indexed view of a nondeterministic
+ * automaton with epsilon transitions. The outgoing edges of every state are
+ * stored in flat arrays (sorted by symbol) and the epsilon edges in separate
+ * arrays, which is the input expected by the determinization and simulation engines.
+ */
+public class NfaGraph {
+    private final Alphabet alphabet;
+    private final int stateCount;
+    private final int initialState;
+    private final BitSet accepting;
+    private final int[] edgeOffsets;
+    private final int[] edgeSymbols;
+    private final int[] edgeTargets;
+    private final int[] epsilonOffsets;
+    private final int[] epsilonTargets;
+    private final String[] stateNames;
+
+    /**
+     * Constructor for creating a graph from its arrays
+     * @param alphabet Alphabet of the graph, without epsilon
+     * @param initialState Index of the initial state, or -1 if there is none
+     * @param accepting Set of accepting states
+     * @param edgeOffsets Start of the edges of each state, with a final sentinel
+     * @param edgeSymbols Symbol index of each edge, sorted within a state
+     * @param edgeTargets Target state of each edge
+     * @param epsilonOffsets Start of the epsilon edges of each state, with a final sentinel
+     * @param epsilonTargets Target state of each epsilon edge
+     * @param stateNames Name of each state
+     */
+    NfaGraph(Alphabet alphabet, int initialState, BitSet accepting,
+             int[] edgeOffsets, int[] edgeSymbols, int[] edgeTargets,
+             int[] epsilonOffsets, int[] epsilonTargets, String[] stateNames) {
+        this.alphabet = alphabet;
+        this.stateCount = stateNames.length;
+        this.initialState = initialState;
+        this.accepting = (BitSet) accepting.clone();
+        this.edgeOffsets = edgeOffsets;
+        this.edgeSymbols = edgeSymbols;
+        this.edgeTargets = edgeTargets;
+        this.epsilonOffsets = epsilonOffsets;
+        this.epsilonTargets = epsilonTargets;
+        this.stateNames = stateNames;
+    }
+
+    /**
+     * Builds the graph of the states reachable from the initial state of an automaton.
+     * Transitions labelled with Transition.EPSILON become epsilon edges that do not
+     * consume any input.
+     * @param automaton The automaton to convert
+     * @return The corresponding graph
+     */
+    public static NfaGraph of(Automaton automaton) {
+        List<State> states = automaton.reachableStates();
+        Set<Character> symbols = new HashSet<>(automaton.getAlphabet());
+        symbols.remove(Transition.EPSILON);
+        Alphabet alphabet = new Alphabet(symbols);
+
+        Map<State, Integer> indices = new HashMap<>();
+        String[] stateNames = new String[states.size()];
+        BitSet accepting = new BitSet(states.size());
+        for (int i = 0; i < states.size(); i++) {
+            indices.put(states.get(i), i);
+            stateNames[i] = states.get(i).getName();
+            if (states.get(i).isFinal()) {
+                accepting.set(i);
+            }
+        }
+
+        Builder builder = new Builder(states.size());
+        for (int i = 0; i < states.size(); i++) {
+            for (Transition t : states.get(i).getTransitions()) {
+                int target = indices.get(t.getFinalState());
+                if (t.getSymbol() == Transition.EPSILON) {
+                    builder.addEpsilon(i, target);
+                } else {
+                    builder.addEdge(i, alphabet.indexOf(t.getSymbol()), target);
+                }
+            }
+        }
+        return builder.build(alphabet, states.isEmpty() ? -1 : 0, accepting, stateNames);
+    }
+
+    /**
+     * Adds the epsilon closure of a state to a set of states
+     * @param set Bitset of states, updated in place
+     * @param state State whose closure is added
+     * @param stack Scratch array of at least getStateCount() entries
+     */
+    public void addClosure(long[] set, int state, int[] stack) {
+        if ((set[state >>> 6] & (1L << state)) != 0) {
+            return;
+        }
+        set[state >>> 6] |= 1L << state;
+        int top = 0;
+        stack[top++] = state;
+        while (top > 0) {
+            int current = stack[--top];
+            for (int e = epsilonOffsets[current]; e < epsilonOffsets[current + 1]; e++) {
+                int next = epsilonTargets[e];
+                if ((set[next >>> 6] & (1L << next)) == 0) {
+                    set[next >>> 6] |= 1L << next;
+                    stack[top++] = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if the graph is deterministic: no epsilon edge and at most one edge
+     * per state and symbol
+     * @return true if the graph is deterministic, false otherwise
+     */
+    public boolean isDeterministic() {
+        if (epsilonTargets.length > 0) {
+            return false;
+        }
+        for (int state = 0; state < stateCount; state++) {
+            for (int e = edgeOffsets[state] + 1; e < edgeOffsets[state + 1]; e++) {
+                if (edgeSymbols[e] == edgeSymbols[e - 1]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of 64-bit words needed to store a set of states
+     * @return The number of words
+     */
+    public int wordCount() {
+        return Math.max(1, (stateCount + 63) >>> 6);
+    }
+
+    /**
+     * Gets the alphabet of the graph (epsilon excluded)
+     * @return The alphabet
+     */
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * Gets the number of states
+     * @return The number of states
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Gets the index of the initial state
+     * @return The initial state, or -1 if there is none
+     */
+    public int getInitialState() {
+        return initialState;
+    }
+
+    /**
+     * Checks if a state is an accepting state
+     * @param state Index of the state
+     * @return true if the state is accepting, false otherwise
+     */
+    public boolean isAccepting(int state) {
+        return accepting.get(state);
+    }
+
+    /**
+     * Gets the index of the first edge of a state
+     * @param state Index of the state
+     * @return Index of the first edge
+     */
+    public int edgeStart(int state) {
+        return edgeOffsets[state];
+    }
+
+    /**
+     * Gets the index following the last edge of a state
+     * @param state Index of the state
+     * @return Index after the last edge
+     */
+    public int edgeEnd(int state) {
+        return edgeOffsets[state + 1];
+    }
+
+    /**
+     * Gets the symbol index of an edge
+     * @param edge Index of the edge
+     * @return Index of the symbol in the alphabet
+     */
+    public int edgeSymbol(int edge) {
+        return edgeSymbols[edge];
+    }
+
+    /**
+     * Gets the target state of an edge
+     * @param edge Index of the edge
+     * @return Index of the target state
+     */
+    public int edgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    /**
+     * Gets the index of the first epsilon edge of a state
+     * @param state Index of the state
+     * @return Index of the first epsilon edge
+     */
+    public int epsilonStart(int state) {
+        return epsilonOffsets[state];
+    }
+
+    /**
+     * Gets the index following the last epsilon edge of a state
+     * @param state Index of the state
+     * @return Index after the last epsilon edge
+     */
+    public int epsilonEnd(int state) {
+        return epsilonOffsets[state + 1];
+    }
+
+    /**
+     * Gets the target state of an epsilon edge
+     * @param edge Index of the epsilon edge
+     * @return Index of the target state
+     */
+    public int epsilonTarget(int edge) {
+        return epsilonTargets[edge];
+    }
+
+    /**
+     * Gets the name of a state
+     * @param state Index of the state
+     * @return The state name
+     */
+    public String getStateName(int state) {
+        return stateNames[state];
+    }
+
+    /**
+     * Generate a string representation of this graph
+     * @return A string with the graph dimensions
+     */
+    @Override
+    public String toString() {
+        return "NfaGraph{" +
+                "states=" + stateCount +
+                ", symbols=" + alphabet.size() +
+                ", edges=" + edgeTargets.length +
+                ", epsilonEdges=" + epsilonTargets.length +
+                '}';
+    }
+
+    /**
+     * Collects edges state by state and lays them out in flat arrays
+     */
+    static class Builder {
+        private final List<List<long[]>> edges;
+        private final List<List<Integer>> epsilons;
+        private int edgeCount;
+        private int epsilonCount;
+
+        /**
+         * Constructor for a builder of a graph with a fixed number of states
+         * @param stateCount The number of states
+         */
+        Builder(int stateCount) {
+            this.edges = new ArrayList<>(stateCount);
+            this.epsilons = new ArrayList<>(stateCount);
+            for (int i = 0; i < stateCount; i++) {
+                edges.add(new ArrayList<>());
+                epsilons.add(new ArrayList<>());
+            }
+        }
+
+        /**
+         * Adds an edge consuming a symbol
+         * @param origin Origin state
+         * @param symbol Symbol index
+         * @param target Target state
+         */
+        void addEdge(int origin, int symbol, int target) {
+            edges.get(origin).add(new long[]{symbol, target});
+            edgeCount++;
+        }
+
+        /**
+         * Adds an epsilon edge
+         * @param origin Origin state
+         * @param target Target state
+         */
+        void addEpsilon(int origin, int target) {
+            epsilons.get(origin).add(target);
+            epsilonCount++;
+        }
+
+        /**
+         * Lays out the collected edges
+         * @param alphabet Alphabet of the graph
+         * @param initialState Initial state, or -1
+         * @param accepting Set of accepting states
+         * @param stateNames Name of each state
+         * @return The graph
+         */
+        NfaGraph build(Alphabet alphabet, int initialState, BitSet accepting, String[] stateNames) {
+            int stateCount = edges.size();
+            int[] edgeOffsets = new int[stateCount + 1];
+            int[] edgeSymbols = new int[edgeCount];
+            int[] edgeTargets = new int[edgeCount];
+            int[] epsilonOffsets = new int[stateCount + 1];
+            int[] epsilonTargets = new int[epsilonCount];
+
+            int e = 0;
+            int eps = 0;
+            for (int state = 0; state < stateCount; state++) {
+                edgeOffsets[state] = e;
+                List<long[]> stateEdges = edges.get(state);
+                // Stable sort keeps the declaration order of edges sharing a symbol
+                stateEdges.sort((x, y) -> Long.compare(x[0], y[0]));
+                for (long[] edge : stateEdges) {
+                    edgeSymbols[e] = (int) edge[0];
+                    edgeTargets[e] = (int) edge[1];
+                    e++;
+                }
+
+                epsilonOffsets[state] = eps;
+                for (int target : epsilons.get(state)) {
+                    epsilonTargets[eps++] = target;
+                }
+            }
+            edgeOffsets[stateCount] = e;
+            epsilonOffsets[stateCount] = eps;
+
+            return new NfaGraph(alphabet, initialState, accepting, edgeOffsets, edgeSymbols, edgeTargets,
+                    epsilonOffsets, epsilonTargets, Arrays.copyOf(stateNames, stateCount));
+        }
+    }
+}
@@ -0,0 +1,810 @@
+package src;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The OffHeapAutomaton class stores a read-only automaton outside of the Java
+ * heap, in direct buffers. Transitions are kept in compressed sparse row form:
+ * the transitions of state s are the entries offsets[s] to offsets[s + 1] of
+ * the target and symbol arrays, in the order they were added. Final states are
+ * a bitset and state names are UTF-8 bytes. The heap only holds the distinct
+ * conditions and stack operations, which are few, so heap usage does not grow
+ * with the number of states and transitions.
+ *
+ * The State and Transition objects seen through getStates(), getTransitions()
+ * and toAutomaton() are flyweights created on access: two flyweights of the
+ * same state are equal, and they cannot be modified.
+ */
+public class OffHeapAutomaton implements WordMatcher {
+    private static final int NONE = -1;
+
+    private final int stateCount;
+    private final int transitionCount;
+    private final int initialState;
+    private final LongBuffer finals;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final CharBuffer symbols;
+    private final IntBuffer conditionIds;
+    private final IntBuffer stackOperationIds;
+    private final IntBuffer nameOffsets;
+    private final ByteBuffer names;
+    private final String[] texts;
+    private final Guard[] textGuards;
+    private final GuardVariables guardVariables;
+    private final String initialStackOperation;
+    private final Alphabet alphabet;
+    private final Set<Character> alphabetSymbols;
+    private final long offHeapBytes;
+
+    private OffHeapAutomaton(Builder builder, IntBuffer offsets, IntBuffer targets, CharBuffer symbols,
+                             IntBuffer conditionIds, IntBuffer stackOperationIds) {
+        this.stateCount = builder.stateCount;
+        this.transitionCount = builder.transitionCount;
+        this.initialState = builder.initialState;
+        this.finals = builder.finals.duplicate().order(ByteOrder.nativeOrder()).asLongBuffer();
+        this.offsets = offsets;
+        this.targets = targets;
+        this.symbols = symbols;
+        this.conditionIds = conditionIds;
+        this.stackOperationIds = stackOperationIds;
+        this.nameOffsets = builder.nameOffsets.duplicate().order(ByteOrder.nativeOrder()).asIntBuffer();
+        this.names = builder.names;
+        this.texts = builder.texts.toArray(new String[0]);
+        this.textGuards = builder.textGuards.toArray(new Guard[0]);
+        this.guardVariables = builder.guardVariables;
+        this.initialStackOperation = builder.initialStackOperation;
+        this.alphabetSymbols = Set.copyOf(builder.alphabet);
+        this.alphabet = new Alphabet(alphabetSymbols);
+        this.offHeapBytes = builder.finals.capacity() + builder.nameOffsets.capacity() + names.capacity()
+                + 4L * (stateCount + 1) + 6L * transitionCount
+                + (conditionIds == null ? 0 : 4L * transitionCount)
+                + (stackOperationIds == null ? 0 : 4L * transitionCount);
+    }
+
+    /**
+     * Copies an automaton off-heap
+     * @param automaton The automaton to copy
+     * @return The off-heap automaton, holding every state, those reachable from the initial state first
+     * @throws IllegalArgumentException If a symbol has several characters, such as "P10"
+     */
+    public static OffHeapAutomaton of(Automaton automaton) {
+        return of(AutomatonSnapshot.of(automaton), automaton.getInitialStackOperation());
+    }
+
+    /**
+     * Copies a snapshot off-heap
+     * @param snapshot The snapshot to copy
+     * @param initialStackOperation Operation of the "- -> state" line, or null
+     * @return The off-heap automaton
+     * @throws IllegalArgumentException If a symbol has several characters, such as "P10"
+     */
+    public static OffHeapAutomaton of(AutomatonSnapshot snapshot, String initialStackOperation) {
+        // Transitions are stored as single chars
+        snapshot.requireSingleChars("Off-heap automata");
+        Builder builder = new Builder();
+        for (int state = 0; state < snapshot.getStateCount(); state++) {
+            builder.addState(snapshot.getStateName(state), snapshot.isFinal(state));
+        }
+        if (snapshot.getInitialState() != AutomatonSnapshot.NO_STATE) {
+            builder.setInitialState(snapshot.getInitialState());
+        }
+        builder.setInitialStackOperation(initialStackOperation);
+        for (int t = 0; t < snapshot.getTransitionCount(); t++) {
+            builder.addTransition(snapshot.getOrigin(t), snapshot.getTarget(t), snapshot.getSymbol(t),
+                    snapshot.getCondition(t), snapshot.getStackOperation(t));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Checks if a word belongs to the language of this automaton, with the
+     * first-match rule of Automaton.belongs
+     * @param word The word to check
+     * @return true if the word is accepted, false otherwise
+     */
+    @Override
+    public boolean belongs(CharSequence word) {
+        int state = initialState;
+        if (state == NONE) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            char symbol = word.charAt(i);
+            if (alphabet.indexOf(symbol) == Alphabet.NO_SYMBOL) {
+                return false;
+            }
+            state = nextState(state, symbol);
+            if (state == NONE) {
+                return false;
+            }
+        }
+        return isFinal(state);
+    }
+
+    /**
+     * Gets the target of the first transition of a state matching a symbol or labelled epsilon
+     * @param state Index of the origin state
+     * @param symbol The symbol to consume
+     * @return Index of the next state, or -1 if there is none
+     */
+    public int nextState(int state, char symbol) {
+        int end = offsets.get(state + 1);
+        for (int t = offsets.get(state); t < end; t++) {
+            char label = symbols.get(t);
+            if (label == symbol || label == Transition.EPSILON) {
+                return targets.get(t);
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Builds a read-only Automaton whose states and transitions are flyweights over this storage
+     * @return The automaton view
+     */
+    public Automaton toAutomaton() {
+        Automaton automaton = new Automaton(new StateList(), new FinalStateList(), new TransitionList(),
+                alphabetSymbols, guardVariables);
+        if (initialState != NONE) {
+            automaton.setInitialState(state(initialState));
+        }
+        automaton.setInitialStackOperation(initialStackOperation);
+        return automaton;
+    }
+
+    /**
+     * Gets all the states, as flyweights created on access
+     * @return Read-only list of states, indexed like this storage
+     */
+    public List<State> getStates() {
+        return new StateList();
+    }
+
+    /**
+     * Gets all the transitions grouped by origin state, as flyweights created on access
+     * @return Read-only list of transitions
+     */
+    public List<Transition> getTransitions() {
+        return new TransitionList();
+    }
+
+    /**
+     * Gets the flyweight of a state
+     * @param state Index of the state
+     * @return A State reading from this storage
+     */
+    public State state(int state) {
+        return new StateView(this, state);
+    }
+
+    /**
+     * Gets the number of states
+     * @return The number of states
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Gets the number of transitions
+     * @return The number of transitions
+     */
+    public int getTransitionCount() {
+        return transitionCount;
+    }
+
+    /**
+     * Gets the index of the initial state
+     * @return The initial state, or -1 if there is none
+     */
+    public int getInitialState() {
+        return initialState;
+    }
+
+    /**
+     * Checks if a state is final
+     * @param state Index of the state
+     * @return true if the state is final, false otherwise
+     */
+    public boolean isFinal(int state) {
+        return (finals.get(state >>> 6) & (1L << state)) != 0;
+    }
+
+    /**
+     * Gets the name of a state, decoded from its UTF-8 bytes
+     * @param state Index of the state
+     * @return The state name
+     */
+    public String getStateName(int state) {
+        int start = nameOffsets.get(state);
+        byte[] bytes = new byte[nameOffsets.get(state + 1) - start];
+        names.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the index of the first transition of a state
+     * @param state Index of the state
+     * @return Index of its first transition
+     */
+    public int transitionStart(int state) {
+        return offsets.get(state);
+    }
+
+    /**
+     * Gets the index following the last transition of a state
+     * @param state Index of the state
+     * @return transitionStart(state) plus the number of transitions of the state
+     */
+    public int transitionEnd(int state) {
+        return offsets.get(state + 1);
+    }
+
+    /**
+     * Gets the origin state of a transition, by binary search over the row offsets
+     * @param transition Index of the transition
+     * @return Index of the origin state
+     */
+    public int getOrigin(int transition) {
+        int low = 0;
+        int high = stateCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (offsets.get(middle) <= transition) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gets the destination state of a transition
+     * @param transition Index of the transition
+     * @return Index of the destination state
+     */
+    public int getTarget(int transition) {
+        return targets.get(transition);
+    }
+
+    /**
+     * Gets the symbol of a transition
+     * @param transition Index of the transition
+     * @return The symbol
+     */
+    public char getSymbol(int transition) {
+        return symbols.get(transition);
+    }
+
+    /**
+     * Gets the condition of a transition
+     * @param transition Index of the transition
+     * @return The condition string, or null
+     */
+    public String getCondition(int transition) {
+        return conditionIds == null || conditionIds.get(transition) == NONE ? null : texts[conditionIds.get(transition)];
+    }
+
+    /**
+     * Gets the compiled condition of a transition
+     * @param transition Index of the transition
+     * @return The guard, or null
+     */
+    public Guard getGuard(int transition) {
+        return conditionIds == null || conditionIds.get(transition) == NONE ? null
+                : textGuards[conditionIds.get(transition)];
+    }
+
+    /**
+     * Gets the stack operations of a transition
+     * @param transition Index of the transition
+     * @return The stack operations string, or null
+     */
+    public String getStackOperation(int transition) {
+        return stackOperationIds == null || stackOperationIds.get(transition) == NONE ? null
+                : texts[stackOperationIds.get(transition)];
+    }
+
+    /**
+     * Gets the number of bytes held outside of the heap
+     * @return The size of the direct buffers in use
+     */
+    public long getOffHeapBytes() {
+        return offHeapBytes;
+    }
+
+    /**
+     * Generate a string representation of this automaton
+     * @return A string with its dimensions
+     */
+    @Override
+    public String toString() {
+        return "OffHeapAutomaton{" +
+                "states=" + stateCount +
+                ", transitions=" + transitionCount +
+                ", offHeapBytes=" + offHeapBytes +
+                '}';
+    }
+
+    private class StateList extends AbstractList<State> {
+        @Override
+        public State get(int index) {
+            if (index < 0 || index >= stateCount) {
+                throw new IndexOutOfBoundsException("No state with index " + index);
+            }
+            return state(index);
+        }
+
+        @Override
+        public int size() {
+            return stateCount;
+        }
+    }
+
+    private class FinalStateList extends AbstractList<State> {
+        private int[] indices;
+
+        @Override
+        public State get(int index) {
+            return state(indices()[index]);
+        }
+
+        @Override
+        public int size() {
+            return indices().length;
+        }
+
+        private int[] indices() {
+            if (indices == null) {
+                int count = 0;
+                for (int word = 0; word < finals.limit(); word++) {
+                    count += Long.bitCount(finals.get(word));
+                }
+                indices = new int[count];
+                int i = 0;
+                for (int state = 0; state < stateCount; state++) {
+                    if (isFinal(state)) {
+                        indices[i++] = state;
+                    }
+                }
+            }
+            return indices;
+        }
+    }
+
+    private class TransitionList extends AbstractList<Transition> {
+        @Override
+        public Transition get(int index) {
+            if (index < 0 || index >= transitionCount) {
+                throw new IndexOutOfBoundsException("No transition with index " + index);
+            }
+            return new TransitionView(OffHeapAutomaton.this, getOrigin(index), index);
+        }
+
+        @Override
+        public int size() {
+            return transitionCount;
+        }
+    }
+
+    /**
+     * Flyweight State reading from the storage
+     */
+    private static class StateView extends State {
+        private final OffHeapAutomaton storage;
+        private final int index;
+
+        StateView(OffHeapAutomaton storage, int index) {
+            super(null, storage.isFinal(index));
+            this.storage = storage;
+            this.index = index;
+        }
+
+        @Override
+        public Transition addTransition(State finalState, char symbol) {
+            throw new UnsupportedOperationException("Off-heap automata are read-only");
+        }
+
+        @Override
+        public State getNextState(char symbol) {
+            int next = storage.nextState(index, symbol);
+            return next == NONE ? null : storage.state(next);
+        }
+
+        @Override
+        public Transition getTransition(char symbol) {
+            for (int t = storage.transitionStart(index); t < storage.transitionEnd(index); t++) {
+                if (storage.getSymbol(t) == symbol || storage.getSymbol(t) == Transition.EPSILON) {
+                    return new TransitionView(storage, index, t);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public List<State> getNextStates(char symbol) {
+            List<State> states = new ArrayList<>();
+            for (int t = storage.transitionStart(index); t < storage.transitionEnd(index); t++) {
+                if (storage.getSymbol(t) == symbol) {
+                    states.add(storage.state(storage.getTarget(t)));
+                }
+            }
+            return states;
+        }
+
+        @Override
+        public List<Transition> getTransitions() {
+            int start = storage.transitionStart(index);
+            int size = storage.transitionEnd(index) - start;
+            return new AbstractList<Transition>() {
+                @Override
+                public Transition get(int i) {
+                    if (i < 0 || i >= size) {
+                        throw new IndexOutOfBoundsException("No transition with index " + i);
+                    }
+                    return new TransitionView(storage, index, start + i);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        @Override
+        public boolean hasDeterministicTransitions() {
+            Set<Character> seen = new HashSet<>();
+            for (int t = storage.transitionStart(index); t < storage.transitionEnd(index); t++) {
+                if (!seen.add(storage.getSymbol(t))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isFinal() {
+            return storage.isFinal(index);
+        }
+
+        @Override
+        public void setFinal(boolean aFinal) {
+            throw new UnsupportedOperationException("Off-heap automata are read-only");
+        }
+
+        @Override
+        public String getName() {
+            if (name == null) {
+                name = storage.getStateName(index);
+            }
+            return name;
+        }
+
+        @Override
+        public void setName(String name) {
+            throw new UnsupportedOperationException("Off-heap automata are read-only");
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof StateView && ((StateView) other).storage == storage
+                    && ((StateView) other).index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+
+        @Override
+        public String toString() {
+            return getName() + (isFinal() ? " (Final)" : "");
+        }
+    }
+
+    /**
+     * Flyweight Transition reading from the storage
+     */
+    private static class TransitionView extends Transition {
+        private final OffHeapAutomaton storage;
+        private final int origin;
+        private final int index;
+
+        TransitionView(OffHeapAutomaton storage, int origin, int index) {
+            super(null, null, storage.getSymbol(index));
+            this.storage = storage;
+            this.origin = origin;
+            this.index = index;
+        }
+
+        @Override
+        public State getOriginState() {
+            return storage.state(origin);
+        }
+
+        @Override
+        public State getFinalState() {
+            return storage.state(storage.getTarget(index));
+        }
+
+        @Override
+        public String getCondition() {
+            return storage.getCondition(index);
+        }
+
+        @Override
+        public Guard getGuard() {
+            return storage.getGuard(index);
+        }
+
+        @Override
+        public String getStackOperation() {
+            return storage.getStackOperation(index);
+        }
+
+        @Override
+        public void setOriginState(State originState) {
+            throw new UnsupportedOperationException("Off-heap automata are read-only");
+        }
+
+        @Override
+        public void setFinalState(State finalState) {
+            throw new UnsupportedOperationException("Off-heap automata are read-only");
+        }
+
+        @Override
+        public void setSymbol(char symbol) {
+            throw new UnsupportedOperationException("Off-heap automata are read-only");
+        }
+
+        @Override
+        public void setToken(String token) {
+            throw new UnsupportedOperationException("Off-heap automata are read-only");
+        }
+
+        @Override
+        public void setCondition(String condition) {
+            throw new UnsupportedOperationException("Off-heap automata are read-only");
+        }
+
+        @Override
+        public void setGuard(Guard guard) {
+            throw new UnsupportedOperationException("Off-heap automata are read-only");
+        }
+
+        @Override
+        public void setStackOperation(String stackOperations) {
+            throw new UnsupportedOperationException("Off-heap automata are read-only");
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof TransitionView && ((TransitionView) other).storage == storage
+                    && ((TransitionView) other).index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+
+        @Override
+        public String toString() {
+            return "src.Transition{" +
+                    "originState=" + storage.getStateName(origin) +
+                    ", finalState=" + storage.getStateName(storage.getTarget(index)) +
+                    ", symbol=" + symbol +
+                    ", condition=" + getCondition() +
+                    ", stackOperations=" + getStackOperation() +
+                    '}';
+        }
+    }
+
+    /**
+     * Builder filling growable direct buffers, so that even the construction
+     * of a large automaton keeps per-state and per-transition data off-heap.
+     * Transitions can be added in any order; build() groups them by origin,
+     * keeping the order of the transitions of each state.
+     */
+    public static class Builder {
+        private int stateCount;
+        private int transitionCount;
+        private int initialState = NONE;
+        private String initialStackOperation;
+        private ByteBuffer finals = allocate(64);
+        private ByteBuffer nameOffsets = allocate(256);
+        private ByteBuffer names = allocate(1024);
+        private ByteBuffer origins = allocate(4096);
+        private ByteBuffer edgeTargets = allocate(4096);
+        private ByteBuffer edgeSymbols = allocate(2048);
+        private ByteBuffer edgeConditions = allocate(4096);
+        private ByteBuffer edgeStackOperations = allocate(4096);
+        private boolean hasConditions;
+        private boolean hasStackOperations;
+        private final List<String> texts = new ArrayList<>();
+        private final List<Guard> textGuards = new ArrayList<>();
+        private final Map<String, Integer> textIds = new HashMap<>();
+        private final GuardVariables guardVariables = new GuardVariables();
+        private final Set<Character> alphabet = new HashSet<>();
+
+        /**
+         * Constructor for an empty builder
+         */
+        public Builder() {
+            nameOffsets.putInt(0, 0);
+        }
+
+        /**
+         * Adds a state
+         * @param name Name of the state
+         * @param isFinal Whether the state is final
+         * @return Index of the new state
+         */
+        public int addState(String name, boolean isFinal) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            int start = nameOffsets.getInt(stateCount * 4);
+            names = ensure(names, start + bytes.length);
+            names.put(start, bytes);
+            nameOffsets = ensure(nameOffsets, (stateCount + 2) * 4);
+            nameOffsets.putInt((stateCount + 1) * 4, start + bytes.length);
+            finals = ensure(finals, (stateCount / 64 + 1) * 8);
+            int state = stateCount++;
+            setFinal(state, isFinal);
+            return state;
+        }
+
+        /**
+         * Sets whether a state is final
+         * @param state Index of the state
+         * @param isFinal Whether the state is final
+         */
+        public void setFinal(int state, boolean isFinal) {
+            int word = (state >>> 6) * 8;
+            long bits = finals.getLong(word);
+            finals.putLong(word, isFinal ? bits | (1L << state) : bits & ~(1L << state));
+        }
+
+        /**
+         * Sets the initial state; by default, the origin of the first transition added
+         * @param state Index of the initial state
+         */
+        public void setInitialState(int state) {
+            initialState = state;
+        }
+
+        /**
+         * Sets the stack operation applied when entering the initial state
+         * @param operation The stack operations string, or null
+         */
+        public void setInitialStackOperation(String operation) {
+            initialStackOperation = operation;
+        }
+
+        /**
+         * Adds a transition without condition nor stack operation
+         * @param origin Index of the origin state
+         * @param target Index of the destination state
+         * @param symbol The symbol that triggers the transition
+         */
+        public void addTransition(int origin, int target, char symbol) {
+            addTransition(origin, target, symbol, null, null);
+        }
+
+        /**
+         * Adds a transition
+         * @param origin Index of the origin state
+         * @param target Index of the destination state
+         * @param symbol The symbol that triggers the transition
+         * @param condition The condition, or null
+         * @param stackOperation The stack operations, or null
+         * @throws IllegalArgumentException If the condition is malformed
+         */
+        public void addTransition(int origin, int target, char symbol, String condition, String stackOperation) {
+            if (origin < 0 || origin >= stateCount || target < 0 || target >= stateCount) {
+                throw new IndexOutOfBoundsException("No state with index " + (origin < 0 || origin >= stateCount
+                        ? origin : target));
+            }
+            if (initialState == NONE) {
+                initialState = origin;
+            }
+            int position = transitionCount * 4;
+            origins = ensure(origins, position + 4);
+            edgeTargets = ensure(edgeTargets, position + 4);
+            edgeSymbols = ensure(edgeSymbols, transitionCount * 2 + 2);
+            edgeConditions = ensure(edgeConditions, position + 4);
+            edgeStackOperations = ensure(edgeStackOperations, position + 4);
+            origins.putInt(position, origin);
+            edgeTargets.putInt(position, target);
+            edgeSymbols.putChar(transitionCount * 2, symbol);
+            edgeConditions.putInt(position, condition == null ? NONE : text(condition, true));
+            edgeStackOperations.putInt(position, stackOperation == null ? NONE : text(stackOperation, false));
+            hasConditions |= condition != null;
+            hasStackOperations |= stackOperation != null;
+            alphabet.add(symbol);
+            transitionCount++;
+        }
+
+        private int text(String value, boolean condition) {
+            Integer id = textIds.get(value);
+            if (id == null) {
+                id = texts.size();
+                texts.add(value);
+                textIds.put(value, id);
+                textGuards.add(null);
+            }
+            if (condition && textGuards.get(id) == null) {
+                textGuards.set(id, Guard.compile(value, guardVariables));
+            }
+            return id;
+        }
+
+        /**
+         * Builds the automaton, grouping the transitions by origin state
+         * @return The off-heap automaton
+         */
+        public OffHeapAutomaton build() {
+            IntBuffer offsets = allocate((stateCount + 1) * 4).asIntBuffer();
+            for (int t = 0; t < transitionCount; t++) {
+                int origin = origins.getInt(t * 4);
+                offsets.put(origin + 1, offsets.get(origin + 1) + 1);
+            }
+            for (int state = 0; state < stateCount; state++) {
+                offsets.put(state + 1, offsets.get(state + 1) + offsets.get(state));
+            }
+
+            // Counting sort by origin, stable, with a fill cursor per state
+            IntBuffer fill = allocate(Math.max(stateCount, 1) * 4).asIntBuffer();
+            for (int state = 0; state < stateCount; state++) {
+                fill.put(state, offsets.get(state));
+            }
+            IntBuffer targets = allocate(transitionCount * 4).asIntBuffer();
+            CharBuffer symbols = allocate(transitionCount * 2).asCharBuffer();
+            IntBuffer conditions = hasConditions ? allocate(transitionCount * 4).asIntBuffer() : null;
+            IntBuffer stackOperations = hasStackOperations ? allocate(transitionCount * 4).asIntBuffer() : null;
+            for (int t = 0; t < transitionCount; t++) {
+                int origin = origins.getInt(t * 4);
+                int slot = fill.get(origin);
+                fill.put(origin, slot + 1);
+                targets.put(slot, edgeTargets.getInt(t * 4));
+                symbols.put(slot, edgeSymbols.getChar(t * 2));
+                if (conditions != null) {
+                    conditions.put(slot, edgeConditions.getInt(t * 4));
+                }
+                if (stackOperations != null) {
+                    stackOperations.put(slot, edgeStackOperations.getInt(t * 4));
+                }
+            }
+            return new OffHeapAutomaton(this, offsets, targets, symbols, conditions, stackOperations);
+        }
+
+        private static ByteBuffer allocate(int capacity) {
+            return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+        }
+
+        private static ByteBuffer ensure(ByteBuffer buffer, int capacity) {
+            if (capacity <= buffer.capacity()) {
+                return buffer;
+            }
+            ByteBuffer grown = allocate((int) Math.min(Integer.MAX_VALUE - 8,
+                    Math.max((long) capacity, buffer.capacity() * 2L)));
+            grown.put(buffer.duplicate().clear());
+            grown.clear();
+            return grown;
+        }
+    }
+}
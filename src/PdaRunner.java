@@ -0,0 +1,472 @@
+package src;
+
+import java.util.Arrays;
+
+/**
+ * The PdaRunner class executes a PushdownAutomaton. It keeps reusable scratch
+ * buffers, so a runner belongs to one thread while the automaton itself can be
+ * shared.
+ *
+ * run follows a single configuration on a primitive int[] stack, taking the
+ * first applicable transition and alternative at each step and trying epsilon
+ * transitions only when no transition consumes the current symbol.
+ *
+ * explore follows every configuration breadth-first. Stacks are hash-consed
+ * into a tree of nodes, so a whole stack is identified by the id of its top
+ * node and a configuration is a (state, top node) pair; those pairs are
+ * memoized per input position so each configuration is expanded once.
+ *
+ * Both modes stop following epsilon transitions after a bounded number of
+ * steps per input position and never grow the stack beyond a maximum depth.
+ * A word rejected because the epsilon bound was reached is reported by
+ * isBoundExceeded, since a larger bound might accept it.
+ * Guards are ignored unless a GuardContext is set; transitions and
+ * alternatives whose guard fails in that context are then not applicable.
+ */
+public class PdaRunner {
+    /**
+     * Default number of epsilon moves allowed per input position
+     */
+    public static final int DEFAULT_MAX_EPSILON_STEPS = 1024;
+
+    /**
+     * Default maximum depth of the stack
+     */
+    public static final int DEFAULT_MAX_STACK_DEPTH = 4096;
+
+    private static final int NONE = -1;
+    private static final int FAILED = -2;
+
+    private final PushdownAutomaton pda;
+    private int maxEpsilonSteps = DEFAULT_MAX_EPSILON_STEPS;
+    private int maxStackDepth = DEFAULT_MAX_STACK_DEPTH;
+    private GuardContext guardContext;
+    private boolean boundExceeded;
+
+    // Deterministic mode
+    private int[] stack = new int[64];
+    private int depth;
+    private int state;
+
+    // Breadth-first mode: stack nodes and configurations
+    private int[] nodeSymbols = new int[64];
+    private int[] nodeParents = new int[64];
+    private int[] nodeDepths = new int[64];
+    private int nodeCount;
+    private final LongIntTable nodeIndex = new LongIntTable();
+    private final LongIntTable visited = new LongIntTable();
+    private int[] configStates = new int[16];
+    private int[] configNodes = new int[16];
+    private int configCount;
+    private int[] nextStates = new int[16];
+    private int[] nextNodes = new int[16];
+    private int nextCount;
+
+    /**
+     * Constructor for a runner of a pushdown automaton
+     * @param pda The automaton to run
+     */
+    public PdaRunner(PushdownAutomaton pda) {
+        this.pda = pda;
+    }
+
+    /**
+     * Sets the number of epsilon moves allowed per input position
+     * @param maxEpsilonSteps The bound, DEFAULT_MAX_EPSILON_STEPS by default
+     */
+    public void setMaxEpsilonSteps(int maxEpsilonSteps) {
+        this.maxEpsilonSteps = maxEpsilonSteps;
+    }
+
+    /**
+     * Sets the maximum depth of the stack; operations growing it further are not applicable
+     * @param maxStackDepth The bound, DEFAULT_MAX_STACK_DEPTH by default
+     */
+    public void setMaxStackDepth(int maxStackDepth) {
+        this.maxStackDepth = maxStackDepth;
+    }
+
+    /**
+     * Sets the values of the variables tested by the guards
+     * @param guardContext The context, or null to ignore the guards
+     */
+    public void setGuardContext(GuardContext guardContext) {
+        this.guardContext = guardContext;
+    }
+
+    /**
+     * Checks if the last run or explore stopped following epsilon transitions
+     * at the bound, in which case a false result may be wrong
+     * @return true if the epsilon bound was reached, false otherwise
+     */
+    public boolean isBoundExceeded() {
+        return boundExceeded;
+    }
+
+    private boolean passes(Guard guard) {
+        return guard == null || guardContext == null || guard.test(guardContext);
+    }
+
+    /**
+     * Runs the automaton on a word following a single configuration
+     * @param word The word to check
+     * @return true if the run ends in a final state, false otherwise
+     */
+    public boolean run(CharSequence word) {
+        boundExceeded = false;
+        if (pda.initialState < 0) {
+            return false;
+        }
+        state = pda.initialState;
+        depth = 0;
+        ensureStack(pda.initialStack.length);
+        for (int symbol : pda.initialStack) {
+            stack[depth++] = symbol;
+        }
+
+        for (int i = 0; i < word.length(); i++) {
+            int symbol = pda.alphabet.indexOf(word.charAt(i));
+            if (symbol == Alphabet.NO_SYMBOL) {
+                return false;
+            }
+            int steps = 0;
+            while (!step(symbol)) {
+                if (++steps > maxEpsilonSteps) {
+                    boundExceeded = true;
+                    return false;
+                }
+                if (!step(PushdownAutomaton.EPSILON)) {
+                    return false;
+                }
+            }
+        }
+
+        int steps = 0;
+        while (!pda.finals[state]) {
+            if (++steps > maxEpsilonSteps) {
+                boundExceeded = true;
+                return false;
+            }
+            if (!step(PushdownAutomaton.EPSILON)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Takes the first transition of the current state with a given symbol
+     * whose stack operation applies
+     */
+    private boolean step(int symbol) {
+        for (int t = pda.transitionOffsets[state]; t < pda.transitionOffsets[state + 1]; t++) {
+            if (pda.transitionSymbols[t] != symbol || !passes(pda.transitionGuards[t])) {
+                continue;
+            }
+            for (int a = pda.alternativeOffsets[t]; a < pda.alternativeOffsets[t + 1]; a++) {
+                if (passes(pda.alternativeGuards[a]) && apply(a)) {
+                    state = pda.transitionTargets[t];
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Applies an alternative to the int[] stack if its pattern matches the top
+     */
+    private boolean apply(int alternative) {
+        int patternStart = pda.patternOffsets[alternative];
+        int patternLength = pda.patternOffsets[alternative + 1] - patternStart;
+        int pushStart = pda.pushOffsets[alternative];
+        int pushLength = pda.pushOffsets[alternative + 1] - pushStart;
+        int base = depth - patternLength;
+        if (base < 0 || base + pushLength > maxStackDepth) {
+            return false;
+        }
+
+        int boundD = NONE;
+        int boundX = NONE;
+        for (int j = 0; j < patternLength; j++) {
+            int code = pda.patterns[patternStart + j];
+            int symbol = stack[base + j];
+            if (code == PushdownAutomaton.WILDCARD_D) {
+                boundD = symbol;
+            } else if (code == PushdownAutomaton.WILDCARD_X) {
+                boundX = symbol;
+            } else if (code != symbol) {
+                return false;
+            }
+        }
+
+        ensureStack(base + pushLength);
+        for (int j = 0; j < pushLength; j++) {
+            int code = pda.pushes[pushStart + j];
+            stack[base + j] = code == PushdownAutomaton.WILDCARD_D ? boundD
+                    : code == PushdownAutomaton.WILDCARD_X ? boundX : code;
+        }
+        depth = base + pushLength;
+        return true;
+    }
+
+    private void ensureStack(int size) {
+        if (size > stack.length) {
+            stack = Arrays.copyOf(stack, Math.max(size, stack.length * 2));
+        }
+    }
+
+    /**
+     * Runs the automaton on a word following every configuration breadth-first
+     * @param word The word to check
+     * @return true if some configuration ends in a final state, false otherwise
+     */
+    public boolean explore(CharSequence word) {
+        boundExceeded = false;
+        if (pda.initialState < 0) {
+            return false;
+        }
+        nodeCount = 0;
+        nodeIndex.clear();
+        int node = NONE;
+        for (int symbol : pda.initialStack) {
+            node = push(node, symbol);
+        }
+        visited.clear();
+        configCount = 0;
+        addConfig(pda.initialState, node);
+
+        for (int i = 0; i < word.length(); i++) {
+            int symbol = pda.alphabet.indexOf(word.charAt(i));
+            if (symbol == Alphabet.NO_SYMBOL) {
+                return false;
+            }
+            expandEpsilon();
+
+            visited.clear();
+            nextCount = 0;
+            expandSymbol(symbol);
+            int[] swap = configStates;
+            configStates = nextStates;
+            nextStates = swap;
+            swap = configNodes;
+            configNodes = nextNodes;
+            nextNodes = swap;
+            configCount = nextCount;
+            if (configCount == 0) {
+                return false;
+            }
+        }
+
+        expandEpsilon();
+        for (int c = 0; c < configCount; c++) {
+            if (pda.finals[configStates[c]]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the configurations reachable through epsilon transitions to the current list
+     */
+    private void expandEpsilon() {
+        int steps = 0;
+        for (int c = 0; c < configCount; c++) {
+            int from = configStates[c];
+            int node = configNodes[c];
+            for (int t = pda.transitionOffsets[from]; t < pda.transitionOffsets[from + 1]; t++) {
+                if (pda.transitionSymbols[t] != PushdownAutomaton.EPSILON || !passes(pda.transitionGuards[t])) {
+                    continue;
+                }
+                for (int a = pda.alternativeOffsets[t]; a < pda.alternativeOffsets[t + 1]; a++) {
+                    int result = passes(pda.alternativeGuards[a]) ? applyNode(node, a) : FAILED;
+                    if (result != FAILED) {
+                        if (++steps > maxEpsilonSteps) {
+                            boundExceeded = true;
+                            return;
+                        }
+                        addConfig(pda.transitionTargets[t], result);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Follows the transitions consuming a symbol from every current configuration
+     */
+    private void expandSymbol(int symbol) {
+        for (int c = 0; c < configCount; c++) {
+            int from = configStates[c];
+            int node = configNodes[c];
+            for (int t = pda.transitionOffsets[from]; t < pda.transitionOffsets[from + 1]; t++) {
+                if (pda.transitionSymbols[t] != symbol || !passes(pda.transitionGuards[t])) {
+                    continue;
+                }
+                for (int a = pda.alternativeOffsets[t]; a < pda.alternativeOffsets[t + 1]; a++) {
+                    int result = passes(pda.alternativeGuards[a]) ? applyNode(node, a) : FAILED;
+                    if (result != FAILED) {
+                        addNext(pda.transitionTargets[t], result);
+                    }
+                }
+            }
+        }
+    }
+
+    private void addConfig(int configState, int node) {
+        if (visited.putIfAbsent(key(configState, node), 0)) {
+            if (configCount == configStates.length) {
+                configStates = Arrays.copyOf(configStates, configCount * 2);
+                configNodes = Arrays.copyOf(configNodes, configCount * 2);
+            }
+            configStates[configCount] = configState;
+            configNodes[configCount++] = node;
+        }
+    }
+
+    private void addNext(int configState, int node) {
+        if (visited.putIfAbsent(key(configState, node), 0)) {
+            if (nextCount == nextStates.length) {
+                nextStates = Arrays.copyOf(nextStates, nextCount * 2);
+                nextNodes = Arrays.copyOf(nextNodes, nextCount * 2);
+            }
+            nextStates[nextCount] = configState;
+            nextNodes[nextCount++] = node;
+        }
+    }
+
+    private static long key(int configState, int node) {
+        return ((long) configState << 32) | (node & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Applies an alternative to a hash-consed stack
+     * @return The new top node (NONE for an empty stack), or FAILED if the pattern does not match
+     */
+    private int applyNode(int node, int alternative) {
+        int patternStart = pda.patternOffsets[alternative];
+        int patternLength = pda.patternOffsets[alternative + 1] - patternStart;
+        int pushStart = pda.pushOffsets[alternative];
+        int pushLength = pda.pushOffsets[alternative + 1] - pushStart;
+        int nodeDepth = node == NONE ? 0 : nodeDepths[node];
+        if (nodeDepth < patternLength || nodeDepth - patternLength + pushLength > maxStackDepth) {
+            return FAILED;
+        }
+
+        int boundD = NONE;
+        int boundX = NONE;
+        int base = node;
+        for (int j = patternLength - 1; j >= 0; j--) {
+            int code = pda.patterns[patternStart + j];
+            int symbol = nodeSymbols[base];
+            if (code == PushdownAutomaton.WILDCARD_D) {
+                boundD = symbol;
+            } else if (code == PushdownAutomaton.WILDCARD_X) {
+                boundX = symbol;
+            } else if (code != symbol) {
+                return FAILED;
+            }
+            base = nodeParents[base];
+        }
+
+        for (int j = 0; j < pushLength; j++) {
+            int code = pda.pushes[pushStart + j];
+            base = push(base, code == PushdownAutomaton.WILDCARD_D ? boundD
+                    : code == PushdownAutomaton.WILDCARD_X ? boundX : code);
+        }
+        return base;
+    }
+
+    /**
+     * Gets the node for a symbol pushed on a stack, creating it if needed
+     */
+    private int push(int parent, int symbol) {
+        long key = ((long) symbol << 32) | (parent & 0xFFFFFFFFL);
+        int existing = nodeIndex.get(key);
+        if (existing != NONE) {
+            return existing;
+        }
+        if (nodeCount == nodeSymbols.length) {
+            nodeSymbols = Arrays.copyOf(nodeSymbols, nodeCount * 2);
+            nodeParents = Arrays.copyOf(nodeParents, nodeCount * 2);
+            nodeDepths = Arrays.copyOf(nodeDepths, nodeCount * 2);
+        }
+        int node = nodeCount++;
+        nodeSymbols[node] = symbol;
+        nodeParents[node] = parent;
+        nodeDepths[node] = parent == NONE ? 1 : nodeDepths[parent] + 1;
+        nodeIndex.putIfAbsent(key, node);
+        return node;
+    }
+
+    /**
+     * Open addressing map from long keys to int values
+     */
+    private static class LongIntTable {
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private long[] keys = new long[64];
+        private int[] values = new int[64];
+        private int size;
+
+        LongIntTable() {
+            Arrays.fill(keys, EMPTY);
+        }
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                if (keys[slot] == EMPTY) {
+                    return NONE;
+                }
+            }
+        }
+
+        boolean putIfAbsent(long key, int value) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return true;
+        }
+
+        void clear() {
+            if (size > 0) {
+                Arrays.fill(keys, EMPTY);
+                size = 0;
+            }
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    putIfAbsent(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The PushdownAutomaton class is the compiled, immutable form of an automaton
+ * whose transitions carry stack operations such as "ZD/ZDO" or "ZX/ZNA".
+ * Every operation is parsed once into pop patterns and push lists of int stack
+ * symbols, so running the automaton never looks at a String again.
+ *
+ * An operation "α/β" replaces the top of the stack matching α by β; both sides
+ * are written from bottom to top. A leading Z on both sides stands for the rest
+ * of the stack and is left untouched. D and X match any single symbol, and the
+ * same letter in β pushes back the matched symbol. A letter followed by digits
+ * (P10) is a single symbol. Several alternatives can be separated by commas,
+ * each optionally followed by a [condition]. Transitions without operation keep
+ * the stack as it is, and the stack starts with ⊥ followed by the effect of the
+ * initial operation of the automaton.
+ *
+ * Conditions of transitions and alternatives are compiled into guards sharing
+ * the frozen variables of the snapshot, which already has a slot for every
+ * variable of the alternative conditions. belongs ignores them; a PdaRunner
+ * given a GuardContext skips the transitions and alternatives whose guard fails.
+ */
+public class PushdownAutomaton implements WordMatcher {
+    /**
+     * Symbol index of epsilon transitions
+     */
+    public static final int EPSILON = -1;
+
+    /**
+     * Stack symbol id of the bottom marker ⊥
+     */
+    public static final int BOTTOM = 0;
+
+    static final int WILDCARD_D = -1;
+    static final int WILDCARD_X = -2;
+
+    private static final String BOTTOM_NAME = "⊥";
+
+    final Alphabet alphabet;
+    final int stateCount;
+    final int initialState;
+    final boolean[] finals;
+    final int[] transitionOffsets;
+    final int[] transitionSymbols;
+    final int[] transitionTargets;
+    final int[] alternativeOffsets;
+    final int[] patternOffsets;
+    final int[] patterns;
+    final int[] pushOffsets;
+    final int[] pushes;
+    final String[] alternativeConditions;
+    final String[] transitionConditions;
+    final Guard[] alternativeGuards;
+    final Guard[] transitionGuards;
+    final GuardVariables guardVariables;
+    final String[] stackSymbols;
+    final int[] initialStack;
+
+    private PushdownAutomaton(Builder builder, AutomatonSnapshot snapshot) {
+        this.alphabet = builder.alphabet;
+        this.stateCount = snapshot.getStateCount();
+        this.initialState = snapshot.getInitialState();
+        this.finals = new boolean[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            finals[state] = snapshot.isFinal(state);
+        }
+        this.transitionOffsets = builder.transitionOffsets;
+        this.transitionSymbols = toArray(builder.transitionSymbols);
+        this.transitionTargets = toArray(builder.transitionTargets);
+        this.alternativeOffsets = toArray(builder.alternativeOffsets);
+        this.patternOffsets = toArray(builder.patternOffsets);
+        this.patterns = toArray(builder.patterns);
+        this.pushOffsets = toArray(builder.pushOffsets);
+        this.pushes = toArray(builder.pushes);
+        this.alternativeConditions = builder.alternativeConditions.toArray(new String[0]);
+        this.transitionConditions = builder.transitionConditions.toArray(new String[0]);
+        this.alternativeGuards = builder.alternativeGuards.toArray(new Guard[0]);
+        this.transitionGuards = builder.transitionGuards.toArray(new Guard[0]);
+        this.guardVariables = snapshot.getGuardVariables();
+        this.stackSymbols = builder.stackSymbols.toArray(new String[0]);
+        this.initialStack = builder.initialStack;
+    }
+
+    /**
+     * Compiles an automaton and its stack operations
+     * @param automaton The automaton to compile
+     * @return The pushdown automaton
+     * @throws IllegalArgumentException If a stack operation or a condition is malformed, or if a
+     * symbol has several characters, such as "P10"
+     */
+    public static PushdownAutomaton compile(Automaton automaton) {
+        return compile(AutomatonSnapshot.of(automaton), automaton.getInitialStackOperation());
+    }
+
+    /**
+     * Compiles a snapshot and its stack operations
+     * @param snapshot The snapshot to compile
+     * @param initialStackOperation Operation of the "- -> state" line, applied to ⊥, or null
+     * @return The pushdown automaton
+     * @throws IllegalArgumentException If a stack operation or a condition is malformed, or if a
+     * symbol has several characters, such as "P10"
+     */
+    public static PushdownAutomaton compile(AutomatonSnapshot snapshot, String initialStackOperation) {
+        // The input is read one char at a time
+        snapshot.requireSingleChars("Pushdown automata");
+        return new PushdownAutomaton(new Builder(snapshot, initialStackOperation), snapshot);
+    }
+
+    /**
+     * Assigns a slot to the variables of the conditions of stack operation
+     * alternatives, as for the condition of a transition. Malformed operations
+     * and conditions are left for compile to report.
+     * @param operations The stack operations of a transition, or null
+     * @param variables The variables receiving the slots
+     */
+    static void internConditions(String operations, GuardVariables variables) {
+        if (operations == null || operations.indexOf('[') < 0) {
+            return;
+        }
+        for (String alternative : Builder.splitAlternatives(operations)) {
+            int bracket = alternative.indexOf('[');
+            if (bracket >= 0) {
+                try {
+                    Guard.compile(alternative.substring(bracket).trim(), variables);
+                } catch (IllegalArgumentException e) {
+                    // Reported with its transition when the automaton is compiled
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if a word is accepted, following the first applicable transition at each step
+     * @param word The word to check
+     * @return true if the word is accepted, false otherwise
+     */
+    @Override
+    public boolean belongs(CharSequence word) {
+        return new PdaRunner(this).run(word);
+    }
+
+    /**
+     * Gets the number of states
+     * @return The number of states
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Gets the number of distinct stack symbols
+     * @return The number of stack symbols, ⊥ included
+     */
+    public int getStackSymbolCount() {
+        return stackSymbols.length;
+    }
+
+    /**
+     * Gets the name of a stack symbol
+     * @param symbol Id of the stack symbol
+     * @return The symbol as written in the automaton file
+     */
+    public String getStackSymbol(int symbol) {
+        return stackSymbols[symbol];
+    }
+
+    /**
+     * Gets the variables used by the guards of the transitions and alternatives
+     * @return The slot table of the guards
+     */
+    public GuardVariables getGuardVariables() {
+        return guardVariables;
+    }
+
+    /**
+     * Gets the input alphabet, epsilon excluded
+     * @return The alphabet
+     */
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * Generate a string representation of this pushdown automaton
+     * @return A string with its dimensions
+     */
+    @Override
+    public String toString() {
+        return "PushdownAutomaton{" +
+                "states=" + stateCount +
+                ", transitions=" + transitionTargets.length +
+                ", alternatives=" + patternOffsets.length +
+                ", stackSymbols=" + stackSymbols.length +
+                '}';
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Parses the stack operations of a snapshot into flat instruction arrays
+     */
+    private static class Builder {
+        final Alphabet alphabet;
+        final int[] transitionOffsets;
+        final List<Integer> transitionSymbols = new ArrayList<>();
+        final List<Integer> transitionTargets = new ArrayList<>();
+        final List<Integer> alternativeOffsets = new ArrayList<>();
+        final List<Integer> patternOffsets = new ArrayList<>();
+        final List<Integer> patterns = new ArrayList<>();
+        final List<Integer> pushOffsets = new ArrayList<>();
+        final List<Integer> pushes = new ArrayList<>();
+        final List<String> alternativeConditions = new ArrayList<>();
+        final List<String> transitionConditions = new ArrayList<>();
+        final List<Guard> alternativeGuards = new ArrayList<>();
+        final List<Guard> transitionGuards = new ArrayList<>();
+        final GuardVariables guardVariables;
+        final List<String> stackSymbols = new ArrayList<>();
+        final Map<String, Integer> stackSymbolIds = new HashMap<>();
+        final int[] initialStack;
+
+        Builder(AutomatonSnapshot snapshot, String initialOperation) {
+            stackSymbol(BOTTOM_NAME);
+            guardVariables = snapshot.getGuardVariables();
+
+            Set<Character> symbols = new HashSet<>();
+            for (int t = 0; t < snapshot.getTransitionCount(); t++) {
+                if (snapshot.getSymbol(t) != Transition.EPSILON) {
+                    symbols.add(snapshot.getSymbol(t));
+                }
+            }
+            alphabet = new Alphabet(symbols);
+
+            // Group transitions by origin, keeping their declaration order
+            int stateCount = snapshot.getStateCount();
+            transitionOffsets = new int[stateCount + 1];
+            for (int t = 0; t < snapshot.getTransitionCount(); t++) {
+                transitionOffsets[snapshot.getOrigin(t) + 1]++;
+            }
+            for (int state = 0; state < stateCount; state++) {
+                transitionOffsets[state + 1] += transitionOffsets[state];
+            }
+            int[] order = new int[snapshot.getTransitionCount()];
+            int[] fill = transitionOffsets.clone();
+            for (int t = 0; t < order.length; t++) {
+                order[fill[snapshot.getOrigin(t)]++] = t;
+            }
+
+            for (int t : order) {
+                char symbol = snapshot.getSymbol(t);
+                transitionSymbols.add(symbol == Transition.EPSILON ? EPSILON : alphabet.indexOf(symbol));
+                transitionTargets.add(snapshot.getTarget(t));
+                transitionConditions.add(snapshot.getCondition(t));
+                transitionGuards.add(snapshot.getGuard(t));
+                alternativeOffsets.add(patternOffsets.size());
+                String operations = snapshot.getStackOperation(t);
+                if (operations == null || operations.isEmpty()) {
+                    addAlternative("Z/Z", null);
+                } else {
+                    for (String alternative : splitAlternatives(operations)) {
+                        int bracket = alternative.indexOf('[');
+                        if (bracket >= 0) {
+                            addAlternative(alternative.substring(0, bracket).trim(),
+                                    alternative.substring(bracket).trim());
+                        } else {
+                            addAlternative(alternative.trim(), null);
+                        }
+                    }
+                }
+            }
+            alternativeOffsets.add(patternOffsets.size());
+            patternOffsets.add(patterns.size());
+            pushOffsets.add(pushes.size());
+
+            initialStack = initialStack(initialOperation);
+        }
+
+        private int[] initialStack(String operation) {
+            if (operation == null || operation.isEmpty()) {
+                return new int[]{BOTTOM};
+            }
+            String alternative = splitAlternatives(operation).get(0);
+            int bracket = alternative.indexOf('[');
+            if (bracket >= 0) {
+                alternative = alternative.substring(0, bracket);
+            }
+            int slash = alternative.indexOf('/');
+            if (slash < 0) {
+                throw new IllegalArgumentException("Malformed stack operation: " + operation);
+            }
+            List<String> pattern = tokenize(alternative.substring(0, slash).trim());
+            List<String> push = tokenize(alternative.substring(slash + 1).trim());
+            if (!pattern.equals(List.of(BOTTOM_NAME))) {
+                throw new IllegalArgumentException("Initial stack operation must pop ⊥: " + operation);
+            }
+            int[] stack = new int[push.size()];
+            for (int i = 0; i < stack.length; i++) {
+                stack[i] = stackSymbol(push.get(i));
+            }
+            return stack;
+        }
+
+        private void addAlternative(String operation, String condition) {
+            int slash = operation.indexOf('/');
+            if (slash < 0) {
+                throw new IllegalArgumentException("Malformed stack operation: " + operation);
+            }
+            List<String> pattern = tokenize(operation.substring(0, slash).trim());
+            List<String> push = tokenize(operation.substring(slash + 1).trim());
+            if (!pattern.isEmpty() && pattern.get(0).equals("Z")) {
+                pattern.remove(0);
+                if (!push.isEmpty() && push.get(0).equals("Z")) {
+                    push.remove(0);
+                }
+            }
+
+            patternOffsets.add(patterns.size());
+            boolean boundD = false;
+            boolean boundX = false;
+            for (String symbol : pattern) {
+                if (symbol.equals("D")) {
+                    patterns.add(WILDCARD_D);
+                    boundD = true;
+                } else if (symbol.equals("X")) {
+                    patterns.add(WILDCARD_X);
+                    boundX = true;
+                } else {
+                    patterns.add(stackSymbol(symbol));
+                }
+            }
+
+            pushOffsets.add(pushes.size());
+            for (String symbol : push) {
+                if (boundD && symbol.equals("D")) {
+                    pushes.add(WILDCARD_D);
+                } else if (boundX && symbol.equals("X")) {
+                    pushes.add(WILDCARD_X);
+                } else {
+                    pushes.add(stackSymbol(symbol));
+                }
+            }
+            alternativeConditions.add(condition);
+            alternativeGuards.add(Guard.compile(condition, guardVariables));
+        }
+
+        private int stackSymbol(String name) {
+            Integer id = stackSymbolIds.get(name);
+            if (id == null) {
+                id = stackSymbols.size();
+                stackSymbols.add(name);
+                stackSymbolIds.put(name, id);
+            }
+            return id;
+        }
+
+        private static List<String> splitAlternatives(String operations) {
+            List<String> alternatives = new ArrayList<>();
+            int depth = 0;
+            int start = 0;
+            for (int i = 0; i < operations.length(); i++) {
+                char c = operations.charAt(i);
+                if (c == '[') {
+                    depth++;
+                } else if (c == ']') {
+                    depth--;
+                } else if (c == ',' && depth == 0) {
+                    alternatives.add(operations.substring(start, i).trim());
+                    start = i + 1;
+                }
+            }
+            alternatives.add(operations.substring(start).trim());
+            return alternatives;
+        }
+
+        /**
+         * Splits one side of an operation into stack symbols: a letter followed
+         * by digits is one symbol, any other character is a symbol by itself
+         */
+        private static List<String> tokenize(String side) {
+            List<String> symbols = new ArrayList<>();
+            int i = 0;
+            while (i < side.length()) {
+                int start = i;
+                char c = side.charAt(i++);
+                if (Character.isWhitespace(c)) {
+                    continue;
+                }
+                if (Character.isLetter(c)) {
+                    while (i < side.length() && Character.isDigit(side.charAt(i))) {
+                        i++;
+                    }
+                }
+                symbols.add(side.substring(start, i));
+            }
+            return symbols;
+        }
+    }
+}
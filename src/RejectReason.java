@@ -0,0 +1,23 @@
+package src;
+
+/**
+ * The RejectReason enum tells why a word was rejected by Automaton.belongs.
+ */
+public enum RejectReason {
+    /**
+     * The automaton has no initial state
+     */
+    NO_INITIAL_STATE,
+    /**
+     * The word holds a symbol outside of the alphabet of the automaton
+     */
+    UNKNOWN_SYMBOL,
+    /**
+     * The current state has no transition for a symbol of the word
+     */
+    MISSING_TRANSITION,
+    /**
+     * The whole word was read but the run ended in a state that is not final
+     */
+    NON_ACCEPTING_END
+}
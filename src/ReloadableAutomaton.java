@@ -0,0 +1,251 @@
+package src;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ReloadableAutomaton class holds the current version of an automaton
+ * file and replaces it when the file changes. A background thread watches the
+ * directory of the file; once the file has stopped changing for the debounce
+ * delay, the thread loads it strictly, compiles it, and only then swaps the
+ * reference to the new version.
+ *
+ * Readers never lock: belongs and cursor read the reference once, so a word
+ * being matched, or a cursor already created, finishes on the version it
+ * started with while new ones get the new version. A file that cannot be
+ * loaded, for instance because it is being written or has a syntax error,
+ * leaves the previous version in place and increments the error counter; the
+ * next change of the file is tried again.
+ */
+public class ReloadableAutomaton implements WordMatcher, AutoCloseable {
+    /**
+     * Default time the file must stay unchanged before it is loaded, in milliseconds
+     */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 100;
+
+    private final Path path;
+    private volatile Version current;
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private volatile Exception lastError;
+    private volatile long debounceMillis = DEFAULT_DEBOUNCE_MILLIS;
+    private WatchService watchService;
+    private Thread watcher;
+
+    /**
+     * Constructor for an automaton loaded from a file, not watched until start is called
+     * @param path The automaton file
+     * @throws AutomatonFormatException If the file has any problem
+     * @throws IOException If the file cannot be read
+     */
+    public ReloadableAutomaton(Path path) throws IOException {
+        this.path = path.toAbsolutePath();
+        this.current = build(this.path, 1);
+    }
+
+    private static Version build(Path path, long generation) throws IOException {
+        AutomatonSnapshot snapshot = AutomatonLoader.loadStrict(path);
+        return new Version(snapshot, snapshot.compile(), generation);
+    }
+
+    /**
+     * Sets the time the file must stay unchanged before it is loaded
+     * @param debounceMillis The delay in milliseconds, DEFAULT_DEBOUNCE_MILLIS by default
+     */
+    public void setDebounceMillis(long debounceMillis) {
+        if (debounceMillis < 0) {
+            throw new IllegalArgumentException("Debounce delay cannot be negative: " + debounceMillis);
+        }
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Starts watching the file on a daemon thread
+     * @throws IOException If the directory of the file cannot be watched
+     * @throws IllegalStateException If the file is already watched
+     */
+    public synchronized void start() throws IOException {
+        if (watcher != null) {
+            throw new IllegalStateException("Already watching " + path);
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        path.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        WatchService service = watchService;
+        watcher = new Thread(() -> watch(service), "reload-" + path.getFileName());
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = concernsFile(key);
+                // Editors write a file in several steps: wait until it has been quiet for a while
+                while (changed && (key = service.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    concernsFile(key);
+                }
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed: the last version stays in place
+        }
+    }
+
+    private boolean concernsFile(WatchKey key) {
+        boolean concerned = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || path.getFileName().equals(event.context())) {
+                concerned = true;
+            }
+        }
+        key.reset();
+        return concerned;
+    }
+
+    /**
+     * Loads and compiles the file now, on the calling thread, and swaps in the
+     * new version if it succeeds
+     * @return true if the new version is in place, false if the previous one was kept
+     */
+    public synchronized boolean reload() {
+        try {
+            current = build(path, current.generation + 1);
+            reloads.incrementAndGet();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            errors.incrementAndGet();
+            lastError = e;
+            return false;
+        }
+    }
+
+    /**
+     * Checks if a word belongs to the language of the current version
+     * @param word The word to check
+     * @return true if the word is accepted, false otherwise
+     */
+    @Override
+    public boolean belongs(CharSequence word) {
+        return current.compiled.belongs(word);
+    }
+
+    /**
+     * Creates a cursor on the current version, which it keeps after later reloads
+     * @return A cursor on the initial state
+     */
+    public MatchCursor cursor() {
+        return new MatchCursor(current.compiled);
+    }
+
+    /**
+     * Gets the current version of the automaton
+     * @return The snapshot loaded last
+     */
+    public AutomatonSnapshot getSnapshot() {
+        return current.snapshot;
+    }
+
+    /**
+     * Gets the current version of the automaton, compiled
+     * @return The compiled automaton loaded last
+     */
+    public CompiledAutomaton getCompiled() {
+        return current.compiled;
+    }
+
+    /**
+     * Gets the number of the current version
+     * @return 1 for the version loaded by the constructor, plus one per successful reload
+     */
+    public long getGeneration() {
+        return current.generation;
+    }
+
+    /**
+     * Gets the file of the automaton
+     * @return The absolute path of the file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the number of successful reloads
+     * @return The count
+     */
+    public long getReloadCount() {
+        return reloads.get();
+    }
+
+    /**
+     * Gets the number of reloads that failed and kept the previous version
+     * @return The count
+     */
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    /**
+     * Gets the reason of the last failed reload
+     * @return The exception, an AutomatonFormatException for a file with problems, or null if no reload failed
+     */
+    public Exception getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Stops watching the file; the current version stays usable
+     * @throws IOException If the watch service cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watcher != null) {
+            watchService.close();
+            watcher.interrupt();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Generate a string representation of this automaton
+     * @return A string with its file, version and counters
+     */
+    @Override
+    public String toString() {
+        Version version = current;
+        return "ReloadableAutomaton{" +
+                "path=" + path +
+                ", generation=" + version.generation +
+                ", states=" + version.snapshot.getStateCount() +
+                ", reloads=" + reloads.get() +
+                ", errors=" + errors.get() +
+                '}';
+    }
+
+    /**
+     * A version of the automaton, swapped as a whole
+     */
+    private static class Version {
+        final AutomatonSnapshot snapshot;
+        final CompiledAutomaton compiled;
+        final long generation;
+
+        Version(AutomatonSnapshot snapshot, CompiledAutomaton compiled, long generation) {
+            this.snapshot = snapshot;
+            this.compiled = compiled;
+            this.generation = generation;
+        }
+    }
+}
@@ -42,9 +42,45 @@ public class State {
      * @return Next state or null if no transition exists for this symbol
      */
     public State getNextState(char symbol) {
+        Transition t = getTransition(symbol);
+        return t == null ? null : t.getFinalState();
+    }
+
+    /**
+     * Gets the transition followed for a given symbol: the first one whose
+     * symbol matches or is epsilon
+     * @param symbol Symbol read
+     * @return The transition or null if no transition exists for this symbol
+     */
+    public Transition getTransition(char symbol) {
+        for (Transition t : transitions) {
+            if (t.getSymbol() == symbol || t.getSymbol() == Transition.EPSILON) {
+                return t;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the next state for a given symbol written as text
+     * @param token Symbol of the transition, such as "P10"
+     * @return Next state or null if no transition exists for this symbol
+     */
+    public State getNextState(String token) {
+        Transition t = getTransition(token);
+        return t == null ? null : t.getFinalState();
+    }
+
+    /**
+     * Gets the transition followed for a given symbol written as text: the
+     * first one whose whole symbol matches or is epsilon
+     * @param token Symbol read, such as "P10"
+     * @return The transition or null if no transition exists for this symbol
+     */
+    public Transition getTransition(String token) {
         for (Transition t : transitions) {
-            if (t.getSymbol() == symbol || "ε".equals(String.valueOf(t.getSymbol()))) {
-                return t.getFinalState();
+            if (t.readsToken(token) || t.getSymbol() == Transition.EPSILON) {
+                return t;
             }
         }
         return null;
@@ -0,0 +1,160 @@
+package src;
+
+import java.util.Arrays;
+
+/**
+ * The StateSetIndex class interns sets of NFA states, stored as fixed-size bitsets,
+ * and gives each distinct set a dense id. The sets live back to back in a single
+ * long[] pool and are found again through an open addressing hash index.
+ */
+class StateSetIndex {
+    private static final int NONE = -1;
+
+    private final int words;
+    private long[] pool;
+    private int[] hashes;
+    private int[] slots;
+    private int size;
+
+    /**
+     * Constructor for an index of sets over a given number of words
+     * @param words Number of 64-bit words of every set
+     */
+    StateSetIndex(int words) {
+        this.words = words;
+        this.pool = new long[words * 16];
+        this.hashes = new int[16];
+        this.slots = new int[32];
+        Arrays.fill(slots, NONE);
+    }
+
+    /**
+     * Gets the id of a set, adding it to the index if needed
+     * @param set The set of states, not retained by the index
+     * @return The id of the set; a new set gets the id size() - 1
+     */
+    int intern(long[] set) {
+        int hash = hash(set);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot];
+            if (id == NONE) {
+                break;
+            }
+            if (hashes[id] == hash && sameSet(id, set)) {
+                return id;
+            }
+        }
+
+        if (size == hashes.length) {
+            pool = Arrays.copyOf(pool, pool.length * 2);
+            hashes = Arrays.copyOf(hashes, hashes.length * 2);
+        }
+        int id = size++;
+        System.arraycopy(set, 0, pool, id * words, words);
+        hashes[id] = hash;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        } else {
+            insert(id);
+        }
+        return id;
+    }
+
+    /**
+     * Gets the id of a set without adding it
+     * @param set The set of states
+     * @return The id of the set, or -1 if it was never interned
+     */
+    int find(long[] set) {
+        int hash = hash(set);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot];
+            if (id == NONE) {
+                return NONE;
+            }
+            if (hashes[id] == hash && sameSet(id, set)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Copies an interned set into a buffer
+     * @param id Id of the set
+     * @param target Buffer of at least words entries
+     */
+    void copy(int id, long[] target) {
+        System.arraycopy(pool, id * words, target, 0, words);
+    }
+
+    /**
+     * Gets one word of an interned set
+     * @param id Id of the set
+     * @param word Index of the word
+     * @return The word
+     */
+    long word(int id, int word) {
+        return pool[id * words + word];
+    }
+
+    /**
+     * Gets the number of interned sets
+     * @return The number of sets
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of bytes used by the index
+     * @return An estimate of the memory footprint
+     */
+    long footprint() {
+        return pool.length * 8L + hashes.length * 4L + slots.length * 4L;
+    }
+
+    /**
+     * Removes every set from the index, keeping the allocated storage
+     */
+    void clear() {
+        size = 0;
+        Arrays.fill(slots, NONE);
+    }
+
+    private boolean sameSet(int id, long[] set) {
+        int base = id * words;
+        for (int w = 0; w < words; w++) {
+            if (pool[base + w] != set[w]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        Arrays.fill(slots, NONE);
+        for (int id = 0; id < size; id++) {
+            insert(id);
+        }
+    }
+
+    private void insert(int id) {
+        int mask = slots.length - 1;
+        int slot = hashes[id] & mask;
+        while (slots[slot] != NONE) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = id;
+    }
+
+    private int hash(long[] set) {
+        long h = 0;
+        for (int w = 0; w < words; w++) {
+            h = (h + set[w]) * 0x9E3779B97F4A7C15L;
+        }
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,241 @@
+package src;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The StreamingMatcher class runs a compiled automaton over an input that
+ * arrives in chunks, such as a socket or a log file. The current state is kept
+ * between calls and only a fixed-size decoding buffer is held, never the whole
+ * input. Acceptance can be queried after any chunk, and feeding stops as soon
+ * as the run reaches a state from which no accepting state can be reached.
+ */
+public class StreamingMatcher {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final MatchCursor cursor;
+    private final CharsetDecoder decoder;
+    private final ByteBuffer pendingBytes;
+    private final CharBuffer decoded;
+    private long position;
+
+    /**
+     * Constructor for a matcher decoding bytes as UTF-8
+     * @param automaton The automaton to run
+     */
+    public StreamingMatcher(CompiledAutomaton automaton) {
+        this(automaton, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Constructor for a matcher decoding bytes with a given charset.
+     * Malformed bytes are replaced by U+FFFD, which kills the run unless the
+     * automaton has a transition for it.
+     * @param automaton The automaton to run
+     * @param charset Charset used by the byte based methods
+     */
+    public StreamingMatcher(CompiledAutomaton automaton, Charset charset) {
+        this.cursor = new MatchCursor(automaton);
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.pendingBytes = ByteBuffer.allocate(BUFFER_SIZE);
+        this.decoded = CharBuffer.allocate(BUFFER_SIZE);
+    }
+
+    /**
+     * Consumes a chunk of characters
+     * @param chars Array holding the chunk
+     * @param offset Index of the first character
+     * @param length Number of characters
+     * @return false if the stream can no longer be accepted, true otherwise
+     */
+    public boolean feed(char[] chars, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (!cursor.feed(chars[i])) {
+                position += i - offset + 1;
+                return false;
+            }
+        }
+        position += length;
+        return !cursor.isDead();
+    }
+
+    /**
+     * Consumes the remaining characters of a buffer
+     * @param chars The chunk; its position is moved past the consumed characters
+     * @return false if the stream can no longer be accepted, true otherwise
+     */
+    public boolean feed(CharBuffer chars) {
+        if (chars.hasArray()) {
+            int start = chars.position();
+            long before = position;
+            boolean alive = feed(chars.array(), chars.arrayOffset() + start, chars.remaining());
+            chars.position(start + (int) (position - before));
+            return alive;
+        }
+        while (chars.hasRemaining() && !cursor.isDead()) {
+            cursor.feed(chars.get());
+            position++;
+        }
+        return !cursor.isDead();
+    }
+
+    /**
+     * Consumes a chunk of characters
+     * @param chars The chunk
+     * @return false if the stream can no longer be accepted, true otherwise
+     */
+    public boolean feed(CharSequence chars) {
+        if (chars instanceof CharBuffer) {
+            return feed(((CharBuffer) chars).duplicate());
+        }
+        for (int i = 0; i < chars.length(); i++) {
+            position++;
+            if (!cursor.feed(chars.charAt(i))) {
+                return false;
+            }
+        }
+        return !cursor.isDead();
+    }
+
+    /**
+     * Consumes a chunk of bytes. A character split between two chunks is kept
+     * until the bytes completing it arrive.
+     * @param bytes The chunk; its position is moved to its limit
+     * @return false if the stream can no longer be accepted, true otherwise
+     */
+    public boolean feed(ByteBuffer bytes) {
+        while (bytes.hasRemaining() && !cursor.isDead()) {
+            int count = Math.min(pendingBytes.remaining(), bytes.remaining());
+            ByteBuffer slice = bytes.duplicate();
+            slice.limit(slice.position() + count);
+            pendingBytes.put(slice);
+            bytes.position(bytes.position() + count);
+
+            pendingBytes.flip();
+            decode(false);
+            pendingBytes.compact();
+        }
+        bytes.position(bytes.limit());
+        return !cursor.isDead();
+    }
+
+    /**
+     * Consumes a chunk of bytes
+     * @param bytes Array holding the chunk
+     * @param offset Index of the first byte
+     * @param length Number of bytes
+     * @return false if the stream can no longer be accepted, true otherwise
+     */
+    public boolean feed(byte[] bytes, int offset, int length) {
+        return feed(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    /**
+     * Signals the end of a byte stream: an incomplete trailing character is
+     * decoded as U+FFFD. Bytes fed afterwards start a new character sequence
+     * continuing the same run.
+     * @return true if the whole stream is accepted, false otherwise
+     */
+    public boolean finish() {
+        if (!cursor.isDead()) {
+            pendingBytes.flip();
+            decode(true);
+            if (!cursor.isDead()) {
+                decoded.clear();
+                decoder.flush(decoded);
+                decoded.flip();
+                feed(decoded);
+            }
+        }
+        pendingBytes.clear();
+        decoder.reset();
+        return isAccepting();
+    }
+
+    /**
+     * Reads characters until the end of a reader or until the run is dead
+     * @param reader The source, not closed by this method
+     * @return true if the characters read are accepted, false otherwise
+     * @throws IOException If reading fails
+     */
+    public boolean consume(Reader reader) throws IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        int count;
+        while (!cursor.isDead() && (count = reader.read(buffer)) >= 0) {
+            feed(buffer, 0, count);
+        }
+        return isAccepting();
+    }
+
+    /**
+     * Reads bytes until the end of a stream or until the run is dead
+     * @param input The source, not closed by this method
+     * @return true if the characters read are accepted, false otherwise
+     * @throws IOException If reading fails
+     */
+    public boolean consume(InputStream input) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int count;
+        while (!cursor.isDead() && (count = input.read(buffer)) >= 0) {
+            feed(buffer, 0, count);
+        }
+        return cursor.isDead() ? false : finish();
+    }
+
+    private void decode(boolean endOfInput) {
+        while (!cursor.isDead()) {
+            decoded.clear();
+            boolean overflow = decoder.decode(pendingBytes, decoded, endOfInput).isOverflow();
+            decoded.flip();
+            feed(decoded);
+            if (!overflow) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checks if the characters consumed so far form an accepted word
+     * @return true if the stream is currently accepted, false otherwise
+     */
+    public boolean isAccepting() {
+        return cursor.isAccepting();
+    }
+
+    /**
+     * Checks if the stream can no longer be accepted, whatever follows
+     * @return true if the stream can be dropped, false otherwise
+     */
+    public boolean isDead() {
+        return cursor.isDead();
+    }
+
+    /**
+     * Gets the number of characters consumed; when the run died, the last one
+     * is the character that killed it
+     * @return The number of consumed characters
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Starts a new stream from the initial state
+     */
+    public void reset() {
+        cursor.reset();
+        decoder.reset();
+        pendingBytes.clear();
+        position = 0;
+    }
+}
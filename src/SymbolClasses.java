@@ -0,0 +1,141 @@
+package src;
+
+import java.util.Arrays;
+
+/**
+ * The SymbolClasses class groups the symbols of a transition table into
+ * equivalence classes: two symbols are in the same class when their columns
+ * are identical, that is when every state moves to the same target on both.
+ * A table then only needs one column per class, which keeps it small for
+ * large alphabets where many symbols behave alike.
+ */
+public class SymbolClasses {
+    private final int[] classOf;
+    private final int[] representatives;
+
+    private SymbolClasses(int[] classOf, int[] representatives) {
+        this.classOf = classOf;
+        this.representatives = representatives;
+    }
+
+    /**
+     * Computes the classes of the columns of a row-major table
+     * @param table The table, rowCount * symbolCount entries
+     * @param rowCount Number of rows (states)
+     * @param symbolCount Number of columns (symbols)
+     * @return The classes, numbered in order of their first symbol
+     */
+    public static SymbolClasses of(int[] table, int rowCount, int symbolCount) {
+        int[] classOf = new int[symbolCount];
+        int[] representatives = new int[symbolCount];
+        int[] hashes = new int[symbolCount];
+        int classCount = 0;
+
+        // Open addressing over column hashes, holding class + 1
+        int[] slots = new int[Integer.highestOneBit(Math.max(1, symbolCount)) * 4];
+        int mask = slots.length - 1;
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            int hash = 1;
+            for (int row = 0; row < rowCount; row++) {
+                hash = 31 * hash + table[row * symbolCount + symbol];
+            }
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (slots[slot] != 0) {
+                int candidate = slots[slot] - 1;
+                if (hashes[candidate] == hash
+                        && sameColumn(table, rowCount, symbolCount, representatives[candidate], symbol)) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (slots[slot] == 0) {
+                hashes[classCount] = hash;
+                representatives[classCount] = symbol;
+                slots[slot] = ++classCount;
+            }
+            classOf[symbol] = slots[slot] - 1;
+        }
+        return new SymbolClasses(classOf, Arrays.copyOf(representatives, classCount));
+    }
+
+    private static boolean sameColumn(int[] table, int rowCount, int symbolCount, int a, int b) {
+        for (int row = 0; row < rowCount; row++) {
+            if (table[row * symbolCount + a] != table[row * symbolCount + b]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds the table with one column per class
+     * @param table The table the classes were computed from
+     * @param rowCount Number of rows
+     * @return Row-major table of rowCount * getClassCount() entries
+     */
+    public int[] compress(int[] table, int rowCount) {
+        int symbolCount = classOf.length;
+        int classCount = representatives.length;
+        int[] compressed = new int[rowCount * classCount];
+        for (int row = 0; row < rowCount; row++) {
+            for (int c = 0; c < classCount; c++) {
+                compressed[row * classCount + c] = table[row * symbolCount + representatives[c]];
+            }
+        }
+        return compressed;
+    }
+
+    /**
+     * Gets the class of a symbol
+     * @param symbol Index of the symbol
+     * @return Index of its class
+     */
+    public int classOf(int symbol) {
+        return classOf[symbol];
+    }
+
+    /**
+     * Gets the class of every symbol, for matchers indexing it directly
+     * @return Array giving the class of each symbol index, not to be modified
+     */
+    int[] classes() {
+        return classOf;
+    }
+
+    /**
+     * Gets the first symbol of a class
+     * @param symbolClass Index of the class
+     * @return Index of the symbol
+     */
+    public int representative(int symbolClass) {
+        return representatives[symbolClass];
+    }
+
+    /**
+     * Gets the number of symbols
+     * @return The number of symbols
+     */
+    public int getSymbolCount() {
+        return classOf.length;
+    }
+
+    /**
+     * Gets the number of classes
+     * @return The number of distinct columns
+     */
+    public int getClassCount() {
+        return representatives.length;
+    }
+
+    /**
+     * Generate a string representation of these classes
+     * @return A string with the number of symbols and classes
+     */
+    @Override
+    public String toString() {
+        return "SymbolClasses{" +
+                "symbols=" + classOf.length +
+                ", classes=" + representatives.length +
+                '}';
+    }
+}
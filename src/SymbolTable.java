@@ -0,0 +1,286 @@
+package src;
+
+import java.util.Arrays;
+
+/**
+ * The SymbolTable class interns the symbols of an automaton to dense ids
+ * (0 to size() - 1). A symbol is either a single Unicode code point, such as
+ * 'a', 'ε' or a supplementary character, or a token of several characters
+ * such as "P10". Latin-1 code points are resolved through a direct lookup
+ * array, other code points and tokens through open-addressing hash tables on
+ * primitive arrays, so a lookup never boxes nor allocates.
+ *
+ * Interning is not thread-safe; once all symbols are interned, lookups can be
+ * shared between threads.
+ */
+public class SymbolTable {
+    /**
+     * Id returned for a symbol that is not in the table
+     */
+    public static final int NO_SYMBOL = -1;
+
+    private static final int DIRECT_LIMIT = 256;
+    private static final int EMPTY = -1;
+
+    private final int[] direct = new int[DIRECT_LIMIT];
+    private int[] codePointKeys = new int[16];
+    private int[] codePointIds = new int[16];
+    private int codePointCount;
+    private int[] tokenSlots = new int[16];
+    private int[] tokenHashes = new int[16];
+    private int tokenCount;
+    private String[] tokens = new String[16];
+    private int size;
+    private int maxTokenLength = 1;
+
+    /**
+     * Constructor for an empty table
+     */
+    public SymbolTable() {
+        Arrays.fill(direct, NO_SYMBOL);
+        Arrays.fill(codePointKeys, EMPTY);
+        Arrays.fill(tokenSlots, EMPTY);
+    }
+
+    /**
+     * Gets the id of a symbol, assigning a new one if needed
+     * @param token The symbol, a single code point or a longer token
+     * @return Its id
+     * @throws IllegalArgumentException If the token is empty
+     */
+    public int intern(String token) {
+        if (token.isEmpty()) {
+            throw new IllegalArgumentException("Empty symbol");
+        }
+        int codePoint = token.codePointAt(0);
+        if (Character.charCount(codePoint) == token.length()) {
+            return internCodePoint(codePoint);
+        }
+        int hash = token.hashCode();
+        int slot = findToken(token, 0, token.length(), hash);
+        if (tokenSlots[slot] != EMPTY) {
+            return tokenSlots[slot];
+        }
+        int id = add(token);
+        tokenSlots[slot] = id;
+        tokenHashes = ensure(tokenHashes, id + 1);
+        tokenHashes[id] = hash;
+        maxTokenLength = Math.max(maxTokenLength, token.length());
+        if (++tokenCount * 2 > tokenSlots.length) {
+            rehashTokens();
+        }
+        return id;
+    }
+
+    /**
+     * Gets the id of a code point, assigning a new one if needed
+     * @param codePoint The code point
+     * @return Its id
+     */
+    public int internCodePoint(int codePoint) {
+        if (codePoint < DIRECT_LIMIT) {
+            if (direct[codePoint] == NO_SYMBOL) {
+                direct[codePoint] = add(String.valueOf((char) codePoint));
+            }
+            return direct[codePoint];
+        }
+        int slot = findCodePoint(codePoint);
+        if (codePointKeys[slot] != EMPTY) {
+            return codePointIds[slot];
+        }
+        int id = add(new String(Character.toChars(codePoint)));
+        codePointKeys[slot] = codePoint;
+        codePointIds[slot] = id;
+        maxTokenLength = Math.max(maxTokenLength, Character.charCount(codePoint));
+        if (++codePointCount * 2 > codePointKeys.length) {
+            rehashCodePoints();
+        }
+        return id;
+    }
+
+    /**
+     * Gets the id of a symbol
+     * @param token The symbol
+     * @return Its id, or NO_SYMBOL if it was never interned
+     */
+    public int idOf(String token) {
+        if (token.isEmpty()) {
+            return NO_SYMBOL;
+        }
+        int codePoint = token.codePointAt(0);
+        if (Character.charCount(codePoint) == token.length()) {
+            return idOfCodePoint(codePoint);
+        }
+        int slot = findToken(token, 0, token.length(), token.hashCode());
+        return tokenSlots[slot] == EMPTY ? NO_SYMBOL : tokenSlots[slot];
+    }
+
+    /**
+     * Gets the id of a code point
+     * @param codePoint The code point
+     * @return Its id, or NO_SYMBOL if it was never interned
+     */
+    public int idOfCodePoint(int codePoint) {
+        if (codePoint < DIRECT_LIMIT) {
+            return codePoint < 0 ? NO_SYMBOL : direct[codePoint];
+        }
+        int slot = findCodePoint(codePoint);
+        return codePointKeys[slot] == EMPTY ? NO_SYMBOL : codePointIds[slot];
+    }
+
+    /**
+     * Finds the longest symbol starting at an offset of an input.
+     * The caller advances by tokenLength(id) characters.
+     * @param input The input to read
+     * @param offset Index of the first character of the symbol
+     * @return Id of the longest symbol found, or NO_SYMBOL if none matches
+     */
+    public int match(CharSequence input, int offset) {
+        int end = Math.min(input.length(), offset + maxTokenLength);
+        int best = NO_SYMBOL;
+        if (tokenCount > 0) {
+            int hash = input.charAt(offset);
+            for (int i = offset + 1; i < end; i++) {
+                hash = 31 * hash + input.charAt(i);
+                int slot = findToken(input, offset, i + 1, hash);
+                if (tokenSlots[slot] != EMPTY) {
+                    best = tokenSlots[slot];
+                }
+            }
+        }
+        if (best != NO_SYMBOL) {
+            return best;
+        }
+        char first = input.charAt(offset);
+        if (first < DIRECT_LIMIT) {
+            return direct[first];
+        }
+        return idOfCodePoint(Character.codePointAt(input, offset));
+    }
+
+    /**
+     * Gets the symbol of an id
+     * @param id The id
+     * @return The symbol as a string
+     */
+    public String tokenAt(int id) {
+        return tokens[id];
+    }
+
+    /**
+     * Gets the number of characters of a symbol
+     * @param id The id
+     * @return Its length in chars, 2 for a supplementary code point
+     */
+    public int tokenLength(int id) {
+        return tokens[id].length();
+    }
+
+    /**
+     * Gets the number of symbols
+     * @return The number of ids assigned
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the length of the longest symbol
+     * @return Its length in chars
+     */
+    public int getMaxTokenLength() {
+        return maxTokenLength;
+    }
+
+    private int add(String token) {
+        tokens = size == tokens.length ? Arrays.copyOf(tokens, size * 2) : tokens;
+        tokens[size] = token;
+        return size++;
+    }
+
+    private int findCodePoint(int codePoint) {
+        int mask = codePointKeys.length - 1;
+        int slot = mix(codePoint) & mask;
+        while (codePointKeys[slot] != EMPTY && codePointKeys[slot] != codePoint) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int findToken(CharSequence input, int start, int end, int hash) {
+        int mask = tokenSlots.length - 1;
+        int slot = mix(hash) & mask;
+        while (tokenSlots[slot] != EMPTY) {
+            int id = tokenSlots[slot];
+            if (tokenHashes[id] == hash && regionEquals(tokens[id], input, start, end)) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static boolean regionEquals(String token, CharSequence input, int start, int end) {
+        if (token.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) != input.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehashCodePoints() {
+        int[] keys = codePointKeys;
+        int[] ids = codePointIds;
+        codePointKeys = new int[keys.length * 2];
+        codePointIds = new int[keys.length * 2];
+        Arrays.fill(codePointKeys, EMPTY);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                int slot = findCodePoint(keys[i]);
+                codePointKeys[slot] = keys[i];
+                codePointIds[slot] = ids[i];
+            }
+        }
+    }
+
+    private void rehashTokens() {
+        int[] slots = tokenSlots;
+        tokenSlots = new int[slots.length * 2];
+        Arrays.fill(tokenSlots, EMPTY);
+        int mask = tokenSlots.length - 1;
+        for (int id : slots) {
+            if (id != EMPTY) {
+                int slot = mix(tokenHashes[id]) & mask;
+                while (tokenSlots[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                tokenSlots[slot] = id;
+            }
+        }
+    }
+
+    private static int[] ensure(int[] array, int capacity) {
+        return capacity <= array.length ? array : Arrays.copyOf(array, Math.max(capacity, array.length * 2));
+    }
+
+    /**
+     * Spreads the bits of a hash, so that close keys do not share a probe sequence
+     */
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Generate a string representation of this table
+     * @return The symbols in id order
+     */
+    @Override
+    public String toString() {
+        return Arrays.toString(Arrays.copyOf(tokens, size));
+    }
+}
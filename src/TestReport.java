@@ -0,0 +1,201 @@
+package src;
+
+import java.util.Locale;
+
+/**
+ * The TestReport class sums up a run of a test file: how many cases passed,
+ * failed or could not be read, how long it took, and percentiles of the time
+ * spent matching each word. It can be written as JSON or as a CSV row so that
+ * runs can be compared over time.
+ */
+public class TestReport {
+    /**
+     * Header of the CSV rows written by toCsvRow
+     */
+    public static final String CSV_HEADER =
+            "name,cases,passed,failed,skipped,elapsed_ms,cases_per_s,mean_ns,p50_ns,p90_ns,p99_ns,p999_ns,max_ns";
+
+    private final String name;
+    private final long passed;
+    private final long failed;
+    private final long skipped;
+    private final long elapsedNanos;
+    private final double meanNanos;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+    private final long maxNanos;
+
+    TestReport(String name, long passed, long failed, long skipped, long elapsedNanos, LatencyHistogram latencies) {
+        this.name = name;
+        this.passed = passed;
+        this.failed = failed;
+        this.skipped = skipped;
+        this.elapsedNanos = elapsedNanos;
+        this.meanNanos = latencies.getMean();
+        this.p50 = latencies.getPercentile(50);
+        this.p90 = latencies.getPercentile(90);
+        this.p99 = latencies.getPercentile(99);
+        this.p999 = latencies.getPercentile(99.9);
+        this.maxNanos = latencies.getMax();
+    }
+
+    /**
+     * Gets the name of the test file
+     * @return The name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of cases run
+     * @return Passed and failed cases
+     */
+    public long getCaseCount() {
+        return passed + failed;
+    }
+
+    /**
+     * Gets the number of cases whose result was the expected one
+     * @return The number of passed cases
+     */
+    public long getPassed() {
+        return passed;
+    }
+
+    /**
+     * Gets the number of cases whose result was not the expected one
+     * @return The number of failed cases
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Gets the number of lines that look like cases but could not be read
+     * @return The number of skipped lines
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Gets the duration of the whole run, reading included
+     * @return The duration in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Gets the number of cases run per second
+     * @return The throughput
+     */
+    public double getCasesPerSecond() {
+        return elapsedNanos == 0 ? 0 : getCaseCount() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Gets the mean time spent matching a word
+     * @return The mean in nanoseconds
+     */
+    public double getMeanNanos() {
+        return meanNanos;
+    }
+
+    /**
+     * Gets a percentile of the time spent matching a word
+     * @param percentile One of 50, 90, 99 and 99.9
+     * @return The percentile in nanoseconds
+     * @throws IllegalArgumentException For any other percentile
+     */
+    public long getPercentileNanos(double percentile) {
+        if (percentile == 50) {
+            return p50;
+        } else if (percentile == 90) {
+            return p90;
+        } else if (percentile == 99) {
+            return p99;
+        } else if (percentile == 99.9) {
+            return p999;
+        }
+        throw new IllegalArgumentException("Percentile not kept: " + percentile);
+    }
+
+    /**
+     * Gets the longest time spent matching a word
+     * @return The maximum in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Writes this report as a JSON object
+     * @return The JSON text, on one line
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"name\":\"");
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append("\",\"cases\":").append(getCaseCount())
+                .append(",\"passed\":").append(passed)
+                .append(",\"failed\":").append(failed)
+                .append(",\"skipped\":").append(skipped)
+                .append(",\"elapsedMs\":").append(format(elapsedNanos / 1e6))
+                .append(",\"casesPerSecond\":").append(format(getCasesPerSecond()))
+                .append(",\"latencyNs\":{\"mean\":").append(format(meanNanos))
+                .append(",\"p50\":").append(p50)
+                .append(",\"p90\":").append(p90)
+                .append(",\"p99\":").append(p99)
+                .append(",\"p999\":").append(p999)
+                .append(",\"max\":").append(maxNanos)
+                .append("}}");
+        return json.toString();
+    }
+
+    /**
+     * Writes this report as a CSV row, with the columns of CSV_HEADER
+     * @return The row, without line terminator
+     */
+    public String toCsvRow() {
+        String quotedName = name.indexOf(',') >= 0 || name.indexOf('"') >= 0
+                ? '"' + name.replace("\"", "\"\"") + '"' : name;
+        return quotedName + ',' + getCaseCount() + ',' + passed + ',' + failed + ',' + skipped + ','
+                + format(elapsedNanos / 1e6) + ',' + format(getCasesPerSecond()) + ',' + format(meanNanos) + ','
+                + p50 + ',' + p90 + ',' + p99 + ',' + p999 + ',' + maxNanos;
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    /**
+     * Generate a string representation of this report
+     * @return A string with its counts and latencies
+     */
+    @Override
+    public String toString() {
+        return "TestReport{" +
+                "name='" + name + '\'' +
+                ", passed=" + passed +
+                ", failed=" + failed +
+                ", skipped=" + skipped +
+                ", elapsedMs=" + format(elapsedNanos / 1e6) +
+                ", p50=" + p50 + "ns" +
+                ", p99=" + p99 + "ns" +
+                ", max=" + maxNanos + "ns" +
+                '}';
+    }
+}
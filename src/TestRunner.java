@@ -0,0 +1,309 @@
+package src;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The TestRunner class runs test files in the format of lib/tests_*.txt
+ * ("&lt;sequence&gt; -&gt; true|false [comment]", "#" starting a comment line)
+ * against a matcher. The file is read line by line into batches that are
+ * matched on a fork/join pool while the next ones are read; only a bounded
+ * number of batches is in flight, so files of any size run in constant memory.
+ * Batches are collected in file order, so only failures are written, in the
+ * order of the file, and the time spent matching each word goes to a histogram
+ * summed up in the returned TestReport.
+ */
+public class TestRunner {
+    /**
+     * Default number of cases per batch
+     */
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    private final WordMatcher matcher;
+    private final ForkJoinPool pool;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Constructor for running tests against an automaton, with the same results as belongs
+     * @param automaton The automaton, compiled once by this constructor, over its full
+     * symbols if some of them have several characters
+     */
+    public TestRunner(Automaton automaton) {
+        this(automaton.hasTokens() ? automaton.tokenMatcher() : automaton.compile());
+    }
+
+    /**
+     * Constructor for running tests on the common fork/join pool
+     * @param matcher An immutable matcher
+     */
+    public TestRunner(WordMatcher matcher) {
+        this(matcher, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for running tests on a given pool
+     * @param matcher An immutable matcher
+     * @param pool The pool running the batches
+     * @throws IllegalArgumentException If the matcher keeps mutable state
+     */
+    public TestRunner(WordMatcher matcher, ForkJoinPool pool) {
+        if (matcher instanceof LazyDfa) {
+            throw new IllegalArgumentException("LazyDfa cannot be shared between threads");
+        }
+        this.matcher = matcher;
+        this.pool = pool;
+    }
+
+    /**
+     * Sets the number of cases per batch
+     * @param batchSize The batch size, DEFAULT_BATCH_SIZE by default
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Runs a test file
+     * @param tests The test file, in UTF-8
+     * @param failures Where to write the failed cases, one per line, or null to drop them
+     * @return The report of the run, named after the file
+     * @throws IOException If the file cannot be read or the failures cannot be written
+     */
+    public TestReport run(Path tests, Writer failures) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(tests, StandardCharsets.UTF_8)) {
+            return run(tests.getFileName().toString(), reader, failures);
+        }
+    }
+
+    /**
+     * Runs test cases read from a reader
+     * @param name Name given to the report
+     * @param tests The test cases, one per line
+     * @param failures Where to write the failed cases, one per line, or null to drop them
+     * @return The report of the run
+     * @throws IOException If reading the cases or writing the failures fails
+     */
+    public TestReport run(String name, BufferedReader tests, Writer failures) throws IOException {
+        long start = System.nanoTime();
+        int maxInFlight = 2 * pool.getParallelism() + 1;
+        ArrayDeque<Batch> inFlight = new ArrayDeque<>();
+        LatencyHistogram latencies = new LatencyHistogram();
+        long[] counts = new long[3];
+
+        Batch batch = new Batch(batchSize);
+        long lineNumber = 0;
+        String line;
+        while ((line = tests.readLine()) != null) {
+            lineNumber++;
+            if (!batch.parse(line, lineNumber)) {
+                counts[2]++;
+            }
+            if (batch.size == batchSize) {
+                if (inFlight.size() == maxInFlight) {
+                    collect(inFlight.poll(), failures, latencies, counts);
+                }
+                pool.execute(batch);
+                inFlight.add(batch);
+                batch = new Batch(batchSize);
+            }
+        }
+        if (batch.size > 0) {
+            pool.execute(batch);
+            inFlight.add(batch);
+        }
+        while (!inFlight.isEmpty()) {
+            collect(inFlight.poll(), failures, latencies, counts);
+        }
+        if (failures != null) {
+            failures.flush();
+        }
+        return new TestReport(name, counts[0], counts[1], counts[2], System.nanoTime() - start, latencies);
+    }
+
+    private static void collect(Batch batch, Writer failures, LatencyHistogram latencies, long[] counts)
+            throws IOException {
+        batch.join();
+        latencies.add(batch.latencies);
+        counts[0] += batch.size - batch.failedCount;
+        counts[1] += batch.failedCount;
+        if (failures != null && batch.failedCount > 0) {
+            StringBuilder line = new StringBuilder(128);
+            for (int i = 0; i < batch.size; i++) {
+                if (batch.results[i] != batch.expected[i]) {
+                    line.setLength(0);
+                    line.append("Test '").append(batch.words[i]).append("' (line ").append(batch.lines[i])
+                            .append("): FAILURE (Expected: ").append(batch.expected[i])
+                            .append(", Got: ").append(batch.results[i]).append(')');
+                    if (batch.comments[i] != null) {
+                        line.append(' ').append(batch.comments[i]);
+                    }
+                    line.append('\n');
+                    failures.append(line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cases read from consecutive lines, matched by a single task
+     */
+    @SuppressWarnings("serial")
+    private class Batch extends RecursiveAction {
+        private final String[] words;
+        private final boolean[] expected;
+        private final String[] comments;
+        private final long[] lines;
+        private final boolean[] results;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private int size;
+        private int failedCount;
+
+        Batch(int capacity) {
+            words = new String[capacity];
+            expected = new boolean[capacity];
+            comments = new String[capacity];
+            lines = new long[capacity];
+            results = new boolean[capacity];
+        }
+
+        /**
+         * Adds the case of a line, if it holds one
+         * @return false if the line looks like a case but cannot be read
+         */
+        boolean parse(String line, long lineNumber) {
+            int arrow = line.indexOf("->");
+            if (arrow < 0) {
+                // Blank lines, comments and other lines without a case, as App did
+                return true;
+            }
+            int first = skipSpaces(line, 0);
+            if (first < line.length() && line.charAt(first) == '#') {
+                return true;
+            }
+            int from = skipSpaces(line, arrow + 2);
+            int to = from;
+            while (to < line.length() && !Character.isWhitespace(line.charAt(to)) && line.charAt(to) != '[') {
+                to++;
+            }
+            boolean value;
+            if (line.startsWith("true", from) && to - from == 4) {
+                value = true;
+            } else if (line.startsWith("false", from) && to - from == 5) {
+                value = false;
+            } else {
+                return false;
+            }
+            int open = line.indexOf('[', to);
+            int close = open < 0 ? -1 : line.indexOf(']', open);
+
+            words[size] = line.substring(first, Math.max(first, trimEnd(line, arrow)));
+            expected[size] = value;
+            comments[size] = close < 0 ? null : line.substring(open + 1, close);
+            lines[size] = lineNumber;
+            size++;
+            return true;
+        }
+
+        @Override
+        protected void compute() {
+            for (int i = 0; i < size; i++) {
+                long start = System.nanoTime();
+                results[i] = matcher.belongs(words[i]);
+                latencies.record(System.nanoTime() - start);
+                if (results[i] != expected[i]) {
+                    failedCount++;
+                }
+            }
+        }
+    }
+
+    private static int skipSpaces(String line, int i) {
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int trimEnd(String line, int end) {
+        while (end > 0 && Character.isWhitespace(line.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Runs a test file from the command line, exiting with status 1 if a case fails
+     * @param args automaton file, test file, then optional name=value settings:
+     *             failures (file of the failed cases, "-" for the console),
+     *             json (file receiving the report), csv (file the report is
+     *             appended to as a row) and batch (batch size)
+     * @throws IOException If a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: TestRunner <automaton file> <test file> [name=value...]");
+            return;
+        }
+        AutomatonLoader loader = new AutomatonLoader();
+        AutomatonSnapshot snapshot = loader.load(Path.of(args[0]));
+        TestRunner runner = new TestRunner(snapshot.hasTokens() ? TokenMatcher.compile(snapshot) : snapshot.compile());
+        String failuresFile = null;
+        String jsonFile = null;
+        String csvFile = null;
+        for (int i = 2; i < args.length; i++) {
+            int equals = args[i].indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected name=value: " + args[i]);
+            }
+            String value = args[i].substring(equals + 1);
+            switch (args[i].substring(0, equals)) {
+                case "failures" -> failuresFile = value;
+                case "json" -> jsonFile = value;
+                case "csv" -> csvFile = value;
+                case "batch" -> runner.setBatchSize(Integer.parseInt(value));
+                default -> throw new IllegalArgumentException("Unknown setting: " + args[i]);
+            }
+        }
+        for (LoadDiagnostic diagnostic : loader.getDiagnostics()) {
+            System.err.println(diagnostic);
+        }
+
+        TestReport report;
+        if (failuresFile == null || failuresFile.equals("-")) {
+            Writer console = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+            report = runner.run(Path.of(args[1]), console);
+        } else {
+            try (Writer failures = Files.newBufferedWriter(Path.of(failuresFile), StandardCharsets.UTF_8)) {
+                report = runner.run(Path.of(args[1]), failures);
+            }
+        }
+        System.out.println(report);
+
+        if (jsonFile != null) {
+            Files.writeString(Path.of(jsonFile), report.toJson() + System.lineSeparator(), StandardCharsets.UTF_8);
+        }
+        if (csvFile != null) {
+            Path csv = Path.of(csvFile);
+            String rows = (Files.exists(csv) ? "" : TestReport.CSV_HEADER + System.lineSeparator())
+                    + report.toCsvRow() + System.lineSeparator();
+            Files.writeString(csv, rows, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        if (report.getFailed() > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package src;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * The TextMetricsExporter class writes a snapshot of metrics as text, one
+ * "name value" line per counter. States and transitions that were never
+ * counted are left out, so the snapshot of a large automaton stays readable.
+ */
+public class TextMetricsExporter implements MetricsExporter {
+    private final Appendable out;
+
+    /**
+     * Constructor for an exporter writing to a stream
+     * @param out Where to write, flushed after each snapshot if it is Flushable
+     */
+    public TextMetricsExporter(Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes a snapshot of metrics
+     * @param name Name heading the snapshot
+     * @param metrics The metrics to write
+     * @throws IOException If writing fails
+     */
+    @Override
+    public void export(String name, MatchMetrics metrics) throws IOException {
+        StringBuilder text = new StringBuilder(256);
+        text.append("# ").append(name).append('\n');
+        line(text, "words", metrics.getWordCount());
+        line(text, "accepted", metrics.getAccepted());
+        line(text, "rejected", metrics.getRejected());
+        for (RejectReason reason : RejectReason.values()) {
+            line(text, "rejected." + reason.name().toLowerCase(Locale.ROOT), metrics.getRejected(reason));
+        }
+        text.append("latency.mean_ns ").append(String.format(Locale.ROOT, "%.1f", metrics.getLatencyMean()))
+                .append('\n');
+        LatencyHistogram latencies = metrics.latencies();
+        line(text, "latency.p50_ns", latencies.getPercentile(50));
+        line(text, "latency.p90_ns", latencies.getPercentile(90));
+        line(text, "latency.p99_ns", latencies.getPercentile(99));
+        line(text, "latency.p999_ns", latencies.getPercentile(99.9));
+        line(text, "latency.max_ns", latencies.getMax());
+        out.append(text);
+
+        for (int state = 0; state < metrics.getStateCount(); state++) {
+            long visits = metrics.getStateVisits(state);
+            if (visits > 0) {
+                text.setLength(0);
+                line(text, "state[" + metrics.getStateName(state) + "].visits", visits);
+                out.append(text);
+            }
+        }
+        for (int transition = 0; transition < metrics.getTransitionCount(); transition++) {
+            long uses = metrics.getTransitionUses(transition);
+            if (uses > 0) {
+                text.setLength(0);
+                line(text, "transition[" + metrics.getTransitionName(transition) + "].uses", uses);
+                out.append(text);
+            }
+        }
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+        }
+    }
+
+    private static void line(StringBuilder text, String name, long value) {
+        text.append(name).append(' ').append(value).append('\n');
+    }
+}
@@ -0,0 +1,667 @@
+package src;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The TextSearcher class finds the substrings of a text that belong to the
+ * language of a compiled automaton.
+ *
+ * A forward scan runs an unanchored automaton: its states are the lists of
+ * automaton states of the runs started at every earlier position, kept in
+ * order of start position and merged when two runs reach the same state, since
+ * they accept the same continuations. These search states are built lazily
+ * and cached with a memory budget, like LazyDfa. The forward scan only gives
+ * the end of a match; its start is found by running a reverse DFA backwards
+ * from the end and keeping the furthest position where it accepts.
+ *
+ * In LEFTMOST_LONGEST mode, the first run to accept cuts the runs started
+ * after it and no run is started any more; the scan continues while earlier
+ * runs are alive and reports the longest match of the leftmost start. The
+ * next search resumes at the end of the match, so the matches do not overlap
+ * and the reverse scans cover disjoint parts of the text. In ALL_OVERLAPPING
+ * mode, every end offset at which some match ends is reported once, with the
+ * leftmost start of the matches ending there. There is no reverse scan in
+ * that mode: each cached transition also records which run every new run
+ * comes from, so the scan carries the start offset of every live run and the
+ * leftmost start is the one of the first accepting run. A text of length n is
+ * then searched in O(n * k) time, k being the largest number of live runs,
+ * which is at most the number of automaton states.
+ *
+ * Symbols follow CompiledAutomaton: a character outside the alphabet ends every
+ * run. Instances keep mutable caches and must not be shared between threads.
+ */
+public class TextSearcher {
+    /**
+     * Default memory budget of the cache, in bytes
+     */
+    public static final long DEFAULT_BUDGET = 8L * 1024 * 1024;
+
+    /**
+     * Which matches are reported
+     */
+    public enum Mode {
+        /**
+         * Non-overlapping matches, each one the longest among those starting leftmost
+         */
+        LEFTMOST_LONGEST,
+        /**
+         * Every end offset of a match, with the leftmost start ending there
+         */
+        ALL_OVERLAPPING
+    }
+
+    private static final int DEAD = CompiledAutomaton.DEAD;
+    private static final int UNKNOWN = -2;
+
+    private final CompiledAutomaton forward;
+    private final CompiledAutomaton reverse;
+    private final Mode mode;
+    private final Alphabet alphabet;
+    private final int columns;
+    private final int otherColumn;
+    private final long budget;
+    private final int maxStates;
+    private final SequenceIndex index;
+    private final int[] stamps;
+    private int stamp;
+    private int[] current;
+    private int currentLength;
+    private int[] next;
+    private int[] table;
+    private final BitSet matching;
+    // ALL_OVERLAPPING only: for each cached transition, the offset in sources
+    // of the run each target run comes from, 0 for the run started by the step
+    private int[] sourceOffsets;
+    private int[] sources;
+    private int sourcesSize;
+    private int[] nextSources;
+    private int lastSources;
+    private int[] firstAccepting;
+    private int startState;
+
+    private long hits;
+    private long misses;
+    private long flushes;
+
+    /**
+     * Constructor for a searcher in LEFTMOST_LONGEST mode with the default budget
+     * @param automaton The automaton whose language is searched
+     */
+    public TextSearcher(CompiledAutomaton automaton) {
+        this(automaton, Mode.LEFTMOST_LONGEST, DEFAULT_BUDGET);
+    }
+
+    /**
+     * Constructor for a searcher
+     * @param automaton The automaton whose language is searched
+     * @param mode Which matches are reported
+     * @param budget Maximum number of bytes used by cached search states
+     */
+    public TextSearcher(CompiledAutomaton automaton, Mode mode, long budget) {
+        this.forward = automaton;
+        this.reverse = new Determinizer(reversed(automaton)).determinize();
+        this.mode = mode;
+        this.alphabet = automaton.getAlphabet();
+        this.otherColumn = alphabet.size();
+        this.columns = otherColumn + 1;
+        this.budget = budget;
+        this.maxStates = (int) Math.max(2, Math.min(Integer.MAX_VALUE / columns, budget / (columns * 4L + 64)));
+        this.index = new SequenceIndex();
+        this.stamps = new int[automaton.getStateCount()];
+        this.current = new int[16];
+        this.next = new int[16];
+        this.table = new int[Math.min(maxStates, 64) * columns];
+        Arrays.fill(table, UNKNOWN);
+        this.matching = new BitSet();
+        this.sourceOffsets = new int[mode == Mode.ALL_OVERLAPPING ? table.length : 0];
+        this.sources = new int[mode == Mode.ALL_OVERLAPPING ? 256 : 0];
+        this.nextSources = new int[16];
+        this.firstAccepting = new int[Math.min(maxStates, 64)];
+        this.startState = UNKNOWN;
+    }
+
+    /**
+     * Builds the NFA of the reversed language: every transition is turned
+     * around, a new initial state has epsilon edges to the accepting states,
+     * and the initial state becomes the only accepting state
+     */
+    private static NfaGraph reversed(CompiledAutomaton automaton) {
+        int stateCount = automaton.getStateCount();
+        int symbolCount = automaton.getAlphabet().size();
+        int start = stateCount;
+        NfaGraph.Builder builder = new NfaGraph.Builder(stateCount + 1);
+        String[] names = new String[stateCount + 1];
+        for (int state = 0; state < stateCount; state++) {
+            names[state] = automaton.getStateName(state);
+            if (automaton.isAccepting(state)) {
+                builder.addEpsilon(start, state);
+            }
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int target = automaton.target(state, symbol);
+                if (target != DEAD) {
+                    builder.addEdge(target, symbol, state);
+                }
+            }
+        }
+        names[start] = "start";
+        BitSet accepting = new BitSet(stateCount + 1);
+        if (automaton.getInitialState() != DEAD) {
+            accepting.set(automaton.getInitialState());
+        }
+        return builder.build(automaton.getAlphabet(), start, accepting, names);
+    }
+
+    /**
+     * Searches a whole text
+     * @param text The text to search
+     * @param callback Receives the matches
+     * @return The number of matches reported
+     */
+    public int search(CharSequence text, MatchCallback callback) {
+        return search(text, 0, text.length(), callback);
+    }
+
+    /**
+     * Searches a region of a text; matches lie entirely inside the region
+     * @param text The text to search
+     * @param from Offset of the first character of the region
+     * @param to Offset following the last character of the region
+     * @param callback Receives the matches, with offsets in the text
+     * @return The number of matches reported
+     */
+    public int search(CharSequence text, int from, int to, MatchCallback callback) {
+        if (from < 0 || to > text.length() || from > to) {
+            throw new IndexOutOfBoundsException("Region [" + from + ", " + to + ") of a text of length " + text.length());
+        }
+        return mode == Mode.LEFTMOST_LONGEST ? searchLeftmostLongest(text, from, to, callback)
+                : searchOverlapping(text, from, to, callback);
+    }
+
+    /**
+     * Searches bytes, such as a mapped file region, each byte being read as a Latin-1 character.
+     * Text in another charset can be decoded to a CharBuffer and searched as a CharSequence.
+     * @param bytes The bytes between position and limit are searched
+     * @param callback Receives the matches, with offsets relative to the position
+     * @return The number of matches reported
+     */
+    public int search(ByteBuffer bytes, MatchCallback callback) {
+        return search(new Latin1Text(bytes.slice()), callback);
+    }
+
+    /**
+     * Searches a file, mapped in memory and read as Latin-1
+     * @param file The file to search
+     * @param callback Receives the matches, with offsets in the file
+     * @return The number of matches reported
+     * @throws IOException If the file cannot be read or is larger than 2 GB
+     */
+    public int search(Path file, MatchCallback callback) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File larger than 2 GB: " + file);
+            }
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return search(region, callback);
+        }
+    }
+
+    private int searchLeftmostLongest(CharSequence text, int from, int to, MatchCallback callback) {
+        int count = 0;
+        int position = from;
+        while (position <= to) {
+            int end = findEnd(text, position, to);
+            if (end < 0) {
+                break;
+            }
+            int start = findStart(text, position, end);
+            count++;
+            if (!callback.onMatch(start, end)) {
+                break;
+            }
+            position = end > start ? end : end + 1;
+        }
+        return count;
+    }
+
+    /**
+     * Runs the forward scan from a position until every run is over
+     * @return The end of the leftmost longest match, or -1 if there is none
+     */
+    private int findEnd(CharSequence text, int from, int to) {
+        int state = start();
+        if (state == DEAD) {
+            return -1;
+        }
+        int end = matching.get(state) ? from : -1;
+        for (int i = from; i < to; i++) {
+            state = step(state, text.charAt(i));
+            if (state == DEAD) {
+                break;
+            }
+            if (matching.get(state)) {
+                end = i + 1;
+            }
+        }
+        return end;
+    }
+
+    private int searchOverlapping(CharSequence text, int from, int to, MatchCallback callback) {
+        int count = 0;
+        int state = start();
+        if (state == DEAD) {
+            return 0;
+        }
+        // Start offset of each run of the current search state, in the same order
+        int[] starts = new int[forward.getStateCount() + 1];
+        int[] nextStarts = new int[starts.length];
+        starts[1] = from;
+        if (matching.get(state)) {
+            count++;
+            if (!callback.onMatch(from, from)) {
+                return count;
+            }
+        }
+        for (int i = from; i < to; i++) {
+            state = step(state, text.charAt(i));
+            int length = index.length(state);
+            for (int run = 1; run < length; run++) {
+                int source = sources[lastSources + run - 1];
+                nextStarts[run] = source == 0 ? i + 1 : starts[source];
+            }
+            int[] swap = starts;
+            starts = nextStarts;
+            nextStarts = swap;
+            if (matching.get(state)) {
+                count++;
+                if (!callback.onMatch(starts[firstAccepting[state]], i + 1)) {
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Runs the reverse DFA backwards from the end of a match
+     * @return The furthest position, not before from, where a match ending at end starts
+     */
+    private int findStart(CharSequence text, int from, int end) {
+        int state = reverse.getInitialState();
+        int start = end;
+        for (int i = end - 1; i >= from && state != DEAD && reverse.isLive(state); i--) {
+            int symbol = alphabet.indexOf(text.charAt(i));
+            if (symbol == Alphabet.NO_SYMBOL) {
+                break;
+            }
+            state = reverse.target(state, symbol);
+            if (state != DEAD && reverse.isAccepting(state)) {
+                start = i;
+            }
+        }
+        return start;
+    }
+
+    private int start() {
+        if (startState == UNKNOWN) {
+            int length = 1;
+            current[0] = 1;
+            int initialState = forward.getInitialState();
+            if (initialState != DEAD && forward.isLive(initialState)) {
+                current[length++] = initialState;
+            }
+            startState = length == 1 ? DEAD : cache(current, normalize(current, length));
+        }
+        return startState;
+    }
+
+    private int step(int state, char c) {
+        int symbol = alphabet.indexOf(c);
+        int column = symbol == Alphabet.NO_SYMBOL ? otherColumn : symbol;
+        int target = table[state * columns + column];
+        if (target != UNKNOWN) {
+            hits++;
+            if (mode == Mode.ALL_OVERLAPPING) {
+                lastSources = sourceOffsets[state * columns + column];
+            }
+            return target;
+        }
+        misses++;
+        target = computeTransition(state, column);
+        // A flush renumbers the states, so the origin has to be looked up again
+        state = index.find(current, currentLength);
+        table[state * columns + column] = target;
+        if (mode == Mode.ALL_OVERLAPPING) {
+            int length = index.length(target) - 1;
+            sources = ensure(sources, sourcesSize + length);
+            System.arraycopy(nextSources, 1, sources, sourcesSize, length);
+            lastSources = sourcesSize;
+            sourceOffsets[state * columns + column] = sourcesSize;
+            sourcesSize += length;
+        }
+        return target;
+    }
+
+    /**
+     * Computes the search state reached from a cached state
+     * @return The cached target, or DEAD if no run is left
+     */
+    private int computeTransition(int state, int column) {
+        currentLength = index.length(state);
+        current = ensure(current, currentLength);
+        index.copy(state, current);
+        next = ensure(next, currentLength + 1);
+        nextSources = ensure(nextSources, currentLength + 1);
+        boolean injecting = current[0] == 1;
+        next[0] = current[0];
+        int length = 1;
+        stamp++;
+        for (int i = 1; i < currentLength; i++) {
+            int target = column == otherColumn ? DEAD : forward.target(current[i], column);
+            if (target != DEAD && forward.isLive(target) && stamps[target] != stamp) {
+                stamps[target] = stamp;
+                nextSources[length] = i;
+                next[length++] = target;
+            }
+        }
+        int initialState = forward.getInitialState();
+        if (injecting && forward.isLive(initialState) && stamps[initialState] != stamp) {
+            nextSources[length] = 0;
+            next[length++] = initialState;
+        }
+        if (length == 1 && !injecting) {
+            return DEAD;
+        }
+        length = normalize(next, length);
+
+        int target = index.find(next, length);
+        if (target >= 0) {
+            return target;
+        }
+        if (index.size() + 1 >= maxStates || (index.poolSize() + sourcesSize) * 4L > budget) {
+            flush();
+            cache(current, currentLength);
+        }
+        return cache(next, length);
+    }
+
+    /**
+     * Cuts the runs started after the first accepting one in LEFTMOST_LONGEST
+     * mode; in ALL_OVERLAPPING mode, the runs stay in order of start, which
+     * the start offsets carried by the scan rely on
+     * @return The new length of the sequence
+     */
+    private int normalize(int[] sequence, int length) {
+        if (mode == Mode.ALL_OVERLAPPING) {
+            return length;
+        }
+        for (int i = 1; i < length; i++) {
+            if (forward.isAccepting(sequence[i])) {
+                sequence[0] = 0;
+                return i + 1;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Adds a search state to the cache
+     * @return Id of the cached state
+     */
+    private int cache(int[] sequence, int length) {
+        int size = index.size();
+        int id = index.intern(sequence, length);
+        if (id == size) {
+            if ((id + 1) * columns > table.length) {
+                int old = table.length;
+                table = Arrays.copyOf(table, Math.min(maxStates * columns, Math.max(columns, old * 2)));
+                Arrays.fill(table, old, table.length, UNKNOWN);
+                if (mode == Mode.ALL_OVERLAPPING) {
+                    sourceOffsets = Arrays.copyOf(sourceOffsets, table.length);
+                }
+            }
+            if (id >= firstAccepting.length) {
+                firstAccepting = Arrays.copyOf(firstAccepting, Math.max(id + 1, firstAccepting.length * 2));
+            }
+            int accepting = 0;
+            for (int i = 1; i < length && accepting == 0; i++) {
+                if (forward.isAccepting(sequence[i])) {
+                    accepting = i;
+                }
+            }
+            firstAccepting[id] = accepting;
+            matching.set(id, accepting != 0);
+        }
+        return id;
+    }
+
+    /**
+     * Drops every cached search state and transition
+     */
+    private void flush() {
+        flushes++;
+        Arrays.fill(table, 0, index.size() * columns, UNKNOWN);
+        index.clear();
+        matching.clear();
+        sourcesSize = 0;
+        startState = UNKNOWN;
+    }
+
+    private static int[] ensure(int[] array, int capacity) {
+        return capacity <= array.length ? array : Arrays.copyOf(array, Math.max(capacity, array.length * 2));
+    }
+
+    /**
+     * Gets the number of transitions found in the cache
+     * @return The number of cache hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of transitions that had to be computed
+     * @return The number of cache misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of times the cache was flushed because it was full
+     * @return The number of flushes
+     */
+    public long getFlushes() {
+        return flushes;
+    }
+
+    /**
+     * Gets the number of search states currently cached
+     * @return The number of cached states
+     */
+    public int getCachedStates() {
+        return index.size();
+    }
+
+    /**
+     * Gets the DFA of the reversed language, used to find the start of the matches
+     * @return The reverse DFA
+     */
+    public CompiledAutomaton getReverse() {
+        return reverse;
+    }
+
+    /**
+     * Generate a string representation of this searcher
+     * @return A string with the mode and the cache counters
+     */
+    @Override
+    public String toString() {
+        return "TextSearcher{" +
+                "mode=" + mode +
+                ", reverseStates=" + reverse.getStateCount() +
+                ", cachedStates=" + index.size() +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", flushes=" + flushes +
+                '}';
+    }
+
+    /**
+     * Interns int sequences of any length to dense ids. The sequences live
+     * back to back in a single int[] pool and are found again through an open
+     * addressing hash index.
+     */
+    private static class SequenceIndex {
+        private static final int NONE = -1;
+
+        private int[] pool = new int[256];
+        private int poolSize;
+        private int[] offsets = new int[17];
+        private int[] hashes = new int[16];
+        private int[] slots = new int[32];
+        private int size;
+
+        SequenceIndex() {
+            Arrays.fill(slots, NONE);
+        }
+
+        int intern(int[] sequence, int length) {
+            int hash = hash(sequence, length);
+            int slot = slot(sequence, length, hash);
+            if (slots[slot] != NONE) {
+                return slots[slot];
+            }
+            if (size + 1 == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                hashes = Arrays.copyOf(hashes, hashes.length * 2);
+            }
+            pool = ensure(pool, poolSize + length);
+            System.arraycopy(sequence, 0, pool, poolSize, length);
+            poolSize += length;
+            int id = size++;
+            offsets[size] = poolSize;
+            hashes[id] = hash;
+            slots[slot] = id;
+            if (size * 2 > slots.length) {
+                rehash();
+            }
+            return id;
+        }
+
+        int find(int[] sequence, int length) {
+            int slot = slot(sequence, length, hash(sequence, length));
+            return slots[slot];
+        }
+
+        int length(int id) {
+            return offsets[id + 1] - offsets[id];
+        }
+
+        void copy(int id, int[] target) {
+            System.arraycopy(pool, offsets[id], target, 0, length(id));
+        }
+
+        int size() {
+            return size;
+        }
+
+        int poolSize() {
+            return poolSize;
+        }
+
+        void clear() {
+            size = 0;
+            poolSize = 0;
+            Arrays.fill(slots, NONE);
+        }
+
+        private int slot(int[] sequence, int length, int hash) {
+            int mask = slots.length - 1;
+            int slot = hash & mask;
+            while (slots[slot] != NONE) {
+                int id = slots[slot];
+                if (hashes[id] == hash && sameSequence(id, sequence, length)) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private boolean sameSequence(int id, int[] sequence, int length) {
+            if (length(id) != length) {
+                return false;
+            }
+            int offset = offsets[id];
+            for (int i = 0; i < length; i++) {
+                if (pool[offset + i] != sequence[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            Arrays.fill(slots, NONE);
+            int mask = slots.length - 1;
+            for (int id = 0; id < size; id++) {
+                int slot = hashes[id] & mask;
+                while (slots[slot] != NONE) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = id;
+            }
+        }
+
+        private static int hash(int[] sequence, int length) {
+            int hash = 1;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + sequence[i];
+            }
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * Read-only view of bytes as Latin-1 characters
+     */
+    private static class Latin1Text implements CharSequence {
+        private final ByteBuffer bytes;
+
+        Latin1Text(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int length() {
+            return bytes.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes.get(index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new Latin1Text(bytes.duplicate().position(start).limit(end).slice());
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(length());
+            for (int i = 0; i < length(); i++) {
+                text.append(charAt(i));
+            }
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package src;
+
+import java.util.Arrays;
+
+/**
+ * The TokenMatcher class matches words over the full symbols of an automaton.
+ * Multi-character symbols such as "P10" and supplementary code points are
+ * single symbols here, whereas the character based engines only see their
+ * first character. A word is cut into symbols by longest match against the
+ * SymbolTable, then each symbol moves through a table indexed by state and
+ * symbol class, following the first transition whose symbol matches or is
+ * labelled epsilon, as Automaton.belongs does.
+ */
+public class TokenMatcher implements WordMatcher {
+    private static final int DEAD = CompiledAutomaton.DEAD;
+
+    private final SymbolTable symbols;
+    private final SymbolClasses classes;
+    private final int[] classOf;
+    private final int classCount;
+    private final int initialState;
+    private final boolean[] finals;
+    private final int[] table;
+
+    private TokenMatcher(SymbolTable symbols, SymbolClasses classes, int initialState, boolean[] finals,
+                         int[] table) {
+        this.symbols = symbols;
+        this.classes = classes;
+        this.classOf = classes.classes();
+        this.classCount = classes.getClassCount();
+        this.initialState = initialState;
+        this.finals = finals;
+        this.table = table;
+    }
+
+    /**
+     * Compiles an automaton over its full symbols
+     * @param automaton The automaton to compile
+     * @return The token matcher
+     */
+    public static TokenMatcher compile(Automaton automaton) {
+        return compile(AutomatonSnapshot.of(automaton));
+    }
+
+    /**
+     * Compiles a snapshot over its full symbols
+     * @param snapshot The snapshot to compile
+     * @return The token matcher
+     */
+    public static TokenMatcher compile(AutomatonSnapshot snapshot) {
+        int stateCount = snapshot.getStateCount();
+        int transitionCount = snapshot.getTransitionCount();
+        SymbolTable symbols = new SymbolTable();
+        int[] transitionSymbols = new int[transitionCount];
+        for (int t = 0; t < transitionCount; t++) {
+            transitionSymbols[t] = symbols.intern(snapshot.getToken(t));
+        }
+        int epsilon = symbols.idOfCodePoint(Transition.EPSILON);
+        int symbolCount = symbols.size();
+
+        // Fill each row from the last transition of the state to the first,
+        // so that the first matching transition is the one kept
+        int[] table = new int[stateCount * symbolCount];
+        Arrays.fill(table, DEAD);
+        for (int t = transitionCount - 1; t >= 0; t--) {
+            int row = snapshot.getOrigin(t) * symbolCount;
+            if (transitionSymbols[t] == epsilon) {
+                Arrays.fill(table, row, row + symbolCount, snapshot.getTarget(t));
+            } else {
+                table[row + transitionSymbols[t]] = snapshot.getTarget(t);
+            }
+        }
+
+        boolean[] finals = new boolean[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            finals[state] = snapshot.isFinal(state);
+        }
+        SymbolClasses classes = SymbolClasses.of(table, stateCount, symbolCount);
+        return new TokenMatcher(symbols, classes, snapshot.getInitialState(), finals,
+                classes.compress(table, stateCount));
+    }
+
+    /**
+     * Checks if a word belongs to the language of this automaton
+     * @param word The word to check, cut into symbols by longest match
+     * @return true if the word is accepted, false otherwise
+     */
+    @Override
+    public boolean belongs(CharSequence word) {
+        int state = initialState;
+        if (state == AutomatonSnapshot.NO_STATE) {
+            return false;
+        }
+        int i = 0;
+        while (i < word.length()) {
+            int symbol = symbols.match(word, i);
+            if (symbol == SymbolTable.NO_SYMBOL) {
+                return false;
+            }
+            state = table[state * classCount + classOf[symbol]];
+            if (state == DEAD) {
+                return false;
+            }
+            i += symbols.tokenLength(symbol);
+        }
+        return finals[state];
+    }
+
+    /**
+     * Checks if a sequence of symbol ids belongs to the language of this automaton
+     * @param word Ids of the symbols, as given by getSymbols()
+     * @return true if the word is accepted, false otherwise
+     */
+    public boolean belongs(int[] word) {
+        int state = initialState;
+        if (state == AutomatonSnapshot.NO_STATE) {
+            return false;
+        }
+        for (int symbol : word) {
+            if (symbol < 0 || symbol >= classOf.length) {
+                return false;
+            }
+            state = table[state * classCount + classOf[symbol]];
+            if (state == DEAD) {
+                return false;
+            }
+        }
+        return finals[state];
+    }
+
+    /**
+     * Cuts a word into symbols by longest match
+     * @param word The word to cut
+     * @return The ids of its symbols, or null if some part of the word is not a symbol
+     */
+    public int[] tokenize(CharSequence word) {
+        int[] ids = new int[word.length()];
+        int count = 0;
+        int i = 0;
+        while (i < word.length()) {
+            int symbol = symbols.match(word, i);
+            if (symbol == SymbolTable.NO_SYMBOL) {
+                return null;
+            }
+            ids[count++] = symbol;
+            i += symbols.tokenLength(symbol);
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * Gets the symbols of the automaton
+     * @return The symbol table
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Gets the equivalence classes of the symbols
+     * @return The symbol classes
+     */
+    public SymbolClasses getSymbolClasses() {
+        return classes;
+    }
+
+    /**
+     * Generate a string representation of this matcher
+     * @return A string with its dimensions
+     */
+    @Override
+    public String toString() {
+        return "TokenMatcher{" +
+                "states=" + finals.length +
+                ", symbols=" + symbols.size() +
+                ", classes=" + classCount +
+                '}';
+    }
+}
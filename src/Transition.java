@@ -1,11 +1,18 @@
 package src;
 
 public class Transition {
+    /**
+     * Symbol of the epsilon transitions
+     */
+    public static final char EPSILON = 'ε';
+
     public State originState;
     public State finalState;
     public char symbol;
     public String condition;
     public String stackOperations;
+    private Guard guard;
+    private String token;
 
     /**
      * Constructor for creating a basic transition
@@ -67,6 +74,35 @@ public class Transition {
         this.symbol = symbol;
     }
 
+    /**
+     * Get the full text of the symbol, which differs from getSymbol() for
+     * multi-character symbols such as "P10"
+     * @return The symbol text
+     */
+    public String getToken() {
+        return token != null ? token : String.valueOf(symbol);
+    }
+
+    /**
+     * Set the full text of the symbol
+     * @param token The symbol text, or null to use getSymbol()
+     */
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Checks if the full text of the symbol is a given one, without building it
+     * @param token The symbol text
+     * @return true if getToken() equals it
+     */
+    public boolean readsToken(String token) {
+        if (this.token != null) {
+            return this.token.equals(token);
+        }
+        return token.length() == 1 && token.charAt(0) == getSymbol();
+    }
+
     /**
      * Get the condition for this transition
      * @return The condition string
@@ -83,6 +119,22 @@ public class Transition {
         this.condition = condition;
     }
 
+    /**
+     * Get the compiled form of the condition
+     * @return The guard, or null if the transition has no condition
+     */
+    public Guard getGuard() {
+        return guard;
+    }
+
+    /**
+     * Set the compiled form of the condition
+     * @param guard The new guard, or null
+     */
+    public void setGuard(Guard guard) {
+        this.guard = guard;
+    }
+
     /**
      * Get the stack operations for this transition
      * @return The stack operations string
@@ -0,0 +1,222 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The TransitionProfiler class records how often each transition of an
+ * automaton is taken over a sample of words, following the same first
+ * matching transition as Automaton.belongs, and uses these counts to lay the
+ * automaton out for its hot paths.
+ *
+ * reorderTransitions sorts the outgoing transitions of every state by
+ * decreasing use, so that belongs finds the usual transition first. The sort
+ * is stable and never moves a transition across an epsilon transition, which
+ * matches every symbol; since only the first transition on a symbol is ever
+ * taken, this keeps the accepted language unchanged.
+ *
+ * compile numbers the states of the compiled table by decreasing number of
+ * visits, so that the rows of the hot states share cache lines and pages
+ * instead of being spread over the whole table.
+ */
+public class TransitionProfiler {
+    private final Automaton automaton;
+    private final List<State> states;
+    private final Map<State, Integer> stateIndices = new HashMap<>();
+    private final Map<Transition, Integer> transitionIndices = new HashMap<>();
+    private final long[] visits;
+    private final long[] uses;
+    private long words;
+
+    /**
+     * Constructor for profiling an automaton. Transitions are numbered by
+     * their position in getTransitions() and states in the order of
+     * reachableStates(); states and transitions added later are not profiled.
+     * @param automaton The automaton to profile
+     */
+    public TransitionProfiler(Automaton automaton) {
+        this.automaton = automaton;
+        this.states = automaton.reachableStates();
+        for (int i = 0; i < states.size(); i++) {
+            stateIndices.put(states.get(i), i);
+        }
+        int t = 0;
+        for (Transition transition : automaton.getTransitions()) {
+            transitionIndices.put(transition, t++);
+        }
+        this.visits = new long[states.size()];
+        this.uses = new long[t];
+    }
+
+    /**
+     * Records the transitions taken by a word, up to the first symbol that cannot be read
+     * @param word The word to follow
+     */
+    public void record(CharSequence word) {
+        words++;
+        State state = automaton.getInitialState();
+        if (state == null) {
+            return;
+        }
+        count(visits, stateIndices.get(state));
+        for (int i = 0; i < word.length(); i++) {
+            char symbol = word.charAt(i);
+            if (!automaton.getAlphabet().contains(symbol)) {
+                return;
+            }
+            Transition transition = state.getTransition(symbol);
+            if (transition == null) {
+                return;
+            }
+            count(uses, transitionIndices.get(transition));
+            state = transition.getFinalState();
+            count(visits, stateIndices.get(state));
+        }
+    }
+
+    /**
+     * Records the transitions taken by every word of a sample
+     * @param sample The words to follow
+     */
+    public void recordAll(Iterable<? extends CharSequence> sample) {
+        for (CharSequence word : sample) {
+            record(word);
+        }
+    }
+
+    private static void count(long[] counts, Integer index) {
+        if (index != null) {
+            counts[index]++;
+        }
+    }
+
+    /**
+     * Gets the number of words recorded
+     * @return The count
+     */
+    public long getWordCount() {
+        return words;
+    }
+
+    /**
+     * Gets the number of times a transition was taken
+     * @param transition Position of the transition in getTransitions()
+     * @return The count
+     */
+    public long getUses(int transition) {
+        return uses[transition];
+    }
+
+    /**
+     * Gets the number of times a transition was taken
+     * @param transition The transition
+     * @return The count, 0 for a transition that is not profiled
+     */
+    public long getUses(Transition transition) {
+        Integer index = transitionIndices.get(transition);
+        return index == null ? 0 : uses[index];
+    }
+
+    /**
+     * Gets the number of times a state was entered, the initial state counting once per word
+     * @param state The state
+     * @return The count, 0 for a state that is not profiled
+     */
+    public long getVisits(State state) {
+        Integer index = stateIndices.get(state);
+        return index == null ? 0 : visits[index];
+    }
+
+    /**
+     * Sorts the outgoing transitions of every reachable state by decreasing
+     * use, without moving any transition across an epsilon transition
+     * @throws UnsupportedOperationException If the transitions are read-only, as in an OffHeapAutomaton
+     */
+    public void reorderTransitions() {
+        for (State state : states) {
+            List<Transition> transitions = state.getTransitions();
+            List<Transition> sorted = new ArrayList<>(transitions);
+            int start = 0;
+            for (int i = 0; i <= sorted.size(); i++) {
+                if (i == sorted.size() || sorted.get(i).getSymbol() == Transition.EPSILON) {
+                    sorted.subList(start, i).sort((a, b) -> Long.compare(getUses(b), getUses(a)));
+                    start = i + 1;
+                }
+            }
+            for (int i = 0; i < sorted.size(); i++) {
+                if (transitions.get(i) != sorted.get(i)) {
+                    transitions.set(i, sorted.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the hot-path order of the states: by decreasing number of visits,
+     * ties and unvisited states keeping the breadth-first order of
+     * reachableStates(), which follows the transitions in their current order
+     * @return The states, the initial state first
+     */
+    public List<State> hotStateOrder() {
+        List<State> bfs = automaton.reachableStates();
+        Integer[] order = new Integer[bfs.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        long[] counts = new long[bfs.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = getVisits(bfs.get(i));
+        }
+        // The initial state stays first, as in every other numbering of the states
+        Arrays.sort(order, 1, Math.max(1, order.length), (a, b) -> Long.compare(counts[b], counts[a]));
+        List<State> hot = new ArrayList<>(order.length);
+        for (Integer i : order) {
+            hot.add(bfs.get(i));
+        }
+        return hot;
+    }
+
+    /**
+     * Compiles the automaton with its states numbered in hot-path order
+     * @return The compiled automaton, accepting the same words as belongs
+     * @throws IllegalArgumentException If a symbol has several characters, such as "P10"
+     */
+    public CompiledAutomaton compile() {
+        CompiledAutomaton compiled = automaton.compile();
+        List<State> reachable = automaton.reachableStates();
+        Map<State, Integer> compiledIndices = new HashMap<>();
+        for (int i = 0; i < reachable.size(); i++) {
+            compiledIndices.put(reachable.get(i), i);
+        }
+        List<State> hot = hotStateOrder();
+        int[] order = new int[hot.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = compiledIndices.get(hot.get(i));
+        }
+        return compiled.renumber(order);
+    }
+
+    /**
+     * Generate a string representation of this profiler
+     * @return A string with the number of words and transitions taken
+     */
+    @Override
+    public String toString() {
+        long taken = 0;
+        int used = 0;
+        for (long count : uses) {
+            taken += count;
+            if (count > 0) {
+                used++;
+            }
+        }
+        return "TransitionProfiler{" +
+                "words=" + words +
+                ", transitionsTaken=" + taken +
+                ", transitionsUsed=" + used + "/" + uses.length +
+                '}';
+    }
+}
@@ -0,0 +1,58 @@
+package src;
+
+/**
+ * The WordMatcher interface is implemented by every engine able to decide
+ * whether a word belongs to the language of an automaton.
+ */
+public interface WordMatcher {
+    /**
+     * Automata with at most this many states are simulated bit-parallel
+     * instead of being determinized
+     */
+    int MAX_BIT_PARALLEL_STATES = 256;
+
+    /**
+     * Largest masks, in bytes, that a BitParallelNfa is built with when the
+     * subset construction gives up; beyond them a LazyDfa is used
+     */
+    long MAX_BIT_PARALLEL_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Checks if a word belongs to the language recognized by this matcher
+     * @param word The word to check
+     * @return true if the word is accepted, false otherwise
+     */
+    boolean belongs(CharSequence word);
+
+    /**
+     * Chooses a matching engine for an NFA graph based on its shape and state count.
+     * Deterministic graphs and graphs too large for bit-parallel simulation are
+     * determinized; small nondeterministic graphs are simulated with BitParallelNfa,
+     * which avoids the exponential blow-up of the subset construction. When
+     * determinizing a large graph exceeds 4 DFA states per NFA state, it is
+     * simulated with BitParallelNfa if its masks take at most
+     * MAX_BIT_PARALLEL_BYTES, and with a LazyDfa otherwise. The matcher may
+     * keep scratch state and must not be shared between threads.
+     * @param nfa The graph to match against
+     * @return A matcher following epsilon transitions without consuming input
+     */
+    static WordMatcher of(NfaGraph nfa) {
+        if (nfa.isDeterministic()) {
+            return new Determinizer(nfa).determinize();
+        }
+        if (nfa.getStateCount() <= MAX_BIT_PARALLEL_STATES && BitParallelNfa.tableBytes(nfa) <= MAX_BIT_PARALLEL_BYTES) {
+            return new BitParallelNfa(nfa);
+        }
+
+        Determinizer determinizer = new Determinizer(nfa);
+        determinizer.setMaxStates(4 * nfa.getStateCount());
+        try {
+            return determinizer.determinize();
+        } catch (IllegalStateException e) {
+            if (BitParallelNfa.tableBytes(nfa) <= MAX_BIT_PARALLEL_BYTES) {
+                return new BitParallelNfa(nfa);
+            }
+            return new LazyDfa(nfa, LazyDfa.DEFAULT_BUDGET);
+        }
+    }
+}
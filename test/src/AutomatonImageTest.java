@@ -0,0 +1,91 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that a mapped image accepts like Automaton.belongs, that writing an
+ * image never disturbs the automata mapping the previous file, and that
+ * damaged images are refused when opened rather than failing in belongs.
+ */
+class AutomatonImageTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void acceptsLikeBelongs() throws IOException {
+        Path image = directory.resolve("image.bin");
+        for (TestAutomata.Case test : TestAutomata.cases()) {
+            AutomatonImage.write(test.automaton(), image);
+            TestAutomata.assertLikeBelongs("MappedAutomaton", test, MappedAutomaton.open(image));
+        }
+    }
+
+    @Test
+    void rewriteLeavesMappedImagesIntact() throws IOException {
+        CompiledAutomaton first = TestAutomata.random(40, "ab", 0.8, 0.2, 0.2, 1).compile();
+        CompiledAutomaton second = TestAutomata.random(3, "abc", 0.8, 0.2, 0.2, 2).compile();
+        Path image = directory.resolve("automaton.bin");
+        AutomatonImage.write(first, image);
+        MappedAutomaton mapped = MappedAutomaton.open(image);
+
+        AutomatonImage.write(second, image);
+        MappedAutomaton remapped = MappedAutomaton.open(image);
+        for (String word : TestAutomata.allWords("abc", 5)) {
+            assertEquals(first.belongs(word), mapped.belongs(word), "old mapping on '" + word + "'");
+            assertEquals(second.belongs(word), remapped.belongs(word), "new mapping on '" + word + "'");
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(image), files.toList(), "no temporary file is left");
+        }
+    }
+
+    @Test
+    void damagedImagesAreRefusedWhenOpened() throws IOException {
+        Automaton automaton = new AutomatonLoader().loadAutomaton(Path.of("lib/automate_tp_personnage.txt"));
+        Path image = directory.resolve("personnage.bin");
+        AutomatonImage.write(automaton, image);
+        byte[] bytes = Files.readAllBytes(image);
+        List<String> words = TestAutomata.randomWords("QJDPWGEANS#", 50, 12, 5);
+
+        for (int length = 0; length < bytes.length; length += 4) {
+            ByteBuffer truncated = ByteBuffer.wrap(bytes, 0, length);
+            assertThrows(IOException.class, () -> MappedAutomaton.wrap(truncated), "truncated to " + length);
+        }
+
+        Random random = new Random(9);
+        for (int round = 0; round < 5000; round++) {
+            ByteBuffer damaged = ByteBuffer.wrap(bytes.clone()).order(ByteOrder.LITTLE_ENDIAN);
+            int position = random.nextInt(bytes.length / 4) * 4;
+            damaged.putInt(position, random.nextBoolean() ? random.nextInt() : random.nextInt(40) - 20);
+            MappedAutomaton mapped;
+            try {
+                mapped = MappedAutomaton.wrap(damaged);
+            } catch (IOException e) {
+                continue;
+            }
+            // Accepted: the image must be usable without unchecked exceptions
+            GuardContext context = mapped.newContext();
+            for (String word : words) {
+                mapped.belongs(word);
+                mapped.belongs(word, context);
+            }
+            for (int state = 0; state < mapped.getStateCount(); state++) {
+                mapped.getStateName(state);
+                mapped.isLive(state);
+            }
+        }
+    }
+}
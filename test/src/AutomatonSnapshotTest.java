@@ -0,0 +1,87 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a snapshot, and a MatchCursor over its compiled automaton,
+ * accept like Automaton.belongs, and that a snapshot does not change once
+ * taken, its guard variables included, whatever is done to its automaton or
+ * built from it afterwards.
+ */
+class AutomatonSnapshotTest {
+    private static final Path PERSONNAGE = Path.of("lib/automate_tp_personnage.txt");
+
+    @Test
+    void acceptsLikeBelongs() throws IOException {
+        for (TestAutomata.Case test : TestAutomata.cases()) {
+            Automaton automaton = test.automaton();
+            TestAutomata.assertLikeBelongs("AutomatonSnapshot", test, automaton.snapshot());
+            MatchCursor cursor = new MatchCursor(automaton.compile());
+            for (String word : test.words()) {
+                cursor.reset();
+                cursor.feed(word);
+                assertEquals(automaton.belongs(word), cursor.isAccepting(), "MatchCursor, " + test.name() + " on '" + word + "'");
+            }
+        }
+    }
+
+    @Test
+    void guardVariablesAreFrozenWithTheSnapshot() throws IOException {
+        Automaton automaton = new AutomatonLoader().loadAutomaton(PERSONNAGE);
+        AutomatonSnapshot snapshot = AutomatonSnapshot.of(automaton);
+        GuardVariables variables = snapshot.getGuardVariables();
+        assertTrue(variables.isFrozen());
+        // Conditions of stack operation alternatives have their slots before any PushdownAutomaton is built
+        assertNotEquals(GuardVariables.NO_SLOT, variables.flagSlot("on star"));
+        assertNotEquals(GuardVariables.NO_SLOT, variables.flagSlot("in box"));
+        int counters = variables.getCounterCount();
+        int flags = variables.getFlagCount();
+
+        State origin = automaton.getInitialState();
+        Transition transition = automaton.addTransition(origin, origin, 'x');
+        transition.setCondition("[fuel > 3 and engine on]");
+        transition.setGuard(Guard.compile(transition.getCondition(), automaton.getGuardVariables()));
+        PushdownAutomaton pda = PushdownAutomaton.compile(snapshot, automaton.getInitialStackOperation());
+        PushdownAutomaton.compile(automaton);
+
+        assertSame(variables, pda.getGuardVariables());
+        assertEquals(counters, variables.getCounterCount());
+        assertEquals(flags, variables.getFlagCount());
+        assertEquals(GuardVariables.NO_SLOT, variables.counterSlot("fuel"));
+        assertNotEquals(GuardVariables.NO_SLOT, automaton.getGuardVariables().counterSlot("fuel"));
+        assertThrows(IllegalStateException.class, () -> Guard.compile("[fuel > 3]", variables));
+    }
+
+    @Test
+    void loadedSnapshotsHaveEveryVariable() throws IOException {
+        AutomatonSnapshot snapshot = new AutomatonLoader().load(PERSONNAGE);
+        GuardVariables variables = snapshot.getGuardVariables();
+        assertTrue(variables.isFrozen());
+        assertNotEquals(GuardVariables.NO_SLOT, variables.counterSlot("nbO"));
+        assertNotEquals(GuardVariables.NO_SLOT, variables.flagSlot("object nearby"));
+        assertNotEquals(GuardVariables.NO_SLOT, variables.flagSlot("on star"));
+        int flags = variables.getFlagCount();
+        PushdownAutomaton.compile(snapshot, null);
+        assertEquals(flags, variables.getFlagCount());
+    }
+
+    @Test
+    void editsReturnNewSnapshots() throws IOException {
+        AutomatonSnapshot snapshot = new AutomatonLoader().load(PERSONNAGE);
+        AutomatonSnapshot edited = snapshot.withState("extra", true)
+                .withTransition(snapshot.getInitialState(), snapshot.getStateCount(), 'x');
+        assertEquals(snapshot.getStateCount() + 1, edited.getStateCount());
+        assertEquals(snapshot.getTransitionCount() + 1, edited.getTransitionCount());
+        assertSame(snapshot.getGuardVariables(), edited.getGuardVariables());
+        assertTrue(edited.belongs("x"));
+    }
+}
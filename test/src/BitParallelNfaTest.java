@@ -0,0 +1,68 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the bit-parallel simulation and the engine chosen by WordMatcher.of
+ * against the NFA reference, on small automata and on automata large enough
+ * to be determinized or to fall back to a LazyDfa.
+ */
+class BitParallelNfaTest {
+    @Test
+    void acceptsLikeTheNfa() throws IOException {
+        for (TestAutomata.Case test : TestAutomata.cases()) {
+            TestAutomata.assertLikeNfa("BitParallelNfa", test, new BitParallelNfa(test.automaton()));
+            TestAutomata.assertLikeNfa("WordMatcher.of", test, test.automaton().matcher());
+        }
+    }
+
+    @Test
+    void largeRandomAutomataUseEveryNfaEngine() {
+        // Above 256 states, WordMatcher.of determinizes within a state limit or falls back
+        for (int seed = 0; seed < 3; seed++) {
+            Automaton automaton = TestAutomata.random(300, "ab", 0.9, 0.5, 0.1, seed);
+            WordMatcher matcher = automaton.matcher();
+            for (String word : TestAutomata.randomWords("ab", 300, 40, seed)) {
+                assertEquals(TestAutomata.nfaAccepts(automaton, word), matcher.belongs(word),
+                        matcher.getClass().getSimpleName() + " on '" + word + "'");
+            }
+        }
+    }
+
+    @Test
+    void fallbackStaysWithinMemory() {
+        // (any)* a (any){k}: the subset construction needs 2^k states, and the
+        // masks of a bit-parallel simulation would take over 100 MB
+        String symbols = "abcdefghijklmnopqrstuvwxyz";
+        int length = 6000;
+        Automaton automaton = new Automaton();
+        State[] states = new State[length + 2];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = new State("q" + i, i == states.length - 1);
+            automaton.addState(states[i]);
+        }
+        automaton.setInitialState(states[0]);
+        automaton.addTransition(states[0], states[1], 'a');
+        for (int i = 0; i < symbols.length(); i++) {
+            automaton.addTransition(states[0], states[0], symbols.charAt(i));
+            for (int s = 1; s <= length; s++) {
+                automaton.addTransition(states[s], states[s + 1], symbols.charAt(i));
+            }
+        }
+        NfaGraph nfa = NfaGraph.of(automaton);
+        assertTrue(BitParallelNfa.tableBytes(nfa) > WordMatcher.MAX_BIT_PARALLEL_BYTES);
+        WordMatcher matcher = WordMatcher.of(nfa);
+        assertInstanceOf(LazyDfa.class, matcher);
+        String tail = "b".repeat(length);
+        assertTrue(matcher.belongs("xa" + tail));
+        assertFalse(matcher.belongs("xb" + tail));
+        assertFalse(matcher.belongs(tail));
+    }
+}
@@ -0,0 +1,70 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that BulkMatcher answers like Automaton.belongs, and that BulkMatcher
+ * and TestRunner give the sequential results when a matcher is shared by the
+ * threads of the pool, including a BitParallelNfa whose active sets span
+ * several longs.
+ */
+class BulkMatcherTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void acceptsLikeBelongs() throws IOException {
+        for (TestAutomata.Case test : TestAutomata.cases()) {
+            boolean[] results = new BulkMatcher(test.automaton()).belongs(test.words().toArray(new CharSequence[0]));
+            for (int i = 0; i < results.length; i++) {
+                String word = test.words().get(i);
+                assertEquals(test.automaton().belongs(word), results[i], test.name() + " on '" + word + "'");
+            }
+        }
+    }
+
+    @Test
+    void sharedBitParallelNfa() throws Exception {
+        BitParallelNfa nfa = new BitParallelNfa(TestAutomata.random(100, "ab", 0.9, 0.5, 0.1, 3));
+        List<String> words = TestAutomata.randomWords("ab", 100_000, 30, 3);
+        boolean[] expected = new boolean[words.size()];
+        StringBuilder tests = new StringBuilder();
+        for (int i = 0; i < words.size(); i++) {
+            expected[i] = nfa.belongs(words.get(i));
+            tests.append(words.get(i)).append(" -> ").append(expected[i]).append('\n');
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(8);
+        try {
+            boolean[] results = new BulkMatcher(nfa, pool).belongs(words.toArray(new CharSequence[0]));
+            List<Integer> wrong = new ArrayList<>();
+            for (int i = 0; i < words.size(); i++) {
+                if (results[i] != expected[i]) {
+                    wrong.add(i);
+                }
+            }
+            assertEquals(List.of(), wrong, "words answered differently by BulkMatcher");
+
+            Path file = directory.resolve("tests.txt");
+            Files.writeString(file, tests, StandardCharsets.UTF_8);
+            TestRunner runner = new TestRunner(nfa, pool);
+            runner.setBatchSize(512);
+            TestReport report = runner.run(file, new StringWriter());
+            assertEquals(words.size(), report.getPassed(), "cases passed by TestRunner");
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+/**
+ * Checks that a compiled automaton accepts the same words as Automaton.belongs,
+ * on the automata of lib/ and on random automata.
+ */
+class CompiledAutomatonTest {
+    @Test
+    void acceptsLikeBelongs() throws IOException {
+        for (TestAutomata.Case test : TestAutomata.cases()) {
+            TestAutomata.assertLikeBelongs("CompiledAutomaton", test, test.automaton().compile());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+/**
+ * Checks that the subset construction accepts the words of the NFA, whose
+ * epsilon transitions do not consume input, on the automata of lib/ and on
+ * random automata.
+ */
+class DeterminizerTest {
+    @Test
+    void acceptsLikeTheNfa() throws IOException {
+        for (TestAutomata.Case test : TestAutomata.cases()) {
+            TestAutomata.assertLikeNfa("Determinizer", test, new Determinizer(test.automaton()).determinize());
+        }
+    }
+}
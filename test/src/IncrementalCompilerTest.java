@@ -0,0 +1,103 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the version published by IncrementalCompiler.snapshot accepts
+ * like Automaton.belongs, and the same words as a full compilation after
+ * every edit, and that the versions published earlier do not change.
+ */
+class IncrementalCompilerTest {
+    private static final String SYMBOLS = "abcz";
+    private static final List<String> WORDS = TestAutomata.allWords(SYMBOLS, 4);
+
+    @Test
+    void acceptsLikeBelongs() throws IOException {
+        for (TestAutomata.Case test : TestAutomata.cases()) {
+            TestAutomata.assertLikeBelongs("IncrementalCompiler", test, test.automaton().incrementalCompiler().snapshot());
+        }
+    }
+
+    @Test
+    void newSymbolOnUnreachableState() {
+        Automaton automaton = new Automaton();
+        State q0 = new State("q0", false);
+        State q1 = new State("q1", true);
+        State r = new State("r", false);
+        automaton.addState(q0);
+        automaton.addState(q1);
+        automaton.addState(r);
+        automaton.setInitialState(q0);
+        automaton.addTransition(q0, q1, Transition.EPSILON);
+        IncrementalCompiler compiler = automaton.incrementalCompiler();
+        compiler.snapshot();
+
+        automaton.addTransition(r, r, 'z');
+        assertTrue(automaton.belongs("z"));
+        assertTrue(automaton.compile().belongs("z"));
+        assertTrue(compiler.snapshot().belongs("z"));
+    }
+
+    @Test
+    void newSymbolWhoseTargetIsTheDefault() {
+        Automaton automaton = new Automaton();
+        State q0 = new State("q0", false);
+        State q1 = new State("q1", true);
+        automaton.addState(q0);
+        automaton.addState(q1);
+        automaton.setInitialState(q0);
+        automaton.addTransition(q0, q1, Transition.EPSILON);
+        IncrementalCompiler compiler = automaton.incrementalCompiler();
+        compiler.snapshot();
+
+        // q0 already goes to q1 for every symbol, so no row changes
+        automaton.addTransition(q0, q1, 'z');
+        assertTrue(compiler.snapshot().belongs("z"));
+    }
+
+    @Test
+    void randomEdits() {
+        for (int seed = 0; seed < 30; seed++) {
+            Random random = new Random(seed);
+            Automaton automaton = TestAutomata.random(3, "ab", 0.5, 0.2, 0.2, seed);
+            List<State> states = new ArrayList<>(automaton.getStates());
+            IncrementalCompiler compiler = automaton.incrementalCompiler();
+            List<ChunkedAutomaton> versions = new ArrayList<>();
+            List<CompiledAutomaton> expected = new ArrayList<>();
+            for (int edit = 0; edit < 40; edit++) {
+                if (random.nextInt(5) == 0) {
+                    State state = new State("n" + edit, random.nextBoolean());
+                    automaton.addState(state);
+                    states.add(state);
+                }
+                int symbol = random.nextInt(SYMBOLS.length() + 1);
+                automaton.addTransition(states.get(random.nextInt(states.size())),
+                        states.get(random.nextInt(states.size())),
+                        symbol == SYMBOLS.length() ? Transition.EPSILON : SYMBOLS.charAt(symbol));
+
+                ChunkedAutomaton snapshot = compiler.snapshot();
+                CompiledAutomaton compiled = automaton.compile();
+                for (String word : WORDS) {
+                    assertEquals(compiled.belongs(word), snapshot.belongs(word),
+                            "seed " + seed + ", edit " + edit + " on '" + word + "'");
+                }
+                versions.add(snapshot);
+                expected.add(compiled);
+            }
+            for (int v = 0; v < versions.size(); v++) {
+                for (String word : WORDS) {
+                    assertEquals(expected.get(v).belongs(word), versions.get(v).belongs(word),
+                            "seed " + seed + ", version " + v + " on '" + word + "' after later edits");
+                }
+            }
+        }
+    }
+}
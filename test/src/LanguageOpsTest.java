@@ -0,0 +1,114 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks LanguageOps against brute force: every word up to a length is given
+ * to both automata, and the results of the operations must agree with what
+ * belongs says about each word.
+ */
+class LanguageOpsTest {
+    private static final int MAX_LENGTH = 6;
+
+    @Test
+    void randomPairs() {
+        for (int seed = 0; seed < 30; seed++) {
+            CompiledAutomaton a = TestAutomata.random(2 + seed % 5, "ab", 0.8, 0.2, 0.2, seed).compile();
+            CompiledAutomaton b = TestAutomata.random(2 + seed % 4, seed % 3 == 0 ? "abc" : "ab", 0.8, 0.2, 0.2,
+                    1000 + seed).compile();
+            check("seed " + seed, a, b);
+            check("seed " + seed + " with itself", a, a);
+            check("seed " + seed + " with its minimal form", a, Minimizer.minimize(a));
+        }
+    }
+
+    private void check(String name, CompiledAutomaton a, CompiledAutomaton b) {
+        List<String> words = TestAutomata.allWords(symbols(a, b), MAX_LENGTH);
+        CompiledAutomaton intersection = LanguageOps.intersection(a, b);
+        CompiledAutomaton union = LanguageOps.union(a, b);
+        CompiledAutomaton difference = LanguageOps.difference(a, b);
+        CompiledAutomaton complement = LanguageOps.complement(a);
+        String alphabetA = symbols(a, a);
+
+        String shortestA = null;
+        String shortestDifference = null;
+        String shortestCounterexample = null;
+        for (String word : words) {
+            boolean inA = a.belongs(word);
+            boolean inB = b.belongs(word);
+            String message = name + " on '" + word + "': ";
+            assertEquals(inA && inB, intersection.belongs(word), message + "intersection");
+            assertEquals(inA || inB, union.belongs(word), message + "union");
+            assertEquals(inA && !inB, difference.belongs(word), message + "difference");
+            boolean overAlphabet = word.chars().allMatch(c -> alphabetA.indexOf(c) >= 0);
+            assertEquals(overAlphabet && !inA, complement.belongs(word), message + "complement");
+            // Words are listed shortest first, so the first one found is a shortest one
+            if (inA && shortestA == null) {
+                shortestA = word;
+            }
+            if (inA && !inB && shortestDifference == null) {
+                shortestDifference = word;
+            }
+            if (inA != inB && shortestCounterexample == null) {
+                shortestCounterexample = word;
+            }
+        }
+
+        String found = LanguageOps.findWord(a);
+        if (shortestA != null) {
+            assertFalse(LanguageOps.isEmpty(a), name + ": isEmpty");
+            assertNotNull(found, name + ": findWord");
+            assertTrue(a.belongs(found), name + ": findWord gives an accepted word");
+            assertEquals(shortestA.length(), found.length(), name + ": findWord gives a shortest word");
+        } else if (found != null) {
+            assertTrue(a.belongs(found) && found.length() > MAX_LENGTH, name + ": findWord beyond the words tried");
+        }
+
+        String notIn = LanguageOps.findWordNotIn(a, b);
+        if (shortestDifference != null) {
+            assertNotNull(notIn, name + ": findWordNotIn");
+            assertEquals(shortestDifference.length(), notIn.length(), name + ": findWordNotIn gives a shortest word");
+        }
+        if (notIn != null) {
+            assertTrue(a.belongs(notIn) && !b.belongs(notIn), name + ": findWordNotIn gives a word of a not in b");
+        }
+        assertEquals(notIn == null, LanguageOps.isSubset(a, b), name + ": isSubset");
+
+        String counterexample = LanguageOps.findCounterexample(a, b);
+        if (shortestCounterexample != null) {
+            assertNotNull(counterexample, name + ": findCounterexample");
+        }
+        if (counterexample != null) {
+            assertTrue(a.belongs(counterexample) != b.belongs(counterexample),
+                    name + ": findCounterexample gives a word accepted by one automaton only");
+        }
+        assertEquals(counterexample == null, LanguageOps.equivalent(a, b), name + ": equivalent");
+    }
+
+    /**
+     * Gets the symbols of two automata, plus one neither of them knows
+     */
+    private static String symbols(CompiledAutomaton a, CompiledAutomaton b) {
+        StringBuilder symbols = new StringBuilder();
+        for (CompiledAutomaton automaton : new CompiledAutomaton[]{a, b}) {
+            Alphabet alphabet = automaton.getAlphabet();
+            for (int i = 0; i < alphabet.size(); i++) {
+                if (symbols.indexOf(String.valueOf(alphabet.symbolAt(i))) < 0) {
+                    symbols.append(alphabet.symbolAt(i));
+                }
+            }
+        }
+        if (a != b) {
+            symbols.append('#');
+        }
+        return symbols.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the lazy DFA against the NFA reference, with a budget large enough
+ * to keep every state and with one so small that the cache keeps flushing.
+ */
+class LazyDfaTest {
+    @Test
+    void acceptsLikeTheNfa() throws IOException {
+        for (TestAutomata.Case test : TestAutomata.cases()) {
+            TestAutomata.assertLikeNfa("LazyDfa", test, new LazyDfa(NfaGraph.of(test.automaton()), 4096));
+        }
+    }
+
+    @Test
+    void flushesWithinTheBudget() {
+        // (a|b)* a (a|b){8}: the subset construction needs 2^9 states
+        int length = 8;
+        Automaton automaton = new Automaton();
+        State[] states = new State[length + 2];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = new State("q" + i, i == states.length - 1);
+            automaton.addState(states[i]);
+        }
+        automaton.setInitialState(states[0]);
+        automaton.addTransition(states[0], states[0], 'a');
+        automaton.addTransition(states[0], states[0], 'b');
+        automaton.addTransition(states[0], states[1], 'a');
+        for (int s = 1; s <= length; s++) {
+            automaton.addTransition(states[s], states[s + 1], 'a');
+            automaton.addTransition(states[s], states[s + 1], 'b');
+        }
+
+        LazyDfa lazy = new LazyDfa(NfaGraph.of(automaton), 0);
+        for (String word : TestAutomata.randomWords("ab", 500, 40, 1)) {
+            assertEquals(TestAutomata.nfaAccepts(automaton, word), lazy.belongs(word), "LazyDfa on '" + word + "'");
+            assertTrue(lazy.getCachedStates() <= lazy.getMaxStates(), "cached states on '" + word + "'");
+        }
+        assertTrue(lazy.getFlushes() > 0, "flushes");
+    }
+}
@@ -0,0 +1,164 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that belongs counts each rejection under its reason, that NOOP
+ * records nothing, and that both exporters publish the counters.
+ */
+class MatchMetricsTest {
+    @Test
+    void rejectionsAreCountedByReason() {
+        Automaton automaton = automaton();
+        MatchMetrics metrics = automaton.enableMetrics();
+        assertSame(metrics, automaton.getMetrics());
+        match(automaton);
+
+        assertEquals(1, metrics.getAccepted());
+        assertEquals(0, metrics.getRejected(RejectReason.NO_INITIAL_STATE));
+        assertEquals(1, metrics.getRejected(RejectReason.UNKNOWN_SYMBOL));
+        assertEquals(2, metrics.getRejected(RejectReason.MISSING_TRANSITION));
+        assertEquals(2, metrics.getRejected(RejectReason.NON_ACCEPTING_END));
+        assertEquals(5, metrics.getRejected());
+        assertEquals(6, metrics.getWordCount());
+        // q0 is entered by every word, q1 by "ab", "abc", "abx" and "a", q2 by "ab", "abc" and "abx"
+        assertEquals(Map.of("q0", 6L, "q1", 4L, "q2", 3L), stateVisits(metrics));
+        assertTrue(metrics.getLatencyMax() >= metrics.getLatencyPercentile(50));
+
+        Automaton empty = new Automaton();
+        MatchMetrics emptyMetrics = empty.enableMetrics();
+        assertFalse(empty.belongs("a"));
+        assertEquals(1, emptyMetrics.getRejected(RejectReason.NO_INITIAL_STATE));
+
+        metrics.reset();
+        assertEquals(0, metrics.getWordCount());
+        assertEquals(0, metrics.getStateVisits(0));
+    }
+
+    @Test
+    void noopRecordsNothing() {
+        Automaton automaton = automaton();
+        assertSame(MatchMetrics.NOOP, automaton.getMetrics());
+        assertFalse(MatchMetrics.NOOP.isEnabled());
+        match(automaton);
+        MatchMetrics.NOOP.recordAccepted(10);
+        MatchMetrics.NOOP.recordRejected(RejectReason.UNKNOWN_SYMBOL, 10);
+        MatchMetrics.NOOP.recordState(0);
+        assertEquals(0, MatchMetrics.NOOP.getWordCount());
+        assertEquals(0, MatchMetrics.NOOP.getLatencyMax());
+
+        MatchMetrics metrics = automaton.enableMetrics();
+        automaton.disableMetrics();
+        assertSame(MatchMetrics.NOOP, automaton.getMetrics());
+        match(automaton);
+        assertEquals(0, metrics.getWordCount());
+    }
+
+    @Test
+    void textExporterWritesTheCounters() throws IOException {
+        Automaton automaton = automaton();
+        MatchMetrics metrics = automaton.enableMetrics();
+        match(automaton);
+        StringBuilder out = new StringBuilder();
+        new TextMetricsExporter(out).export("test", metrics);
+        String text = out.toString();
+
+        assertTrue(text.startsWith("# test\n"), text);
+        assertTrue(text.contains("\nwords 6\n"), text);
+        assertTrue(text.contains("\naccepted 1\n"), text);
+        assertTrue(text.contains("\nrejected.no_initial_state 0\n"), text);
+        assertTrue(text.contains("\nrejected.unknown_symbol 1\n"), text);
+        assertTrue(text.contains("\nrejected.missing_transition 2\n"), text);
+        assertTrue(text.contains("\nrejected.non_accepting_end 2\n"), text);
+        assertTrue(text.contains("\nstate[q0].visits 6\n"), text);
+        assertTrue(text.contains("\ntransition[q0 -> q1 : a].uses 4\n"), text);
+        // The loop on the unreachable q3 was never taken
+        assertFalse(text.contains("q3"), text);
+    }
+
+    @Test
+    void jmxExporterPublishesLiveCounters() throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        JmxMetricsExporter exporter = new JmxMetricsExporter(server);
+        Automaton automaton = automaton();
+        MatchMetrics metrics = automaton.enableMetrics();
+        exporter.export("test automaton", metrics);
+        ObjectName name = JmxMetricsExporter.objectName("test automaton");
+        MatchMetricsMXBean bean = JMX.newMXBeanProxy(server, name, MatchMetricsMXBean.class);
+
+        match(automaton);
+        assertEquals(6, bean.getWords());
+        assertEquals(1, bean.getAccepted());
+        assertEquals(1L, bean.getRejected().get("UNKNOWN_SYMBOL"));
+        assertEquals(2L, bean.getRejected().get("MISSING_TRANSITION"));
+        assertEquals(Map.of("q0", 6L, "q1", 4L, "q2", 3L), bean.getStateVisits());
+        assertTrue(bean.getLatencyNanos().containsKey("p99"));
+
+        // Exporting again under the same name replaces the published metrics
+        exporter.export("test automaton", automaton.enableMetrics());
+        assertEquals(0, bean.getWords());
+        automaton.belongs("ab");
+        assertEquals(1, bean.getAccepted());
+        bean.reset();
+        assertEquals(0, automaton.getMetrics().getWordCount());
+
+        exporter.unexport("test automaton");
+        assertFalse(server.isRegistered(name));
+    }
+
+    /**
+     * q0 -a-> q1 -b-> q2, q2 being final, and an unreachable q3 -c-> q3
+     */
+    private static Automaton automaton() {
+        Automaton automaton = new Automaton();
+        State q0 = new State("q0", false);
+        State q1 = new State("q1", false);
+        State q2 = new State("q2", true);
+        State q3 = new State("q3", false);
+        automaton.addState(q0);
+        automaton.addState(q1);
+        automaton.addState(q2);
+        automaton.addState(q3);
+        automaton.setInitialState(q0);
+        automaton.addTransition(q0, q1, 'a');
+        automaton.addTransition(q1, q2, 'b');
+        automaton.addTransition(q3, q3, 'c');
+        return automaton;
+    }
+
+    /**
+     * Matches one accepted word and five rejected ones: "abc" and "b" miss a
+     * transition, "abx" holds an unknown symbol, "a" and "" end too early
+     */
+    private static void match(Automaton automaton) {
+        assertTrue(automaton.belongs("ab"));
+        assertFalse(automaton.belongs("abc"));
+        assertFalse(automaton.belongs("b"));
+        assertFalse(automaton.belongs("abx"));
+        assertFalse(automaton.belongs("a"));
+        assertFalse(automaton.belongs(""));
+    }
+
+    private static Map<String, Long> stateVisits(MatchMetrics metrics) {
+        Map<String, Long> visits = new HashMap<>();
+        for (int state = 0; state < metrics.getStateCount(); state++) {
+            if (metrics.getStateVisits(state) > 0) {
+                visits.put(metrics.getStateName(state), metrics.getStateVisits(state));
+            }
+        }
+        return visits;
+    }
+}
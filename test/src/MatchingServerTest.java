@@ -0,0 +1,53 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks the answers of MatchingServer, and that a client connecting after
+ * the service was closed is disconnected instead of left waiting.
+ */
+class MatchingServerTest {
+    private static final CompiledAutomaton AUTOMATON = TestAutomata.random(6, "ab", 0.8, 0.3, 0.2, 5).compile();
+
+    @Test
+    void answersAndDisconnectsOnceTheServiceIsClosed() throws Exception {
+        MatchingService service = new MatchingService(AUTOMATON);
+        try (MatchingServer server = new MatchingServer(service, 0)) {
+            try (Socket socket = connect(server)) {
+                Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                for (String word : TestAutomata.allWords("ab", 3)) {
+                    out.write("W " + word + "\n");
+                    out.flush();
+                    assertEquals(AUTOMATON.belongs(word) ? "1" : "0", in.readLine(), "W " + word);
+                }
+            }
+
+            service.close();
+            for (int client = 0; client < 3; client++) {
+                try (Socket socket = connect(server)) {
+                    BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                    // A timeout here means the connection was accepted but never served nor closed
+                    assertNull(in.readLine(), "client " + client);
+                }
+            }
+        }
+    }
+
+    private static Socket connect(MatchingServer server) throws Exception {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+}
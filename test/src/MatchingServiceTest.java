@@ -0,0 +1,87 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the answers of MatchingService against belongs, and that every
+ * request is answered, one way or another, when the service or a session is
+ * closed while requests are being sent.
+ */
+class MatchingServiceTest {
+    private static final CompiledAutomaton AUTOMATON = TestAutomata.random(6, "ab", 0.8, 0.3, 0.2, 5).compile();
+
+    @Test
+    void answersLikeBelongs() throws Exception {
+        try (MatchingService service = new MatchingService(AUTOMATON)) {
+            List<String> words = TestAutomata.randomWords("abc", 300, 20, 1);
+            List<CompletableFuture<Boolean>> results = new ArrayList<>();
+            for (String word : words) {
+                results.add(service.match(word));
+            }
+            MatchingService.Session session = service.openSession();
+            List<CompletableFuture<Boolean>> ends = new ArrayList<>();
+            for (String word : words) {
+                session.feed(word.substring(0, word.length() / 2));
+                session.feed(word.substring(word.length() / 2));
+                ends.add(session.end());
+            }
+            for (int i = 0; i < words.size(); i++) {
+                boolean expected = AUTOMATON.belongs(words.get(i));
+                assertEquals(expected, results.get(i).get(10, TimeUnit.SECONDS), "match of '" + words.get(i) + "'");
+                assertEquals(expected, ends.get(i).get(10, TimeUnit.SECONDS), "session on '" + words.get(i) + "'");
+            }
+        }
+    }
+
+    @Test
+    void closingCompletesEveryRequest() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            MatchingService service = new MatchingService(AUTOMATON, 64, 16, 10_000);
+            MatchingService.Session session = service.openSession();
+            List<CompletableFuture<Boolean>> results = new ArrayList<>();
+            CountDownLatch started = new CountDownLatch(2);
+            Thread words = new Thread(() -> send(started, results, () -> service.match("abab")));
+            Thread feeds = new Thread(() -> send(started, results, () -> session.feed("ab")));
+            words.start();
+            feeds.start();
+            started.await();
+            if (round % 2 == 0) {
+                session.close();
+            }
+            service.close();
+            words.join();
+            feeds.join();
+            for (CompletableFuture<Boolean> result : results) {
+                try {
+                    result.get(10, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    // Failed because of the close: answered all the same
+                }
+                assertTrue(result.isDone());
+            }
+        }
+    }
+
+    private static void send(CountDownLatch started, List<CompletableFuture<Boolean>> results,
+                             Supplier<CompletableFuture<Boolean>> request) {
+        List<CompletableFuture<Boolean>> sent = new ArrayList<>();
+        started.countDown();
+        for (int i = 0; i < 2000; i++) {
+            sent.add(request.get());
+        }
+        synchronized (results) {
+            results.addAll(sent);
+        }
+    }
+}
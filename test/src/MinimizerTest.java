@@ -0,0 +1,48 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that minimization keeps the language, of a compiled automaton under
+ * the rules of belongs and of a determinized one under the NFA rules, and
+ * that the result is canonical: minimizing it again, or minimizing the
+ * automaton it converts back to, gives the very same table.
+ */
+class MinimizerTest {
+    @Test
+    void keepsTheLanguage() throws IOException {
+        for (TestAutomata.Case test : TestAutomata.cases()) {
+            TestAutomata.assertLikeBelongs("Minimizer", test, Minimizer.minimize(test.automaton().compile()));
+            TestAutomata.assertLikeNfa("Minimizer", test, Minimizer.minimize(test.automaton().determinize()));
+        }
+    }
+
+    @Test
+    void resultIsCanonical() throws IOException {
+        for (TestAutomata.Case test : TestAutomata.cases()) {
+            CompiledAutomaton minimal = Minimizer.minimize(test.automaton().determinize());
+            assertSameTable(test.name() + ", minimized twice", minimal, Minimizer.minimize(minimal));
+            assertSameTable(test.name() + ", through Automaton", minimal,
+                    Minimizer.minimize(Minimizer.minimize(test.automaton()).determinize()));
+        }
+    }
+
+    private static void assertSameTable(String name, CompiledAutomaton expected, CompiledAutomaton actual) {
+        assertEquals(expected.getStateCount(), actual.getStateCount(), name + ": states");
+        assertEquals(expected.getInitialState(), actual.getInitialState(), name + ": initial state");
+        Alphabet alphabet = expected.getAlphabet();
+        for (int state = 0; state < expected.getStateCount(); state++) {
+            assertEquals(expected.isAccepting(state), actual.isAccepting(state), name + ": accepting " + state);
+            for (int symbol = 0; symbol < alphabet.size(); symbol++) {
+                int other = actual.getAlphabet().indexOf(alphabet.symbolAt(symbol));
+                assertEquals(expected.target(state, symbol),
+                        other == Alphabet.NO_SYMBOL ? CompiledAutomaton.DEAD : actual.target(state, other),
+                        name + ": target of " + state + " on " + alphabet.symbolAt(symbol));
+            }
+        }
+    }
+}
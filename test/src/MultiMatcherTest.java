@@ -0,0 +1,94 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that bit i of a MultiMatcher result is set exactly when automaton i
+ * accepts the word, with more automata than the bits of a long, and once the
+ * matcher has stopped caching the product of unrelated automata.
+ */
+class MultiMatcherTest {
+    @Test
+    void acceptsLikeBelongs() throws IOException {
+        for (TestAutomata.Case test : TestAutomata.cases()) {
+            Automaton other = TestAutomata.random(5, "abc", 0.7, 0.3, 0.3, test.name().hashCode());
+            List<Automaton> automata = List.of(test.automaton(), other);
+            assertLikeBelongs(test.name(), automata, new MultiMatcher(automata), test.words());
+        }
+    }
+
+    @Test
+    void moreAutomataThanBitsOfALong() {
+        List<Automaton> automata = randomAutomata(100);
+        MultiMatcher matcher = new MultiMatcher(automata);
+        assertLikeBelongs("100 automata", automata, matcher, TestAutomata.randomWords("abc", 2000, 12, 1));
+        assertFalse(matcher.isDirect());
+    }
+
+    @Test
+    void unrelatedAutomataFallBackToDirectSteps() {
+        // Complete automata never die, so long words keep reaching new tuples
+        List<Automaton> automata = new ArrayList<>();
+        CompiledAutomaton[] compiled = new CompiledAutomaton[100];
+        for (int i = 0; i < compiled.length; i++) {
+            automata.add(TestAutomata.random(5 + i % 10, "abc", 1.0, 0.0, 0.0, i));
+            compiled[i] = automata.get(i).compile();
+        }
+        MultiMatcher matcher = new MultiMatcher(compiled, 16 * 1024);
+        List<String> words = TestAutomata.randomWords("abc", 200, 200, 2);
+        assertLikeBelongs("small budget", automata, matcher, words);
+        assertTrue(matcher.isDirect(), matcher.toString());
+        assertLikeBelongs("direct", automata, matcher, words);
+    }
+
+    @Test
+    void emptyBudget() {
+        // q0 -a-> q1 -a-> q2 -a-> q3, every state final: two-letter words flush
+        // the cache before the thrashing fallback starts
+        Automaton chain = new Automaton();
+        State[] states = new State[4];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = new State("q" + i, true);
+            chain.addState(states[i]);
+        }
+        chain.setInitialState(states[0]);
+        for (int i = 0; i + 1 < states.length; i++) {
+            chain.addTransition(states[i], states[i + 1], 'a');
+        }
+        List<Automaton> automata = List.of(chain);
+        MultiMatcher matcher = new MultiMatcher(new CompiledAutomaton[] {chain.compile()}, 0);
+        assertLikeBelongs("no budget", automata, matcher, List.of("aa", "aa", "aaa", "", "aaaa", "a"));
+    }
+
+    private static List<Automaton> randomAutomata(int count) {
+        List<Automaton> automata = new ArrayList<>();
+        for (int seed = 0; seed < count; seed++) {
+            automata.add(TestAutomata.random(3 + seed % 10, "abc", 0.8, 0.3, 0.1, seed));
+        }
+        return automata;
+    }
+
+    private static void assertLikeBelongs(String name, List<Automaton> automata, MultiMatcher matcher, List<String> words) {
+        BitSet result = new BitSet();
+        for (String word : words) {
+            BitSet expected = new BitSet();
+            for (int i = 0; i < automata.size(); i++) {
+                expected.set(i, automata.get(i).belongs(word));
+            }
+            String message = name + " on '" + word + "'";
+            assertEquals(expected, matcher.match(word), message);
+            assertEquals(!expected.isEmpty(), matcher.match(word, result), message);
+            assertEquals(expected, result, message);
+            assertEquals(!expected.isEmpty(), matcher.matchesAny(word), message);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that an off-heap automaton, and the flyweight Automaton viewing it,
+ * accept like the automaton it was built from.
+ */
+class OffHeapAutomatonTest {
+    @Test
+    void acceptsLikeBelongs() throws IOException {
+        for (TestAutomata.Case test : TestAutomata.cases()) {
+            OffHeapAutomaton offHeap = OffHeapAutomaton.of(test.automaton());
+            TestAutomata.assertLikeBelongs("OffHeapAutomaton", test, offHeap);
+            Automaton view = offHeap.toAutomaton();
+            assertEquals(test.automaton().getStates().size(), view.getStates().size(), test.name());
+            for (String word : test.words()) {
+                assertEquals(test.automaton().belongs(word), view.belongs(word), "view, " + test.name() + " on '" + word + "'");
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks both modes of PdaRunner against the expected results of the
+ * pushdown automaton of lib/, and that a rejection caused by the epsilon
+ * bound is told apart from a real one. A malformed initial operation is
+ * reported like any other malformed operation.
+ */
+class PdaRunnerTest {
+    private static final Path PERSONNAGE = Path.of("lib/automate_tp_personnage.txt");
+    private static final Path PERSONNAGE_PDA_TESTS = Path.of("lib/tests_automate_personnage_pda.txt");
+
+    @Test
+    void libAutomaton() throws IOException {
+        PushdownAutomaton pda = PushdownAutomaton.compile(new AutomatonLoader().loadAutomaton(PERSONNAGE));
+        BitSet expected = new BitSet();
+        List<String> words = TestAutomata.readWords(PERSONNAGE_PDA_TESTS, expected);
+        PdaRunner runner = new PdaRunner(pda);
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            assertEquals(expected.get(i), runner.run(word), "run on '" + word + "'");
+            assertFalse(runner.isBoundExceeded(), "run on '" + word + "'");
+            assertEquals(expected.get(i), runner.explore(word), "explore on '" + word + "'");
+            assertFalse(runner.isBoundExceeded(), "explore on '" + word + "'");
+        }
+        TestReport report = new TestRunner(pda).run(PERSONNAGE_PDA_TESTS, new StringWriter());
+        assertEquals(words.size(), report.getPassed());
+    }
+
+    @Test
+    void malformedInitialOperation() {
+        Automaton automaton = new Automaton();
+        State q0 = new State("q0", true);
+        automaton.addState(q0);
+        automaton.setInitialState(q0);
+        automaton.setInitialStackOperation("⊥");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> PushdownAutomaton.compile(automaton));
+        assertTrue(e.getMessage().startsWith("Malformed stack operation"), e.getMessage());
+    }
+
+    @Test
+    void epsilonBoundIsReported() {
+        // q0 -ε-> q1 -ε-> ... -ε-> q20, the only final state
+        int length = 20;
+        Automaton automaton = new Automaton();
+        State[] states = new State[length + 1];
+        for (int i = 0; i <= length; i++) {
+            states[i] = new State("q" + i, i == length);
+            automaton.addState(states[i]);
+        }
+        automaton.setInitialState(states[0]);
+        for (int i = 0; i < length; i++) {
+            automaton.addTransition(states[i], states[i + 1], Transition.EPSILON);
+        }
+        PdaRunner runner = new PdaRunner(PushdownAutomaton.compile(automaton));
+
+        assertTrue(runner.run(""));
+        assertFalse(runner.isBoundExceeded());
+        assertTrue(runner.explore(""));
+        assertFalse(runner.isBoundExceeded());
+
+        runner.setMaxEpsilonSteps(length / 2);
+        assertFalse(runner.run(""));
+        assertTrue(runner.isBoundExceeded());
+        assertFalse(runner.explore(""));
+        assertTrue(runner.isBoundExceeded());
+
+        // A rejection that does not depend on the bound
+        assertFalse(runner.run("a"));
+        assertFalse(runner.isBoundExceeded());
+    }
+}
@@ -0,0 +1,104 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a ReloadableAutomaton swaps to the new version when its file
+ * changes, and that a file that cannot be loaded keeps the previous version
+ * and is counted as an error.
+ */
+class ReloadableAutomatonTest {
+    private static final String ACCEPTS_A = "q0\nq1\n- -> q0 : -; -;\nq0 -> q1 : -; a;\nq1 -> - : -; ;\n";
+    private static final String ACCEPTS_B = "q0\nq1\n- -> q0 : -; -;\nq0 -> q1 : -; b;\nq1 -> - : -; ;\n";
+    private static final String BROKEN = "q0\n- -> q0 : -; -;\nq0 -> nowhere : -; a;\n";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reloadSwapsTheVersion() throws IOException {
+        Path file = write(directory.resolve("automaton.txt"), ACCEPTS_A);
+        ReloadableAutomaton automaton = new ReloadableAutomaton(file);
+        assertEquals(1, automaton.getGeneration());
+        assertTrue(automaton.belongs("a"));
+        MatchCursor before = automaton.cursor();
+
+        write(file, ACCEPTS_B);
+        assertTrue(automaton.reload());
+        assertEquals(2, automaton.getGeneration());
+        assertEquals(1, automaton.getReloadCount());
+        assertEquals(0, automaton.getErrorCount());
+        assertFalse(automaton.belongs("a"));
+        assertTrue(automaton.belongs("b"));
+        // A cursor keeps the version it was created on
+        before.feed("a");
+        assertTrue(before.isAccepting());
+    }
+
+    @Test
+    void failedReloadKeepsTheVersion() throws IOException {
+        Path file = write(directory.resolve("automaton.txt"), ACCEPTS_A);
+        ReloadableAutomaton automaton = new ReloadableAutomaton(file);
+        CompiledAutomaton compiled = automaton.getCompiled();
+        assertNull(automaton.getLastError());
+
+        write(file, BROKEN);
+        assertFalse(automaton.reload());
+        assertEquals(1, automaton.getErrorCount());
+        assertEquals(0, automaton.getReloadCount());
+        assertEquals(1, automaton.getGeneration());
+        assertInstanceOf(AutomatonFormatException.class, automaton.getLastError());
+        assertEquals(compiled, automaton.getCompiled());
+        assertTrue(automaton.belongs("a"));
+
+        Files.delete(file);
+        assertFalse(automaton.reload());
+        assertEquals(2, automaton.getErrorCount());
+        assertInstanceOf(IOException.class, automaton.getLastError());
+        assertTrue(automaton.belongs("a"));
+    }
+
+    @Test
+    void watcherReloadsChangedFiles() throws Exception {
+        Path file = write(directory.resolve("automaton.txt"), ACCEPTS_A);
+        try (ReloadableAutomaton automaton = new ReloadableAutomaton(file)) {
+            automaton.setDebounceMillis(20);
+            automaton.start();
+
+            write(file, BROKEN);
+            await(() -> automaton.getErrorCount() > 0);
+            assertEquals(1, automaton.getGeneration());
+            assertTrue(automaton.belongs("a"));
+
+            write(file, ACCEPTS_B);
+            await(() -> automaton.getGeneration() == 2);
+            assertTrue(automaton.belongs("b"));
+            assertFalse(automaton.belongs("a"));
+        }
+    }
+
+    private static Path write(Path file, String text) throws IOException {
+        return Files.writeString(file, text, StandardCharsets.UTF_8);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+}
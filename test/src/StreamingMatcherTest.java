@@ -0,0 +1,69 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a stream fed in chunks, of characters or of bytes, is accepted
+ * like the whole word by Automaton.belongs, including characters whose bytes
+ * are split between two chunks.
+ */
+class StreamingMatcherTest {
+    @Test
+    void acceptsLikeBelongs() throws IOException {
+        for (TestAutomata.Case test : TestAutomata.cases()) {
+            CompiledAutomaton compiled = test.automaton().compile();
+            StreamingMatcher chars = new StreamingMatcher(compiled);
+            StreamingMatcher bytes = new StreamingMatcher(compiled);
+            for (String word : test.words()) {
+                boolean expected = test.automaton().belongs(word);
+                String message = test.name() + " on '" + word + "'";
+                chars.reset();
+                chars.feed(word.substring(0, word.length() / 2));
+                chars.feed(word.substring(word.length() / 2));
+                assertEquals(expected, chars.finish(), "chars, " + message);
+
+                bytes.reset();
+                byte[] encoded = word.getBytes(StandardCharsets.UTF_8);
+                for (int i = 0; i < encoded.length; i++) {
+                    bytes.feed(encoded, i, 1);
+                }
+                assertEquals(expected, bytes.finish(), "bytes, " + message);
+            }
+        }
+    }
+
+    @Test
+    void splitCharacters() {
+        // q0 -é-> q1 -€-> q2, q2 being final
+        Automaton automaton = new Automaton();
+        State q0 = new State("q0", false);
+        State q1 = new State("q1", false);
+        State q2 = new State("q2", true);
+        automaton.addState(q0);
+        automaton.addState(q1);
+        automaton.addState(q2);
+        automaton.setInitialState(q0);
+        automaton.addTransition(q0, q1, 'é');
+        automaton.addTransition(q1, q2, '€');
+        StreamingMatcher matcher = new StreamingMatcher(automaton.compile());
+
+        byte[] encoded = "é€".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < encoded.length; i++) {
+            assertTrue(matcher.feed(encoded, i, 1), "byte " + i);
+        }
+        assertTrue(matcher.finish());
+        assertEquals(2, matcher.getPosition());
+
+        // A character cut by the end of the stream is decoded as U+FFFD
+        matcher.reset();
+        matcher.feed(encoded, 0, encoded.length - 1);
+        assertFalse(matcher.finish());
+    }
+}
@@ -0,0 +1,260 @@
+package src;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The TestAutomata class builds the seeded random automata and words shared
+ * by the tests, and reads the test files of lib/.
+ */
+final class TestAutomata {
+    /**
+     * Automata of lib/ with their test files
+     */
+    static final String[][] LIB_CASES = {
+            {"lib/automate_facile.txt", "lib/tests_automate_facile.txt"},
+            {"lib/automate_tp_personnage.txt", "lib/tests_automate_personnage.txt"},
+    };
+
+    /**
+     * An automaton to check an engine on, with the words to try
+     * @param name Name of the automaton in the messages
+     * @param automaton The automaton
+     * @param words The words to try
+     */
+    record Case(String name, Automaton automaton, List<String> words) {
+    }
+
+    private TestAutomata() {
+    }
+
+    /**
+     * Lists the automata of lib/ with their words, then 40 random automata
+     * over "abc" with every word up to length 5 and random longer ones, "d"
+     * standing for a symbol they do not know
+     * @return New automata, which the caller may modify
+     * @throws IOException If a file of lib/ cannot be read
+     */
+    static List<Case> cases() throws IOException {
+        List<Case> cases = new ArrayList<>();
+        for (String[] files : LIB_CASES) {
+            Automaton automaton = new AutomatonLoader().loadAutomaton(Path.of(files[0]));
+            cases.add(new Case(files[0], automaton, libWords(automaton, Path.of(files[1]))));
+        }
+        for (int seed = 0; seed < 40; seed++) {
+            List<String> words = new ArrayList<>(allWords("abcd", 5));
+            words.addAll(randomWords("abcd", 300, 30, seed));
+            cases.add(new Case("random " + seed, random(2 + seed % 12, "abc", 0.7, 0.3, 0.3, seed), words));
+        }
+        return cases;
+    }
+
+    /**
+     * Checks that a matcher accepts the words Automaton.belongs accepts, where
+     * an epsilon transition consumes a symbol
+     * @param engine Name of the matcher in the messages
+     * @param test The automaton and its words
+     * @param matcher The matcher built from the automaton
+     */
+    static void assertLikeBelongs(String engine, Case test, WordMatcher matcher) {
+        for (String word : test.words()) {
+            assertEquals(test.automaton().belongs(word), matcher.belongs(word),
+                    engine + ", " + test.name() + " on '" + word + "'");
+        }
+    }
+
+    /**
+     * Checks that a matcher accepts the words nfaAccepts accepts, where an
+     * epsilon transition does not consume input
+     * @param engine Name of the matcher in the messages
+     * @param test The automaton and its words
+     * @param matcher The matcher built from the automaton
+     */
+    static void assertLikeNfa(String engine, Case test, WordMatcher matcher) {
+        for (String word : test.words()) {
+            assertEquals(nfaAccepts(test.automaton(), word), matcher.belongs(word),
+                    engine + ", " + test.name() + " on '" + word + "'");
+        }
+    }
+
+    /**
+     * Builds a random automaton
+     * @param stateCount Number of states, q0 being initial
+     * @param symbols Symbols of the transitions
+     * @param density Probability that a state has a transition on a symbol
+     * @param nondeterminism Probability of a second transition on the same symbol
+     * @param epsilonRatio Probability that a state has an epsilon transition, inserted among the others
+     * @param seed Seed of the random choices
+     * @return The automaton
+     */
+    static Automaton random(int stateCount, String symbols, double density, double nondeterminism,
+                            double epsilonRatio, long seed) {
+        Random random = new Random(seed);
+        Automaton automaton = new Automaton();
+        State[] states = new State[stateCount];
+        for (int i = 0; i < stateCount; i++) {
+            states[i] = new State("q" + i, random.nextInt(3) == 0);
+            automaton.addState(states[i]);
+        }
+        automaton.setInitialState(states[0]);
+        for (State state : states) {
+            boolean epsilon = random.nextDouble() < epsilonRatio;
+            int epsilonAt = random.nextInt(symbols.length() + 1);
+            for (int s = 0; s <= symbols.length(); s++) {
+                if (epsilon && s == epsilonAt) {
+                    automaton.addTransition(state, states[random.nextInt(stateCount)], Transition.EPSILON);
+                }
+                if (s == symbols.length()) {
+                    break;
+                }
+                if (random.nextDouble() < density) {
+                    automaton.addTransition(state, states[random.nextInt(stateCount)], symbols.charAt(s));
+                    if (random.nextDouble() < nondeterminism) {
+                        automaton.addTransition(state, states[random.nextInt(stateCount)], symbols.charAt(s));
+                    }
+                }
+            }
+        }
+        return automaton;
+    }
+
+    /**
+     * Lists every word over some symbols up to a length, shortest first
+     * @param symbols The symbols
+     * @param maxLength Longest length
+     * @return The words, the empty word first
+     */
+    static List<String> allWords(String symbols, int maxLength) {
+        List<String> words = new ArrayList<>();
+        words.add("");
+        for (int start = 0, length = 1; length <= maxLength; length++) {
+            int end = words.size();
+            for (int i = start; i < end; i++) {
+                for (int s = 0; s < symbols.length(); s++) {
+                    words.add(words.get(i) + symbols.charAt(s));
+                }
+            }
+            start = end;
+        }
+        return words;
+    }
+
+    /**
+     * Draws random words
+     * @param symbols The symbols the words are made of
+     * @param count Number of words
+     * @param maxLength Longest length
+     * @param seed Seed of the words
+     * @return The words
+     */
+    static List<String> randomWords(String symbols, int count, int maxLength, long seed) {
+        Random random = new Random(seed);
+        List<String> words = new ArrayList<>(count);
+        char[] word = new char[maxLength];
+        for (int w = 0; w < count; w++) {
+            int length = random.nextInt(maxLength + 1);
+            for (int i = 0; i < length; i++) {
+                word[i] = symbols.charAt(random.nextInt(symbols.length()));
+            }
+            words.add(new String(word, 0, length));
+        }
+        return words;
+    }
+
+    /**
+     * Reads the words of a test file, in the format of lib/tests_*.txt
+     * @param tests The test file
+     * @param expected Receives the expected result of each word, in the bit of the same index
+     * @return The words
+     * @throws IOException If the file cannot be read
+     */
+    static List<String> readWords(Path tests, BitSet expected) throws IOException {
+        List<String> words = new ArrayList<>();
+        for (String line : Files.readAllLines(tests, StandardCharsets.UTF_8)) {
+            int arrow = line.indexOf("->");
+            if (arrow < 0 || line.trim().startsWith("#")) {
+                continue;
+            }
+            expected.set(words.size(), line.substring(arrow + 2).trim().startsWith("true"));
+            words.add(line.substring(0, arrow).trim());
+        }
+        return words;
+    }
+
+    /**
+     * Gets the words to check an automaton of lib/ with: those of its test
+     * file, every short word over its alphabet, and random longer ones
+     * @param automaton The automaton
+     * @param tests Its test file
+     * @return The words, without duplicates
+     * @throws IOException If the test file cannot be read
+     */
+    static List<String> libWords(Automaton automaton, Path tests) throws IOException {
+        Set<String> words = new LinkedHashSet<>(readWords(tests, new BitSet()));
+        StringBuilder symbols = new StringBuilder();
+        for (char symbol : automaton.getAlphabet()) {
+            symbols.append(symbol);
+        }
+        // A symbol outside the alphabet, so that words using it are checked too
+        symbols.append('#');
+        words.addAll(allWords(symbols.toString(), 4));
+        words.addAll(randomWords(symbols.toString(), 2000, 24, 7));
+        return new ArrayList<>(words);
+    }
+
+    /**
+     * Decides if an automaton accepts a word when epsilon transitions do not
+     * consume input, by simulating the set of active states; the reference of
+     * the engines built on NfaGraph
+     * @param automaton The automaton
+     * @param word The word
+     * @return true if some path reads the word and ends on a final state
+     */
+    static boolean nfaAccepts(Automaton automaton, String word) {
+        if (automaton.getInitialState() == null) {
+            return false;
+        }
+        Set<State> current = closure(Set.of(automaton.getInitialState()));
+        for (int i = 0; i < word.length() && !current.isEmpty(); i++) {
+            Set<State> next = new LinkedHashSet<>();
+            for (State state : current) {
+                for (Transition transition : state.getTransitions()) {
+                    if (transition.getSymbol() == word.charAt(i) && transition.getSymbol() != Transition.EPSILON) {
+                        next.add(transition.getFinalState());
+                    }
+                }
+            }
+            current = closure(next);
+        }
+        for (State state : current) {
+            if (state.isFinal()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<State> closure(Set<State> states) {
+        Set<State> closure = new LinkedHashSet<>(states);
+        List<State> stack = new ArrayList<>(states);
+        while (!stack.isEmpty()) {
+            State state = stack.remove(stack.size() - 1);
+            for (Transition transition : state.getTransitions()) {
+                if (transition.getSymbol() == Transition.EPSILON && closure.add(transition.getFinalState())) {
+                    stack.add(transition.getFinalState());
+                }
+            }
+        }
+        return closure;
+    }
+}
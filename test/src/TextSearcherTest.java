@@ -0,0 +1,143 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks TextSearcher against brute force, which tries every substring of the
+ * text with belongs, with the default cache budget and with a budget so small
+ * that the cache is flushed all the time.
+ */
+class TextSearcherTest {
+    private static final long[] BUDGETS = {TextSearcher.DEFAULT_BUDGET, 256};
+
+    @Test
+    void randomAutomata() {
+        for (int seed = 0; seed < 40; seed++) {
+            CompiledAutomaton automaton = TestAutomata.random(2 + seed % 6, "ab", 0.7, 0.3, 0.2, seed).compile();
+            for (String text : TestAutomata.randomWords("abc", 20, 40, seed)) {
+                check("seed " + seed, automaton, text);
+            }
+        }
+    }
+
+    @Test
+    void libAutomaton() throws IOException {
+        CompiledAutomaton automaton = new AutomatonLoader()
+                .loadAutomaton(Path.of("lib/automate_facile.txt")).compile();
+        for (String text : TestAutomata.randomWords("abcd#", 20, 60, 3)) {
+            check("automate_facile", automaton, text);
+        }
+        check("automate_facile", automaton, "b".repeat(200));
+    }
+
+    @Test
+    void overlappingMatchesOfALongRunStartAtTheBeginning() throws IOException {
+        // automate_facile accepts the words ending with b: every prefix of the run is a match
+        CompiledAutomaton automaton = new AutomatonLoader()
+                .loadAutomaton(Path.of("lib/automate_facile.txt")).compile();
+        int length = 200_000;
+        int[] matches = new int[2];
+        new TextSearcher(automaton, TextSearcher.Mode.ALL_OVERLAPPING, TextSearcher.DEFAULT_BUDGET)
+                .search("b".repeat(length), (start, end) -> {
+                    matches[0]++;
+                    matches[1] = Math.max(matches[1], start);
+                    return true;
+                });
+        assertEquals(length, matches[0]);
+        assertEquals(0, matches[1]);
+    }
+
+    @Test
+    void region() {
+        CompiledAutomaton automaton = TestAutomata.random(4, "ab", 0.8, 0.3, 0.2, 11).compile();
+        String text = "abbabaabbbaabab";
+        for (TextSearcher.Mode mode : TextSearcher.Mode.values()) {
+            List<int[]> matches = new ArrayList<>();
+            new TextSearcher(automaton, mode, TextSearcher.DEFAULT_BUDGET)
+                    .search(text, 3, 11, (start, end) -> matches.add(new int[]{start, end}));
+            List<int[]> expected = new ArrayList<>();
+            for (int[] match : expected(automaton, text.substring(3, 11), mode)) {
+                expected.add(new int[]{match[0] + 3, match[1] + 3});
+            }
+            assertEquals(format(expected), format(matches), mode + " in a region");
+        }
+    }
+
+    @Test
+    void stopsWhenTheCallbackSaysSo() {
+        CompiledAutomaton automaton = new Determinizer(TestAutomata.random(3, "a", 1, 0, 0, 1)).determinize();
+        for (TextSearcher.Mode mode : TextSearcher.Mode.values()) {
+            int[] calls = new int[1];
+            new TextSearcher(automaton, mode, TextSearcher.DEFAULT_BUDGET).search("aaaaaaaa", (start, end) -> {
+                calls[0]++;
+                return false;
+            });
+            assertEquals(Math.min(1, expected(automaton, "aaaaaaaa", mode).size()), calls[0], mode.toString());
+        }
+    }
+
+    private void check(String name, CompiledAutomaton automaton, String text) {
+        for (TextSearcher.Mode mode : TextSearcher.Mode.values()) {
+            String expected = format(expected(automaton, text, mode));
+            for (long budget : BUDGETS) {
+                List<int[]> matches = new ArrayList<>();
+                new TextSearcher(automaton, mode, budget).search(text, (start, end) -> matches.add(new int[]{start, end}));
+                assertEquals(expected, format(matches), name + ", " + mode + ", budget " + budget + " on '" + text + "'");
+            }
+        }
+    }
+
+    /**
+     * Finds the matches by trying every substring
+     */
+    private static List<int[]> expected(CompiledAutomaton automaton, String text, TextSearcher.Mode mode) {
+        List<int[]> matches = new ArrayList<>();
+        if (mode == TextSearcher.Mode.ALL_OVERLAPPING) {
+            for (int end = 0; end <= text.length(); end++) {
+                for (int start = 0; start <= end; start++) {
+                    if (automaton.belongs(text.substring(start, end))) {
+                        matches.add(new int[]{start, end});
+                        break;
+                    }
+                }
+            }
+            return matches;
+        }
+        int position = 0;
+        while (position <= text.length()) {
+            int[] match = leftmostLongest(automaton, text, position);
+            if (match == null) {
+                break;
+            }
+            matches.add(match);
+            position = match[1] > match[0] ? match[1] : match[1] + 1;
+        }
+        return matches;
+    }
+
+    private static int[] leftmostLongest(CompiledAutomaton automaton, String text, int from) {
+        for (int start = from; start <= text.length(); start++) {
+            for (int end = text.length(); end >= start; end--) {
+                if (automaton.belongs(text.substring(start, end))) {
+                    return new int[]{start, end};
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String format(List<int[]> matches) {
+        StringBuilder builder = new StringBuilder();
+        for (int[] match : matches) {
+            builder.append('[').append(match[0]).append(", ").append(match[1]).append(") ");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,124 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that TokenMatcher accepts like belongs, that multi-character symbols
+ * such as "P10" are read whole by both, kept by snapshots, and refused by the
+ * engines that can only hold single chars.
+ */
+class TokenSymbolsTest {
+    private static final List<String> WORDS = List.of("", "P", "P1", "P10", "P10P", "PP10", "P10a", "a", "aP", "P0", "Pa");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void tokenMatcherAcceptsLikeBelongs() throws IOException {
+        for (TestAutomata.Case test : TestAutomata.cases()) {
+            TestAutomata.assertLikeBelongs("TokenMatcher", test, test.automaton().tokenMatcher());
+        }
+    }
+
+    @Test
+    void belongsReadsWholeSymbols() {
+        Automaton automaton = automaton();
+        TokenMatcher tokens = automaton.tokenMatcher();
+        for (String word : WORDS) {
+            assertEquals(expected(word), automaton.belongs(word), "belongs on '" + word + "'");
+            assertEquals(expected(word), tokens.belongs(word), "TokenMatcher on '" + word + "'");
+        }
+        automaton.enableMetrics();
+        for (String word : WORDS) {
+            assertEquals(expected(word), automaton.belongs(word), "measured belongs on '" + word + "'");
+        }
+    }
+
+    @Test
+    void snapshotsKeepTheSymbols() {
+        Automaton automaton = automaton();
+        AutomatonSnapshot snapshot = automaton.snapshot();
+        Automaton rebuilt = snapshot.toAutomaton();
+        TokenMatcher tokens = TokenMatcher.compile(snapshot);
+        for (String word : WORDS) {
+            assertEquals(expected(word), rebuilt.belongs(word), "snapshot on '" + word + "'");
+            assertEquals(expected(word), tokens.belongs(word), "TokenMatcher of the snapshot on '" + word + "'");
+        }
+    }
+
+    @Test
+    void automatonConstructorsUseTheFullSymbols() throws IOException {
+        Automaton automaton = automaton();
+        boolean[] bulk = new BulkMatcher(automaton).belongs(WORDS.toArray(new CharSequence[0]));
+        StringBuilder tests = new StringBuilder();
+        for (int i = 0; i < WORDS.size(); i++) {
+            assertEquals(expected(WORDS.get(i)), bulk[i], "BulkMatcher on '" + WORDS.get(i) + "'");
+            tests.append(WORDS.get(i)).append(" -> ").append(expected(WORDS.get(i))).append('\n');
+        }
+        Path file = directory.resolve("tests.txt");
+        Files.writeString(file, tests, StandardCharsets.UTF_8);
+        assertEquals(WORDS.size(), new TestRunner(automaton).run(file, new StringWriter()).getPassed());
+    }
+
+    @Test
+    void charEnginesRefuseTheSymbols() {
+        Automaton automaton = automaton();
+        AutomatonSnapshot snapshot = automaton.snapshot();
+        Path image = directory.resolve("tokens.bin");
+        assertThrows(IllegalArgumentException.class, automaton::compile);
+        assertThrows(IllegalArgumentException.class, snapshot::compile);
+        assertThrows(IllegalArgumentException.class, () -> snapshot.belongs("P10"));
+        assertThrows(IllegalArgumentException.class, automaton::incrementalCompiler);
+        assertThrows(IllegalArgumentException.class, () -> new MultiMatcher(List.of(automaton)));
+        assertThrows(IllegalArgumentException.class, () -> AutomatonImage.write(automaton, image));
+        assertThrows(IllegalArgumentException.class, () -> OffHeapAutomaton.of(automaton));
+        assertThrows(IllegalArgumentException.class, () -> PushdownAutomaton.compile(automaton));
+    }
+
+    @Test
+    void incrementalCompilerRefusesANewSymbol() {
+        Automaton plain = new Automaton();
+        State q0 = new State("q0", true);
+        plain.addState(q0);
+        plain.setInitialState(q0);
+        plain.addTransition(q0, q0, 'a');
+        IncrementalCompiler compiler = plain.incrementalCompiler();
+        assertThrows(IllegalArgumentException.class, () -> plain.addTransition(q0, q0, "P10"));
+        assertEquals(1, plain.getTransitions().size());
+        assertTrue(compiler.snapshot().belongs("aa"));
+    }
+
+    /**
+     * q0 -P10-> q1 -P-> q2, with q0 -a-> q2 and q1 accepting as well
+     */
+    private static Automaton automaton() {
+        Automaton automaton = new Automaton();
+        State q0 = new State("q0", false);
+        State q1 = new State("q1", true);
+        State q2 = new State("q2", true);
+        automaton.addState(q0);
+        automaton.addState(q1);
+        automaton.addState(q2);
+        automaton.setInitialState(q0);
+        automaton.addTransition(q0, q1, "P10");
+        automaton.addTransition(q1, q2, "P");
+        automaton.addTransition(q0, q2, 'a');
+        return automaton;
+    }
+
+    private static boolean expected(String word) {
+        return word.equals("P10") || word.equals("P10P") || word.equals("a");
+    }
+}
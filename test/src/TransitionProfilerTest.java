@@ -0,0 +1,50 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the hot-path layouts of a profiled automaton, compiled or
+ * reordered in place, accept like Automaton.belongs did before profiling.
+ */
+class TransitionProfilerTest {
+    @Test
+    void compiledAcceptsLikeBelongs() throws IOException {
+        for (TestAutomata.Case test : TestAutomata.cases()) {
+            TransitionProfiler profiler = new TransitionProfiler(test.automaton());
+            profiler.recordAll(test.words());
+            assertEquals(test.words().size(), profiler.getWordCount(), test.name());
+            TestAutomata.assertLikeBelongs("TransitionProfiler", test, profiler.compile());
+
+            List<State> hot = profiler.hotStateOrder();
+            assertEquals(test.automaton().getInitialState(), hot.get(0), test.name());
+            for (int i = 2; i < hot.size(); i++) {
+                assertTrue(profiler.getVisits(hot.get(i - 1)) >= profiler.getVisits(hot.get(i)), test.name());
+            }
+        }
+    }
+
+    @Test
+    void reorderingKeepsTheLanguage() throws IOException {
+        for (TestAutomata.Case test : TestAutomata.cases()) {
+            Automaton automaton = test.automaton();
+            List<Boolean> expected = new ArrayList<>();
+            for (String word : test.words()) {
+                expected.add(automaton.belongs(word));
+            }
+            TransitionProfiler profiler = new TransitionProfiler(automaton);
+            profiler.recordAll(test.words());
+            profiler.reorderTransitions();
+            for (int i = 0; i < test.words().size(); i++) {
+                String word = test.words().get(i);
+                assertEquals(expected.get(i), automaton.belongs(word), "reordered " + test.name() + " on '" + word + "'");
+            }
+        }
+    }
+}